@@ -0,0 +1,436 @@
+/*
+ * Copyright 2015 Olivier Croisier (thecodersbreakfast.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.thecodersbreakfast.lp4j.api;
+
+import java.io.Closeable;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A {@link LaunchpadClient} that can be called from any number of threads, funneling all the commands to a single
+ * writer thread which applies them to an actual client.
+ *
+ * <p>Commands are appended to a lock-free queue and applied in the order they were queued, so the order of the
+ * commands issued to each pad is preserved, and commands made of several messages (such as
+ * {@link #setPadBlink(Pad, Color, Color)} or {@link #batch(LaunchpadBatch)}) are never interleaved with others. Callers
+ * never wait for a lock nor for the device : the writer thread is only woken up when the queue was empty.
+ *
+ * <p>Null arguments are rejected immediately ; other failures happen on the writer thread, and are counted and kept
+ * (see {@link #getFailedCommands()} and {@link #getLastFailure()}) rather than thrown. Arrays and batches are copied
+ * when the command is queued, so they can be reused by the caller right away.
+ *
+ * <p>This class is thread-safe. The underlying client must only be used through this one.
+ *
+ * @author Olivier Croisier (olivier.croisier@gmail.com)
+ */
+public class ConcurrentLaunchpadClient implements LaunchpadClient, Closeable {
+
+    /** How long {@link #close()} waits for the pending commands to be applied, in milliseconds. */
+    private static final long CLOSE_TIMEOUT = 1000;
+
+    /** The client actually controlling the Launchpad, only called from the writer thread. */
+    private final LaunchpadClient client;
+    /** Commands waiting to be applied. */
+    private final Queue<Runnable> queue = new ConcurrentLinkedQueue<Runnable>();
+    /** Number of commands queued but not applied yet. The writer thread is woken up when it rises from zero. */
+    private final AtomicInteger pending = new AtomicInteger();
+    /** The writer thread. */
+    private final Thread writerThread;
+    /** Number of commands that failed. */
+    private final AtomicLong failedCommands = new AtomicLong();
+    /** The last failure, if any. */
+    private volatile RuntimeException lastFailure;
+    /** Indicates that the client has been closed. */
+    private volatile boolean closed = false;
+
+    /**
+     * Constructor, with a daemon writer thread.
+     *
+     * @param client The client actually controlling the Launchpad. Must not be null.
+     */
+    public ConcurrentLaunchpadClient(LaunchpadClient client) {
+        this(client, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "lp4j-client-writer");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Constructor. The writer thread is started immediately.
+     *
+     * @param client The client actually controlling the Launchpad. Must not be null.
+     * @param threadFactory The factory used to create the writer thread. Must not be null.
+     */
+    public ConcurrentLaunchpadClient(LaunchpadClient client, ThreadFactory threadFactory) {
+        if (client == null) {
+            throw new IllegalArgumentException("Client must not be null.");
+        }
+        if (threadFactory == null) {
+            throw new IllegalArgumentException("Thread factory must not be null.");
+        }
+        this.client = client;
+        this.writerThread = threadFactory.newThread(new Runnable() {
+            @Override
+            public void run() {
+                writeLoop();
+            }
+        });
+        this.writerThread.start();
+    }
+
+    /*
+    ================================================================================
+    Launchpad API
+    ================================================================================
+    */
+
+    /** {@inheritDoc} */
+    @Override
+    public void reset() {
+        submit(new Runnable() {
+            @Override
+            public void run() {
+                client.reset();
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param intensity {@inheritDoc} Must not be null.
+     */
+    @Override
+    public void testLights(final LightIntensity intensity) {
+        if (intensity == null) {
+            throw new IllegalArgumentException("Light intensity must not be null.");
+        }
+        submit(new Runnable() {
+            @Override
+            public void run() {
+                client.testLights(intensity);
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param colors {@inheritDoc} Must not be null. The array is copied.
+     * @param operation {@inheritDoc} Must not be null.
+     */
+    @Override
+    public void setLights(Color[] colors, final BackBufferOperation operation) {
+        if (colors == null) {
+            throw new IllegalArgumentException("Colors must not be null");
+        }
+        if (operation == null) {
+            throw new IllegalArgumentException("BackBuffer operation must not be null.");
+        }
+        final Color[] copy = colors.clone();
+        submit(new Runnable() {
+            @Override
+            public void run() {
+                client.setLights(copy, operation);
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param pad {@inheritDoc} Must not be null.
+     * @param color {@inheritDoc} Must not be null.
+     * @param operation {@inheritDoc} Must not be null.
+     */
+    @Override
+    public void setPadLight(final Pad pad, final Color color, final BackBufferOperation operation) {
+        if (pad == null) {
+            throw new IllegalArgumentException("Pad must not be null.");
+        }
+        if (color == null) {
+            throw new IllegalArgumentException("Color must not be null.");
+        }
+        if (operation == null) {
+            throw new IllegalArgumentException("BackBuffer operation must not be null.");
+        }
+        submit(new Runnable() {
+            @Override
+            public void run() {
+                client.setPadLight(pad, color, operation);
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param button {@inheritDoc} Must not be null.
+     * @param color {@inheritDoc} Must not be null.
+     * @param operation {@inheritDoc} Must not be null.
+     */
+    @Override
+    public void setButtonLight(final Button button, final Color color, final BackBufferOperation operation) {
+        if (button == null) {
+            throw new IllegalArgumentException("Button must not be null.");
+        }
+        if (color == null) {
+            throw new IllegalArgumentException("Color must not be null.");
+        }
+        if (operation == null) {
+            throw new IllegalArgumentException("BackBuffer operation must not be null.");
+        }
+        submit(new Runnable() {
+            @Override
+            public void run() {
+                client.setButtonLight(button, color, operation);
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param pad {@inheritDoc} Must not be null.
+     * @param onColor {@inheritDoc} Must not be null.
+     * @param offColor {@inheritDoc} Must not be null.
+     */
+    @Override
+    public void setPadBlink(final Pad pad, final Color onColor, final Color offColor) {
+        if (pad == null) {
+            throw new IllegalArgumentException("Pad must not be null.");
+        }
+        if (onColor == null || offColor == null) {
+            throw new IllegalArgumentException("Color must not be null.");
+        }
+        submit(new Runnable() {
+            @Override
+            public void run() {
+                client.setPadBlink(pad, onColor, offColor);
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param brightness {@inheritDoc} Must not be null.
+     */
+    @Override
+    public void setBrightness(final Brightness brightness) {
+        if (brightness == null) {
+            throw new IllegalArgumentException("Brightness must not be null");
+        }
+        submit(new Runnable() {
+            @Override
+            public void run() {
+                client.setBrightness(brightness);
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param visibleBuffer {@inheritDoc} Must not be null.
+     * @param writeBuffer {@inheritDoc} Must not be null.
+     */
+    @Override
+    public void setBuffers(final Buffer visibleBuffer, final Buffer writeBuffer, final boolean copyVisibleBufferToWriteBuffer, final boolean autoSwap) {
+        if (visibleBuffer == null) {
+            throw new IllegalArgumentException("Visible buffer must not be null.");
+        }
+        if (writeBuffer == null) {
+            throw new IllegalArgumentException("Write buffer must not be null.");
+        }
+        submit(new Runnable() {
+            @Override
+            public void run() {
+                client.setBuffers(visibleBuffer, writeBuffer, copyVisibleBufferToWriteBuffer, autoSwap);
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param batch {@inheritDoc} It is copied, and may be reused as soon as this method returns.
+     */
+    @Override
+    public void batch(LaunchpadBatch batch) {
+        if (batch == null) {
+            throw new IllegalArgumentException("Batch must not be null.");
+        }
+        final LaunchpadBatch copy = batch.copy();
+        submit(new Runnable() {
+            @Override
+            public void run() {
+                client.batch(copy);
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param color {@inheritDoc} Must not be null.
+     * @param speed {@inheritDoc} Must not be null.
+     * @param operation {@inheritDoc} Must not be null.
+     */
+    @Override
+    public void scrollText(final String text, final Color color, final ScrollSpeed speed, final boolean loop, final BackBufferOperation operation) {
+        if (color == null) {
+            throw new IllegalArgumentException("Color must not be null.");
+        }
+        if (speed == null) {
+            throw new IllegalArgumentException("Speed must not be null.");
+        }
+        if (operation == null) {
+            throw new IllegalArgumentException("Operation must not be null.");
+        }
+        submit(new Runnable() {
+            @Override
+            public void run() {
+                client.scrollText(text, color, speed, loop, operation);
+            }
+        });
+    }
+
+    /*
+    ================================================================================
+    Writer management
+    ================================================================================
+    */
+
+    /**
+     * Waits until all the commands queued so far have been applied.
+     *
+     * @param timeout The maximum time to wait.
+     * @param unit The unit of the timeout. Must not be null.
+     * @return {@code true} if the commands have been applied, {@code false} if the timeout elapsed first.
+     * @throws InterruptedException If the calling thread is interrupted while waiting.
+     */
+    public boolean flush(long timeout, TimeUnit unit) throws InterruptedException {
+        if (unit == null) {
+            throw new IllegalArgumentException("Time unit must not be null.");
+        }
+        final CountDownLatch applied = new CountDownLatch(1);
+        submit(new Runnable() {
+            @Override
+            public void run() {
+                applied.countDown();
+            }
+        });
+        return applied.await(timeout, unit);
+    }
+
+    /**
+     * Stops the writer thread, after giving it a chance to apply the pending commands. The underlying client is not
+     * closed.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(writerThread);
+        try {
+            writerThread.join(CLOSE_TIMEOUT);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns the number of commands waiting to be applied.
+     *
+     * @return The number of pending commands.
+     */
+    public int getPendingCommands() {
+        // May briefly go negative, when a command is applied before its submitter accounted for it
+        return Math.max(0, pending.get());
+    }
+
+    /**
+     * Returns the number of commands that failed so far.
+     *
+     * @return The number of failed commands.
+     */
+    public long getFailedCommands() {
+        return failedCommands.get();
+    }
+
+    /**
+     * Returns the last failure of a command.
+     *
+     * @return The last failure, or {@code null} if no command failed.
+     */
+    public RuntimeException getLastFailure() {
+        return lastFailure;
+    }
+
+    /*
+    ================================================================================
+    Utils
+    ================================================================================
+    */
+
+    /**
+     * Queues a command, and wakes the writer thread up if it may be idle.
+     */
+    private void submit(Runnable command) {
+        if (closed) {
+            throw new LaunchpadException("Unable to send the command, because the client has been closed.");
+        }
+        queue.offer(command);
+        if (pending.getAndIncrement() == 0) {
+            LockSupport.unpark(writerThread);
+        }
+    }
+
+    /**
+     * Main loop of the writer thread : applies the queued commands until the client is closed and the queue is empty.
+     */
+    private void writeLoop() {
+        while (true) {
+            Runnable command;
+            while ((command = queue.poll()) != null) {
+                // Accounted for before running, so that a flush only returns once its predecessors are all counted
+                pending.decrementAndGet();
+                try {
+                    command.run();
+                } catch (RuntimeException e) {
+                    failedCommands.incrementAndGet();
+                    lastFailure = e;
+                }
+            }
+            if (closed) {
+                return;
+            }
+            LockSupport.park(this);
+        }
+    }
+
+}
@@ -0,0 +1,511 @@
+/*
+ * Copyright 2015 Olivier Croisier (thecodersbreakfast.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.thecodersbreakfast.lp4j.api;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A precomputed light show, stored as a sequence of timestamped frames, and memory-mapped from disk.
+ *
+ * <p>Frames are read directly from the mapped file, so opening a sequence is instantaneous whatever its duration, and
+ * playing it does not load it on the heap.
+ *
+ * <p>File format (all numbers are big-endian) :
+ * <ul>
+ * <li>Header ({@value #HEADER_SIZE} bytes) : magic number {@code "LP4S"}, version (short), encoding (byte), reserved
+ * byte, number of frames (int), duration in milliseconds (long), keyframe interval (int), offset of the keyframe index
+ * (int), then reserved bytes.</li>
+ * <li>{@link Encoding#FULL} frames : timestamp in milliseconds (int), then the {@value #NB_LIGHTS} lights, each color
+ * being stored on one byte as {@code green << 4 | red}.</li>
+ * <li>{@link Encoding#DELTA} frames : a header (short) and a timestamp (unsigned LEB128 varint), then the lights. Lights
+ * are split in 10 groups of 8 (one per pad line, then the top-row buttons, then the right-side buttons), and colors are
+ * packed by 2 per byte, as {@code green << 2 | red} nibbles (high nibble first).
+ * <ul>
+ * <li>Keyframes (bit 15 of the header set) hold the absolute timestamp and all the lights.</li>
+ * <li>Other frames hold the time elapsed since the previous frame. Bits 0-9 of the header flag the groups holding
+ * changed lights ; each flagged group is followed by a bitmask of its changed lights (byte), then come the colors of
+ * the changed lights.</li>
+ * </ul>
+ * A keyframe is stored every {@code keyframe interval} frames, and the keyframe index (offset and timestamp of each
+ * keyframe, 2 ints) follows the last frame, so that seeking only decodes the frames following the nearest keyframe.</li>
+ * </ul>
+ *
+ * <p>Lights are ordered as in {@link LaunchpadClient#setLights(Color[], BackBufferOperation)} : the pads line by line,
+ * then the top-row buttons, then the right-side buttons.
+ *
+ * <p>Sequences are written with a {@link FrameSequenceWriter} (or recorded with a {@link RecordingLaunchpadClient}),
+ * and played with a {@link FrameSequencePlayer}.
+ *
+ * @author Olivier Croisier (olivier.croisier@gmail.com)
+ */
+public final class FrameSequence {
+
+    /** Number of lights in a frame : 64 pads, 8 top-row buttons and 8 right-side buttons. */
+    public static final int NB_LIGHTS = 80;
+    /** Size of the file header, in bytes. */
+    public static final int HEADER_SIZE = 32;
+
+    /** Magic number identifying the file format ("LP4S"). */
+    static final int MAGIC = 0x4C503453;
+    /** Current version of the file format. */
+    static final short VERSION = 1;
+    /** Index of the first top-row button in a frame. */
+    static final int FIRST_TOP_BUTTON = 64;
+    /** Index of the first right-side button in a frame. */
+    static final int FIRST_RIGHT_BUTTON = 72;
+    /** Number of groups of 8 lights, in delta frames. */
+    static final int NB_GROUPS = NB_LIGHTS / 8;
+    /** Flag of the delta frame header identifying keyframes. */
+    static final int KEYFRAME_FLAG = 0x8000;
+    /** Size of a keyframe index entry, in bytes. */
+    static final int INDEX_ENTRY_SIZE = 8;
+    /** Colors, indexed by their packed (4-bit) value. */
+    private static final Color[] UNPACKED_COLORS = new Color[16];
+
+    static {
+        for (int i = 0; i < UNPACKED_COLORS.length; i++) {
+            UNPACKED_COLORS[i] = Color.of(i & 0x03, i >> 2);
+        }
+    }
+
+    /**
+     * The ways frames can be stored.
+     */
+    public enum Encoding {
+        /** Each frame holds all the lights : frames have a fixed size, and can be reached directly. */
+        FULL,
+        /** Frames only hold the lights that changed since the previous frame, with periodic keyframes for seeking. */
+        DELTA
+    }
+
+    /** The mapped file. */
+    private final ByteBuffer buffer;
+    /** How frames are stored. */
+    private final Encoding encoding;
+    /** Number of frames. */
+    private final int frameCount;
+    /** Duration of the sequence, in milliseconds. */
+    private final long duration;
+    /** Number of frames between two keyframes (delta encoding only). */
+    private final int keyframeInterval;
+    /** Offset of the keyframe index (delta encoding only). */
+    private final int indexOffset;
+
+    /**
+     * Maps a sequence file in memory.
+     *
+     * @param file The sequence file. Must not be null.
+     * @return The sequence.
+     * @throws IOException If the file cannot be read, or is not a valid sequence file.
+     */
+    public static FrameSequence open(File file) throws IOException {
+        if (file == null) {
+            throw new IllegalArgumentException("File must not be null.");
+        }
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Sequence file too large : " + size + " bytes.");
+            }
+            // The mapping remains valid after the channel is closed
+            return new FrameSequence(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param buffer The content of a sequence file.
+     * @throws IOException If the content is not a valid sequence.
+     */
+    FrameSequence(ByteBuffer buffer) throws IOException {
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a Launchpad frame sequence.");
+        }
+        short version = buffer.getShort(4);
+        if (version != VERSION) {
+            throw new IOException("Unsupported frame sequence version : " + version + ".");
+        }
+        int encodingIndex = buffer.get(6);
+        if (encodingIndex < 0 || encodingIndex >= Encoding.values().length) {
+            throw new IOException("Unknown frame encoding : " + encodingIndex + ".");
+        }
+        this.buffer = buffer;
+        this.encoding = Encoding.values()[encodingIndex];
+        this.frameCount = buffer.getInt(8);
+        this.duration = buffer.getLong(12);
+        this.keyframeInterval = buffer.getInt(20);
+        this.indexOffset = buffer.getInt(24);
+        if (encoding == Encoding.FULL && buffer.limit() < HEADER_SIZE + (long) frameCount * (4 + NB_LIGHTS)) {
+            throw new IOException("Truncated frame sequence.");
+        }
+        if (encoding == Encoding.DELTA && (keyframeInterval <= 0 || indexOffset < HEADER_SIZE
+                || buffer.limit() < indexOffset + (long) getKeyframeCount() * INDEX_ENTRY_SIZE)) {
+            throw new IOException("Truncated frame sequence.");
+        }
+    }
+
+    /**
+     * Returns how the frames are stored.
+     *
+     * @return The encoding.
+     */
+    public Encoding getEncoding() {
+        return encoding;
+    }
+
+    /**
+     * Returns the number of frames.
+     *
+     * @return The number of frames.
+     */
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * Returns the duration of the sequence, ie. the timestamp of its last frame.
+     *
+     * @return The duration, in milliseconds.
+     */
+    public long getDuration() {
+        return duration;
+    }
+
+    /**
+     * Returns the number of frames between two keyframes.
+     *
+     * @return The keyframe interval, or 1 for {@link Encoding#FULL} sequences, where all frames are keyframes.
+     */
+    public int getKeyframeInterval() {
+        return encoding == Encoding.FULL ? 1 : keyframeInterval;
+    }
+
+    /**
+     * Creates a new reader, positioned before the first frame. Readers are independent from each other.
+     *
+     * @return A new reader.
+     */
+    public Reader reader() {
+        return new Reader();
+    }
+
+    /*
+    ================================================================================
+    Utils
+    ================================================================================
+    */
+
+    /**
+     * Encodes a color on a single byte.
+     */
+    static byte encode(Color color) {
+        if (color == null) {
+            throw new IllegalArgumentException("Color must not be null.");
+        }
+        return (byte) (color.getGreen() << 4 | color.getRed());
+    }
+
+    /**
+     * Decodes a color stored on a single byte.
+     */
+    static Color decode(byte value) {
+        return Color.of(value & 0x03, (value >> 4) & 0x03);
+    }
+
+    private int getKeyframeCount() {
+        return (frameCount + keyframeInterval - 1) / keyframeInterval;
+    }
+
+    /**
+     * Reads the frames of a sequence, one after the other.
+     *
+     * <p>The reader keeps the state of all the lights, and the set of lights that changed since the last call to
+     * {@link #clearChanges()}, so that several frames can be read before the changes are sent to a Launchpad.
+     *
+     * <p>Readers are not thread-safe.
+     */
+    public final class Reader {
+
+        /** Private view of the mapped file. */
+        private final ByteBuffer data = buffer.duplicate();
+        /** Current state of the lights. */
+        private final Color[] colors = new Color[NB_LIGHTS];
+        /** Pads changed since the last call to {@link #clearChanges()}. */
+        private long padChanges;
+        /** Buttons changed since the last call to {@link #clearChanges()} (top-row buttons on bits 0-7, right-side buttons on bits 8-15). */
+        private int buttonChanges;
+        /** Index of the next frame. */
+        private int nextFrame;
+        /** Timestamp of the last read frame. */
+        private long timestamp;
+
+        private Reader() {
+            rewind();
+        }
+
+        /**
+         * Reads the next frame.
+         *
+         * @return {@code true} if a frame was read, {@code false} at the end of the sequence.
+         */
+        public boolean next() {
+            if (nextFrame >= frameCount) {
+                return false;
+            }
+            if (encoding == Encoding.FULL) {
+                timestamp = data.getInt();
+                for (int i = 0; i < NB_LIGHTS; i++) {
+                    set(i, decode(data.get()));
+                }
+            } else {
+                readDeltaFrame();
+            }
+            nextFrame++;
+            return true;
+        }
+
+        /**
+         * Moves the reader before the given frame. Full frames are reached directly, delta frames are replayed from the
+         * nearest keyframe.
+         *
+         * <p>All lights are then considered as changed.
+         *
+         * @param frame The index of the frame to be read next, in range [0, {@link #getFrameCount()}].
+         */
+        public void seek(int frame) {
+            if (frame < 0 || frame > frameCount) {
+                throw new IllegalArgumentException("Invalid frame index : " + frame + ". Acceptable values are in range [0.." + frameCount + "].");
+            }
+            if (encoding == Encoding.FULL) {
+                if (frame > 0) {
+                    data.position(HEADER_SIZE + (frame - 1) * (4 + NB_LIGHTS));
+                    nextFrame = frame - 1;
+                    next();
+                } else {
+                    rewind();
+                }
+            } else if (frame == 0) {
+                rewind();
+            } else {
+                int keyframe = (frame - 1) / keyframeInterval;
+                if (frame < nextFrame || keyframe * keyframeInterval > nextFrame) {
+                    data.position(buffer.getInt(indexOffset + keyframe * INDEX_ENTRY_SIZE));
+                    nextFrame = keyframe * keyframeInterval;
+                }
+                while (nextFrame < frame) {
+                    next();
+                }
+            }
+            padChanges = GridState.ALL;
+            buttonChanges = 0xFFFF;
+        }
+
+        /**
+         * Moves the reader after the last frame whose timestamp is not greater than the given time, or before the first
+         * frame if there is none.
+         *
+         * <p>All lights are then considered as changed.
+         *
+         * @param time The time, in milliseconds since the start of the sequence.
+         */
+        public void seekTime(long time) {
+            // Find the last keyframe not after the given time
+            int low = 0;
+            int high = (encoding == Encoding.FULL ? frameCount : getKeyframeCount()) - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                if (keyframeTimestamp(middle) <= time) {
+                    low = middle + 1;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            if (high < 0) {
+                seek(0);
+                return;
+            }
+            seek(high * getKeyframeInterval() + 1);
+            long next = peekTimestamp();
+            while (next >= 0 && next <= time) {
+                next();
+                next = peekTimestamp();
+            }
+        }
+
+        /**
+         * Moves the reader back before the first frame : all the lights are switched off.
+         */
+        public void rewind() {
+            data.position(HEADER_SIZE);
+            nextFrame = 0;
+            timestamp = 0;
+            for (int i = 0; i < NB_LIGHTS; i++) {
+                colors[i] = Color.BLACK;
+            }
+            padChanges = GridState.ALL;
+            buttonChanges = 0xFFFF;
+        }
+
+        /**
+         * Returns the index of the next frame to be read.
+         *
+         * @return The index of the next frame.
+         */
+        public int getPosition() {
+            return nextFrame;
+        }
+
+        /**
+         * Returns the timestamp of the next frame, without reading it.
+         *
+         * @return The timestamp, in milliseconds, or {@code -1} at the end of the sequence.
+         */
+        public long peekTimestamp() {
+            if (nextFrame >= frameCount) {
+                return -1;
+            }
+            int position = data.position();
+            if (encoding == Encoding.FULL) {
+                return data.getInt(position);
+            }
+            int header = data.getShort() & 0xFFFF;
+            long value = readVarint();
+            data.position(position);
+            return (header & KEYFRAME_FLAG) != 0 ? value : timestamp + value;
+        }
+
+        /**
+         * Returns the timestamp of the last read frame.
+         *
+         * @return The timestamp, in milliseconds.
+         */
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        /**
+         * Returns the current state of the lights. The returned array is updated in place as frames are read.
+         *
+         * @return The colors of the {@value #NB_LIGHTS} lights.
+         */
+        public Color[] getColors() {
+            return colors;
+        }
+
+        /**
+         * Returns the pads changed since the last call to {@link #clearChanges()}, as a {@link GridState} mask.
+         *
+         * @return The changed pads.
+         */
+        public long getPadChanges() {
+            return padChanges;
+        }
+
+        /**
+         * Returns the buttons changed since the last call to {@link #clearChanges()} : top-row buttons on bits 0-7,
+         * right-side buttons on bits 8-15.
+         *
+         * @return The changed buttons.
+         */
+        public int getButtonChanges() {
+            return buttonChanges;
+        }
+
+        /**
+         * Forgets the changed lights.
+         */
+        public void clearChanges() {
+            padChanges = 0;
+            buttonChanges = 0;
+        }
+
+        /**
+         * Reads a delta frame, or a keyframe.
+         */
+        private void readDeltaFrame() {
+            int header = data.getShort() & 0xFFFF;
+            long value = readVarint();
+            if ((header & KEYFRAME_FLAG) != 0) {
+                timestamp = value;
+                for (int i = 0; i < NB_LIGHTS; i += 2) {
+                    int packed = data.get();
+                    set(i, UNPACKED_COLORS[(packed >> 4) & 0x0F]);
+                    set(i + 1, UNPACKED_COLORS[packed & 0x0F]);
+                }
+                return;
+            }
+            timestamp += value;
+            // Group bitmasks come first, then the packed colors
+            int maskPosition = data.position();
+            int colorPosition = maskPosition + Integer.bitCount(header & 0x3FF);
+            int nibble = 0;
+            for (int group = 0; group < NB_GROUPS; group++) {
+                if ((header & (1 << group)) == 0) {
+                    continue;
+                }
+                int mask = data.get(maskPosition++) & 0xFF;
+                while (mask != 0) {
+                    int bit = Integer.numberOfTrailingZeros(mask);
+                    int packed = data.get(colorPosition + (nibble >> 1));
+                    set(group * 8 + bit, UNPACKED_COLORS[(nibble & 1) == 0 ? (packed >> 4) & 0x0F : packed & 0x0F]);
+                    nibble++;
+                    mask &= mask - 1;
+                }
+            }
+            data.position(colorPosition + (nibble + 1) / 2);
+        }
+
+        private long readVarint() {
+            long value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data.get();
+                value |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            return value;
+        }
+
+        private long keyframeTimestamp(int keyframe) {
+            if (encoding == Encoding.FULL) {
+                return buffer.getInt(HEADER_SIZE + keyframe * (4 + NB_LIGHTS));
+            }
+            return buffer.getInt(indexOffset + keyframe * INDEX_ENTRY_SIZE + 4);
+        }
+
+        private void set(int index, Color color) {
+            if (colors[index] == color) {
+                return;
+            }
+            colors[index] = color;
+            if (index < FIRST_TOP_BUTTON) {
+                padChanges |= 1L << index;
+            } else {
+                buttonChanges |= 1 << (index - FIRST_TOP_BUTTON);
+            }
+        }
+    }
+
+}
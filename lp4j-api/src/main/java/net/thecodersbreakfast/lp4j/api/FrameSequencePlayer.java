@@ -0,0 +1,198 @@
+/*
+ * Copyright 2015 Olivier Croisier (thecodersbreakfast.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.thecodersbreakfast.lp4j.api;
+
+import java.io.Closeable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Plays a {@link FrameSequence} on a Launchpad, each frame being displayed at its timestamp.
+ *
+ * <p>Frames are read from the mapped sequence by a single background thread. Only the lights that changed are sent :
+ * individually if there are only a few of them, or as a whole frame otherwise. If the player falls behind (for example
+ * because the Launchpad cannot keep up), late frames are merged into the next one instead of delaying the whole show.
+ *
+ * @author Olivier Croisier (olivier.croisier@gmail.com)
+ */
+public class FrameSequencePlayer implements Closeable {
+
+    /** Above this number of changed lights, a whole frame is sent at once instead of individual lights. */
+    private static final int DENSE_FRAME_THRESHOLD = 32;
+
+    /** The played sequence. */
+    private final FrameSequence.Reader reader;
+    /** The client of the Launchpad. */
+    private final LaunchpadClient client;
+    /** The playing thread. */
+    private final Thread thread;
+    /** Indicates that the player is running. */
+    private volatile boolean running = false;
+    /** The failure that stopped the player, if any. */
+    private volatile Throwable failure;
+    /** Number of frames sent to the Launchpad. */
+    private volatile long sentFrames = 0;
+    /** Number of late frames merged into the next one. */
+    private volatile long skippedFrames = 0;
+
+    /**
+     * Constructor.
+     *
+     * @param sequence The sequence to play. Must not be null.
+     * @param client The client of the Launchpad. Must not be null.
+     */
+    public FrameSequencePlayer(FrameSequence sequence, LaunchpadClient client) {
+        if (sequence == null) {
+            throw new IllegalArgumentException("Sequence must not be null.");
+        }
+        if (client == null) {
+            throw new IllegalArgumentException("Client must not be null.");
+        }
+        this.reader = sequence.reader();
+        this.client = client;
+        this.thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    play();
+                } catch (InterruptedException e) {
+                    // Stopped
+                } catch (Exception e) {
+                    failure = e;
+                } finally {
+                    running = false;
+                }
+            }
+        }, "lp4j-player");
+        thread.setDaemon(true);
+    }
+
+    /**
+     * Starts playing the sequence from its beginning, from a background thread.
+     */
+    public void start() {
+        running = true;
+        thread.start();
+    }
+
+    /**
+     * Tells if the player is running : it stops when closed, at the end of the sequence, or upon failure.
+     *
+     * @return {@code true} if the player is running.
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Waits for the end of the sequence.
+     *
+     * @param timeout Maximum time to wait, in milliseconds.
+     * @return {@code true} if the player has stopped, {@code false} if the timeout elapsed.
+     * @throws InterruptedException If the current thread is interrupted while waiting.
+     */
+    public boolean await(long timeout) throws InterruptedException {
+        thread.join(timeout);
+        return !thread.isAlive();
+    }
+
+    /**
+     * Returns the failure that stopped the player.
+     *
+     * @return The failure, or {@code null} if none happened.
+     */
+    public Throwable getFailure() {
+        return failure;
+    }
+
+    /**
+     * Returns the number of frames sent to the Launchpad so far.
+     *
+     * @return The number of sent frames.
+     */
+    public long getSentFrames() {
+        return sentFrames;
+    }
+
+    /**
+     * Returns the number of frames that were late, and were merged into the next one.
+     *
+     * @return The number of skipped frames.
+     */
+    public long getSkippedFrames() {
+        return skippedFrames;
+    }
+
+    /**
+     * Stops the player. The Launchpad keeps displaying the last sent frame.
+     */
+    @Override
+    public void close() {
+        running = false;
+        thread.interrupt();
+    }
+
+    /*
+    ================================================================================
+    Utils
+    ================================================================================
+    */
+
+    /**
+     * Reads the frames, and sends each one at its timestamp.
+     */
+    private void play() throws InterruptedException {
+        long start = System.nanoTime();
+        while (running && reader.next()) {
+            long delay = start + TimeUnit.MILLISECONDS.toNanos(reader.getTimestamp()) - System.nanoTime();
+            if (delay > 0) {
+                TimeUnit.NANOSECONDS.sleep(delay);
+            }
+            long next = reader.peekTimestamp();
+            if (next >= 0 && start + TimeUnit.MILLISECONDS.toNanos(next) <= System.nanoTime()) {
+                skippedFrames++;
+                continue;
+            }
+            send();
+            reader.clearChanges();
+            sentFrames++;
+        }
+    }
+
+    /**
+     * Sends the lights changed since the previous frame.
+     */
+    private void send() {
+        long padChanges = reader.getPadChanges();
+        int buttonChanges = reader.getButtonChanges();
+        Color[] colors = reader.getColors();
+        if (Long.bitCount(padChanges) + Integer.bitCount(buttonChanges) > DENSE_FRAME_THRESHOLD) {
+            client.setLights(colors, BackBufferOperation.NONE);
+            return;
+        }
+        while (padChanges != 0) {
+            int index = Long.numberOfTrailingZeros(padChanges);
+            client.setPadLight(GridState.padAt(index), colors[index], BackBufferOperation.NONE);
+            padChanges &= padChanges - 1;
+        }
+        while (buttonChanges != 0) {
+            int index = Integer.numberOfTrailingZeros(buttonChanges);
+            Button button = index < 8 ? Button.atTop(index) : Button.atRight(index - 8);
+            client.setButtonLight(button, colors[FrameSequence.FIRST_TOP_BUTTON + index], BackBufferOperation.NONE);
+            buttonChanges &= buttonChanges - 1;
+        }
+    }
+
+}
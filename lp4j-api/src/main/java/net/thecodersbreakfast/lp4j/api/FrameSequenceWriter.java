@@ -0,0 +1,292 @@
+/*
+ * Copyright 2015 Olivier Croisier (thecodersbreakfast.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.thecodersbreakfast.lp4j.api;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Writes a {@link FrameSequence} file, one frame after the other.
+ *
+ * <p>Frames are buffered and written sequentially ; the header is completed when the writer is closed.
+ *
+ * <p>This class is not thread-safe.
+ *
+ * @author Olivier Croisier (olivier.croisier@gmail.com)
+ */
+public class FrameSequenceWriter implements Closeable {
+
+    /** Default number of frames between two keyframes, for delta-encoded sequences. */
+    public static final int DEFAULT_KEYFRAME_INTERVAL = 256;
+
+    /** Size of the write buffer, in bytes. */
+    private static final int BUFFER_SIZE = 64 * 1024;
+    /** Maximum size of a frame, in bytes. */
+    private static final int MAX_FRAME_SIZE = 4 + 2 * FrameSequence.NB_LIGHTS;
+
+    /** The sequence file. */
+    private final FileChannel channel;
+    /** How frames are stored. */
+    private final FrameSequence.Encoding encoding;
+    /** Buffered frames, not yet written to the file. */
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    /** Number of frames between two keyframes (delta encoding only). */
+    private final int keyframeInterval;
+    /** Encoded lights of the current frame. */
+    private final byte[] lights = new byte[FrameSequence.NB_LIGHTS];
+    /** Encoded lights of the previous frame. */
+    private final byte[] previousLights = new byte[FrameSequence.NB_LIGHTS];
+    /** Changed lights of each group of the current frame (delta encoding only). */
+    private final int[] groupMasks = new int[FrameSequence.NB_GROUPS];
+    /** Offset and timestamp of each keyframe (delta encoding only). */
+    private int[] index = new int[64];
+    /** Number of bytes already written to the file. */
+    private long written = 0;
+    /** Number of written frames. */
+    private int frameCount = 0;
+    /** Timestamp of the last written frame. */
+    private long lastTimestamp = 0;
+    /** Indicates that the writer has been closed. */
+    private boolean closed = false;
+
+    /**
+     * Constructor, with the default keyframe interval. The file is created, or truncated if it already exists.
+     *
+     * @param file The sequence file. Must not be null.
+     * @param encoding How frames are stored. Must not be null.
+     * @throws IOException If the file cannot be created.
+     */
+    public FrameSequenceWriter(File file, FrameSequence.Encoding encoding) throws IOException {
+        this(file, encoding, DEFAULT_KEYFRAME_INTERVAL);
+    }
+
+    /**
+     * Constructor. The file is created, or truncated if it already exists.
+     *
+     * @param file The sequence file. Must not be null.
+     * @param encoding How frames are stored. Must not be null.
+     * @param keyframeInterval Number of frames between two keyframes, for delta-encoded sequences : larger intervals
+     * save space, smaller intervals make seeking faster. Must be positive.
+     * @throws IOException If the file cannot be created.
+     */
+    public FrameSequenceWriter(File file, FrameSequence.Encoding encoding, int keyframeInterval) throws IOException {
+        if (file == null) {
+            throw new IllegalArgumentException("File must not be null.");
+        }
+        if (encoding == null) {
+            throw new IllegalArgumentException("Encoding must not be null.");
+        }
+        if (keyframeInterval <= 0) {
+            throw new IllegalArgumentException("Invalid keyframe interval : " + keyframeInterval + ". Value must be positive.");
+        }
+        this.encoding = encoding;
+        this.keyframeInterval = keyframeInterval;
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        buffer.put(new byte[FrameSequence.HEADER_SIZE]);
+    }
+
+    /**
+     * Appends a frame.
+     *
+     * @param timestamp Time at which the frame must be displayed, in milliseconds since the start of the sequence. Must
+     * not be lower than the timestamp of the previous frame.
+     * @param colors The colors of all the lights, in the order of
+     * {@link LaunchpadClient#setLights(Color[], BackBufferOperation)}. Must contain {@value FrameSequence#NB_LIGHTS}
+     * colors.
+     * @throws IOException If the frame cannot be written.
+     */
+    public void writeFrame(long timestamp, Color[] colors) throws IOException {
+        if (closed) {
+            throw new IllegalStateException("The writer is closed.");
+        }
+        if (timestamp < lastTimestamp || timestamp > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid timestamp : " + timestamp + ". Timestamps must be increasing, and fit in 31 bits.");
+        }
+        if (colors == null || colors.length != FrameSequence.NB_LIGHTS) {
+            throw new IllegalArgumentException("A frame must contain exactly " + FrameSequence.NB_LIGHTS + " colors.");
+        }
+        for (int i = 0; i < FrameSequence.NB_LIGHTS; i++) {
+            lights[i] = FrameSequence.encode(colors[i]);
+        }
+
+        ensureCapacity(MAX_FRAME_SIZE);
+        if (encoding == FrameSequence.Encoding.FULL) {
+            buffer.putInt((int) timestamp);
+            buffer.put(lights);
+        } else if (frameCount % keyframeInterval == 0) {
+            writeKeyframe(timestamp);
+        } else {
+            writeDeltaFrame(timestamp);
+        }
+        System.arraycopy(lights, 0, previousLights, 0, FrameSequence.NB_LIGHTS);
+        lastTimestamp = timestamp;
+        frameCount++;
+    }
+
+    /**
+     * Returns the number of frames written so far.
+     *
+     * @return The number of frames.
+     */
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * Writes the pending frames and the header, then closes the file.
+     *
+     * @throws IOException If the file cannot be written.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            int indexOffset = 0;
+            if (encoding == FrameSequence.Encoding.DELTA) {
+                indexOffset = (int) (written + buffer.position());
+                int nbKeyframes = (frameCount + keyframeInterval - 1) / keyframeInterval;
+                for (int i = 0; i < 2 * nbKeyframes; i++) {
+                    ensureCapacity(4);
+                    buffer.putInt(index[i]);
+                }
+            }
+            flush();
+            ByteBuffer header = ByteBuffer.allocate(FrameSequence.HEADER_SIZE);
+            header.putInt(FrameSequence.MAGIC)
+                    .putShort(FrameSequence.VERSION)
+                    .put((byte) encoding.ordinal())
+                    .put((byte) 0)
+                    .putInt(frameCount)
+                    .putLong(lastTimestamp)
+                    .putInt(encoding == FrameSequence.Encoding.DELTA ? keyframeInterval : 0)
+                    .putInt(indexOffset);
+            header.clear();
+            channel.write(header, 0);
+        } finally {
+            channel.close();
+        }
+    }
+
+    /*
+    ================================================================================
+    Utils
+    ================================================================================
+    */
+
+    /**
+     * Writes a keyframe, holding all the lights, and adds it to the index.
+     */
+    private void writeKeyframe(long timestamp) throws IOException {
+        long offset = written + buffer.position();
+        if (offset > Integer.MAX_VALUE) {
+            throw new IOException("Sequence file too large.");
+        }
+        int keyframe = frameCount / keyframeInterval;
+        if (2 * keyframe + 2 > index.length) {
+            index = Arrays.copyOf(index, index.length * 2);
+        }
+        index[2 * keyframe] = (int) offset;
+        index[2 * keyframe + 1] = (int) timestamp;
+
+        buffer.putShort((short) FrameSequence.KEYFRAME_FLAG);
+        putVarint(timestamp);
+        for (int i = 0; i < FrameSequence.NB_LIGHTS; i += 2) {
+            buffer.put((byte) (pack(lights[i]) << 4 | pack(lights[i + 1])));
+        }
+    }
+
+    /**
+     * Writes a delta frame, holding only the lights that changed since the previous frame.
+     */
+    private void writeDeltaFrame(long timestamp) {
+        int header = 0;
+        for (int group = 0; group < FrameSequence.NB_GROUPS; group++) {
+            int mask = 0;
+            for (int bit = 0; bit < 8; bit++) {
+                int light = group * 8 + bit;
+                if (lights[light] != previousLights[light]) {
+                    mask |= 1 << bit;
+                }
+            }
+            groupMasks[group] = mask;
+            if (mask != 0) {
+                header |= 1 << group;
+            }
+        }
+        buffer.putShort((short) header);
+        putVarint(timestamp - lastTimestamp);
+        for (int group = 0; group < FrameSequence.NB_GROUPS; group++) {
+            if (groupMasks[group] != 0) {
+                buffer.put((byte) groupMasks[group]);
+            }
+        }
+        int packed = 0;
+        int nibbles = 0;
+        for (int group = 0; group < FrameSequence.NB_GROUPS; group++) {
+            int mask = groupMasks[group];
+            while (mask != 0) {
+                int light = group * 8 + Integer.numberOfTrailingZeros(mask);
+                packed = packed << 4 | pack(lights[light]);
+                if (++nibbles % 2 == 0) {
+                    buffer.put((byte) packed);
+                    packed = 0;
+                }
+                mask &= mask - 1;
+            }
+        }
+        if (nibbles % 2 != 0) {
+            buffer.put((byte) (packed << 4));
+        }
+    }
+
+    /**
+     * Converts a light from its one-byte encoding ({@code green << 4 | red}) to its 4-bit encoding.
+     */
+    private static int pack(byte light) {
+        return (light >> 4) << 2 | (light & 0x03);
+    }
+
+    private void putVarint(long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private void ensureCapacity(int size) throws IOException {
+        if (buffer.remaining() < size) {
+            flush();
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            written += channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+}
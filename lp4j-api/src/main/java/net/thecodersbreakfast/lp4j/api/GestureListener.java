@@ -0,0 +1,69 @@
+/*
+ * Copyright 2015 Olivier Croisier (thecodersbreakfast.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.thecodersbreakfast.lp4j.api;
+
+import java.util.Set;
+
+/**
+ * A {@link LaunchpadListener} that is also notified of higher-level gestures, such as long presses, double taps or
+ * chords.
+ *
+ * <p>Gestures are detected by a {@link GestureRecognizer}, which also forwards the raw pad and button events.
+ *
+ * @author Olivier Croisier (olivier.croisier@gmail.com)
+ */
+public interface GestureListener extends LaunchpadListener {
+
+    /**
+     * Called when a pad has been held down for longer than the long press delay.
+     *
+     * @param pad The pad that was held down
+     * @param timestamp When the pad was pressed
+     */
+    void onPadLongPressed(Pad pad, long timestamp);
+
+    /**
+     * Called when a button has been held down for longer than the long press delay.
+     *
+     * @param button The button that was held down
+     * @param timestamp When the button was pressed
+     */
+    void onButtonLongPressed(Button button, long timestamp);
+
+    /**
+     * Called when a pad has been tapped twice in a row, within the double tap delay.
+     *
+     * @param pad The pad that was tapped
+     * @param timestamp When the pad was pressed for the second time
+     */
+    void onPadDoubleTapped(Pad pad, long timestamp);
+
+    /**
+     * Called when a button has been tapped twice in a row, within the double tap delay.
+     *
+     * @param button The button that was tapped
+     * @param timestamp When the button was pressed for the second time
+     */
+    void onButtonDoubleTapped(Button button, long timestamp);
+
+    /**
+     * Called when several pads have been pressed together, within the chord delay, and are still held down.
+     *
+     * @param pads The pads of the chord
+     * @param timestamp When the first pad of the chord was pressed
+     */
+    void onChord(Set<Pad> pads, long timestamp);
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2015 Olivier Croisier (thecodersbreakfast.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.thecodersbreakfast.lp4j.api;
+
+import java.util.Set;
+
+/**
+ * Convenient empty implementation of a {@link net.thecodersbreakfast.lp4j.api.GestureListener}.
+ *
+ * @author Olivier Croisier (olivier.croisier@gmail.com)
+ */
+public abstract class GestureListenerAdapter extends LaunchpadListenerAdapter implements GestureListener {
+
+    @Override
+    public void onPadLongPressed(Pad pad, long timestamp) {
+    }
+
+    @Override
+    public void onButtonLongPressed(Button button, long timestamp) {
+    }
+
+    @Override
+    public void onPadDoubleTapped(Pad pad, long timestamp) {
+    }
+
+    @Override
+    public void onButtonDoubleTapped(Button button, long timestamp) {
+    }
+
+    @Override
+    public void onChord(Set<Pad> pads, long timestamp) {
+    }
+
+}
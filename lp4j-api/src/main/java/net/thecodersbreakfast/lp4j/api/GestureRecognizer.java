@@ -0,0 +1,326 @@
+/*
+ * Copyright 2015 Olivier Croisier (thecodersbreakfast.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.thecodersbreakfast.lp4j.api;
+
+import java.io.Closeable;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Detects gestures (long presses, double taps and chords) in the raw events of a Launchpad, and reports them to a
+ * {@link GestureListener}. Raw events are forwarded to the listener as well.
+ *
+ * <p>All pending gestures are tracked by a single timer wheel (see {@link TimerWheel}), advanced by a single thread :
+ * holding down every pad and button at once costs no more threads or timers than holding down a single one. Gesture
+ * delays are therefore rounded to the wheel's tick duration.
+ *
+ * <p>The listener is never called concurrently : raw events and gestures are delivered one at a time.
+ *
+ * @author Olivier Croisier (olivier.croisier@gmail.com)
+ */
+public class GestureRecognizer implements LaunchpadListener, Closeable {
+
+    /** Default long press delay, in milliseconds. */
+    public static final long DEFAULT_LONG_PRESS_DELAY = 500;
+    /** Default double tap delay, in milliseconds. */
+    public static final long DEFAULT_DOUBLE_TAP_DELAY = 300;
+    /** Default chord delay, in milliseconds. */
+    public static final long DEFAULT_CHORD_DELAY = 50;
+    /** Duration of a tick of the timer wheel, in milliseconds. */
+    public static final long TICK_DURATION = 10;
+
+    /** Number of buckets of the timer wheel (about 5 seconds). */
+    private static final int WHEEL_SIZE = 512;
+    /** Number of pads. */
+    private static final int NB_PADS = 64;
+    /** Number of controls : pads, then top buttons, then right buttons. */
+    private static final int NB_CONTROLS = NB_PADS + 16;
+    /** Tick of an event that never happened. */
+    private static final long NEVER = Long.MIN_VALUE;
+
+    /** The listener to notify. */
+    private final GestureListener listener;
+    /** Long press delay, in ticks. */
+    private final long longPressTicks;
+    /** Double tap delay, in ticks. */
+    private final long doubleTapTicks;
+    /** Chord delay, in ticks. */
+    private final long chordTicks;
+    /** The timer wheel, guarded by this recognizer's lock. */
+    private final TimerWheel wheel = new TimerWheel(WHEEL_SIZE);
+    /** The thread advancing the timer wheel, or {@code null} if the wheel is advanced manually. */
+    private final Thread ticker;
+    /** Indicates that this recognizer has been closed. */
+    private volatile boolean closed = false;
+
+    /** Pending long press, per control. */
+    private final LongPressTimeout[] longPressTimeouts = new LongPressTimeout[NB_CONTROLS];
+    /** Timestamp of the current press, per control. */
+    private final long[] pressTimestamps = new long[NB_CONTROLS];
+    /** Tick of the last short tap, per control. */
+    private final long[] lastTapTicks = new long[NB_CONTROLS];
+    /** Whether the current press has already been reported as a gesture, per control. */
+    private final boolean[] consumed = new boolean[NB_CONTROLS];
+    /** Pads currently held down, as a bit mask (bit index = y * 8 + x). */
+    private long heldPads = 0;
+    /** Pads pressed since the beginning of the current chord window. */
+    private long chordPads = 0;
+    /** Timestamp of the first press of the current chord window. */
+    private long chordTimestamp;
+    /** Closes the current chord window. */
+    private final ChordTimeout chordTimeout = new ChordTimeout();
+
+    /**
+     * Constructor, with the default gesture delays.
+     *
+     * @param listener The listener to notify. Must not be null.
+     */
+    public GestureRecognizer(GestureListener listener) {
+        this(listener, DEFAULT_LONG_PRESS_DELAY, DEFAULT_DOUBLE_TAP_DELAY, DEFAULT_CHORD_DELAY);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param listener The listener to notify. Must not be null.
+     * @param longPressDelay How long a pad or button must be held down to be long-pressed, in milliseconds. Must be
+     * positive.
+     * @param doubleTapDelay Maximum delay between two presses of a double tap, in milliseconds. Must be positive.
+     * @param chordDelay Maximum delay between the presses of the pads of a chord, in milliseconds. Must be positive.
+     */
+    public GestureRecognizer(GestureListener listener, long longPressDelay, long doubleTapDelay, long chordDelay) {
+        this(listener, longPressDelay, doubleTapDelay, chordDelay, true);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param autoTick Whether the timer wheel should be advanced by a dedicated thread, or manually (see
+     * {@link #advance(long)}).
+     */
+    GestureRecognizer(GestureListener listener, long longPressDelay, long doubleTapDelay, long chordDelay, boolean autoTick) {
+        if (listener == null) {
+            throw new IllegalArgumentException("Listener must not be null.");
+        }
+        if (longPressDelay <= 0 || doubleTapDelay <= 0 || chordDelay <= 0) {
+            throw new IllegalArgumentException("Invalid gesture delays : " + longPressDelay + ", " + doubleTapDelay + ", " + chordDelay + ". Values must be positive.");
+        }
+        this.listener = listener;
+        this.longPressTicks = toTicks(longPressDelay);
+        this.doubleTapTicks = toTicks(doubleTapDelay);
+        this.chordTicks = toTicks(chordDelay);
+        for (int control = 0; control < NB_CONTROLS; control++) {
+            longPressTimeouts[control] = new LongPressTimeout(control);
+            lastTapTicks[control] = NEVER;
+        }
+        if (autoTick) {
+            this.ticker = new Thread(new Ticker(), "lp4j-gestures");
+            ticker.setDaemon(true);
+            ticker.start();
+        } else {
+            this.ticker = null;
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public synchronized void onPadPressed(Pad pad, long timestamp) {
+        listener.onPadPressed(pad, timestamp);
+        int control = indexOf(pad);
+        long bit = 1L << control;
+        heldPads |= bit;
+        if (chordPads == 0) {
+            chordTimestamp = timestamp;
+            wheel.schedule(chordTimeout, chordTicks);
+        }
+        chordPads |= bit;
+        onPressed(control, timestamp);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public synchronized void onPadReleased(Pad pad, long timestamp) {
+        int control = indexOf(pad);
+        heldPads &= ~(1L << control);
+        onReleased(control);
+        listener.onPadReleased(pad, timestamp);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public synchronized void onButtonPressed(Button button, long timestamp) {
+        listener.onButtonPressed(button, timestamp);
+        onPressed(indexOf(button), timestamp);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public synchronized void onButtonReleased(Button button, long timestamp) {
+        onReleased(indexOf(button));
+        listener.onButtonReleased(button, timestamp);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public synchronized void onTextScrolled(long timestamp) {
+        listener.onTextScrolled(timestamp);
+    }
+
+    /**
+     * Stops the thread advancing the timer wheel. Pending gestures are dropped.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        if (ticker != null) {
+            ticker.interrupt();
+        }
+    }
+
+    /**
+     * Advances the timer wheel up to the given tick, reporting the gestures that complete along the way.
+     *
+     * @param tick The tick to reach.
+     */
+    synchronized void advance(long tick) {
+        wheel.advance(tick);
+    }
+
+    /*
+    ================================================================================
+    Utils
+    ================================================================================
+    */
+
+    private void onPressed(int control, long timestamp) {
+        long now = wheel.getTick();
+        pressTimestamps[control] = timestamp;
+        if (lastTapTicks[control] != NEVER && now - lastTapTicks[control] <= doubleTapTicks) {
+            lastTapTicks[control] = NEVER;
+            consumed[control] = true;
+            if (control < NB_PADS) {
+                listener.onPadDoubleTapped(padAt(control), timestamp);
+            } else {
+                listener.onButtonDoubleTapped(buttonAt(control), timestamp);
+            }
+        } else {
+            consumed[control] = false;
+            lastTapTicks[control] = now;
+            wheel.schedule(longPressTimeouts[control], longPressTicks);
+        }
+    }
+
+    private void onReleased(int control) {
+        wheel.cancel(longPressTimeouts[control]);
+        if (consumed[control]) {
+            lastTapTicks[control] = NEVER;
+        }
+    }
+
+    private static long toTicks(long delay) {
+        return (delay + TICK_DURATION - 1) / TICK_DURATION;
+    }
+
+    private static int indexOf(Pad pad) {
+        return pad.getY() * 8 + pad.getX();
+    }
+
+    private static int indexOf(Button button) {
+        return NB_PADS + (button.isTopButton() ? 0 : 8) + button.getCoordinate();
+    }
+
+    private static Pad padAt(int control) {
+        return Pad.at(control & 7, control >>> 3);
+    }
+
+    private static Button buttonAt(int control) {
+        int index = control - NB_PADS;
+        return index < 8 ? Button.atTop(index) : Button.atRight(index - 8);
+    }
+
+    /**
+     * Reports a long press, if the control is still held down when the delay expires.
+     */
+    private class LongPressTimeout extends TimerWheel.Timeout {
+
+        /** The control being held down. */
+        private final int control;
+
+        private LongPressTimeout(int control) {
+            this.control = control;
+        }
+
+        @Override
+        void expire() {
+            consumed[control] = true;
+            lastTapTicks[control] = NEVER;
+            if (control < NB_PADS) {
+                listener.onPadLongPressed(padAt(control), pressTimestamps[control]);
+            } else {
+                listener.onButtonLongPressed(buttonAt(control), pressTimestamps[control]);
+            }
+        }
+    }
+
+    /**
+     * Closes the current chord window, and reports a chord if several of its pads are still held down.
+     */
+    private class ChordTimeout extends TimerWheel.Timeout {
+
+        @Override
+        void expire() {
+            long chord = chordPads & heldPads;
+            chordPads = 0;
+            if (Long.bitCount(chord) < 2) {
+                return;
+            }
+            Set<Pad> pads = new HashSet<Pad>();
+            while (chord != 0) {
+                pads.add(padAt(Long.numberOfTrailingZeros(chord)));
+                chord &= chord - 1;
+            }
+            listener.onChord(Collections.unmodifiableSet(pads), chordTimestamp);
+        }
+    }
+
+    /**
+     * Advances the timer wheel in real time.
+     */
+    private class Ticker implements Runnable {
+
+        @Override
+        public void run() {
+            long tickNanos = TimeUnit.MILLISECONDS.toNanos(TICK_DURATION);
+            long start = System.nanoTime();
+            long tick = 0;
+            while (!closed) {
+                tick++;
+                long delay = start + tick * tickNanos - System.nanoTime();
+                if (delay > 0) {
+                    try {
+                        TimeUnit.NANOSECONDS.sleep(delay);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                advance(tick);
+            }
+        }
+    }
+
+}
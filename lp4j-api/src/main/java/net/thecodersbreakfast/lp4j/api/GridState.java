@@ -0,0 +1,297 @@
+/*
+ * Copyright 2015 Olivier Croisier (thecodersbreakfast.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.thecodersbreakfast.lp4j.api;
+
+/**
+ * Represents the colors of the 8x8 pad grid as a set of 64-bit masks ("bitboards").
+ *
+ * <p>Each pad is mapped to a single bit, at index {@code y * 8 + x}. Since both the red and green components of a
+ * {@link net.thecodersbreakfast.lp4j.api.Color} are encoded on 2 bits, the grid is stored as 4 color planes (low and
+ * high bits of red, low and high bits of green). A fifth "dirty" mask keeps track of the pads that changed since the
+ * last call to {@link #clearDirty()}.
+ *
+ * <p>All bulk operations (fill, shift, rotation, masked set, diff) work on whole planes at once, without branching on
+ * individual pads and without allocating.
+ *
+ * <p>{@code GridState} instances are mutable and not thread-safe.
+ *
+ * @author Olivier Croisier (olivier.croisier@gmail.com)
+ */
+public final class GridState {
+
+    /** Number of pads on the grid. */
+    public static final int SIZE = 64;
+    /** Mask selecting all the pads of the grid. */
+    public static final long ALL = 0xFFFFFFFFFFFFFFFFL;
+    /** Mask selecting the leftmost column (x = 0) of the grid. */
+    private static final long COLUMN_0 = 0x0101010101010101L;
+
+    /** Low bit of the red component. */
+    private long red0;
+    /** High bit of the red component. */
+    private long red1;
+    /** Low bit of the green component. */
+    private long green0;
+    /** High bit of the green component. */
+    private long green1;
+    /** Pads modified since the last call to {@link #clearDirty()}. */
+    private long dirty;
+
+    /**
+     * Returns the mask selecting the given pad.
+     *
+     * @param pad The pad. Must not be null.
+     * @return The mask selecting the pad.
+     */
+    public static long maskOf(Pad pad) {
+        if (pad == null) {
+            throw new IllegalArgumentException("Pad must not be null.");
+        }
+        return 1L << (pad.getY() * 8 + pad.getX());
+    }
+
+    /**
+     * Returns the pad located at the given bit index.
+     *
+     * @param index The bit index, in range [0..63].
+     * @return The pad.
+     */
+    public static Pad padAt(int index) {
+        if (index < 0 || index >= SIZE) {
+            throw new IllegalArgumentException("Invalid pad index : " + index + ". Acceptable values are in range [0..63].");
+        }
+        return Pad.at(index & 7, index >>> 3);
+    }
+
+    /**
+     * Returns the color of the given pad.
+     *
+     * @param pad The pad. Must not be null.
+     * @return The color of the pad.
+     */
+    public Color getColor(Pad pad) {
+        if (pad == null) {
+            throw new IllegalArgumentException("Pad must not be null.");
+        }
+        return getColor(pad.getY() * 8 + pad.getX());
+    }
+
+    /**
+     * Returns the color of the pad located at the given bit index.
+     *
+     * @param index The bit index, in range [0..63].
+     * @return The color of the pad.
+     */
+    public Color getColor(int index) {
+        if (index < 0 || index >= SIZE) {
+            throw new IllegalArgumentException("Invalid pad index : " + index + ". Acceptable values are in range [0..63].");
+        }
+        int red = (int) ((red0 >>> index) & 1) | (int) (((red1 >>> index) & 1) << 1);
+        int green = (int) ((green0 >>> index) & 1) | (int) (((green1 >>> index) & 1) << 1);
+        return Color.of(red, green);
+    }
+
+    /**
+     * Sets the color of the given pad.
+     *
+     * @param pad The pad. Must not be null.
+     * @param color The color. Must not be null.
+     */
+    public void setColor(Pad pad, Color color) {
+        set(maskOf(pad), color);
+    }
+
+    /**
+     * Sets the color of all the pads selected by the given mask.
+     *
+     * @param mask The pads to update.
+     * @param color The color. Must not be null.
+     */
+    public void set(long mask, Color color) {
+        if (color == null) {
+            throw new IllegalArgumentException("Color must not be null.");
+        }
+        int red = color.getRed();
+        int green = color.getGreen();
+        update((red0 & ~mask) | (mask & -(red & 1)),
+                (red1 & ~mask) | (mask & -(red >>> 1)),
+                (green0 & ~mask) | (mask & -(green & 1)),
+                (green1 & ~mask) | (mask & -(green >>> 1)));
+    }
+
+    /**
+     * Sets the color of all the pads.
+     *
+     * @param color The color. Must not be null.
+     */
+    public void fill(Color color) {
+        set(ALL, color);
+    }
+
+    /**
+     * Switches all the pads off.
+     */
+    public void clear() {
+        update(0, 0, 0, 0);
+    }
+
+    /**
+     * Shifts the whole grid. Pads shifted out of the grid are lost, and vacated pads are switched off.
+     *
+     * @param dx The horizontal offset (positive values shift to the right).
+     * @param dy The vertical offset (positive values shift to the bottom).
+     */
+    public void shift(int dx, int dy) {
+        update(shift(red0, dx, dy), shift(red1, dx, dy), shift(green0, dx, dy), shift(green1, dx, dy));
+    }
+
+    /**
+     * Rotates the whole grid by 90 degrees clockwise.
+     */
+    public void rotateClockwise() {
+        update(rotateClockwise(red0), rotateClockwise(red1), rotateClockwise(green0), rotateClockwise(green1));
+    }
+
+    /**
+     * Rotates the whole grid by 90 degrees counterclockwise.
+     */
+    public void rotateCounterClockwise() {
+        update(rotateCounterClockwise(red0), rotateCounterClockwise(red1), rotateCounterClockwise(green0), rotateCounterClockwise(green1));
+    }
+
+    /**
+     * Copies the colors of another grid into this one.
+     *
+     * @param other The grid to copy. Must not be null.
+     */
+    public void copyFrom(GridState other) {
+        if (other == null) {
+            throw new IllegalArgumentException("Grid must not be null.");
+        }
+        update(other.red0, other.red1, other.green0, other.green1);
+    }
+
+    /**
+     * Computes which pads differ between this grid and another one (typically, the last frame sent to the device).
+     *
+     * @param other The grid to compare to. Must not be null.
+     * @return The mask of the pads whose colors differ.
+     */
+    public long diff(GridState other) {
+        if (other == null) {
+            throw new IllegalArgumentException("Grid must not be null.");
+        }
+        return (red0 ^ other.red0) | (red1 ^ other.red1) | (green0 ^ other.green0) | (green1 ^ other.green1);
+    }
+
+    /**
+     * Returns the mask of the pads that are lit, whatever their color.
+     *
+     * @return The mask of the lit pads.
+     */
+    public long getLitMask() {
+        return red0 | red1 | green0 | green1;
+    }
+
+    /**
+     * Returns the mask of the pads modified since the last call to {@link #clearDirty()}.
+     *
+     * @return The mask of the modified pads.
+     */
+    public long getDirtyMask() {
+        return dirty;
+    }
+
+    /**
+     * Tells if any pad has been modified since the last call to {@link #clearDirty()}.
+     *
+     * @return {@code true} if at least one pad has been modified.
+     */
+    public boolean isDirty() {
+        return dirty != 0;
+    }
+
+    /**
+     * Forgets about the modified pads, usually after they have been sent to the device.
+     */
+    public void clearDirty() {
+        dirty = 0;
+    }
+
+    /*
+    ================================================================================
+    Utils
+    ================================================================================
+    */
+
+    /**
+     * Replaces the color planes, and marks the modified pads as dirty.
+     */
+    private void update(long newRed0, long newRed1, long newGreen0, long newGreen1) {
+        dirty |= (red0 ^ newRed0) | (red1 ^ newRed1) | (green0 ^ newGreen0) | (green1 ^ newGreen1);
+        red0 = newRed0;
+        red1 = newRed1;
+        green0 = newGreen0;
+        green1 = newGreen1;
+    }
+
+    private static long shift(long plane, int dx, int dy) {
+        if (dx <= -8 || dx >= 8 || dy <= -8 || dy >= 8) {
+            return 0;
+        }
+        if (dx > 0) {
+            plane = (plane << dx) & ~(COLUMN_0 * ((1L << dx) - 1));
+        } else if (dx < 0) {
+            plane = (plane >>> -dx) & ~(COLUMN_0 * (((1L << -dx) - 1) << (8 + dx)));
+        }
+        if (dy > 0) {
+            plane = plane << (8 * dy);
+        } else if (dy < 0) {
+            plane = plane >>> (-8 * dy);
+        }
+        return plane;
+    }
+
+    private static long rotateClockwise(long plane) {
+        return mirrorHorizontal(transpose(plane));
+    }
+
+    private static long rotateCounterClockwise(long plane) {
+        return transpose(mirrorHorizontal(plane));
+    }
+
+    /** Swaps the X and Y coordinates of each pad. */
+    private static long transpose(long plane) {
+        long t;
+        t = 0x0F0F0F0F00000000L & (plane ^ (plane << 28));
+        plane ^= t ^ (t >>> 28);
+        t = 0x3333000033330000L & (plane ^ (plane << 14));
+        plane ^= t ^ (t >>> 14);
+        t = 0x5500550055005500L & (plane ^ (plane << 7));
+        plane ^= t ^ (t >>> 7);
+        return plane;
+    }
+
+    /** Mirrors each row (X becomes 7 - X). */
+    private static long mirrorHorizontal(long plane) {
+        plane = ((plane >>> 1) & 0x5555555555555555L) | ((plane & 0x5555555555555555L) << 1);
+        plane = ((plane >>> 2) & 0x3333333333333333L) | ((plane & 0x3333333333333333L) << 2);
+        plane = ((plane >>> 4) & 0x0F0F0F0F0F0F0F0FL) | ((plane & 0x0F0F0F0F0F0F0F0FL) << 4);
+        return plane;
+    }
+
+}
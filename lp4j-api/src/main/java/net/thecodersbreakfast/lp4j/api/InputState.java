@@ -0,0 +1,238 @@
+/*
+ * Copyright 2015 Olivier Croisier (thecodersbreakfast.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.thecodersbreakfast.lp4j.api;
+
+/**
+ * Continuously tracks which pads and buttons of a Launchpad are currently held down, so that it can be polled (for
+ * example once per frame, from a game loop) instead of reacting to events.
+ *
+ * <p>Pads are stored in a 64-bit mask (bit index = {@code y * 8 + x}), and buttons in a 16-bit mask (top buttons on
+ * bits 0 to 7, right buttons on bits 8 to 15). Each change increments a sequence number twice : it is odd while the
+ * masks are being updated, and even once they are consistent. Readers never lock : {@link #snapshot()} simply retries
+ * if an update happened while it was reading.
+ *
+ * <p>This listener must be fed by a single thread (typically the one delivering the device's events), but can be read
+ * from any thread.
+ *
+ * @author Olivier Croisier (olivier.croisier@gmail.com)
+ */
+public class InputState implements LaunchpadListener {
+
+    /** Sequence number, incremented before and after each update. */
+    private volatile long sequence = 0;
+    /** Pads currently held down. */
+    private volatile long padMask = 0;
+    /** Buttons currently held down. */
+    private volatile int buttonMask = 0;
+
+    /**
+     * Tells if a pad is currently held down.
+     *
+     * @param pad The pad. Must not be null.
+     * @return {@code true} if the pad is held down.
+     */
+    public boolean isPressed(Pad pad) {
+        if (pad == null) {
+            throw new IllegalArgumentException("Pad must not be null.");
+        }
+        return (padMask & GridState.maskOf(pad)) != 0;
+    }
+
+    /**
+     * Tells if a button is currently held down.
+     *
+     * @param button The button. Must not be null.
+     * @return {@code true} if the button is held down.
+     */
+    public boolean isPressed(Button button) {
+        if (button == null) {
+            throw new IllegalArgumentException("Button must not be null.");
+        }
+        return (buttonMask & maskOf(button)) != 0;
+    }
+
+    /**
+     * Returns the pads currently held down.
+     *
+     * @return The pads mask (bit index = {@code y * 8 + x}).
+     */
+    public long getPadMask() {
+        return padMask;
+    }
+
+    /**
+     * Returns the buttons currently held down.
+     *
+     * @return The buttons mask (top buttons on bits 0 to 7, right buttons on bits 8 to 15).
+     */
+    public int getButtonMask() {
+        return buttonMask;
+    }
+
+    /**
+     * Returns the current sequence number. Comparing it with a previous value tells if anything changed in between.
+     *
+     * @return The sequence number.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Returns a consistent view of the pads and buttons currently held down.
+     *
+     * @return The current state.
+     */
+    public Snapshot snapshot() {
+        while (true) {
+            long before = sequence;
+            long pads = padMask;
+            int buttons = buttonMask;
+            if ((before & 1) == 0 && before == sequence) {
+                return new Snapshot(before, pads, buttons);
+            }
+            Thread.yield();
+        }
+    }
+
+    /**
+     * Forgets all held pads and buttons, for example after the device has been disconnected.
+     */
+    public void reset() {
+        update(0, 0);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void onPadPressed(Pad pad, long timestamp) {
+        update(padMask | GridState.maskOf(pad), buttonMask);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void onPadReleased(Pad pad, long timestamp) {
+        update(padMask & ~GridState.maskOf(pad), buttonMask);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void onButtonPressed(Button button, long timestamp) {
+        update(padMask, buttonMask | maskOf(button));
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void onButtonReleased(Button button, long timestamp) {
+        update(padMask, buttonMask & ~maskOf(button));
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void onTextScrolled(long timestamp) {
+    }
+
+    /*
+    ================================================================================
+    Utils
+    ================================================================================
+    */
+
+    private void update(long pads, int buttons) {
+        long current = sequence;
+        sequence = current + 1;
+        padMask = pads;
+        buttonMask = buttons;
+        sequence = current + 2;
+    }
+
+    private static int maskOf(Button button) {
+        return 1 << ((button.isTopButton() ? 0 : 8) + button.getCoordinate());
+    }
+
+    /**
+     * A consistent view of the pads and buttons held down at a given time.
+     */
+    public static final class Snapshot {
+
+        /** Sequence number of the state. */
+        private final long sequence;
+        /** Pads held down. */
+        private final long padMask;
+        /** Buttons held down. */
+        private final int buttonMask;
+
+        private Snapshot(long sequence, long padMask, int buttonMask) {
+            this.sequence = sequence;
+            this.padMask = padMask;
+            this.buttonMask = buttonMask;
+        }
+
+        /**
+         * Returns the sequence number of this state.
+         *
+         * @return The sequence number.
+         */
+        public long getSequence() {
+            return sequence;
+        }
+
+        /**
+         * Returns the pads held down.
+         *
+         * @return The pads mask (bit index = {@code y * 8 + x}).
+         */
+        public long getPadMask() {
+            return padMask;
+        }
+
+        /**
+         * Returns the buttons held down.
+         *
+         * @return The buttons mask (top buttons on bits 0 to 7, right buttons on bits 8 to 15).
+         */
+        public int getButtonMask() {
+            return buttonMask;
+        }
+
+        /**
+         * Tells if a pad was held down.
+         *
+         * @param pad The pad. Must not be null.
+         * @return {@code true} if the pad was held down.
+         */
+        public boolean isPressed(Pad pad) {
+            if (pad == null) {
+                throw new IllegalArgumentException("Pad must not be null.");
+            }
+            return (padMask & GridState.maskOf(pad)) != 0;
+        }
+
+        /**
+         * Tells if a button was held down.
+         *
+         * @param button The button. Must not be null.
+         * @return {@code true} if the button was held down.
+         */
+        public boolean isPressed(Button button) {
+            if (button == null) {
+                throw new IllegalArgumentException("Button must not be null.");
+            }
+            return (buttonMask & maskOf(button)) != 0;
+        }
+    }
+
+}
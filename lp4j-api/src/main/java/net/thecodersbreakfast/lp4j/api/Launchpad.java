@@ -37,6 +37,23 @@ public interface Launchpad extends Closeable {
      */
     public LaunchpadClient getClient();
 
+    /**
+     * Returns a client sending its commands with the given priority. Implementations that cannot reorder commands may
+     * ignore the priority.
+     *
+     * <p>The default implementation ignores the priority and returns {@link #getClient()}, so that existing
+     * implementations keep working.
+     *
+     * @param priority The priority of the commands sent by the client. Must not be null.
+     * @return a client
+     */
+    public default LaunchpadClient getClient(Priority priority) {
+        if (priority == null) {
+            throw new IllegalArgumentException("Priority must not be null.");
+        }
+        return getClient();
+    }
+
     /**
      * Accepts a {@link net.thecodersbreakfast.lp4j.api.LaunchpadListener}, which will be notified of any
      * Launchpad-related event such as pad or button presses.
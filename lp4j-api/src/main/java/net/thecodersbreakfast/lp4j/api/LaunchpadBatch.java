@@ -0,0 +1,201 @@
+/*
+ * Copyright 2015 Olivier Croisier (thecodersbreakfast.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.thecodersbreakfast.lp4j.api;
+
+import java.util.Arrays;
+
+/**
+ * Collects changes to a Launchpad's display, to be committed all at once by {@link LaunchpadClient#batch(LaunchpadBatch)}.
+ *
+ * <p>Each change is validated when it is added, so that committing the batch cannot fail halfway. When the same light is
+ * changed several times, only its last color is kept.
+ *
+ * <p>Lights are indexed in the order of {@link LaunchpadClient#setLights(Color[], BackBufferOperation)} : the pads line
+ * by line, starting from the upper-left one, then the upper-row buttons, and finally the right-side buttons.
+ *
+ * <p>This class is not thread-safe.
+ *
+ * @author Olivier Croisier (olivier.croisier@gmail.com)
+ */
+public final class LaunchpadBatch {
+
+    /** New color of each light, or {@code null} if unchanged. */
+    private final Color[] lights = new Color[FrameSequence.NB_LIGHTS];
+    /** Number of changed lights. */
+    private int nbLights = 0;
+    /** New brightness, or {@code null} if unchanged. */
+    private Brightness brightness;
+
+    /**
+     * Changes the color of a pad.
+     *
+     * @param pad The pad to light up. Must not be null.
+     * @param color The color to use. Must not be null.
+     * @return This batch.
+     */
+    public LaunchpadBatch setPadLight(Pad pad, Color color) {
+        if (pad == null) {
+            throw new IllegalArgumentException("Pad must not be null.");
+        }
+        return setLight(pad.getY() * 8 + pad.getX(), color);
+    }
+
+    /**
+     * Changes the color of a button.
+     *
+     * @param button The button to light up. Must not be null.
+     * @param color The color to use. Must not be null.
+     * @return This batch.
+     */
+    public LaunchpadBatch setButtonLight(Button button, Color color) {
+        if (button == null) {
+            throw new IllegalArgumentException("Button must not be null.");
+        }
+        int first = button.isTopButton() ? FrameSequence.FIRST_TOP_BUTTON : FrameSequence.FIRST_RIGHT_BUTTON;
+        return setLight(first + button.getCoordinate(), color);
+    }
+
+    /**
+     * Changes the colors of consecutive lights, starting from the upper-left pad.
+     *
+     * @param colors The colors to use. Must not be null, nor contain nulls, nor be longer than
+     * {@link FrameSequence#NB_LIGHTS}.
+     * @return This batch.
+     */
+    public LaunchpadBatch setLights(Color[] colors) {
+        if (colors == null) {
+            throw new IllegalArgumentException("Colors must not be null.");
+        }
+        if (colors.length > lights.length) {
+            throw new IllegalArgumentException("Too many colors : " + colors.length + ". At most " + lights.length + " lights can be set.");
+        }
+        for (Color color : colors) {
+            if (color == null) {
+                throw new IllegalArgumentException("Color must not be null.");
+            }
+        }
+        for (int i = 0; i < colors.length; i++) {
+            setLight(i, colors[i]);
+        }
+        return this;
+    }
+
+    /**
+     * Changes the overall brightness of the lights.
+     *
+     * @param brightness The brightness to use. Must not be null.
+     * @return This batch.
+     */
+    public LaunchpadBatch setBrightness(Brightness brightness) {
+        if (brightness == null) {
+            throw new IllegalArgumentException("Brightness must not be null.");
+        }
+        this.brightness = brightness;
+        return this;
+    }
+
+    /**
+     * Returns the new color of a light.
+     *
+     * @param light The index of the light, in range [0..{@link FrameSequence#NB_LIGHTS}[.
+     * @return The color, or {@code null} if the light is unchanged.
+     */
+    public Color getLight(int light) {
+        return lights[light];
+    }
+
+    /**
+     * Returns the number of changed lights.
+     *
+     * @return The number of changed lights.
+     */
+    public int getNbLights() {
+        return nbLights;
+    }
+
+    /**
+     * Returns the number of consecutive changed lights, starting from the upper-left pad. Those lights can be sent as a
+     * single sequence, even though the others are unknown.
+     *
+     * @return The number of consecutive changed lights.
+     */
+    public int getNbLeadingLights() {
+        int count = 0;
+        while (count < lights.length && lights[count] != null) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Returns the new brightness.
+     *
+     * @return The brightness, or {@code null} if unchanged.
+     */
+    public Brightness getBrightness() {
+        return brightness;
+    }
+
+    /**
+     * Tells if this batch holds no change at all.
+     *
+     * @return {@code true} if the batch is empty.
+     */
+    public boolean isEmpty() {
+        return nbLights == 0 && brightness == null;
+    }
+
+    /**
+     * Forgets all the changes, so that the batch can be reused.
+     */
+    public void clear() {
+        Arrays.fill(lights, null);
+        nbLights = 0;
+        brightness = null;
+    }
+
+    /**
+     * Returns a copy of this batch.
+     *
+     * @return A new batch, holding the same changes.
+     */
+    LaunchpadBatch copy() {
+        LaunchpadBatch copy = new LaunchpadBatch();
+        System.arraycopy(lights, 0, copy.lights, 0, lights.length);
+        copy.nbLights = nbLights;
+        copy.brightness = brightness;
+        return copy;
+    }
+
+    /*
+    ================================================================================
+    Utils
+    ================================================================================
+    */
+
+    private LaunchpadBatch setLight(int light, Color color) {
+        if (color == null) {
+            throw new IllegalArgumentException("Color must not be null.");
+        }
+        if (lights[light] == null) {
+            nbLights++;
+        }
+        lights[light] = color;
+        return this;
+    }
+
+}
@@ -66,6 +66,33 @@ public interface LaunchpadClient {
      */
     public void setButtonLight(Button button, Color color, BackBufferOperation operation);
 
+    /**
+     * Makes the given pad blink between two colors, using the Launchpad's own flashing rather than periodic commands.
+     *
+     * The pad is set to {@code onColor} in buffer 0 and to {@code offColor} in buffer 1, then buffer 0 becomes the
+     * write and visible buffer, with auto-swap enabled. Since the whole display then alternates between both buffers,
+     * the lights that must stay steady should be written to both of them (see {@link BackBufferOperation#COPY}) : a
+     * light written with {@link BackBufferOperation#NONE} while a pad blinks only changes buffer 0, and therefore
+     * alternates with its previous color in buffer 1. Call {@link #setBuffers(Buffer, Buffer, boolean, boolean)}
+     * without auto-swap to stop the blinking.
+     *
+     * <p>Implementations copy buffer 0 into buffer 1 when flashing starts, so that the lights set beforehand stay
+     * steady. The default implementation cannot tell whether flashing has already started, and does not : it only
+     * writes both colors through {@link #setBuffers(Buffer, Buffer, boolean, boolean)} and
+     * {@link #setPadLight(Pad, Color, BackBufferOperation)}.
+     *
+     * @param pad The pad to blink.
+     * @param onColor The color displayed from buffer 0.
+     * @param offColor The color displayed from buffer 1. Use {@link net.thecodersbreakfast.lp4j.api.Color#BLACK} to
+     * switch the light off.
+     */
+    public default void setPadBlink(Pad pad, Color onColor, Color offColor) {
+        setBuffers(Buffer.BUFFER_0, Buffer.BUFFER_1, false, true);
+        setPadLight(pad, offColor, BackBufferOperation.NONE);
+        setBuffers(Buffer.BUFFER_0, Buffer.BUFFER_0, false, true);
+        setPadLight(pad, onColor, BackBufferOperation.NONE);
+    }
+
     /**
      * Set the overall brightness of the pad and button lights.
      *
@@ -85,6 +112,42 @@ public interface LaunchpadClient {
      */
     public void setBuffers(Buffer visibleBuffer, Buffer writeBuffer, boolean copyVisibleBufferToWriteBuffer, boolean autoSwap);
 
+    /**
+     * Commits all the changes of the given batch at once, so that they become visible together.
+     *
+     * <p>The changes are written to buffer 1 while buffer 0 is displayed, then the buffers are flipped, and finally
+     * buffer 0 becomes the write and visible buffer again, holding the same lights as buffer 1. The display is
+     * therefore expected to be in the default mode (buffer 0 written and visible) when this method is called. While
+     * pads blink (see {@link #setPadBlink(Pad, Color, Color)}), implementations write the changes to both buffers
+     * instead, without flipping them, so that the other pads keep blinking.
+     *
+     * <p>The default implementation cannot flip the buffers atomically : it applies each light one by one, to both
+     * buffers (see {@link BackBufferOperation#COPY}), then the brightness.
+     *
+     * @param batch The changes to commit. Must not be null. It is not modified, and may be reused.
+     */
+    public default void batch(LaunchpadBatch batch) {
+        if (batch == null) {
+            throw new IllegalArgumentException("Batch must not be null.");
+        }
+        for (int i = 0; i < FrameSequence.NB_LIGHTS; i++) {
+            Color color = batch.getLight(i);
+            if (color == null) {
+                continue;
+            }
+            if (i < FrameSequence.FIRST_TOP_BUTTON) {
+                setPadLight(Pad.at(i % 8, i / 8), color, BackBufferOperation.COPY);
+            } else if (i < FrameSequence.FIRST_RIGHT_BUTTON) {
+                setButtonLight(Button.atTop(i - FrameSequence.FIRST_TOP_BUTTON), color, BackBufferOperation.COPY);
+            } else {
+                setButtonLight(Button.atRight(i - FrameSequence.FIRST_RIGHT_BUTTON), color, BackBufferOperation.COPY);
+            }
+        }
+        if (batch.getBrightness() != null) {
+            setBrightness(batch.getBrightness());
+        }
+    }
+
     /**
      * Starts scrolling a text across the Launchpad, using the 8x8 pad grid as a font grid. Beware, this operation may
      * be blocking !
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2015 Olivier Croisier (thecodersbreakfast.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.thecodersbreakfast.lp4j.api;
+
+/**
+ * An event that occurred on a Launchpad, as published by a {@link LaunchpadEventPublisher}.
+ *
+ * @author Olivier Croisier (olivier.croisier@gmail.com)
+ */
+public final class LaunchpadEvent {
+
+    /**
+     * The kinds of events.
+     */
+    public enum Type {
+        /** A pad has been pressed. */
+        PAD_PRESSED,
+        /** A pad has been released. */
+        PAD_RELEASED,
+        /** A button has been pressed. */
+        BUTTON_PRESSED,
+        /** A button has been released. */
+        BUTTON_RELEASED,
+        /** Text has been scrolled through the display. */
+        TEXT_SCROLLED
+    }
+
+    /** The kind of event. */
+    private final Type type;
+    /** The pad involved, if any. */
+    private final Pad pad;
+    /** The button involved, if any. */
+    private final Button button;
+    /** When the event occurred. */
+    private final long timestamp;
+
+    private LaunchpadEvent(Type type, Pad pad, Button button, long timestamp) {
+        this.type = type;
+        this.pad = pad;
+        this.button = button;
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * Creates a pad event.
+     *
+     * @param type The kind of event. Must be {@link Type#PAD_PRESSED} or {@link Type#PAD_RELEASED}.
+     * @param pad The pad involved. Must not be null.
+     * @param timestamp When the event occurred.
+     * @return The event.
+     */
+    public static LaunchpadEvent ofPad(Type type, Pad pad, long timestamp) {
+        if (type != Type.PAD_PRESSED && type != Type.PAD_RELEASED) {
+            throw new IllegalArgumentException("Invalid pad event type : " + type + ".");
+        }
+        if (pad == null) {
+            throw new IllegalArgumentException("Pad must not be null.");
+        }
+        return new LaunchpadEvent(type, pad, null, timestamp);
+    }
+
+    /**
+     * Creates a button event.
+     *
+     * @param type The kind of event. Must be {@link Type#BUTTON_PRESSED} or {@link Type#BUTTON_RELEASED}.
+     * @param button The button involved. Must not be null.
+     * @param timestamp When the event occurred.
+     * @return The event.
+     */
+    public static LaunchpadEvent ofButton(Type type, Button button, long timestamp) {
+        if (type != Type.BUTTON_PRESSED && type != Type.BUTTON_RELEASED) {
+            throw new IllegalArgumentException("Invalid button event type : " + type + ".");
+        }
+        if (button == null) {
+            throw new IllegalArgumentException("Button must not be null.");
+        }
+        return new LaunchpadEvent(type, null, button, timestamp);
+    }
+
+    /**
+     * Creates a "text scrolled" event.
+     *
+     * @param timestamp When the event occurred.
+     * @return The event.
+     */
+    public static LaunchpadEvent ofTextScrolled(long timestamp) {
+        return new LaunchpadEvent(Type.TEXT_SCROLLED, null, null, timestamp);
+    }
+
+    /**
+     * Returns the kind of event.
+     *
+     * @return The kind of event.
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Returns the pad involved.
+     *
+     * @return The pad, or {@code null} if this is not a pad event.
+     */
+    public Pad getPad() {
+        return pad;
+    }
+
+    /**
+     * Returns the button involved.
+     *
+     * @return The button, or {@code null} if this is not a button event.
+     */
+    public Button getButton() {
+        return button;
+    }
+
+    /**
+     * Returns when the event occurred.
+     *
+     * @return The timestamp of the event.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Notifies a listener of this event.
+     *
+     * @param listener The listener to notify. Must not be null.
+     */
+    public void dispatch(LaunchpadListener listener) {
+        switch (type) {
+            case PAD_PRESSED:
+                listener.onPadPressed(pad, timestamp);
+                break;
+            case PAD_RELEASED:
+                listener.onPadReleased(pad, timestamp);
+                break;
+            case BUTTON_PRESSED:
+                listener.onButtonPressed(button, timestamp);
+                break;
+            case BUTTON_RELEASED:
+                listener.onButtonReleased(button, timestamp);
+                break;
+            default:
+                listener.onTextScrolled(timestamp);
+                break;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "LaunchpadEvent[" + type + (pad != null ? ", " + pad : "") + (button != null ? ", " + button : "") + ", " + timestamp + "]";
+    }
+}
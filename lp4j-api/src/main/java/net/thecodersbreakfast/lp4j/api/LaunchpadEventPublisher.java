@@ -0,0 +1,359 @@
+/*
+ * Copyright 2015 Olivier Croisier (thecodersbreakfast.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.thecodersbreakfast.lp4j.api;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes the events of a Launchpad to {@link Flow.Subscriber}s, honoring their demand.
+ *
+ * <p>This publisher is itself a {@link LaunchpadListener}, to be registered with
+ * {@link Launchpad#setListener(LaunchpadListener)}. Events are never delivered on the thread that reports them (usually
+ * the MIDI transmitter thread), which is therefore never blocked by slow subscribers : each subscriber has its own
+ * bounded buffer, drained on the publisher's executor as the subscriber requests more events. When a buffer is full,
+ * the configured {@link OverflowStrategy} applies.
+ *
+ * @author Olivier Croisier (olivier.croisier@gmail.com)
+ */
+public class LaunchpadEventPublisher implements Flow.Publisher<LaunchpadEvent>, LaunchpadListener, Closeable {
+
+    /** Default number of events buffered per subscriber. */
+    public static final int DEFAULT_BUFFER_SIZE = 256;
+
+    /** Maximum number of events buffered per subscriber. */
+    private final int bufferSize;
+    /** What to do when a subscriber's buffer is full. */
+    private final OverflowStrategy overflowStrategy;
+    /** Executor delivering the events to the subscribers. */
+    private final Executor executor;
+    /** The active subscriptions. */
+    private final List<EventSubscription> subscriptions = new CopyOnWriteArrayList<EventSubscription>();
+    /** Indicates that the publisher has been closed. */
+    private volatile boolean closed = false;
+
+    /**
+     * Constructor, with the default buffer size, the {@link OverflowStrategy#DROP_OLDEST} strategy, and the common
+     * fork-join pool.
+     */
+    public LaunchpadEventPublisher() {
+        this(DEFAULT_BUFFER_SIZE, OverflowStrategy.DROP_OLDEST, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param bufferSize Maximum number of events buffered per subscriber. Must be positive.
+     * @param overflowStrategy What to do when a subscriber's buffer is full. Must not be null.
+     * @param executor Executor delivering the events to the subscribers. Must not be null.
+     */
+    public LaunchpadEventPublisher(int bufferSize, OverflowStrategy overflowStrategy, Executor executor) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("Invalid buffer size : " + bufferSize + ". Value must be positive.");
+        }
+        if (overflowStrategy == null) {
+            throw new IllegalArgumentException("Overflow strategy must not be null.");
+        }
+        if (executor == null) {
+            throw new IllegalArgumentException("Executor must not be null.");
+        }
+        this.bufferSize = bufferSize;
+        this.overflowStrategy = overflowStrategy;
+        this.executor = executor;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Subscribers only receive the events published after they subscribed. Subscribing to a closed publisher
+     * completes the subscriber immediately.
+     */
+    @Override
+    public void subscribe(Flow.Subscriber<? super LaunchpadEvent> subscriber) {
+        if (subscriber == null) {
+            throw new NullPointerException("Subscriber must not be null.");
+        }
+        EventSubscription subscription = new EventSubscription(subscriber);
+        subscriptions.add(subscription);
+        if (closed) {
+            subscription.complete(null);
+        }
+        subscription.schedule();
+    }
+
+    /**
+     * Returns the number of active subscriptions.
+     *
+     * @return The number of active subscriptions.
+     */
+    public int getSubscriberCount() {
+        return subscriptions.size();
+    }
+
+    /**
+     * Returns the total number of events dropped because of full buffers, across all subscriptions.
+     *
+     * @return The number of dropped events.
+     */
+    public long getDroppedEvents() {
+        long total = 0;
+        for (EventSubscription subscription : subscriptions) {
+            total += subscription.dropped.get();
+        }
+        return total;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void onPadPressed(Pad pad, long timestamp) {
+        publish(LaunchpadEvent.ofPad(LaunchpadEvent.Type.PAD_PRESSED, pad, timestamp));
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void onPadReleased(Pad pad, long timestamp) {
+        publish(LaunchpadEvent.ofPad(LaunchpadEvent.Type.PAD_RELEASED, pad, timestamp));
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void onButtonPressed(Button button, long timestamp) {
+        publish(LaunchpadEvent.ofButton(LaunchpadEvent.Type.BUTTON_PRESSED, button, timestamp));
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void onButtonReleased(Button button, long timestamp) {
+        publish(LaunchpadEvent.ofButton(LaunchpadEvent.Type.BUTTON_RELEASED, button, timestamp));
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void onTextScrolled(long timestamp) {
+        publish(LaunchpadEvent.ofTextScrolled(timestamp));
+    }
+
+    /**
+     * Completes all the subscriptions, once they have received their buffered events. Events reported afterwards are
+     * ignored.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (EventSubscription subscription : subscriptions) {
+            subscription.complete(null);
+            subscription.schedule();
+        }
+    }
+
+    /*
+    ================================================================================
+    Utils
+    ================================================================================
+    */
+
+    /**
+     * Buffers an event for every subscriber. Never blocks.
+     *
+     * @param event The event to publish.
+     */
+    private void publish(LaunchpadEvent event) {
+        if (closed) {
+            return;
+        }
+        for (EventSubscription subscription : subscriptions) {
+            if (subscription.offer(event)) {
+                subscription.schedule();
+            }
+        }
+    }
+
+    /**
+     * The subscription of a single subscriber, with its own buffer and demand.
+     *
+     * <p>All the signals to the subscriber are emitted by {@link #run()}, which never runs concurrently with itself.
+     */
+    private class EventSubscription implements Flow.Subscription, Runnable {
+
+        /** The subscriber. */
+        private final Flow.Subscriber<? super LaunchpadEvent> subscriber;
+        /** Buffered events, guarded by itself. */
+        private final ArrayDeque<LaunchpadEvent> buffer = new ArrayDeque<LaunchpadEvent>();
+        /** Number of events requested and not delivered yet. */
+        private final AtomicLong demand = new AtomicLong();
+        /** Number of pending drain requests ; the drain loop runs while it is positive. */
+        private final AtomicInteger pendingDrains = new AtomicInteger();
+        /** Number of events dropped because of a full buffer. */
+        private final AtomicLong dropped = new AtomicLong();
+        /** Indicates that no more events will be buffered. Guarded by the buffer. */
+        private boolean done = false;
+        /** The error to signal once the buffer is drained, if any. Guarded by the buffer. */
+        private Throwable error;
+        /** Indicates that the subscriber has been notified of its subscription. Only accessed by the drain loop. */
+        private boolean subscribed = false;
+        /** Indicates that the subscription has been cancelled, or has terminated. */
+        private volatile boolean cancelled = false;
+
+        private EventSubscription(Flow.Subscriber<? super LaunchpadEvent> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                complete(new IllegalArgumentException("Invalid request : " + n + ". Value must be positive."));
+            } else {
+                long current;
+                long updated;
+                do {
+                    current = demand.get();
+                    updated = current + n < 0 ? Long.MAX_VALUE : current + n;
+                } while (!demand.compareAndSet(current, updated));
+            }
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            subscriptions.remove(this);
+            synchronized (buffer) {
+                buffer.clear();
+            }
+        }
+
+        /**
+         * Buffers an event, applying the overflow strategy if needed.
+         *
+         * @return {@code true} if the drain loop should run.
+         */
+        private boolean offer(LaunchpadEvent event) {
+            synchronized (buffer) {
+                if (done || cancelled) {
+                    return false;
+                }
+                if (buffer.size() < bufferSize) {
+                    buffer.add(event);
+                    return true;
+                }
+                dropped.incrementAndGet();
+                switch (overflowStrategy) {
+                    case DROP_OLDEST:
+                        buffer.poll();
+                        buffer.add(event);
+                        return true;
+                    case DROP_NEWEST:
+                        return false;
+                    default:
+                        buffer.clear();
+                        done = true;
+                        error = new LaunchpadException("Subscriber buffer overflow : more than " + bufferSize + " events pending.");
+                        return true;
+                }
+            }
+        }
+
+        /**
+         * Stops buffering events. The subscriber is terminated once the buffered events have been delivered, or
+         * immediately in case of error.
+         */
+        private void complete(Throwable failure) {
+            synchronized (buffer) {
+                if (done) {
+                    return;
+                }
+                done = true;
+                if (failure != null) {
+                    buffer.clear();
+                    error = failure;
+                }
+            }
+        }
+
+        /**
+         * Runs the drain loop on the executor, unless it is already running.
+         */
+        private void schedule() {
+            if (pendingDrains.getAndIncrement() == 0) {
+                try {
+                    executor.execute(this);
+                } catch (RejectedExecutionException e) {
+                    cancel();
+                }
+            }
+        }
+
+        /**
+         * Delivers the buffered events, as long as there is demand for them.
+         */
+        @Override
+        public void run() {
+            int missed = 1;
+            while (true) {
+                if (!subscribed) {
+                    subscribed = true;
+                    subscriber.onSubscribe(this);
+                }
+                drain();
+                missed = pendingDrains.addAndGet(-missed);
+                if (missed == 0) {
+                    return;
+                }
+            }
+        }
+
+        private void drain() {
+            while (!cancelled) {
+                LaunchpadEvent event = null;
+                boolean terminate = false;
+                Throwable failure = null;
+                synchronized (buffer) {
+                    if (error != null || (done && buffer.isEmpty())) {
+                        terminate = true;
+                        failure = error;
+                    } else if (demand.get() > 0) {
+                        event = buffer.poll();
+                    }
+                }
+                if (terminate) {
+                    cancel();
+                    if (failure != null) {
+                        subscriber.onError(failure);
+                    } else {
+                        subscriber.onComplete();
+                    }
+                    return;
+                }
+                if (event == null) {
+                    return;
+                }
+                if (demand.get() != Long.MAX_VALUE) {
+                    demand.decrementAndGet();
+                }
+                subscriber.onNext(event);
+            }
+        }
+    }
+
+}
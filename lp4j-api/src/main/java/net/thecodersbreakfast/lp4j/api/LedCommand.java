@@ -0,0 +1,97 @@
+/*
+ * Copyright 2015 Olivier Croisier (thecodersbreakfast.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.thecodersbreakfast.lp4j.api;
+
+/**
+ * A command to be applied to the lights of a Launchpad, for example by a {@link LedCommandSubscriber}.
+ *
+ * <p>Common commands can be created with the factory methods of this interface.
+ *
+ * @author Olivier Croisier (olivier.croisier@gmail.com)
+ */
+public interface LedCommand {
+
+    /**
+     * Applies this command.
+     *
+     * @param client The client of the Launchpad.
+     */
+    void applyTo(LaunchpadClient client);
+
+    /**
+     * Creates a command lighting up a pad.
+     *
+     * @param pad The pad to light up. Must not be null.
+     * @param color The color to use. Must not be null.
+     * @return The command.
+     */
+    static LedCommand padLight(final Pad pad, final Color color) {
+        if (pad == null) {
+            throw new IllegalArgumentException("Pad must not be null.");
+        }
+        if (color == null) {
+            throw new IllegalArgumentException("Color must not be null.");
+        }
+        return new LedCommand() {
+            @Override
+            public void applyTo(LaunchpadClient client) {
+                client.setPadLight(pad, color, BackBufferOperation.NONE);
+            }
+        };
+    }
+
+    /**
+     * Creates a command lighting up a button.
+     *
+     * @param button The button to light up. Must not be null.
+     * @param color The color to use. Must not be null.
+     * @return The command.
+     */
+    static LedCommand buttonLight(final Button button, final Color color) {
+        if (button == null) {
+            throw new IllegalArgumentException("Button must not be null.");
+        }
+        if (color == null) {
+            throw new IllegalArgumentException("Color must not be null.");
+        }
+        return new LedCommand() {
+            @Override
+            public void applyTo(LaunchpadClient client) {
+                client.setButtonLight(button, color, BackBufferOperation.NONE);
+            }
+        };
+    }
+
+    /**
+     * Creates a command lighting up all the pads and buttons at once (see
+     * {@link LaunchpadClient#setLights(Color[], BackBufferOperation)}).
+     *
+     * @param colors The colors to use. Must not be null. The array is copied.
+     * @return The command.
+     */
+    static LedCommand lights(Color[] colors) {
+        if (colors == null) {
+            throw new IllegalArgumentException("Colors must not be null.");
+        }
+        final Color[] copy = colors.clone();
+        return new LedCommand() {
+            @Override
+            public void applyTo(LaunchpadClient client) {
+                client.setLights(copy, BackBufferOperation.NONE);
+            }
+        };
+    }
+}
@@ -0,0 +1,231 @@
+/*
+ * Copyright 2015 Olivier Croisier (thecodersbreakfast.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.thecodersbreakfast.lp4j.api;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * A {@link Flow.Subscriber} applying {@link LedCommand}s to a Launchpad.
+ *
+ * <p>Commands are requested by batches, and the next batch is only requested once the output backlog (the number of
+ * messages accepted by the client but not yet sent to the device) is low enough. Upstream sources producing commands
+ * faster than the device can display them are therefore slowed down, instead of filling up an unbounded queue. While
+ * the backlog is too high, it is polled from a background thread : the delivering thread is never blocked.
+ *
+ * <p>If applying a command fails, the subscription is cancelled and the failure is available from
+ * {@link #getFailure()}.
+ *
+ * @author Olivier Croisier (olivier.croisier@gmail.com)
+ */
+public class LedCommandSubscriber implements Flow.Subscriber<LedCommand> {
+
+    /** Default number of commands requested at once. */
+    public static final int DEFAULT_BATCH_SIZE = 16;
+    /** Default maximum output backlog before requesting more commands. */
+    public static final long DEFAULT_MAX_BACKLOG = 64;
+    /** Delay between two checks of the output backlog, in milliseconds. */
+    private static final long BACKLOG_POLL_INTERVAL = 1;
+
+    /** The client of the Launchpad. */
+    private final LaunchpadClient client;
+    /** Number of commands requested at once. */
+    private final int batchSize;
+    /** Provides the current output backlog. */
+    private final LongSupplier backlog;
+    /** Maximum output backlog before requesting more commands. */
+    private final long maxBacklog;
+
+    /** The upstream subscription. */
+    private volatile Flow.Subscription subscription;
+    /** Polls the output backlog while it is too high, created on demand. */
+    private volatile ScheduledExecutorService scheduler;
+    /** Number of commands received in the current batch. Only accessed by the delivering thread. */
+    private int received = 0;
+    /** Number of commands successfully applied. */
+    private final AtomicLong appliedCommands = new AtomicLong();
+    /** Indicates that the subscription has terminated. */
+    private volatile boolean done = false;
+    /** The failure that terminated the subscription, if any. */
+    private volatile Throwable failure;
+
+    /**
+     * Constructor, for clients that send their messages synchronously (and are therefore never backlogged).
+     *
+     * @param client The client of the Launchpad. Must not be null.
+     */
+    public LedCommandSubscriber(LaunchpadClient client) {
+        this(client, DEFAULT_BATCH_SIZE, new LongSupplier() {
+            @Override
+            public long getAsLong() {
+                return 0;
+            }
+        }, DEFAULT_MAX_BACKLOG);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param client The client of the Launchpad. Must not be null.
+     * @param batchSize Number of commands requested at once. Must be positive.
+     * @param backlog Provides the number of messages waiting to be sent to the device. Must not be null.
+     * @param maxBacklog Maximum output backlog before requesting more commands. Must not be negative.
+     */
+    public LedCommandSubscriber(LaunchpadClient client, int batchSize, LongSupplier backlog, long maxBacklog) {
+        if (client == null) {
+            throw new IllegalArgumentException("Client must not be null.");
+        }
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Invalid batch size : " + batchSize + ". Value must be positive.");
+        }
+        if (backlog == null) {
+            throw new IllegalArgumentException("Backlog must not be null.");
+        }
+        if (maxBacklog < 0) {
+            throw new IllegalArgumentException("Invalid maximum backlog : " + maxBacklog + ". Value must not be negative.");
+        }
+        this.client = client;
+        this.batchSize = batchSize;
+        this.backlog = backlog;
+        this.maxBacklog = maxBacklog;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void onSubscribe(Flow.Subscription newSubscription) {
+        if (subscription != null || done) {
+            newSubscription.cancel();
+            return;
+        }
+        subscription = newSubscription;
+        requestMore();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void onNext(LedCommand command) {
+        if (done) {
+            return;
+        }
+        try {
+            command.applyTo(client);
+            appliedCommands.incrementAndGet();
+        } catch (RuntimeException e) {
+            failure = e;
+            terminate();
+            subscription.cancel();
+            return;
+        }
+        if (++received == batchSize) {
+            received = 0;
+            requestMore();
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void onError(Throwable throwable) {
+        failure = throwable;
+        terminate();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void onComplete() {
+        terminate();
+    }
+
+    /**
+     * Returns the number of commands successfully applied so far.
+     *
+     * @return The number of applied commands.
+     */
+    public long getAppliedCommands() {
+        return appliedCommands.get();
+    }
+
+    /**
+     * Tells if the subscription has terminated (completed, failed or cancelled).
+     *
+     * @return {@code true} if the subscription has terminated.
+     */
+    public boolean isDone() {
+        return done;
+    }
+
+    /**
+     * Returns the failure that terminated the subscription.
+     *
+     * @return The failure, or {@code null} if none happened.
+     */
+    public Throwable getFailure() {
+        return failure;
+    }
+
+    /*
+    ================================================================================
+    Utils
+    ================================================================================
+    */
+
+    /**
+     * Requests the next batch if the output backlog is low enough, or checks again later otherwise.
+     */
+    private void requestMore() {
+        if (done) {
+            return;
+        }
+        if (backlog.getAsLong() <= maxBacklog) {
+            subscription.request(batchSize);
+            return;
+        }
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "lp4j-led-backlog");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        try {
+            scheduler.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    requestMore();
+                }
+            }, BACKLOG_POLL_INTERVAL, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // The subscription has terminated in the meantime.
+        }
+    }
+
+    private void terminate() {
+        done = true;
+        ScheduledExecutorService currentScheduler = scheduler;
+        if (currentScheduler != null) {
+            currentScheduler.shutdownNow();
+        }
+    }
+
+}
@@ -0,0 +1,30 @@
+/*
+ * Copyright 2015 Olivier Croisier (thecodersbreakfast.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.thecodersbreakfast.lp4j.api;
+
+/**
+ * Describes what happens when an event is published while a subscriber's buffer is full.
+ *
+ * @author Olivier Croisier (olivier.croisier@gmail.com)
+ */
+public enum OverflowStrategy {
+    /** The oldest buffered event is discarded to make room for the new one. */
+    DROP_OLDEST,
+    /** The new event is discarded. */
+    DROP_NEWEST,
+    /** The subscription is terminated with an error. */
+    ERROR
+}
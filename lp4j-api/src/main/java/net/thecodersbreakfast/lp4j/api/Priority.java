@@ -0,0 +1,34 @@
+/*
+ * Copyright 2015 Olivier Croisier (thecodersbreakfast.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.thecodersbreakfast.lp4j.api;
+
+/**
+ * Priority class of the commands sent by a {@link LaunchpadClient} (see {@link Launchpad#getClient(Priority)}).
+ *
+ * <p>When the output path is congested, commands of a higher priority are sent before any pending command of a lower
+ * priority, so that feedback to the user is not delayed by ambient effects.
+ *
+ * @author Olivier Croisier (olivier.croisier@gmail.com)
+ */
+public enum Priority {
+    /** Immediate feedback to the user's actions, such as lighting up a pressed pad. */
+    INTERACTIVE,
+    /** Regular display updates and animations. This is the priority of {@link Launchpad#getClient()}. */
+    ANIMATION,
+    /** Ambient effects, only sent when nothing more urgent is pending. */
+    BACKGROUND
+}
@@ -0,0 +1,311 @@
+/*
+ * Copyright 2015 Olivier Croisier (thecodersbreakfast.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.thecodersbreakfast.lp4j.api;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * A {@link LaunchpadClient} recording what the Launchpad displays into a {@link FrameSequenceWriter}, while forwarding
+ * all the commands to an actual client.
+ *
+ * <p>Both buffers of the Launchpad are tracked, so that only the visible lights are recorded. A frame is written
+ * whenever the display changes ; changes happening within the same millisecond are merged into a single frame. The
+ * recording can later be played back with a {@link FrameSequencePlayer}.
+ *
+ * <p>Flashing (auto-swap of the buffers), LED tests and scrolling text are not recorded.
+ *
+ * <p>This class is thread-safe.
+ *
+ * @author Olivier Croisier (olivier.croisier@gmail.com)
+ */
+public class RecordingLaunchpadClient implements LaunchpadClient, Closeable {
+
+    /** The client actually controlling the Launchpad. */
+    private final LaunchpadClient client;
+    /** The recorded sequence. */
+    private final FrameSequenceWriter writer;
+    /** Provides the current time, in milliseconds since the start of the recording. */
+    private final LongSupplier clock;
+    /** Content of both buffers of the Launchpad. */
+    private final Color[][] buffers = new Color[2][FrameSequence.NB_LIGHTS];
+    /** The last recorded frame. */
+    private final Color[] recordedFrame = new Color[FrameSequence.NB_LIGHTS];
+    /** Index of the visible buffer. */
+    private int visibleBuffer = 0;
+    /** Index of the write buffer. */
+    private int writeBuffer = 0;
+    /** Indicates that flashing is enabled, so that buffer 1 has already been prepared. */
+    private boolean blinking = false;
+    /** Indicates that the display may have changed since the last recorded frame. */
+    private boolean pending = false;
+    /** Time of the first change since the last recorded frame, in milliseconds. */
+    private long pendingTimestamp;
+
+    /**
+     * Constructor. The recording starts immediately, with all lights off.
+     *
+     * @param client The client actually controlling the Launchpad. Must not be null.
+     * @param writer The writer of the recorded sequence. Must not be null.
+     */
+    public RecordingLaunchpadClient(LaunchpadClient client, FrameSequenceWriter writer) {
+        this(client, writer, new LongSupplier() {
+            private final long start = System.nanoTime();
+
+            @Override
+            public long getAsLong() {
+                return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            }
+        });
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param client The client actually controlling the Launchpad. Must not be null.
+     * @param writer The writer of the recorded sequence. Must not be null.
+     * @param clock Provides the current time, in milliseconds since the start of the recording. Must not be null.
+     */
+    RecordingLaunchpadClient(LaunchpadClient client, FrameSequenceWriter writer, LongSupplier clock) {
+        if (client == null) {
+            throw new IllegalArgumentException("Client must not be null.");
+        }
+        if (writer == null) {
+            throw new IllegalArgumentException("Writer must not be null.");
+        }
+        if (clock == null) {
+            throw new IllegalArgumentException("Clock must not be null.");
+        }
+        this.client = client;
+        this.writer = writer;
+        this.clock = clock;
+        clearBuffers();
+        Arrays.fill(recordedFrame, Color.BLACK);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void reset() {
+        client.reset();
+        beforeChange();
+        clearBuffers();
+        visibleBuffer = 0;
+        writeBuffer = 0;
+        blinking = false;
+        afterChange();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void testLights(LightIntensity intensity) {
+        client.testLights(intensity);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void setLights(Color[] colors, BackBufferOperation operation) {
+        client.setLights(colors, operation);
+        beforeChange();
+        for (int i = 0; i < Math.min(colors.length, FrameSequence.NB_LIGHTS); i++) {
+            write(i, colors[i], operation);
+        }
+        afterChange();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void setPadLight(Pad pad, Color color, BackBufferOperation operation) {
+        client.setPadLight(pad, color, operation);
+        beforeChange();
+        write(pad.getY() * 8 + pad.getX(), color, operation);
+        afterChange();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void setButtonLight(Button button, Color color, BackBufferOperation operation) {
+        client.setButtonLight(button, color, operation);
+        beforeChange();
+        int first = button.isTopButton() ? FrameSequence.FIRST_TOP_BUTTON : FrameSequence.FIRST_RIGHT_BUTTON;
+        write(first + button.getCoordinate(), color, operation);
+        afterChange();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Only the color of buffer 0 is recorded, since flashing is not.
+     */
+    @Override
+    public synchronized void setPadBlink(Pad pad, Color onColor, Color offColor) {
+        client.setPadBlink(pad, onColor, offColor);
+        beforeChange();
+        if (!blinking) {
+            System.arraycopy(buffers[0], 0, buffers[1], 0, FrameSequence.NB_LIGHTS);
+        }
+        int light = pad.getY() * 8 + pad.getX();
+        buffers[0][light] = onColor;
+        buffers[1][light] = offColor;
+        visibleBuffer = 0;
+        writeBuffer = 0;
+        blinking = true;
+        afterChange();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setBrightness(Brightness brightness) {
+        client.setBrightness(brightness);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void setBuffers(Buffer visibleBuffer, Buffer writeBuffer, boolean copyVisibleBufferToWriteBuffer, boolean autoSwap) {
+        client.setBuffers(visibleBuffer, writeBuffer, copyVisibleBufferToWriteBuffer, autoSwap);
+        beforeChange();
+        this.visibleBuffer = visibleBuffer.ordinal();
+        this.writeBuffer = writeBuffer.ordinal();
+        this.blinking = autoSwap;
+        if (copyVisibleBufferToWriteBuffer && this.visibleBuffer != this.writeBuffer) {
+            System.arraycopy(buffers[this.visibleBuffer], 0, buffers[this.writeBuffer], 0, FrameSequence.NB_LIGHTS);
+        }
+        afterChange();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The whole batch is recorded as a single frame. While pads blink, the lights are written to both buffers, and
+     * the buffers are left as they are.
+     */
+    @Override
+    public synchronized void batch(LaunchpadBatch batch) {
+        client.batch(batch);
+        beforeChange();
+        if (blinking) {
+            for (int i = 0; i < FrameSequence.NB_LIGHTS; i++) {
+                Color color = batch.getLight(i);
+                if (color != null) {
+                    write(i, color, BackBufferOperation.COPY);
+                }
+            }
+            afterChange();
+            return;
+        }
+        for (int i = 0; i < FrameSequence.NB_LIGHTS; i++) {
+            Color color = batch.getLight(i);
+            if (color != null) {
+                buffers[0][i] = color;
+            }
+        }
+        System.arraycopy(buffers[0], 0, buffers[1], 0, FrameSequence.NB_LIGHTS);
+        visibleBuffer = 0;
+        writeBuffer = 0;
+        afterChange();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void scrollText(String text, Color color, ScrollSpeed speed, boolean loop, BackBufferOperation operation) {
+        client.scrollText(text, color, speed, loop, operation);
+    }
+
+    /**
+     * Records the last pending frame, and completes the sequence file. The underlying client is not closed.
+     *
+     * @throws IOException If the sequence cannot be written.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (pending) {
+            record();
+        }
+        writer.close();
+    }
+
+    /*
+    ================================================================================
+    Utils
+    ================================================================================
+    */
+
+    /**
+     * Records the pending frame, once the millisecond it started in has elapsed.
+     */
+    private void beforeChange() {
+        if (pending && clock.getAsLong() > pendingTimestamp) {
+            try {
+                record();
+            } catch (IOException e) {
+                throw new LaunchpadException("Unable to record the frame.", e);
+            }
+        }
+    }
+
+    private void afterChange() {
+        if (!pending) {
+            pending = true;
+            pendingTimestamp = clock.getAsLong();
+        }
+    }
+
+    /**
+     * Writes the visible buffer as a new frame, if it changed since the last recorded frame.
+     */
+    private void record() throws IOException {
+        pending = false;
+        Color[] frame = buffers[visibleBuffer];
+        if (Arrays.equals(frame, recordedFrame)) {
+            return;
+        }
+        writer.writeFrame(pendingTimestamp, frame);
+        System.arraycopy(frame, 0, recordedFrame, 0, FrameSequence.NB_LIGHTS);
+    }
+
+    private void write(int light, Color color, BackBufferOperation operation) {
+        buffers[writeBuffer][light] = color;
+        if (operation == BackBufferOperation.COPY) {
+            buffers[1 - writeBuffer][light] = color;
+        } else if (operation == BackBufferOperation.CLEAR) {
+            buffers[1 - writeBuffer][light] = Color.BLACK;
+        }
+    }
+
+    private void clearBuffers() {
+        Arrays.fill(buffers[0], Color.BLACK);
+        Arrays.fill(buffers[1], Color.BLACK);
+    }
+
+}
@@ -0,0 +1,296 @@
+/*
+ * Copyright 2015 Olivier Croisier (thecodersbreakfast.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.thecodersbreakfast.lp4j.api;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Exposes a wall of Launchpads, arranged as a grid of tiles, as one large logical pad surface.
+ *
+ * <p>Writes are not sent immediately : they are accumulated in a per-device frame, and only the pads that changed since
+ * the previous frame are sent when {@link #flush()} is called. Each device is flushed from its own thread (named
+ * {@code lp4j-tiled-flush-<tile index>}), so that large walls render in parallel instead of one device after the
+ * other.
+ *
+ * <p>Tiles are numbered in row-major order : the tile at column {@code c} and row {@code r} has index
+ * {@code r * columns + c}.
+ *
+ * <p>This class is not thread-safe : writes and flushes are expected to be issued by a single (rendering) thread.
+ *
+ * @author Olivier Croisier (olivier.croisier@gmail.com)
+ */
+public class TiledLaunchpadClient implements Closeable {
+
+    /** Above this number of modified pads, a whole frame is sent at once instead of individual pads. */
+    private static final int DENSE_FRAME_THRESHOLD = 32;
+
+    /** Number of tiles per row. */
+    private final int columns;
+    /** Number of tiles per column. */
+    private final int rows;
+    /** The tiles, in row-major order. */
+    private final List<Tile> tiles;
+    /** The listener to notify of input events. */
+    private volatile TiledLaunchpadListener listener;
+
+    /**
+     * Constructor.
+     *
+     * @param columns Number of tiles per row. Must be positive.
+     * @param rows Number of tiles per column. Must be positive.
+     * @param launchpads The Launchpads, in row-major order. Must contain exactly {@code columns * rows} elements.
+     */
+    public TiledLaunchpadClient(int columns, int rows, List<? extends Launchpad> launchpads) {
+        if (columns <= 0 || rows <= 0) {
+            throw new IllegalArgumentException("Invalid tiling : " + columns + "x" + rows + ". Both dimensions must be positive.");
+        }
+        if (launchpads == null) {
+            throw new IllegalArgumentException("Launchpads must not be null.");
+        }
+        if (launchpads.size() != columns * rows) {
+            throw new IllegalArgumentException("Expected " + (columns * rows) + " Launchpads for a " + columns + "x" + rows + " tiling, got " + launchpads.size() + ".");
+        }
+        this.columns = columns;
+        this.rows = rows;
+        this.tiles = new ArrayList<Tile>(launchpads.size());
+        for (int i = 0; i < launchpads.size(); i++) {
+            Launchpad launchpad = launchpads.get(i);
+            if (launchpad == null) {
+                throw new IllegalArgumentException("Launchpads must not be null.");
+            }
+            tiles.add(new Tile(launchpad.getClient(), i));
+            launchpad.setListener(new TileListener(i));
+        }
+    }
+
+    /**
+     * Returns the width of the logical surface, in pads.
+     *
+     * @return The width of the logical surface.
+     */
+    public int getWidth() {
+        return columns * 8;
+    }
+
+    /**
+     * Returns the height of the logical surface, in pads.
+     *
+     * @return The height of the logical surface.
+     */
+    public int getHeight() {
+        return rows * 8;
+    }
+
+    /**
+     * Sets the listener notified of input events on any of the tiled Launchpads.
+     *
+     * @param listener The listener, or {@code null} to stop being notified.
+     */
+    public void setListener(TiledLaunchpadListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Sets the color of a pad of the logical surface. The change will be sent on the next {@link #flush()}.
+     *
+     * @param x The logical X coordinate. Must be in range [0, {@link #getWidth()}[.
+     * @param y The logical Y coordinate. Must be in range [0, {@link #getHeight()}[.
+     * @param color The color to use. Must not be null.
+     */
+    public void setPadLight(int x, int y, Color color) {
+        if (x < 0 || x >= getWidth() || y < 0 || y >= getHeight()) {
+            throw new IllegalArgumentException("Illegal pad coordinates : (" + x + "," + y + "). Acceptable values are in [0.." + (getWidth() - 1) + "] on the X axis and [0.." + (getHeight() - 1) + "] on the Y axis.");
+        }
+        Tile tile = tiles.get((y >> 3) * columns + (x >> 3));
+        tile.frame.setColor(Pad.at(x & 7, y & 7), color);
+    }
+
+    /**
+     * Sets the color of all the pads of the logical surface. The change will be sent on the next {@link #flush()}.
+     *
+     * @param color The color to use. Must not be null.
+     */
+    public void fill(Color color) {
+        for (Tile tile : tiles) {
+            tile.frame.fill(color);
+        }
+    }
+
+    /**
+     * Immediately lights up a button on one of the tiled Launchpads.
+     *
+     * @param tile The index of the Launchpad.
+     * @param button The button to light up. Must not be null.
+     * @param color The color to use. Must not be null.
+     */
+    public void setButtonLight(int tile, Button button, Color color) {
+        if (tile < 0 || tile >= tiles.size()) {
+            throw new IllegalArgumentException("Invalid tile index : " + tile + ". Acceptable values are in range [0.." + (tiles.size() - 1) + "].");
+        }
+        tiles.get(tile).client.setButtonLight(button, color, BackBufferOperation.NONE);
+    }
+
+    /**
+     * Sends the pending changes to all the Launchpads, in parallel, and waits for all of them to complete.
+     */
+    public void flush() {
+        List<Future<Void>> futures = new ArrayList<Future<Void>>(tiles.size());
+        for (final Tile tile : tiles) {
+            if (tile.frame.diff(tile.sentFrame) == 0) {
+                continue;
+            }
+            futures.add(tile.executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    tile.flush();
+                    return null;
+                }
+            }));
+        }
+        for (Future<Void> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                throw new LaunchpadException("Unable to flush the tiled Launchpads.", e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new LaunchpadException("Interrupted while flushing the tiled Launchpads.", e);
+            }
+        }
+    }
+
+    /**
+     * Stops the flushing threads. The tiled Launchpads themselves are not closed.
+     */
+    @Override
+    public void close() {
+        for (Tile tile : tiles) {
+            tile.executor.shutdown();
+        }
+    }
+
+    /**
+     * A single Launchpad of the wall, with its pending and last sent frames.
+     */
+    private static class Tile {
+
+        /** The client of the Launchpad. */
+        private final LaunchpadClient client;
+        /** The frame being drawn. */
+        private final GridState frame = new GridState();
+        /** The last frame sent to the Launchpad. */
+        private final GridState sentFrame = new GridState();
+        /** Reusable buffer for dense frames. */
+        private final Color[] colors = new Color[GridState.SIZE];
+        /** The thread flushing this tile. */
+        private final ExecutorService executor;
+
+        private Tile(LaunchpadClient client, final int index) {
+            this.client = client;
+            this.executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "lp4j-tiled-flush-" + index);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+
+        /**
+         * Sends the pads that changed since the last flush : individually if there are only a few of them, or as a
+         * whole frame otherwise.
+         */
+        private void flush() {
+            long changes = frame.diff(sentFrame);
+            if (Long.bitCount(changes) > DENSE_FRAME_THRESHOLD) {
+                for (int i = 0; i < GridState.SIZE; i++) {
+                    colors[i] = frame.getColor(i);
+                }
+                client.setLights(colors, BackBufferOperation.NONE);
+            } else {
+                while (changes != 0) {
+                    int index = Long.numberOfTrailingZeros(changes);
+                    client.setPadLight(GridState.padAt(index), frame.getColor(index), BackBufferOperation.NONE);
+                    changes &= changes - 1;
+                }
+            }
+            sentFrame.copyFrom(frame);
+            frame.clearDirty();
+        }
+    }
+
+    /**
+     * Translates the events of a single Launchpad into logical surface coordinates.
+     */
+    private class TileListener extends LaunchpadListenerAdapter {
+
+        /** Index of the tile. */
+        private final int tile;
+        /** Logical X coordinate of the upper-left pad of the tile. */
+        private final int offsetX;
+        /** Logical Y coordinate of the upper-left pad of the tile. */
+        private final int offsetY;
+
+        private TileListener(int tile) {
+            this.tile = tile;
+            this.offsetX = (tile % columns) * 8;
+            this.offsetY = (tile / columns) * 8;
+        }
+
+        @Override
+        public void onPadPressed(Pad pad, long timestamp) {
+            TiledLaunchpadListener l = listener;
+            if (l != null) {
+                l.onPadPressed(offsetX + pad.getX(), offsetY + pad.getY(), timestamp);
+            }
+        }
+
+        @Override
+        public void onPadReleased(Pad pad, long timestamp) {
+            TiledLaunchpadListener l = listener;
+            if (l != null) {
+                l.onPadReleased(offsetX + pad.getX(), offsetY + pad.getY(), timestamp);
+            }
+        }
+
+        @Override
+        public void onButtonPressed(Button button, long timestamp) {
+            TiledLaunchpadListener l = listener;
+            if (l != null) {
+                l.onButtonPressed(tile, button, timestamp);
+            }
+        }
+
+        @Override
+        public void onButtonReleased(Button button, long timestamp) {
+            TiledLaunchpadListener l = listener;
+            if (l != null) {
+                l.onButtonReleased(tile, button, timestamp);
+            }
+        }
+    }
+
+}
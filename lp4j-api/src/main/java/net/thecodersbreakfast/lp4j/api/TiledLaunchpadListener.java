@@ -0,0 +1,62 @@
+/*
+ * Copyright 2015 Olivier Croisier (thecodersbreakfast.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.thecodersbreakfast.lp4j.api;
+
+/**
+ * This listener allows to be notified of any event occurring on a {@link TiledLaunchpadClient}, with pad coordinates
+ * expressed on the logical surface spanning all the tiled Launchpads.
+ *
+ * @author Olivier Croisier (olivier.croisier@gmail.com)
+ */
+public interface TiledLaunchpadListener {
+
+    /**
+     * Called when a pad has been pressed.
+     *
+     * @param x The logical X coordinate of the pad
+     * @param y The logical Y coordinate of the pad
+     * @param timestamp When the event occurred
+     */
+    void onPadPressed(int x, int y, long timestamp);
+
+    /**
+     * Called when a pad has been released.
+     *
+     * @param x The logical X coordinate of the pad
+     * @param y The logical Y coordinate of the pad
+     * @param timestamp When the event occurred
+     */
+    void onPadReleased(int x, int y, long timestamp);
+
+    /**
+     * Called when a button has been pressed.
+     *
+     * @param tile The index of the Launchpad on which the button was pressed
+     * @param button The button that was pressed
+     * @param timestamp When the event occurred
+     */
+    void onButtonPressed(int tile, Button button, long timestamp);
+
+    /**
+     * Called when a button has been released.
+     *
+     * @param tile The index of the Launchpad on which the button was released
+     * @param button The button that was released
+     * @param timestamp When the event occurred
+     */
+    void onButtonReleased(int tile, Button button, long timestamp);
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2015 Olivier Croisier (thecodersbreakfast.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.thecodersbreakfast.lp4j.api;
+
+/**
+ * A hashed timer wheel : timeouts are stored in a circular array of buckets, indexed by their expiration tick, so that
+ * scheduling, cancelling and expiring a timeout all take constant time, whatever the number of pending timeouts.
+ *
+ * <p>The wheel does not own any thread : it is advanced explicitly by its owner, typically from a single ticking
+ * thread. This class is not thread-safe.
+ *
+ * @author Olivier Croisier (olivier.croisier@gmail.com)
+ */
+final class TimerWheel {
+
+    /** The buckets : each one is the head of a doubly-linked list of timeouts. */
+    private final Timeout[] buckets;
+    /** Mask used to compute the bucket of a given tick. */
+    private final int mask;
+    /** The current tick. */
+    private long tick = 0;
+
+    /**
+     * Constructor.
+     *
+     * @param size The number of buckets. Must be a power of 2.
+     */
+    TimerWheel(int size) {
+        if (size <= 0 || Integer.bitCount(size) != 1) {
+            throw new IllegalArgumentException("Invalid wheel size : " + size + ". Value must be a power of 2.");
+        }
+        this.buckets = new Timeout[size];
+        this.mask = size - 1;
+    }
+
+    /**
+     * Returns the current tick.
+     *
+     * @return The current tick.
+     */
+    long getTick() {
+        return tick;
+    }
+
+    /**
+     * Schedules a timeout. If it was already scheduled, it is rescheduled.
+     *
+     * @param timeout The timeout to schedule.
+     * @param delay The number of ticks before the timeout expires. Values lower than 1 are rounded up to 1.
+     */
+    void schedule(Timeout timeout, long delay) {
+        cancel(timeout);
+        long ticks = Math.max(1, delay);
+        int bucket = (int) ((tick + ticks) & mask);
+        timeout.rounds = (ticks - 1) / buckets.length;
+        timeout.bucket = bucket;
+        timeout.prev = null;
+        timeout.next = buckets[bucket];
+        if (timeout.next != null) {
+            timeout.next.prev = timeout;
+        }
+        buckets[bucket] = timeout;
+    }
+
+    /**
+     * Cancels a timeout, if it is scheduled.
+     *
+     * @param timeout The timeout to cancel.
+     */
+    void cancel(Timeout timeout) {
+        timeout.expiring = false;
+        if (timeout.bucket < 0) {
+            return;
+        }
+        if (timeout.prev != null) {
+            timeout.prev.next = timeout.next;
+        } else {
+            buckets[timeout.bucket] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+        timeout.prev = null;
+        timeout.next = null;
+        timeout.bucket = -1;
+    }
+
+    /**
+     * Advances the wheel up to the given tick, expiring the due timeouts along the way.
+     *
+     * @param targetTick The tick to reach.
+     */
+    void advance(long targetTick) {
+        while (tick < targetTick) {
+            tick++;
+            Timeout expired = collect((int) (tick & mask));
+            while (expired != null) {
+                Timeout current = expired;
+                expired = current.nextExpired;
+                current.nextExpired = null;
+                if (current.expiring) {
+                    current.expiring = false;
+                    current.expire();
+                }
+            }
+        }
+    }
+
+    /**
+     * Unlinks the due timeouts of a bucket, and returns them as a list.
+     */
+    private Timeout collect(int bucket) {
+        Timeout expired = null;
+        Timeout timeout = buckets[bucket];
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            if (timeout.rounds > 0) {
+                timeout.rounds--;
+            } else {
+                cancel(timeout);
+                timeout.expiring = true;
+                timeout.nextExpired = expired;
+                expired = timeout;
+            }
+            timeout = next;
+        }
+        return expired;
+    }
+
+    /**
+     * A task to run when a timeout expires. Instances can be scheduled again once expired or cancelled.
+     */
+    abstract static class Timeout {
+
+        /** Bucket of the timeout, or {@code -1} if not scheduled. */
+        private int bucket = -1;
+        /** Remaining full turns of the wheel before expiration. */
+        private long rounds;
+        /** Whether the timeout has been collected and is about to expire. */
+        private boolean expiring;
+        /** Previous timeout of the bucket. */
+        private Timeout prev;
+        /** Next timeout of the bucket. */
+        private Timeout next;
+        /** Next timeout of the list being expired. */
+        private Timeout nextExpired;
+
+        /**
+         * Tells if this timeout is pending.
+         *
+         * @return {@code true} if this timeout is scheduled and has not expired yet.
+         */
+        boolean isScheduled() {
+            return bucket >= 0 || expiring;
+        }
+
+        /**
+         * Called when the timeout expires.
+         */
+        abstract void expire();
+    }
+
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2015 Olivier Croisier (thecodersbreakfast.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.thecodersbreakfast.lp4j.api;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
+
+public class ConcurrentLaunchpadClientTest {
+
+    private static final Color[] COLORS = {Color.BLACK, Color.RED, Color.GREEN, Color.AMBER};
+
+    private LaunchpadClient client;
+    private ConcurrentLaunchpadClient concurrentClient;
+
+    @Before
+    public void init() {
+        client = mock(LaunchpadClient.class);
+        concurrentClient = new ConcurrentLaunchpadClient(client);
+    }
+
+    @After
+    public void close() {
+        concurrentClient.close();
+    }
+
+    @Test
+    public void commands_inOrder() throws Exception {
+        concurrentClient.reset();
+        concurrentClient.setPadLight(Pad.at(1, 2), Color.RED, BackBufferOperation.NONE);
+        concurrentClient.setBrightness(Brightness.BRIGHTNESS_MAX);
+        assertTrue(concurrentClient.flush(1, TimeUnit.SECONDS));
+
+        InOrder inOrder = inOrder(client);
+        inOrder.verify(client).reset();
+        inOrder.verify(client).setPadLight(Pad.at(1, 2), Color.RED, BackBufferOperation.NONE);
+        inOrder.verify(client).setBrightness(Brightness.BRIGHTNESS_MAX);
+        assertEquals(0, concurrentClient.getPendingCommands());
+    }
+
+    @Test
+    public void concurrentProducers_orderPerPad() throws Exception {
+        final List<Pad> pads = new ArrayList<Pad>();
+        final List<Color> colors = new ArrayList<Color>();
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                pads.add((Pad) invocation.getArguments()[0]);
+                colors.add((Color) invocation.getArguments()[1]);
+                return null;
+            }
+        }).when(client).setPadLight(any(Pad.class), any(Color.class), any(BackBufferOperation.class));
+
+        final int nbCommands = 1000;
+        List<Thread> producers = new ArrayList<Thread>();
+        for (int i = 0; i < 4; i++) {
+            final Pad pad = Pad.at(i, 0);
+            producers.add(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < nbCommands; j++) {
+                        concurrentClient.setPadLight(pad, COLORS[j % COLORS.length], BackBufferOperation.NONE);
+                    }
+                }
+            }));
+        }
+        for (Thread producer : producers) {
+            producer.start();
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        assertTrue(concurrentClient.flush(5, TimeUnit.SECONDS));
+
+        assertEquals(4 * nbCommands, pads.size());
+        int[] counts = new int[4];
+        for (int i = 0; i < pads.size(); i++) {
+            int x = pads.get(i).getX();
+            assertSame(COLORS[counts[x] % COLORS.length], colors.get(i));
+            counts[x]++;
+        }
+    }
+
+    @Test
+    public void setLights_copied() throws Exception {
+        Color[] colors = {Color.RED, Color.GREEN};
+        concurrentClient.setLights(colors, BackBufferOperation.NONE);
+        colors[0] = Color.BLACK;
+        assertTrue(concurrentClient.flush(1, TimeUnit.SECONDS));
+
+        ArgumentCaptor<Color[]> captor = ArgumentCaptor.forClass(Color[].class);
+        verify(client).setLights(captor.capture(), eq(BackBufferOperation.NONE));
+        assertSame(Color.RED, captor.getValue()[0]);
+    }
+
+    @Test
+    public void batch_copied() throws Exception {
+        LaunchpadBatch batch = new LaunchpadBatch().setPadLight(Pad.at(0, 0), Color.RED);
+        concurrentClient.batch(batch);
+        batch.clear();
+        assertTrue(concurrentClient.flush(1, TimeUnit.SECONDS));
+
+        ArgumentCaptor<LaunchpadBatch> captor = ArgumentCaptor.forClass(LaunchpadBatch.class);
+        verify(client).batch(captor.capture());
+        assertSame(Color.RED, captor.getValue().getLight(0));
+    }
+
+    @Test
+    public void failure() throws Exception {
+        LaunchpadException failure = new LaunchpadException("Unplugged");
+        doThrow(failure).when(client).reset();
+        concurrentClient.reset();
+        concurrentClient.setBrightness(Brightness.BRIGHTNESS_MAX);
+        assertTrue(concurrentClient.flush(1, TimeUnit.SECONDS));
+
+        assertEquals(1, concurrentClient.getFailedCommands());
+        assertSame(failure, concurrentClient.getLastFailure());
+        verify(client).setBrightness(Brightness.BRIGHTNESS_MAX);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setPadLight_nullPad() {
+        concurrentClient.setPadLight(null, Color.RED, BackBufferOperation.NONE);
+    }
+
+    @Test
+    public void close_appliesPendingCommands() {
+        concurrentClient.reset();
+        concurrentClient.close();
+        verify(client).reset();
+    }
+
+    @Test(expected = LaunchpadException.class)
+    public void closed() {
+        concurrentClient.close();
+        concurrentClient.reset();
+    }
+
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2015 Olivier Croisier (thecodersbreakfast.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.thecodersbreakfast.lp4j.api;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.InOrder;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+public class FrameSequencePlayerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void play() throws Exception {
+        FrameSequence sequence = write(0, 20, 40);
+        LaunchpadClient client = mock(LaunchpadClient.class);
+
+        FrameSequencePlayer player = new FrameSequencePlayer(sequence, client);
+        long start = System.nanoTime();
+        player.start();
+        assertTrue(player.await(5000));
+
+        assertTrue(System.nanoTime() - start >= 40 * 1000000L);
+        assertFalse(player.isRunning());
+        assertNull(player.getFailure());
+        assertEquals(3, player.getSentFrames() + player.getSkippedFrames());
+
+        // The first frame is sent whole, then only changes are sent
+        InOrder inOrder = inOrder(client);
+        inOrder.verify(client).setLights(any(Color[].class), eq(BackBufferOperation.NONE));
+        inOrder.verify(client).setPadLight(Pad.at(2, 0), Color.RED, BackBufferOperation.NONE);
+        verify(client, never()).setPadLight(Pad.at(0, 0), Color.RED, BackBufferOperation.NONE);
+    }
+
+    @Test
+    public void close() throws Exception {
+        FrameSequence sequence = write(0, 60000);
+        LaunchpadClient client = mock(LaunchpadClient.class);
+
+        FrameSequencePlayer player = new FrameSequencePlayer(sequence, client);
+        player.start();
+        Thread.sleep(50);
+        player.close();
+
+        assertTrue(player.await(5000));
+        assertNull(player.getFailure());
+        assertEquals(1, player.getSentFrames());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_nullClient() throws IOException {
+        new FrameSequencePlayer(write(0), null);
+    }
+
+    /*
+    ================================================================================
+    Utils
+    ================================================================================
+    */
+
+    private FrameSequence write(long... timestamps) throws IOException {
+        File file = folder.newFile();
+        FrameSequenceWriter writer = new FrameSequenceWriter(file, FrameSequence.Encoding.DELTA);
+        try {
+            for (int i = 0; i < timestamps.length; i++) {
+                writer.writeFrame(timestamps[i], FrameSequenceTest.frame(i));
+            }
+        } finally {
+            writer.close();
+        }
+        return FrameSequence.open(file);
+    }
+
+}
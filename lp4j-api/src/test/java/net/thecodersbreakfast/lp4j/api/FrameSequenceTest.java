@@ -0,0 +1,205 @@
+/*
+ * Copyright 2015 Olivier Croisier (thecodersbreakfast.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.thecodersbreakfast.lp4j.api;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FrameSequenceTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void full_roundTrip() throws IOException {
+        FrameSequence sequence = write(FrameSequence.Encoding.FULL, 10);
+
+        assertEquals(FrameSequence.Encoding.FULL, sequence.getEncoding());
+        assertEquals(10, sequence.getFrameCount());
+        assertEquals(90, sequence.getDuration());
+        assertFrames(sequence, 10);
+    }
+
+    @Test
+    public void full_fileSize() throws IOException {
+        File file = folder.newFile();
+        writeFrames(file, FrameSequence.Encoding.FULL, 10);
+        assertEquals(FrameSequence.HEADER_SIZE + 10 * (4 + FrameSequence.NB_LIGHTS), file.length());
+    }
+
+    @Test
+    public void delta_roundTrip() throws IOException {
+        FrameSequence sequence = write(FrameSequence.Encoding.DELTA, 10);
+
+        assertEquals(FrameSequence.Encoding.DELTA, sequence.getEncoding());
+        assertEquals(10, sequence.getFrameCount());
+        assertFrames(sequence, 10);
+    }
+
+    @Test
+    public void delta_smallerThanFull() throws IOException {
+        File full = folder.newFile();
+        File delta = folder.newFile();
+        writeFrames(full, FrameSequence.Encoding.FULL, 1000);
+        writeFrames(delta, FrameSequence.Encoding.DELTA, 1000);
+        assertTrue(delta.length() * 10 < full.length());
+    }
+
+    @Test
+    public void delta_keyframes() throws IOException {
+        File file = folder.newFile();
+        FrameSequenceWriter writer = new FrameSequenceWriter(file, FrameSequence.Encoding.DELTA, 4);
+        try {
+            for (int i = 0; i < 10; i++) {
+                writer.writeFrame(i * 10, frame(i));
+            }
+        } finally {
+            writer.close();
+        }
+        FrameSequence sequence = FrameSequence.open(file);
+        assertEquals(4, sequence.getKeyframeInterval());
+        assertFrames(sequence, 10);
+
+        FrameSequence.Reader reader = sequence.reader();
+        for (int frame : new int[]{9, 5, 4, 1, 8, 10, 2}) {
+            reader.seek(frame);
+            assertEquals(frame, reader.getPosition());
+            assertEquals((frame - 1) * 10, reader.getTimestamp());
+            assertArrayEquals(frame(frame - 1), reader.getColors());
+        }
+    }
+
+    @Test
+    public void seekTime() throws IOException {
+        for (FrameSequence.Encoding encoding : FrameSequence.Encoding.values()) {
+            FrameSequence.Reader reader = write(encoding, 600).reader();
+            reader.seekTime(3005);
+            assertEquals(301, reader.getPosition());
+            assertEquals(3000, reader.getTimestamp());
+            assertArrayEquals(frame(300), reader.getColors());
+
+            reader.seekTime(-1);
+            assertEquals(0, reader.getPosition());
+            reader.seekTime(100000);
+            assertEquals(600, reader.getPosition());
+        }
+    }
+
+    @Test
+    public void seek() throws IOException {
+        for (FrameSequence.Encoding encoding : FrameSequence.Encoding.values()) {
+            FrameSequence.Reader reader = write(encoding, 10).reader();
+            reader.seek(7);
+            assertEquals(7, reader.getPosition());
+            assertArrayEquals(frame(6), reader.getColors());
+            assertEquals(GridState.ALL, reader.getPadChanges());
+
+            reader.seek(3);
+            assertArrayEquals(frame(2), reader.getColors());
+            assertTrue(reader.next());
+            assertEquals(30, reader.getTimestamp());
+            assertArrayEquals(frame(3), reader.getColors());
+
+            reader.seek(0);
+            assertArrayEquals(frame(-1), reader.getColors());
+        }
+    }
+
+    @Test
+    public void changes() throws IOException {
+        FrameSequence.Reader reader = write(FrameSequence.Encoding.DELTA, 3).reader();
+        reader.next();
+        reader.clearChanges();
+        reader.next();
+
+        assertEquals(GridState.maskOf(Pad.at(0, 0)) | GridState.maskOf(Pad.at(1, 0)), reader.getPadChanges());
+        assertEquals(0x03, reader.getButtonChanges());
+    }
+
+    @Test(expected = IOException.class)
+    public void open_invalidFile() throws IOException {
+        FrameSequence.open(folder.newFile());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void writeFrame_decreasingTimestamp() throws IOException {
+        FrameSequenceWriter writer = new FrameSequenceWriter(folder.newFile(), FrameSequence.Encoding.FULL);
+        try {
+            writer.writeFrame(10, frame(0));
+            writer.writeFrame(5, frame(1));
+        } finally {
+            writer.close();
+        }
+    }
+
+    /*
+    ================================================================================
+    Utils
+    ================================================================================
+    */
+
+    /**
+     * Frame {@code n} lights pad {@code (n % 8, 0)} in red and top button {@code n % 8} in green ; frame -1 is all off.
+     */
+    static Color[] frame(int n) {
+        Color[] colors = new Color[FrameSequence.NB_LIGHTS];
+        Arrays.fill(colors, Color.BLACK);
+        if (n >= 0) {
+            colors[n % 8] = Color.RED;
+            colors[FrameSequence.FIRST_TOP_BUTTON + n % 8] = Color.GREEN;
+        }
+        return colors;
+    }
+
+    private FrameSequence write(FrameSequence.Encoding encoding, int nbFrames) throws IOException {
+        File file = folder.newFile();
+        writeFrames(file, encoding, nbFrames);
+        return FrameSequence.open(file);
+    }
+
+    private static void writeFrames(File file, FrameSequence.Encoding encoding, int nbFrames) throws IOException {
+        FrameSequenceWriter writer = new FrameSequenceWriter(file, encoding);
+        try {
+            for (int i = 0; i < nbFrames; i++) {
+                writer.writeFrame(i * 10, frame(i));
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    private static void assertFrames(FrameSequence sequence, int nbFrames) {
+        FrameSequence.Reader reader = sequence.reader();
+        for (int i = 0; i < nbFrames; i++) {
+            assertTrue(reader.next());
+            assertEquals(i * 10, reader.getTimestamp());
+            assertArrayEquals(frame(i), reader.getColors());
+        }
+        assertFalse(reader.next());
+        assertEquals(-1, reader.peekTimestamp());
+    }
+
+}
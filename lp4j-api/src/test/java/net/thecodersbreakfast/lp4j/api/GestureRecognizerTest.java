@@ -0,0 +1,168 @@
+/*
+ * Copyright 2015 Olivier Croisier (thecodersbreakfast.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.thecodersbreakfast.lp4j.api;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.*;
+
+public class GestureRecognizerTest {
+
+    private static final long TIMESTAMP = 42;
+
+    private GestureListener listener;
+    private GestureRecognizer recognizer;
+
+    @Before
+    public void init() {
+        listener = mock(GestureListener.class);
+        // 50ms long press, 30ms double tap, 20ms chord : 5, 3 and 2 ticks.
+        recognizer = new GestureRecognizer(listener, 50, 30, 20, false);
+    }
+
+    @After
+    public void tearDown() {
+        recognizer.close();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void create_nullListener() {
+        new GestureRecognizer(null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void create_invalidDelay() {
+        new GestureRecognizer(listener, 0, 30, 20);
+    }
+
+    @Test
+    public void rawEvents_forwarded() {
+        recognizer.onPadPressed(Pad.at(1, 2), TIMESTAMP);
+        recognizer.onPadReleased(Pad.at(1, 2), TIMESTAMP);
+        recognizer.onButtonPressed(Button.UP, TIMESTAMP);
+        recognizer.onButtonReleased(Button.UP, TIMESTAMP);
+        recognizer.onTextScrolled(TIMESTAMP);
+        verify(listener).onPadPressed(Pad.at(1, 2), TIMESTAMP);
+        verify(listener).onPadReleased(Pad.at(1, 2), TIMESTAMP);
+        verify(listener).onButtonPressed(Button.UP, TIMESTAMP);
+        verify(listener).onButtonReleased(Button.UP, TIMESTAMP);
+        verify(listener).onTextScrolled(TIMESTAMP);
+    }
+
+    @Test
+    public void longPress_pad() {
+        recognizer.onPadPressed(Pad.at(3, 4), TIMESTAMP);
+        recognizer.advance(4);
+        verify(listener, never()).onPadLongPressed(any(Pad.class), anyLong());
+        recognizer.advance(5);
+        verify(listener).onPadLongPressed(Pad.at(3, 4), TIMESTAMP);
+    }
+
+    @Test
+    public void longPress_button() {
+        recognizer.onButtonPressed(Button.ARM, TIMESTAMP);
+        recognizer.advance(5);
+        verify(listener).onButtonLongPressed(Button.ARM, TIMESTAMP);
+    }
+
+    @Test
+    public void longPress_longerThanWheel() {
+        GestureRecognizer slowRecognizer = new GestureRecognizer(listener, 6000, 30, 20, false);
+        slowRecognizer.onPadPressed(Pad.at(3, 4), TIMESTAMP);
+        slowRecognizer.advance(599);
+        verify(listener, never()).onPadLongPressed(any(Pad.class), anyLong());
+        slowRecognizer.advance(600);
+        verify(listener).onPadLongPressed(Pad.at(3, 4), TIMESTAMP);
+    }
+
+    @Test
+    public void longPress_releasedTooEarly() {
+        recognizer.onPadPressed(Pad.at(3, 4), TIMESTAMP);
+        recognizer.advance(2);
+        recognizer.onPadReleased(Pad.at(3, 4), TIMESTAMP);
+        recognizer.advance(10);
+        verify(listener, never()).onPadLongPressed(any(Pad.class), anyLong());
+    }
+
+    @Test
+    public void longPress_allControlsHeld() {
+        for (int x = 0; x < 8; x++) {
+            for (int y = 0; y < 8; y++) {
+                recognizer.onPadPressed(Pad.at(x, y), TIMESTAMP);
+            }
+        }
+        for (Button button : Button.values()) {
+            recognizer.onButtonPressed(button, TIMESTAMP);
+        }
+        recognizer.advance(5);
+        verify(listener, times(64)).onPadLongPressed(any(Pad.class), eq(TIMESTAMP));
+        verify(listener, times(16)).onButtonLongPressed(any(Button.class), eq(TIMESTAMP));
+    }
+
+    @Test
+    public void doubleTap() {
+        recognizer.onPadPressed(Pad.at(0, 0), 1);
+        recognizer.onPadReleased(Pad.at(0, 0), 2);
+        recognizer.advance(2);
+        recognizer.onPadPressed(Pad.at(0, 0), 3);
+        verify(listener).onPadDoubleTapped(Pad.at(0, 0), 3);
+
+        // The second tap of a double tap does not start a new one
+        recognizer.onPadReleased(Pad.at(0, 0), 4);
+        recognizer.onPadPressed(Pad.at(0, 0), 5);
+        recognizer.onPadReleased(Pad.at(0, 0), 6);
+        verify(listener, times(1)).onPadDoubleTapped(any(Pad.class), anyLong());
+        recognizer.advance(20);
+        verify(listener, never()).onPadLongPressed(any(Pad.class), anyLong());
+    }
+
+    @Test
+    public void doubleTap_tooSlow() {
+        recognizer.onButtonPressed(Button.UP, 1);
+        recognizer.onButtonReleased(Button.UP, 2);
+        recognizer.advance(4);
+        recognizer.onButtonPressed(Button.UP, 3);
+        verify(listener, never()).onButtonDoubleTapped(any(Button.class), anyLong());
+    }
+
+    @Test
+    public void chord() {
+        recognizer.onPadPressed(Pad.at(0, 0), 1);
+        recognizer.advance(1);
+        recognizer.onPadPressed(Pad.at(2, 0), 2);
+        recognizer.onPadPressed(Pad.at(4, 0), 3);
+        recognizer.advance(2);
+        verify(listener).onChord(new HashSet<Pad>(Arrays.asList(Pad.at(0, 0), Pad.at(2, 0), Pad.at(4, 0))), 1);
+    }
+
+    @Test
+    public void chord_singlePad() {
+        recognizer.onPadPressed(Pad.at(0, 0), 1);
+        recognizer.advance(2);
+        recognizer.onPadPressed(Pad.at(2, 0), 2);
+        recognizer.advance(4);
+        verify(listener, never()).onChord(anySetOf(Pad.class), anyLong());
+    }
+
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2015 Olivier Croisier (thecodersbreakfast.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.thecodersbreakfast.lp4j.api;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class GridStateTest {
+
+    private GridState grid;
+
+    @Before
+    public void init() {
+        grid = new GridState();
+    }
+
+    @Test
+    public void newGrid_isBlack() {
+        for (int i = 0; i < GridState.SIZE; i++) {
+            assertEquals(Color.BLACK, grid.getColor(i));
+        }
+        assertFalse(grid.isDirty());
+    }
+
+    @Test
+    public void setColor() {
+        for (int r = Color.MIN_INTENSITY; r <= Color.MAX_INTENSITY; r++) {
+            for (int g = Color.MIN_INTENSITY; g <= Color.MAX_INTENSITY; g++) {
+                grid.setColor(Pad.at(3, 5), Color.of(r, g));
+                assertEquals(Color.of(r, g), grid.getColor(Pad.at(3, 5)));
+            }
+        }
+        assertEquals(GridState.maskOf(Pad.at(3, 5)), grid.getDirtyMask());
+        assertEquals(Color.BLACK, grid.getColor(Pad.at(5, 3)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setColor_nullColor() {
+        grid.setColor(Pad.at(0, 0), null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void getColor_invalidIndex() {
+        grid.getColor(GridState.SIZE);
+    }
+
+    @Test
+    public void fill() {
+        grid.fill(Color.AMBER);
+        for (int i = 0; i < GridState.SIZE; i++) {
+            assertEquals(Color.AMBER, grid.getColor(i));
+        }
+        assertEquals(GridState.ALL, grid.getDirtyMask());
+        assertEquals(GridState.ALL, grid.getLitMask());
+    }
+
+    @Test
+    public void set_mask() {
+        grid.fill(Color.RED);
+        grid.clearDirty();
+        grid.set(0xFFL, Color.GREEN);
+        assertEquals(0xFFL, grid.getDirtyMask());
+        assertEquals(Color.GREEN, grid.getColor(Pad.at(7, 0)));
+        assertEquals(Color.RED, grid.getColor(Pad.at(0, 1)));
+    }
+
+    @Test
+    public void set_sameColor_notDirty() {
+        grid.setColor(Pad.at(1, 1), Color.RED);
+        grid.clearDirty();
+        grid.setColor(Pad.at(1, 1), Color.RED);
+        assertFalse(grid.isDirty());
+    }
+
+    @Test
+    public void shift() {
+        grid.setColor(Pad.at(0, 0), Color.RED);
+        grid.setColor(Pad.at(7, 7), Color.GREEN);
+        grid.shift(1, 2);
+        assertEquals(Color.RED, grid.getColor(Pad.at(1, 2)));
+        assertEquals(GridState.maskOf(Pad.at(1, 2)), grid.getLitMask());
+    }
+
+    @Test
+    public void shift_negative() {
+        grid.setColor(Pad.at(0, 0), Color.RED);
+        grid.setColor(Pad.at(7, 7), Color.GREEN);
+        grid.shift(-3, -1);
+        assertEquals(Color.GREEN, grid.getColor(Pad.at(4, 6)));
+        assertEquals(GridState.maskOf(Pad.at(4, 6)), grid.getLitMask());
+    }
+
+    @Test
+    public void shift_outOfGrid() {
+        grid.fill(Color.AMBER);
+        grid.shift(8, 0);
+        assertEquals(0, grid.getLitMask());
+    }
+
+    @Test
+    public void rotateClockwise() {
+        grid.setColor(Pad.at(1, 0), Color.RED);
+        grid.rotateClockwise();
+        assertEquals(Color.RED, grid.getColor(Pad.at(7, 1)));
+        assertEquals(GridState.maskOf(Pad.at(7, 1)), grid.getLitMask());
+    }
+
+    @Test
+    public void rotateCounterClockwise() {
+        grid.setColor(Pad.at(1, 0), Color.RED);
+        grid.rotateCounterClockwise();
+        assertEquals(Color.RED, grid.getColor(Pad.at(0, 6)));
+        assertEquals(GridState.maskOf(Pad.at(0, 6)), grid.getLitMask());
+    }
+
+    @Test
+    public void rotate_fullTurn() {
+        grid.setColor(Pad.at(2, 3), Color.YELLOW);
+        grid.setColor(Pad.at(6, 1), Color.ORANGE);
+        GridState copy = new GridState();
+        copy.copyFrom(grid);
+        for (int i = 0; i < 4; i++) {
+            grid.rotateClockwise();
+        }
+        assertEquals(0, grid.diff(copy));
+    }
+
+    @Test
+    public void diff() {
+        GridState sent = new GridState();
+        grid.setColor(Pad.at(4, 4), Color.RED);
+        sent.copyFrom(grid);
+        grid.setColor(Pad.at(4, 4), Color.ORANGE);
+        grid.setColor(Pad.at(0, 7), Color.GREEN);
+        assertEquals(GridState.maskOf(Pad.at(4, 4)) | GridState.maskOf(Pad.at(0, 7)), grid.diff(sent));
+    }
+
+    @Test
+    public void padAt() {
+        assertEquals(Pad.at(5, 6), GridState.padAt(6 * 8 + 5));
+    }
+
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2015 Olivier Croisier (thecodersbreakfast.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.thecodersbreakfast.lp4j.api;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class InputStateTest {
+
+    private InputState state;
+
+    @Before
+    public void init() {
+        state = new InputState();
+    }
+
+    @Test
+    public void newState_nothingPressed() {
+        assertEquals(0, state.getPadMask());
+        assertEquals(0, state.getButtonMask());
+        assertEquals(0, state.getSequence());
+    }
+
+    @Test
+    public void pads() {
+        state.onPadPressed(Pad.at(1, 2), -1);
+        state.onPadPressed(Pad.at(7, 7), -1);
+        assertTrue(state.isPressed(Pad.at(1, 2)));
+        assertEquals(GridState.maskOf(Pad.at(1, 2)) | GridState.maskOf(Pad.at(7, 7)), state.getPadMask());
+
+        state.onPadReleased(Pad.at(1, 2), -1);
+        assertFalse(state.isPressed(Pad.at(1, 2)));
+        assertTrue(state.isPressed(Pad.at(7, 7)));
+    }
+
+    @Test
+    public void buttons() {
+        state.onButtonPressed(Button.UP, -1);
+        state.onButtonPressed(Button.ARM, -1);
+        assertTrue(state.isPressed(Button.UP));
+        assertEquals(0x8001, state.getButtonMask());
+
+        state.onButtonReleased(Button.UP, -1);
+        assertFalse(state.isPressed(Button.UP));
+        assertEquals(0x8000, state.getButtonMask());
+    }
+
+    @Test
+    public void sequence() {
+        state.onPadPressed(Pad.at(0, 0), -1);
+        state.onButtonPressed(Button.UP, -1);
+        assertEquals(4, state.getSequence());
+        InputState.Snapshot snapshot = state.snapshot();
+        assertEquals(4, snapshot.getSequence());
+        assertTrue(snapshot.isPressed(Pad.at(0, 0)));
+        assertTrue(snapshot.isPressed(Button.UP));
+    }
+
+    @Test
+    public void reset() {
+        state.onPadPressed(Pad.at(0, 0), -1);
+        state.onButtonPressed(Button.UP, -1);
+        state.reset();
+        assertEquals(0, state.getPadMask());
+        assertEquals(0, state.getButtonMask());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void isPressed_nullPad() {
+        state.isPressed((Pad) null);
+    }
+
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2015 Olivier Croisier (thecodersbreakfast.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.thecodersbreakfast.lp4j.api;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LaunchpadBatchTest {
+
+    private LaunchpadBatch batch;
+
+    @Before
+    public void init() {
+        batch = new LaunchpadBatch();
+    }
+
+    @Test
+    public void newBatch_isEmpty() {
+        assertTrue(batch.isEmpty());
+        assertEquals(0, batch.getNbLights());
+        assertNull(batch.getBrightness());
+    }
+
+    @Test
+    public void setLights_indexes() {
+        batch.setPadLight(Pad.at(2, 3), Color.RED)
+                .setButtonLight(Button.DOWN, Color.GREEN)
+                .setButtonLight(Button.PAN, Color.AMBER);
+        assertSame(Color.RED, batch.getLight(26));
+        assertSame(Color.GREEN, batch.getLight(65));
+        assertSame(Color.AMBER, batch.getLight(73));
+        assertEquals(3, batch.getNbLights());
+        assertFalse(batch.isEmpty());
+    }
+
+    @Test
+    public void setLight_lastColorWins() {
+        batch.setPadLight(Pad.at(0, 0), Color.RED);
+        batch.setPadLight(Pad.at(0, 0), Color.GREEN);
+        assertSame(Color.GREEN, batch.getLight(0));
+        assertEquals(1, batch.getNbLights());
+    }
+
+    @Test
+    public void leadingLights() {
+        batch.setLights(new Color[]{Color.RED, Color.RED, Color.RED});
+        batch.setPadLight(Pad.at(5, 0), Color.RED);
+        assertEquals(3, batch.getNbLeadingLights());
+        assertEquals(4, batch.getNbLights());
+    }
+
+    @Test
+    public void brightnessOnly_isNotEmpty() {
+        batch.setBrightness(Brightness.BRIGHTNESS_MAX);
+        assertFalse(batch.isEmpty());
+    }
+
+    @Test
+    public void clear() {
+        batch.setPadLight(Pad.at(0, 0), Color.RED).setBrightness(Brightness.BRIGHTNESS_MAX);
+        batch.clear();
+        assertTrue(batch.isEmpty());
+        assertNull(batch.getLight(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setPadLight_nullColor() {
+        batch.setPadLight(Pad.at(0, 0), null);
+    }
+
+    @Test
+    public void setLights_nullColor() {
+        try {
+            batch.setLights(new Color[]{Color.RED, null});
+            fail();
+        } catch (IllegalArgumentException e) {
+            // Validated before any light is changed
+            assertTrue(batch.isEmpty());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setLights_tooMany() {
+        batch.setLights(new Color[FrameSequence.NB_LIGHTS + 2]);
+    }
+
+}
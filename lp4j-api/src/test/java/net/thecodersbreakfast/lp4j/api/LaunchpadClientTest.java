@@ -0,0 +1,127 @@
+/*
+ * Copyright 2015 Olivier Croisier (thecodersbreakfast.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.thecodersbreakfast.lp4j.api;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class LaunchpadClientTest {
+
+    private CommandLog client;
+
+    @Before
+    public void init() {
+        client = new CommandLog();
+    }
+
+    @Test
+    public void setPadBlink_default() {
+        client.setPadBlink(Pad.at(1, 2), Color.RED, Color.GREEN);
+        assertEquals(Arrays.asList(
+                "setBuffers BUFFER_0 BUFFER_1 false true",
+                "setPadLight 1,2 GREEN NONE",
+                "setBuffers BUFFER_0 BUFFER_0 false true",
+                "setPadLight 1,2 RED NONE"), client.commands);
+    }
+
+    @Test
+    public void batch_default() {
+        client.batch(new LaunchpadBatch()
+                .setPadLight(Pad.at(1, 2), Color.RED)
+                .setButtonLight(Button.UP, Color.GREEN)
+                .setButtonLight(Button.atRight(1), Color.AMBER)
+                .setBrightness(Brightness.of(10)));
+        assertEquals(Arrays.asList(
+                "setPadLight 1,2 RED COPY",
+                "setButtonLight " + Button.UP + " GREEN COPY",
+                "setButtonLight " + Button.atRight(1) + " AMBER COPY",
+                "setBrightness 10"), client.commands);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void batch_null() {
+        client.batch(null);
+    }
+
+    /**
+     * Only implements the abstract methods, logging the commands.
+     */
+    private static class CommandLog implements LaunchpadClient {
+
+        private final List<String> commands = new ArrayList<String>();
+
+        @Override
+        public void reset() {
+            commands.add("reset");
+        }
+
+        @Override
+        public void testLights(LightIntensity intensity) {
+            commands.add("testLights " + intensity);
+        }
+
+        @Override
+        public void setLights(Color[] colors, BackBufferOperation operation) {
+            commands.add("setLights " + colors.length + " " + operation);
+        }
+
+        @Override
+        public void setPadLight(Pad pad, Color color, BackBufferOperation operation) {
+            commands.add("setPadLight " + pad.getX() + "," + pad.getY() + " " + name(color) + " " + operation);
+        }
+
+        @Override
+        public void setButtonLight(Button button, Color color, BackBufferOperation operation) {
+            commands.add("setButtonLight " + button + " " + name(color) + " " + operation);
+        }
+
+        @Override
+        public void setBrightness(Brightness brightness) {
+            commands.add("setBrightness " + brightness.getBrightness());
+        }
+
+        @Override
+        public void setBuffers(Buffer visibleBuffer, Buffer writeBuffer, boolean copyVisibleBufferToWriteBuffer, boolean autoSwap) {
+            commands.add("setBuffers " + visibleBuffer + " " + writeBuffer + " " + copyVisibleBufferToWriteBuffer + " " + autoSwap);
+        }
+
+        @Override
+        public void scrollText(String text, Color color, ScrollSpeed speed, boolean loop, BackBufferOperation operation) {
+            commands.add("scrollText " + text);
+        }
+
+        private static String name(Color color) {
+            if (Color.RED.equals(color)) {
+                return "RED";
+            }
+            if (Color.GREEN.equals(color)) {
+                return "GREEN";
+            }
+            if (Color.AMBER.equals(color)) {
+                return "AMBER";
+            }
+            return color.getRed() + "/" + color.getGreen();
+        }
+    }
+
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2015 Olivier Croisier (thecodersbreakfast.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.thecodersbreakfast.lp4j.api;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+
+import static org.junit.Assert.*;
+
+public class LaunchpadEventPublisherTest {
+
+    private static final Executor DIRECT = Runnable::run;
+
+    private RecordingSubscriber subscriber;
+
+    @Before
+    public void init() {
+        subscriber = new RecordingSubscriber();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void create_invalidBufferSize() {
+        new LaunchpadEventPublisher(0, OverflowStrategy.DROP_OLDEST, DIRECT);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void subscribe_null() {
+        new LaunchpadEventPublisher().subscribe(null);
+    }
+
+    @Test
+    public void publish_honorsDemand() {
+        LaunchpadEventPublisher publisher = new LaunchpadEventPublisher(16, OverflowStrategy.DROP_OLDEST, DIRECT);
+        publisher.subscribe(subscriber);
+        assertNotNull(subscriber.subscription);
+
+        publisher.onPadPressed(Pad.at(1, 2), 10);
+        publisher.onButtonPressed(Button.UP, 11);
+        publisher.onPadReleased(Pad.at(1, 2), 12);
+        assertTrue(subscriber.events.isEmpty());
+
+        subscriber.subscription.request(2);
+        assertEquals(2, subscriber.events.size());
+        assertEquals(LaunchpadEvent.Type.PAD_PRESSED, subscriber.events.get(0).getType());
+        assertEquals(Pad.at(1, 2), subscriber.events.get(0).getPad());
+        assertEquals(Button.UP, subscriber.events.get(1).getButton());
+
+        subscriber.subscription.request(1);
+        assertEquals(3, subscriber.events.size());
+        assertEquals(12, subscriber.events.get(2).getTimestamp());
+    }
+
+    @Test
+    public void overflow_dropOldest() {
+        LaunchpadEventPublisher publisher = new LaunchpadEventPublisher(2, OverflowStrategy.DROP_OLDEST, DIRECT);
+        publisher.subscribe(subscriber);
+        publisher.onTextScrolled(1);
+        publisher.onTextScrolled(2);
+        publisher.onTextScrolled(3);
+        subscriber.subscription.request(Long.MAX_VALUE);
+        assertEquals(2, subscriber.events.size());
+        assertEquals(2, subscriber.events.get(0).getTimestamp());
+        assertEquals(1, publisher.getDroppedEvents());
+    }
+
+    @Test
+    public void overflow_dropNewest() {
+        LaunchpadEventPublisher publisher = new LaunchpadEventPublisher(2, OverflowStrategy.DROP_NEWEST, DIRECT);
+        publisher.subscribe(subscriber);
+        publisher.onTextScrolled(1);
+        publisher.onTextScrolled(2);
+        publisher.onTextScrolled(3);
+        subscriber.subscription.request(Long.MAX_VALUE);
+        assertEquals(2, subscriber.events.size());
+        assertEquals(1, subscriber.events.get(0).getTimestamp());
+    }
+
+    @Test
+    public void overflow_error() {
+        LaunchpadEventPublisher publisher = new LaunchpadEventPublisher(2, OverflowStrategy.ERROR, DIRECT);
+        publisher.subscribe(subscriber);
+        publisher.onTextScrolled(1);
+        publisher.onTextScrolled(2);
+        publisher.onTextScrolled(3);
+        assertTrue(subscriber.error instanceof LaunchpadException);
+        assertEquals(0, publisher.getSubscriberCount());
+    }
+
+    @Test
+    public void request_invalid() {
+        LaunchpadEventPublisher publisher = new LaunchpadEventPublisher(2, OverflowStrategy.ERROR, DIRECT);
+        publisher.subscribe(subscriber);
+        subscriber.subscription.request(0);
+        assertTrue(subscriber.error instanceof IllegalArgumentException);
+    }
+
+    @Test
+    public void cancel() {
+        LaunchpadEventPublisher publisher = new LaunchpadEventPublisher(16, OverflowStrategy.DROP_OLDEST, DIRECT);
+        publisher.subscribe(subscriber);
+        subscriber.subscription.request(Long.MAX_VALUE);
+        subscriber.subscription.cancel();
+        publisher.onTextScrolled(1);
+        assertTrue(subscriber.events.isEmpty());
+        assertEquals(0, publisher.getSubscriberCount());
+    }
+
+    @Test
+    public void close_completesAfterBufferedEvents() {
+        LaunchpadEventPublisher publisher = new LaunchpadEventPublisher(16, OverflowStrategy.DROP_OLDEST, DIRECT);
+        publisher.subscribe(subscriber);
+        publisher.onTextScrolled(1);
+        publisher.close();
+        assertFalse(subscriber.completed);
+        subscriber.subscription.request(1);
+        assertEquals(1, subscriber.events.size());
+        assertTrue(subscriber.completed);
+    }
+
+    @Test
+    public void subscribe_afterClose() {
+        LaunchpadEventPublisher publisher = new LaunchpadEventPublisher(16, OverflowStrategy.DROP_OLDEST, DIRECT);
+        publisher.close();
+        publisher.subscribe(subscriber);
+        assertNotNull(subscriber.subscription);
+        assertTrue(subscriber.completed);
+    }
+
+    private static class RecordingSubscriber implements Flow.Subscriber<LaunchpadEvent> {
+
+        private final List<LaunchpadEvent> events = new ArrayList<LaunchpadEvent>();
+        private Flow.Subscription subscription;
+        private Throwable error;
+        private boolean completed;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(LaunchpadEvent item) {
+            events.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            this.error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            this.completed = true;
+        }
+    }
+
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2015 Olivier Croisier (thecodersbreakfast.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.thecodersbreakfast.lp4j.api;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+
+public class LaunchpadTest {
+
+    private final LaunchpadClient client = mock(LaunchpadClient.class);
+
+    private final Launchpad launchpad = new Launchpad() {
+        @Override
+        public LaunchpadClient getClient() {
+            return client;
+        }
+
+        @Override
+        public void setListener(LaunchpadListener listener) {
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    @Test
+    public void getClient_priorityIgnoredByDefault() {
+        assertSame(client, launchpad.getClient(Priority.BACKGROUND));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void getClient_nullPriority() {
+        launchpad.getClient(null);
+    }
+
+}
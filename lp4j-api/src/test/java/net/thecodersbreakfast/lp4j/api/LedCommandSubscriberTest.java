@@ -0,0 +1,100 @@
+/*
+ * Copyright 2015 Olivier Croisier (thecodersbreakfast.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.thecodersbreakfast.lp4j.api;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
+
+public class LedCommandSubscriberTest {
+
+    private LaunchpadClient client;
+    private Flow.Subscription subscription;
+    private AtomicLong backlog;
+    private LedCommandSubscriber subscriber;
+
+    @Before
+    public void init() {
+        client = mock(LaunchpadClient.class);
+        subscription = mock(Flow.Subscription.class);
+        backlog = new AtomicLong();
+        subscriber = new LedCommandSubscriber(client, 2, backlog::get, 10);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void create_nullClient() {
+        new LedCommandSubscriber(null);
+    }
+
+    @Test
+    public void onNext_appliesCommands() {
+        subscriber.onSubscribe(subscription);
+        subscriber.onNext(LedCommand.padLight(Pad.at(1, 1), Color.RED));
+        subscriber.onNext(LedCommand.buttonLight(Button.UP, Color.GREEN));
+        verify(client).setPadLight(Pad.at(1, 1), Color.RED, BackBufferOperation.NONE);
+        verify(client).setButtonLight(Button.UP, Color.GREEN, BackBufferOperation.NONE);
+        assertEquals(2, subscriber.getAppliedCommands());
+    }
+
+    @Test
+    public void request_byBatch() {
+        subscriber.onSubscribe(subscription);
+        verify(subscription, times(1)).request(2);
+        subscriber.onNext(LedCommand.padLight(Pad.at(0, 0), Color.RED));
+        verify(subscription, times(1)).request(2);
+        subscriber.onNext(LedCommand.padLight(Pad.at(0, 0), Color.RED));
+        verify(subscription, times(2)).request(2);
+    }
+
+    @Test
+    public void request_waitsForBacklogToDrain() throws Exception {
+        backlog.set(100);
+        subscriber.onSubscribe(subscription);
+        Thread.sleep(20);
+        verify(subscription, never()).request(anyLong());
+
+        backlog.set(0);
+        verify(subscription, timeout(1000)).request(2);
+        subscriber.onComplete();
+    }
+
+    @Test
+    public void onNext_failure() {
+        LaunchpadException failure = new LaunchpadException("Device unplugged");
+        doThrow(failure).when(client).setPadLight(any(Pad.class), any(Color.class), any(BackBufferOperation.class));
+        subscriber.onSubscribe(subscription);
+        subscriber.onNext(LedCommand.padLight(Pad.at(0, 0), Color.RED));
+        verify(subscription).cancel();
+        assertTrue(subscriber.isDone());
+        assertSame(failure, subscriber.getFailure());
+    }
+
+    @Test
+    public void onSubscribe_twice() {
+        Flow.Subscription other = mock(Flow.Subscription.class);
+        subscriber.onSubscribe(subscription);
+        subscriber.onSubscribe(other);
+        verify(other).cancel();
+    }
+
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2015 Olivier Croisier (thecodersbreakfast.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.thecodersbreakfast.lp4j.api;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+public class RecordingLaunchpadClientTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File file;
+    private LaunchpadClient client;
+    private AtomicLong time;
+    private RecordingLaunchpadClient recorder;
+
+    @Before
+    public void init() throws IOException {
+        file = folder.newFile();
+        client = mock(LaunchpadClient.class);
+        time = new AtomicLong();
+        recorder = new RecordingLaunchpadClient(client, new FrameSequenceWriter(file, FrameSequence.Encoding.DELTA), new LongSupplier() {
+            @Override
+            public long getAsLong() {
+                return time.get();
+            }
+        });
+    }
+
+    @Test
+    public void forwardsCommands() throws IOException {
+        recorder.setPadLight(Pad.at(1, 2), Color.RED, BackBufferOperation.NONE);
+        recorder.setBrightness(Brightness.BRIGHTNESS_MAX);
+        recorder.close();
+
+        verify(client).setPadLight(Pad.at(1, 2), Color.RED, BackBufferOperation.NONE);
+        verify(client).setBrightness(Brightness.BRIGHTNESS_MAX);
+    }
+
+    @Test
+    public void record() throws IOException {
+        time.set(10);
+        recorder.setPadLight(Pad.at(1, 2), Color.RED, BackBufferOperation.NONE);
+        recorder.setButtonLight(Button.MIXER, Color.GREEN, BackBufferOperation.NONE);
+        time.set(25);
+        recorder.setButtonLight(Button.ARM, Color.AMBER, BackBufferOperation.NONE);
+        recorder.close();
+
+        FrameSequence.Reader reader = FrameSequence.open(file).reader();
+        assertTrue(reader.next());
+        assertEquals(10, reader.getTimestamp());
+        assertSame(Color.RED, reader.getColors()[2 * 8 + 1]);
+        assertSame(Color.GREEN, reader.getColors()[FrameSequence.FIRST_TOP_BUTTON + 7]);
+        assertSame(Color.BLACK, reader.getColors()[FrameSequence.FIRST_RIGHT_BUTTON + 7]);
+        assertTrue(reader.next());
+        assertEquals(25, reader.getTimestamp());
+        assertSame(Color.AMBER, reader.getColors()[FrameSequence.FIRST_RIGHT_BUTTON + 7]);
+        assertFalse(reader.next());
+    }
+
+    @Test
+    public void record_onlyVisibleBuffer() throws IOException {
+        recorder.setBuffers(Buffer.BUFFER_0, Buffer.BUFFER_1, false, false);
+        time.set(10);
+        recorder.setPadLight(Pad.at(0, 0), Color.RED, BackBufferOperation.NONE);
+        time.set(20);
+        recorder.setPadLight(Pad.at(1, 0), Color.GREEN, BackBufferOperation.COPY);
+        time.set(30);
+        recorder.setBuffers(Buffer.BUFFER_1, Buffer.BUFFER_0, false, false);
+        recorder.close();
+
+        FrameSequence sequence = FrameSequence.open(file);
+        assertEquals(2, sequence.getFrameCount());
+        FrameSequence.Reader reader = sequence.reader();
+        reader.next();
+        assertEquals(20, reader.getTimestamp());
+        assertSame(Color.BLACK, reader.getColors()[0]);
+        assertSame(Color.GREEN, reader.getColors()[1]);
+        reader.next();
+        assertEquals(30, reader.getTimestamp());
+        assertSame(Color.RED, reader.getColors()[0]);
+    }
+
+    @Test
+    public void record_reset() throws IOException {
+        recorder.setLights(FrameSequenceTest.frame(3), BackBufferOperation.NONE);
+        time.set(10);
+        recorder.reset();
+        recorder.close();
+
+        FrameSequence.Reader reader = FrameSequence.open(file).reader();
+        reader.seek(2);
+        assertEquals(10, reader.getTimestamp());
+        for (Color color : reader.getColors()) {
+            assertSame(Color.BLACK, color);
+        }
+    }
+
+    @Test
+    public void record_blink() throws IOException {
+        recorder.setPadBlink(Pad.at(2, 3), Color.RED, Color.GREEN);
+        time.set(10);
+        recorder.setBuffers(Buffer.BUFFER_1, Buffer.BUFFER_1, false, false);
+        recorder.close();
+
+        verify(client).setPadBlink(Pad.at(2, 3), Color.RED, Color.GREEN);
+        FrameSequence.Reader reader = FrameSequence.open(file).reader();
+        reader.next();
+        assertSame(Color.RED, reader.getColors()[3 * 8 + 2]);
+        reader.next();
+        assertEquals(10, reader.getTimestamp());
+        assertSame(Color.GREEN, reader.getColors()[3 * 8 + 2]);
+    }
+
+    @Test
+    public void record_batch() throws IOException {
+        LaunchpadBatch batch = new LaunchpadBatch()
+                .setPadLight(Pad.at(2, 3), Color.RED)
+                .setButtonLight(Button.UP, Color.GREEN);
+        recorder.batch(batch);
+        time.set(10);
+        recorder.setPadLight(Pad.at(0, 0), Color.AMBER, BackBufferOperation.NONE);
+        recorder.close();
+
+        verify(client).batch(batch);
+        FrameSequence.Reader reader = FrameSequence.open(file).reader();
+        reader.next();
+        assertSame(Color.RED, reader.getColors()[3 * 8 + 2]);
+        assertSame(Color.GREEN, reader.getColors()[FrameSequence.FIRST_TOP_BUTTON]);
+        reader.next();
+        assertEquals(10, reader.getTimestamp());
+        assertSame(Color.AMBER, reader.getColors()[0]);
+        assertSame(Color.RED, reader.getColors()[3 * 8 + 2]);
+    }
+
+    @Test
+    public void record_batchWhileBlinking() throws IOException {
+        recorder.setPadBlink(Pad.at(2, 3), Color.RED, Color.GREEN);
+        recorder.batch(new LaunchpadBatch().setPadLight(Pad.at(0, 0), Color.AMBER));
+        time.set(10);
+        recorder.setBuffers(Buffer.BUFFER_1, Buffer.BUFFER_1, false, false);
+        recorder.close();
+
+        FrameSequence.Reader reader = FrameSequence.open(file).reader();
+        reader.next();
+        assertSame(Color.AMBER, reader.getColors()[0]);
+        assertSame(Color.RED, reader.getColors()[3 * 8 + 2]);
+        reader.next();
+        assertEquals(10, reader.getTimestamp());
+        assertSame(Color.AMBER, reader.getColors()[0]);
+        assertSame(Color.GREEN, reader.getColors()[3 * 8 + 2]);
+    }
+
+}
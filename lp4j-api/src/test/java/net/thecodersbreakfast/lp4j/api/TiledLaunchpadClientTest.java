@@ -0,0 +1,142 @@
+/*
+ * Copyright 2015 Olivier Croisier (thecodersbreakfast.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.thecodersbreakfast.lp4j.api;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
+
+public class TiledLaunchpadClientTest {
+
+    private List<Launchpad> launchpads;
+    private List<LaunchpadClient> clients;
+    private List<LaunchpadListener> listeners;
+    private TiledLaunchpadClient tiledClient;
+
+    @Before
+    public void init() {
+        launchpads = new ArrayList<Launchpad>();
+        clients = new ArrayList<LaunchpadClient>();
+        listeners = new ArrayList<LaunchpadListener>();
+        for (int i = 0; i < 4; i++) {
+            Launchpad launchpad = mock(Launchpad.class);
+            LaunchpadClient client = mock(LaunchpadClient.class);
+            when(launchpad.getClient()).thenReturn(client);
+            launchpads.add(launchpad);
+            clients.add(client);
+        }
+        tiledClient = new TiledLaunchpadClient(2, 2, launchpads);
+        for (Launchpad launchpad : launchpads) {
+            ArgumentCaptor<LaunchpadListener> listener = ArgumentCaptor.forClass(LaunchpadListener.class);
+            verify(launchpad).setListener(listener.capture());
+            listeners.add(listener.getValue());
+        }
+    }
+
+    @After
+    public void close() {
+        tiledClient.close();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void create_wrongNumberOfLaunchpads() {
+        new TiledLaunchpadClient(2, 2, Collections.singletonList(mock(Launchpad.class)));
+    }
+
+    @Test
+    public void dimensions() {
+        assertEquals(16, tiledClient.getWidth());
+        assertEquals(16, tiledClient.getHeight());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setPadLight_outOfSurface() {
+        tiledClient.setPadLight(16, 0, Color.RED);
+    }
+
+    @Test
+    public void flush_sparse() {
+        tiledClient.setPadLight(9, 10, Color.RED);
+        verifyZeroInteractions(clients.get(3));
+
+        tiledClient.flush();
+        verify(clients.get(3)).setPadLight(Pad.at(1, 2), Color.RED, BackBufferOperation.NONE);
+        verifyZeroInteractions(clients.get(0), clients.get(1), clients.get(2));
+
+        tiledClient.flush();
+        verifyNoMoreInteractions(clients.get(3));
+    }
+
+    @Test
+    public void flush_dense() {
+        tiledClient.fill(Color.GREEN);
+        tiledClient.flush();
+        Color[] expected = new Color[64];
+        Arrays.fill(expected, Color.GREEN);
+        for (LaunchpadClient client : clients) {
+            verify(client).setLights(expected, BackBufferOperation.NONE);
+            verify(client, never()).setPadLight(any(Pad.class), any(Color.class), any(BackBufferOperation.class));
+        }
+    }
+
+    @Test
+    public void flush_threadPerTile() {
+        final List<String> threadNames = Collections.synchronizedList(new ArrayList<String>());
+        for (LaunchpadClient client : clients) {
+            doAnswer(new Answer<Void>() {
+                @Override
+                public Void answer(InvocationOnMock invocation) {
+                    threadNames.add(Thread.currentThread().getName());
+                    return null;
+                }
+            }).when(client).setPadLight(any(Pad.class), any(Color.class), any(BackBufferOperation.class));
+        }
+        tiledClient.setPadLight(0, 0, Color.RED);
+        tiledClient.setPadLight(15, 15, Color.RED);
+        tiledClient.flush();
+
+        Collections.sort(threadNames);
+        assertEquals(Arrays.asList("lp4j-tiled-flush-0", "lp4j-tiled-flush-3"), threadNames);
+    }
+
+    @Test
+    public void listener_logicalCoordinates() {
+        TiledLaunchpadListener listener = mock(TiledLaunchpadListener.class);
+        tiledClient.setListener(listener);
+
+        listeners.get(1).onPadPressed(Pad.at(3, 4), 42L);
+        listeners.get(2).onPadReleased(Pad.at(0, 7), 43L);
+        listeners.get(3).onButtonPressed(Button.STOP, 44L);
+
+        verify(listener).onPadPressed(11, 4, 42L);
+        verify(listener).onPadReleased(0, 15, 43L);
+        verify(listener).onButtonPressed(3, Button.STOP, 44L);
+    }
+
+}
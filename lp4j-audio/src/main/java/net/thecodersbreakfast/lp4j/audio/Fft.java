@@ -0,0 +1,109 @@
+/*
+ * Copyright 2015 Olivier Croisier (thecodersbreakfast.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.thecodersbreakfast.lp4j.audio;
+
+/**
+ * An in-place, radix-2 Fast Fourier Transform of a fixed size.
+ *
+ * <p>Twiddle factors and bit-reversal permutations are precomputed, so that transforms do not allocate anything.
+ *
+ * @author Olivier Croisier (olivier.croisier@gmail.com)
+ */
+public final class Fft {
+
+    /** Number of points of the transform. */
+    private final int size;
+    /** Bit-reversed index of each point. */
+    private final int[] reversed;
+    /** Cosine twiddle factors. */
+    private final double[] cos;
+    /** Sine twiddle factors. */
+    private final double[] sin;
+
+    /**
+     * Constructor.
+     *
+     * @param size Number of points of the transform. Must be a power of 2, at least 2.
+     */
+    public Fft(int size) {
+        if (size < 2 || Integer.bitCount(size) != 1) {
+            throw new IllegalArgumentException("Invalid FFT size : " + size + ". Value must be a power of 2.");
+        }
+        this.size = size;
+        this.reversed = new int[size];
+        int bits = Integer.numberOfTrailingZeros(size);
+        for (int i = 0; i < size; i++) {
+            reversed[i] = Integer.reverse(i) >>> (32 - bits);
+        }
+        this.cos = new double[size / 2];
+        this.sin = new double[size / 2];
+        for (int i = 0; i < size / 2; i++) {
+            cos[i] = Math.cos(-2 * Math.PI * i / size);
+            sin[i] = Math.sin(-2 * Math.PI * i / size);
+        }
+    }
+
+    /**
+     * Returns the number of points of the transform.
+     *
+     * @return The number of points.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Computes the transform in place.
+     *
+     * @param re The real parts. Must contain exactly {@link #getSize()} elements.
+     * @param im The imaginary parts. Must contain exactly {@link #getSize()} elements.
+     */
+    public void transform(double[] re, double[] im) {
+        if (re.length != size || im.length != size) {
+            throw new IllegalArgumentException("Invalid input length : expected " + size + " points.");
+        }
+        for (int i = 0; i < size; i++) {
+            int j = reversed[i];
+            if (j > i) {
+                double tmp = re[i];
+                re[i] = re[j];
+                re[j] = tmp;
+                tmp = im[i];
+                im[i] = im[j];
+                im[j] = tmp;
+            }
+        }
+        for (int length = 2; length <= size; length <<= 1) {
+            int half = length >>> 1;
+            int step = size / length;
+            for (int start = 0; start < size; start += length) {
+                for (int k = 0; k < half; k++) {
+                    double wr = cos[k * step];
+                    double wi = sin[k * step];
+                    int even = start + k;
+                    int odd = even + half;
+                    double tr = re[odd] * wr - im[odd] * wi;
+                    double ti = re[odd] * wi + im[odd] * wr;
+                    re[odd] = re[even] - tr;
+                    im[odd] = im[even] - ti;
+                    re[even] += tr;
+                    im[even] += ti;
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright 2015 Olivier Croisier (thecodersbreakfast.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.thecodersbreakfast.lp4j.audio;
+
+/**
+ * Computes the spectrum of a stream of PCM samples, split into logarithmically-spaced frequency bands.
+ *
+ * <p>Samples are accumulated in a ring buffer ; every half window, the last {@code fftSize} samples are weighted by a
+ * Hann window and transformed. The level of each band is then available in the [0, 1] range, 0 being at or below
+ * {@link #FLOOR_DB} decibels below full scale. All buffers are allocated upfront : processing samples does not allocate
+ * anything.
+ *
+ * <p>This class is not thread-safe.
+ *
+ * @author Olivier Croisier (olivier.croisier@gmail.com)
+ */
+public class SpectrumAnalyzer {
+
+    /** Default number of points of the transform. */
+    public static final int DEFAULT_FFT_SIZE = 1024;
+    /** Default number of bands, one per column of the Launchpad. */
+    public static final int DEFAULT_BANDS = 8;
+    /** Level below which a band is considered silent, in decibels relative to full scale. */
+    public static final double FLOOR_DB = -60;
+    /** Lowest displayed frequency, in Hertz. */
+    private static final double MIN_FREQUENCY = 40;
+    /** Highest displayed frequency, in Hertz. */
+    private static final double MAX_FREQUENCY = 16000;
+
+    /** The transform. */
+    private final Fft fft;
+    /** Hann window coefficients. */
+    private final double[] window;
+    /** Last received samples. */
+    private final double[] ring;
+    /** Real parts of the transform. */
+    private final double[] re;
+    /** Imaginary parts of the transform. */
+    private final double[] im;
+    /** First bin of each band. */
+    private final int[] bandStart;
+    /** Last bin (exclusive) of each band. */
+    private final int[] bandEnd;
+    /** Level of each band, in [0, 1]. */
+    private final double[] levels;
+    /** Amplitude of a full-scale sine wave, in the transform's units. */
+    private final double fullScale;
+    /** Number of samples between two transforms. */
+    private final int hopSize;
+
+    /** Position of the next sample in the ring buffer. */
+    private int position = 0;
+    /** Number of samples received since the last transform. */
+    private int pending = 0;
+    /** Number of transforms computed so far. */
+    private long analyses = 0;
+
+    /**
+     * Constructor, with the default transform size and number of bands.
+     *
+     * @param sampleRate The sample rate of the audio stream, in Hertz. Must be positive.
+     */
+    public SpectrumAnalyzer(float sampleRate) {
+        this(sampleRate, DEFAULT_FFT_SIZE, DEFAULT_BANDS);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param sampleRate The sample rate of the audio stream, in Hertz. Must be positive.
+     * @param fftSize Number of points of the transform. Must be a power of 2.
+     * @param bands Number of frequency bands. Must be positive.
+     */
+    public SpectrumAnalyzer(float sampleRate, int fftSize, int bands) {
+        if (sampleRate <= 0) {
+            throw new IllegalArgumentException("Invalid sample rate : " + sampleRate + ". Value must be positive.");
+        }
+        if (bands <= 0) {
+            throw new IllegalArgumentException("Invalid number of bands : " + bands + ". Value must be positive.");
+        }
+        this.fft = new Fft(fftSize);
+        this.window = new double[fftSize];
+        double windowSum = 0;
+        for (int i = 0; i < fftSize; i++) {
+            window[i] = 0.5 - 0.5 * Math.cos(2 * Math.PI * i / (fftSize - 1));
+            windowSum += window[i];
+        }
+        this.fullScale = windowSum / 2;
+        this.ring = new double[fftSize];
+        this.re = new double[fftSize];
+        this.im = new double[fftSize];
+        this.hopSize = fftSize / 2;
+        this.levels = new double[bands];
+        this.bandStart = new int[bands];
+        this.bandEnd = new int[bands];
+
+        double maxFrequency = Math.min(MAX_FREQUENCY, sampleRate / 2);
+        double minFrequency = Math.min(MIN_FREQUENCY, maxFrequency / 2);
+        int nyquistBin = fftSize / 2;
+        int previousEnd = 1;
+        for (int band = 0; band < bands; band++) {
+            double upper = minFrequency * Math.pow(maxFrequency / minFrequency, (band + 1.0) / bands);
+            int end = (int) Math.round(upper * fftSize / sampleRate);
+            end = Math.min(nyquistBin, Math.max(end, previousEnd + 1));
+            bandStart[band] = Math.min(previousEnd, end - 1);
+            bandEnd[band] = end;
+            previousEnd = end;
+        }
+    }
+
+    /**
+     * Returns the number of bands.
+     *
+     * @return The number of bands.
+     */
+    public int getBandCount() {
+        return levels.length;
+    }
+
+    /**
+     * Returns the level of a band, as computed by the last transform.
+     *
+     * @param band The band index, from the lowest to the highest frequencies.
+     * @return The level, in [0, 1].
+     */
+    public double getLevel(int band) {
+        return levels[band];
+    }
+
+    /**
+     * Returns the number of transforms computed so far.
+     *
+     * @return The number of transforms.
+     */
+    public long getAnalyses() {
+        return analyses;
+    }
+
+    /**
+     * Adds a sample.
+     *
+     * @param sample The sample, in [-1, 1].
+     */
+    public void addSample(double sample) {
+        ring[position] = sample;
+        position = (position + 1) % ring.length;
+        if (++pending >= hopSize) {
+            pending = 0;
+            analyze();
+        }
+    }
+
+    /**
+     * Adds signed 16-bit PCM samples. Multi-channel frames are mixed down to mono.
+     *
+     * @param data The PCM data.
+     * @param offset Offset of the first byte to process.
+     * @param length Number of bytes to process. Incomplete trailing frames are ignored.
+     * @param channels Number of interleaved channels. Must be positive.
+     * @param bigEndian Whether samples are big-endian.
+     */
+    public void process(byte[] data, int offset, int length, int channels, boolean bigEndian) {
+        int frameSize = 2 * channels;
+        int end = offset + length - length % frameSize;
+        for (int frame = offset; frame < end; frame += frameSize) {
+            int sum = 0;
+            for (int channel = 0; channel < channels; channel++) {
+                int index = frame + 2 * channel;
+                int high = bigEndian ? data[index] : data[index + 1];
+                int low = bigEndian ? data[index + 1] : data[index];
+                sum += (high << 8) | (low & 0xFF);
+            }
+            addSample(sum / (32768.0 * channels));
+        }
+    }
+
+    /*
+    ================================================================================
+    Utils
+    ================================================================================
+    */
+
+    /**
+     * Transforms the last window of samples, and updates the band levels.
+     */
+    private void analyze() {
+        int size = ring.length;
+        for (int i = 0; i < size; i++) {
+            re[i] = ring[(position + i) % size] * window[i];
+            im[i] = 0;
+        }
+        fft.transform(re, im);
+        for (int band = 0; band < levels.length; band++) {
+            double peak = 0;
+            for (int bin = bandStart[band]; bin < bandEnd[band]; bin++) {
+                double magnitude = re[bin] * re[bin] + im[bin] * im[bin];
+                if (magnitude > peak) {
+                    peak = magnitude;
+                }
+            }
+            double decibels = 10 * Math.log10(peak / (fullScale * fullScale) + 1e-12);
+            levels[band] = Math.max(0, Math.min(1, 1 - decibels / FLOOR_DB));
+        }
+        analyses++;
+    }
+
+}
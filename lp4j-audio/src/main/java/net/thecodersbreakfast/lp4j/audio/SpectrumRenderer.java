@@ -0,0 +1,161 @@
+/*
+ * Copyright 2015 Olivier Croisier (thecodersbreakfast.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.thecodersbreakfast.lp4j.audio;
+
+import net.thecodersbreakfast.lp4j.api.BackBufferOperation;
+import net.thecodersbreakfast.lp4j.api.Color;
+import net.thecodersbreakfast.lp4j.api.LaunchpadClient;
+
+/**
+ * Renders the bands of a {@link SpectrumAnalyzer} as vertical bars, one per column of the Launchpad, with peak-hold
+ * markers.
+ *
+ * <p>Each frame is sent as a single batch update of all the lights (see
+ * {@link LaunchpadClient#setLights(Color[], BackBufferOperation)}), and only if it differs from the previous one. Frame
+ * buffers are allocated upfront.
+ *
+ * <p>This class is not thread-safe.
+ *
+ * @author Olivier Croisier (olivier.croisier@gmail.com)
+ */
+public class SpectrumRenderer {
+
+    /** Default number of frames during which a peak is held before falling. */
+    public static final int DEFAULT_PEAK_HOLD_FRAMES = 30;
+
+    /** Number of columns and rows of the pad grid. */
+    private static final int GRID_SIZE = 8;
+    /** Number of lights updated by a batch update : pads, then top buttons, then right buttons. */
+    private static final int NB_LIGHTS = 80;
+    /** Color of each row of a bar, from the bottom up. */
+    private static final Color[] BAR_COLORS = {
+            Color.GREEN, Color.GREEN, Color.GREEN, Color.GREEN, Color.YELLOW, Color.YELLOW, Color.ORANGE, Color.RED
+    };
+    /** Color of the peak markers. */
+    private static final Color PEAK_COLOR = Color.RED;
+
+    /** The client of the Launchpad. */
+    private final LaunchpadClient client;
+    /** Number of frames during which a peak is held before falling. */
+    private final int peakHoldFrames;
+    /** The frame being drawn. */
+    private final Color[] frame = new Color[NB_LIGHTS];
+    /** The last frame sent. */
+    private final Color[] sentFrame = new Color[NB_LIGHTS];
+    /** Height of the peak marker of each column, in rows. */
+    private final int[] peaks = new int[GRID_SIZE];
+    /** Number of frames since the peak of each column was last raised. */
+    private final int[] peakAges = new int[GRID_SIZE];
+    /** Number of frames actually sent. */
+    private long sentFrames = 0;
+
+    /**
+     * Constructor, with the default peak-hold duration.
+     *
+     * @param client The client of the Launchpad. Must not be null.
+     */
+    public SpectrumRenderer(LaunchpadClient client) {
+        this(client, DEFAULT_PEAK_HOLD_FRAMES);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param client The client of the Launchpad. Must not be null.
+     * @param peakHoldFrames Number of frames during which a peak is held before falling. Must not be negative.
+     */
+    public SpectrumRenderer(LaunchpadClient client, int peakHoldFrames) {
+        if (client == null) {
+            throw new IllegalArgumentException("Client must not be null.");
+        }
+        if (peakHoldFrames < 0) {
+            throw new IllegalArgumentException("Invalid peak hold duration : " + peakHoldFrames + ". Value must not be negative.");
+        }
+        this.client = client;
+        this.peakHoldFrames = peakHoldFrames;
+        for (int i = 0; i < NB_LIGHTS; i++) {
+            frame[i] = Color.BLACK;
+        }
+    }
+
+    /**
+     * Draws the current levels of the analyzer, and sends the frame if it changed.
+     *
+     * @param analyzer The analyzer. Must not be null. Only its first 8 bands are displayed.
+     */
+    public void render(SpectrumAnalyzer analyzer) {
+        if (analyzer == null) {
+            throw new IllegalArgumentException("Analyzer must not be null.");
+        }
+        int columns = Math.min(GRID_SIZE, analyzer.getBandCount());
+        for (int x = 0; x < GRID_SIZE; x++) {
+            int height = x < columns ? (int) Math.round(analyzer.getLevel(x) * GRID_SIZE) : 0;
+            updatePeak(x, height);
+            for (int row = 0; row < GRID_SIZE; row++) {
+                Color color = Color.BLACK;
+                if (row < height) {
+                    color = BAR_COLORS[row];
+                } else if (row == peaks[x] - 1) {
+                    color = PEAK_COLOR;
+                }
+                frame[(GRID_SIZE - 1 - row) * GRID_SIZE + x] = color;
+            }
+        }
+        if (!changed()) {
+            return;
+        }
+        client.setLights(frame, BackBufferOperation.NONE);
+        System.arraycopy(frame, 0, sentFrame, 0, NB_LIGHTS);
+        sentFrames++;
+    }
+
+    /**
+     * Returns the number of frames actually sent to the Launchpad.
+     *
+     * @return The number of sent frames.
+     */
+    public long getSentFrames() {
+        return sentFrames;
+    }
+
+    /*
+    ================================================================================
+    Utils
+    ================================================================================
+    */
+
+    /**
+     * Raises the peak of a column to the height of its bar, or lets it fall by one row per frame once held long enough.
+     */
+    private void updatePeak(int x, int height) {
+        if (height >= peaks[x]) {
+            peaks[x] = height;
+            peakAges[x] = 0;
+        } else if (++peakAges[x] > peakHoldFrames) {
+            peaks[x]--;
+        }
+    }
+
+    private boolean changed() {
+        for (int i = 0; i < NB_LIGHTS; i++) {
+            if (frame[i] != sentFrame[i]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
@@ -0,0 +1,254 @@
+/*
+ * Copyright 2015 Olivier Croisier (thecodersbreakfast.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.thecodersbreakfast.lp4j.audio;
+
+import net.thecodersbreakfast.lp4j.api.LaunchpadClient;
+import net.thecodersbreakfast.lp4j.api.LaunchpadException;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.TargetDataLine;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Displays the spectrum of an audio stream (a sound card input or an audio file) on a Launchpad, as a VU-meter.
+ *
+ * <p>A single background thread reads the stream, feeds a {@link SpectrumAnalyzer}, and renders frames through a
+ * {@link SpectrumRenderer} at a bounded frame rate (60 fps by default). Audio files are read in real time, as if they
+ * were being played.
+ *
+ * <p>Example :
+ * <pre>
+ * SpectrumVisualizer visualizer = SpectrumVisualizer.open(new File("song.wav"), launchpad.getClient());
+ * visualizer.start();
+ * </pre>
+ *
+ * @author Olivier Croisier (olivier.croisier@gmail.com)
+ */
+public class SpectrumVisualizer implements Closeable {
+
+    /** Default number of frames rendered per second. */
+    public static final int DEFAULT_FRAME_RATE = 60;
+    /** Format used to capture sound card inputs. */
+    private static final AudioFormat CAPTURE_FORMAT = new AudioFormat(44100, 16, 1, true, false);
+    /** Number of reads per rendered frame, to keep the analysis close to real time. */
+    private static final int READS_PER_FRAME = 4;
+
+    /** The audio stream, in signed 16-bit PCM. */
+    private final AudioInputStream stream;
+    /** Whether reads should be paced to real time (for files), or are naturally paced (for lines). */
+    private final boolean realTime;
+    /** The spectrum analyzer. */
+    private final SpectrumAnalyzer analyzer;
+    /** The renderer. */
+    private final SpectrumRenderer renderer;
+    /** Delay between two frames, in nanoseconds. */
+    private final long frameInterval;
+    /** The reading thread. */
+    private final Thread thread;
+    /** Indicates that the visualizer is running. */
+    private volatile boolean running = false;
+    /** The failure that stopped the visualizer, if any. */
+    private volatile Throwable failure;
+
+    /**
+     * Creates a visualizer for an audio file.
+     *
+     * @param file The audio file. Must be in a format supported by {@link AudioSystem}.
+     * @param client The client of the Launchpad. Must not be null.
+     * @return The visualizer, not started yet.
+     * @throws IOException If the file cannot be read.
+     * @throws UnsupportedAudioFileException If the file format is not supported.
+     */
+    public static SpectrumVisualizer open(File file, LaunchpadClient client) throws IOException, UnsupportedAudioFileException {
+        AudioInputStream source = AudioSystem.getAudioInputStream(file);
+        return new SpectrumVisualizer(toPcm16(source), client, DEFAULT_FRAME_RATE, true);
+    }
+
+    /**
+     * Creates a visualizer for a sound card input. The line is opened (if needed) and started.
+     *
+     * @param line The input line.
+     * @param client The client of the Launchpad. Must not be null.
+     * @return The visualizer, not started yet.
+     * @throws LineUnavailableException If the line cannot be opened.
+     */
+    public static SpectrumVisualizer open(TargetDataLine line, LaunchpadClient client) throws LineUnavailableException {
+        if (!line.isOpen()) {
+            line.open(CAPTURE_FORMAT);
+        }
+        line.start();
+        return new SpectrumVisualizer(toPcm16(new AudioInputStream(line)), client, DEFAULT_FRAME_RATE, false);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param stream The audio stream, in signed 16-bit PCM. Must not be null.
+     * @param client The client of the Launchpad. Must not be null.
+     * @param frameRate Maximum number of frames rendered per second. Must be positive.
+     * @param realTime Whether reads should be paced to the stream's sample rate.
+     */
+    public SpectrumVisualizer(AudioInputStream stream, LaunchpadClient client, int frameRate, boolean realTime) {
+        if (stream == null) {
+            throw new IllegalArgumentException("Stream must not be null.");
+        }
+        AudioFormat format = stream.getFormat();
+        if (format.getEncoding() != AudioFormat.Encoding.PCM_SIGNED || format.getSampleSizeInBits() != 16) {
+            throw new IllegalArgumentException("Unsupported audio format : " + format + ". Expected signed 16-bit PCM.");
+        }
+        if (frameRate <= 0) {
+            throw new IllegalArgumentException("Invalid frame rate : " + frameRate + ". Value must be positive.");
+        }
+        this.stream = stream;
+        this.realTime = realTime;
+        this.analyzer = new SpectrumAnalyzer(format.getSampleRate());
+        this.renderer = new SpectrumRenderer(client);
+        this.frameInterval = TimeUnit.SECONDS.toNanos(1) / frameRate;
+        this.thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    play();
+                } catch (Exception e) {
+                    failure = e;
+                } finally {
+                    running = false;
+                }
+            }
+        }, "lp4j-audio");
+        thread.setDaemon(true);
+    }
+
+    /**
+     * Starts reading the stream and rendering frames, from a background thread.
+     */
+    public void start() {
+        running = true;
+        thread.start();
+    }
+
+    /**
+     * Tells if the visualizer is running : it stops when closed, at the end of the stream, or upon failure.
+     *
+     * @return {@code true} if the visualizer is running.
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Returns the failure that stopped the visualizer.
+     *
+     * @return The failure, or {@code null} if none happened.
+     */
+    public Throwable getFailure() {
+        return failure;
+    }
+
+    /**
+     * Returns the number of frames sent to the Launchpad so far.
+     *
+     * @return The number of sent frames.
+     */
+    public long getSentFrames() {
+        return renderer.getSentFrames();
+    }
+
+    /**
+     * Stops the visualizer, and closes the audio stream.
+     *
+     * @throws IOException If the stream cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        running = false;
+        thread.interrupt();
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        stream.close();
+    }
+
+    /*
+    ================================================================================
+    Utils
+    ================================================================================
+    */
+
+    /**
+     * Reads the stream until its end, feeding the analyzer and rendering frames at a bounded rate.
+     */
+    private void play() throws IOException, InterruptedException {
+        AudioFormat format = stream.getFormat();
+        int channels = format.getChannels();
+        int frameSize = format.getFrameSize();
+        boolean bigEndian = format.isBigEndian();
+        float sampleRate = format.getSampleRate();
+        int framesPerRead = Math.max(1, (int) (sampleRate * frameInterval / TimeUnit.SECONDS.toNanos(1)) / READS_PER_FRAME);
+        byte[] buffer = new byte[framesPerRead * frameSize];
+
+        long start = System.nanoTime();
+        long nextFrame = start;
+        long samplesRead = 0;
+        while (running) {
+            int read = stream.read(buffer);
+            if (read < 0) {
+                return;
+            }
+            analyzer.process(buffer, 0, read, channels, bigEndian);
+            samplesRead += read / frameSize;
+
+            if (realTime) {
+                long due = start + (long) (samplesRead * 1e9 / sampleRate);
+                long delay = due - System.nanoTime();
+                if (delay > 0) {
+                    TimeUnit.NANOSECONDS.sleep(delay);
+                }
+            }
+            long now = System.nanoTime();
+            if (now >= nextFrame) {
+                renderer.render(analyzer);
+                nextFrame = Math.max(nextFrame + frameInterval, now);
+            }
+        }
+    }
+
+    /**
+     * Converts a stream to signed 16-bit PCM, keeping its sample rate and channels.
+     */
+    private static AudioInputStream toPcm16(AudioInputStream source) {
+        AudioFormat format = source.getFormat();
+        if (format.getEncoding() == AudioFormat.Encoding.PCM_SIGNED && format.getSampleSizeInBits() == 16) {
+            return source;
+        }
+        AudioFormat target = new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, format.getSampleRate(), 16,
+                format.getChannels(), format.getChannels() * 2, format.getSampleRate(), false);
+        if (!AudioSystem.isConversionSupported(target, format)) {
+            throw new LaunchpadException("Unsupported audio format : " + format + ".");
+        }
+        return AudioSystem.getAudioInputStream(target, source);
+    }
+
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2015 Olivier Croisier (thecodersbreakfast.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.thecodersbreakfast.lp4j.audio;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SpectrumAnalyzerTest {
+
+    private static final float SAMPLE_RATE = 44100;
+
+    @Test
+    public void silence() {
+        SpectrumAnalyzer analyzer = new SpectrumAnalyzer(SAMPLE_RATE);
+        for (int i = 0; i < SpectrumAnalyzer.DEFAULT_FFT_SIZE; i++) {
+            analyzer.addSample(0);
+        }
+        assertEquals(2, analyzer.getAnalyses());
+        for (int band = 0; band < analyzer.getBandCount(); band++) {
+            assertEquals(0, analyzer.getLevel(band), 0);
+        }
+    }
+
+    @Test
+    public void sine_lightsItsBand() {
+        SpectrumAnalyzer analyzer = new SpectrumAnalyzer(SAMPLE_RATE);
+        feedSine(analyzer, 1000, 0.9, 4096);
+
+        int loudest = loudestBand(analyzer);
+        assertEquals(4, loudest);
+        assertTrue(analyzer.getLevel(loudest) > 0.9);
+        assertTrue(analyzer.getLevel(0) < 0.5);
+        assertTrue(analyzer.getLevel(7) < 0.5);
+    }
+
+    @Test
+    public void sine_higherFrequency() {
+        SpectrumAnalyzer analyzer = new SpectrumAnalyzer(SAMPLE_RATE);
+        feedSine(analyzer, 100, 0.9, 4096);
+        int low = loudestBand(analyzer);
+
+        analyzer = new SpectrumAnalyzer(SAMPLE_RATE);
+        feedSine(analyzer, 8000, 0.9, 4096);
+        int high = loudestBand(analyzer);
+
+        assertTrue(low < high);
+    }
+
+    @Test
+    public void process_stereoLittleEndian() {
+        SpectrumAnalyzer analyzer = new SpectrumAnalyzer(SAMPLE_RATE);
+        int frames = 4096;
+        byte[] data = new byte[frames * 4];
+        for (int i = 0; i < frames; i++) {
+            short sample = (short) (0.9 * Short.MAX_VALUE * Math.sin(2 * Math.PI * 1000 * i / SAMPLE_RATE));
+            for (int channel = 0; channel < 2; channel++) {
+                data[i * 4 + channel * 2] = (byte) sample;
+                data[i * 4 + channel * 2 + 1] = (byte) (sample >> 8);
+            }
+        }
+        analyzer.process(data, 0, data.length, 2, false);
+
+        assertEquals(frames / (SpectrumAnalyzer.DEFAULT_FFT_SIZE / 2), analyzer.getAnalyses());
+        assertEquals(4, loudestBand(analyzer));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_fftSizeNotPowerOfTwo() {
+        new SpectrumAnalyzer(SAMPLE_RATE, 1000, 8);
+    }
+
+    /*
+    ================================================================================
+    Utils
+    ================================================================================
+    */
+
+    private static void feedSine(SpectrumAnalyzer analyzer, double frequency, double amplitude, int samples) {
+        for (int i = 0; i < samples; i++) {
+            analyzer.addSample(amplitude * Math.sin(2 * Math.PI * frequency * i / SAMPLE_RATE));
+        }
+    }
+
+    private static int loudestBand(SpectrumAnalyzer analyzer) {
+        int loudest = 0;
+        for (int band = 1; band < analyzer.getBandCount(); band++) {
+            if (analyzer.getLevel(band) > analyzer.getLevel(loudest)) {
+                loudest = band;
+            }
+        }
+        return loudest;
+    }
+
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2015 Olivier Croisier (thecodersbreakfast.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.thecodersbreakfast.lp4j.audio;
+
+import net.thecodersbreakfast.lp4j.api.BackBufferOperation;
+import net.thecodersbreakfast.lp4j.api.Color;
+import net.thecodersbreakfast.lp4j.api.LaunchpadClient;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class SpectrumRendererTest {
+
+    private LaunchpadClient client;
+    private SpectrumAnalyzer analyzer;
+    private SpectrumRenderer renderer;
+
+    @Before
+    public void init() {
+        client = mock(LaunchpadClient.class);
+        analyzer = mock(SpectrumAnalyzer.class);
+        when(analyzer.getBandCount()).thenReturn(8);
+        renderer = new SpectrumRenderer(client, 2);
+    }
+
+    @Test
+    public void render_bars() {
+        when(analyzer.getLevel(0)).thenReturn(1.0);
+        when(analyzer.getLevel(3)).thenReturn(0.25);
+
+        Color[] frame = renderAndCapture();
+
+        assertEquals(80, frame.length);
+        for (int y = 0; y < 8; y++) {
+            assertSame(y == 0 ? Color.RED : y == 1 ? Color.ORANGE : y < 4 ? Color.YELLOW : Color.GREEN, frame[y * 8]);
+        }
+        assertSame(Color.BLACK, frame[5 * 8 + 3]);
+        assertSame(Color.GREEN, frame[6 * 8 + 3]);
+        assertSame(Color.GREEN, frame[7 * 8 + 3]);
+        assertSame(Color.BLACK, frame[7 * 8 + 1]);
+        for (int i = 64; i < 80; i++) {
+            assertSame(Color.BLACK, frame[i]);
+        }
+    }
+
+    @Test
+    public void render_unchangedFrameNotResent() {
+        when(analyzer.getLevel(0)).thenReturn(0.5);
+        renderer.render(analyzer);
+        renderer.render(analyzer);
+
+        verify(client, times(1)).setLights(any(Color[].class), eq(BackBufferOperation.NONE));
+        assertEquals(1, renderer.getSentFrames());
+    }
+
+    @Test
+    public void render_peakHold() {
+        when(analyzer.getLevel(0)).thenReturn(0.5);
+        renderer.render(analyzer);
+        when(analyzer.getLevel(0)).thenReturn(0.0);
+
+        // Held for 2 frames, then falls by one row per frame
+        renderer.render(analyzer);
+        assertSame(Color.RED, lastFrame()[4 * 8]);
+        renderer.render(analyzer);
+        assertSame(Color.RED, lastFrame()[4 * 8]);
+        renderer.render(analyzer);
+        Color[] frame = lastFrame();
+        assertSame(Color.BLACK, frame[4 * 8]);
+        assertSame(Color.RED, frame[5 * 8]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_nullClient() {
+        new SpectrumRenderer(null);
+    }
+
+    /*
+    ================================================================================
+    Utils
+    ================================================================================
+    */
+
+    private Color[] renderAndCapture() {
+        renderer.render(analyzer);
+        return lastFrame();
+    }
+
+    private Color[] lastFrame() {
+        ArgumentCaptor<Color[]> captor = ArgumentCaptor.forClass(Color[].class);
+        verify(client, atLeastOnce()).setLights(captor.capture(), eq(BackBufferOperation.NONE));
+        return captor.getValue().clone();
+    }
+
+}
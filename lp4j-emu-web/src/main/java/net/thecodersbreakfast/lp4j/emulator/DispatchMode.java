@@ -0,0 +1,34 @@
+/*
+ * Copyright 2015 Olivier Croisier (thecodersbreakfast.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.thecodersbreakfast.lp4j.emulator;
+
+/**
+ * Describes which thread notifies the listener of an emulated Launchpad.
+ *
+ * @author Olivier Croisier (olivier.croisier@gmail.com)
+ */
+public enum DispatchMode {
+    /**
+     * The listener is called directly by the Vertx event loop. This is the fastest mode, but a slow or blocking
+     * listener freezes the whole emulator server.
+     */
+    EVENT_LOOP,
+    /**
+     * The listener is called by the worker pool of the server. Events of a given Launchpad are still delivered one at a
+     * time and in order.
+     */
+    ORDERED
+}
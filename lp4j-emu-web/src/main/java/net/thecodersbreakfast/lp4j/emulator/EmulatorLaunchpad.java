@@ -18,23 +18,32 @@ package net.thecodersbreakfast.lp4j.emulator;
 
 import net.thecodersbreakfast.lp4j.api.*;
 import org.vertx.java.core.Handler;
-import org.vertx.java.core.Vertx;
-import org.vertx.java.core.VertxFactory;
-import org.vertx.java.core.buffer.Buffer;
 import org.vertx.java.core.eventbus.Message;
-import org.vertx.java.core.http.HttpServer;
-import org.vertx.java.core.http.HttpServerRequest;
-import org.vertx.java.core.http.HttpServerResponse;
-import org.vertx.java.core.json.JsonArray;
+import org.vertx.java.core.http.ServerWebSocket;
 import org.vertx.java.core.json.JsonObject;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * A web-based (HTML/SVG/Sebsockets) Launchpad emulator.
  *
+ * <p>Each emulated Launchpad is a session of an {@link EmulatorServer}, identified by a session ID : the browser
+ * displays the session given by the {@code session} query parameter (eg. {@code http://localhost:9000/?session=foo}),
+ * or the {@link #DEFAULT_SESSION_ID default session} if there is none.
+ *
+ * <p>Input events are sent by the browser either as JSON messages on the eventbus, or as binary input frames on a
+ * websocket (see {@link #INPUT_WEBSOCKET_PREFIX}). A binary input frame starts with the client-side (monotonic) time of
+ * its first event, in milliseconds (unsigned int), followed by 4 bytes per event : the kind of event (byte : 0 for
+ * pressed, 1 for released), the control (byte : pads line by line from 0 to 63, then the top-row buttons from 64 to 71,
+ * then the right-side buttons from 72 to 79), and the time elapsed since the first event, in milliseconds (unsigned
+ * short).
+ *
+ * <p>Any number of read-only viewers can also follow the display of a session, for example to project it on other
+ * screens : they connect to the websocket at {@link #SPECTATOR_WEBSOCKET_PREFIX} (or open the page with the
+ * {@code view} query parameter), and receive binary display frames.
+ *
  * @author Olivier Croisier (olivier.croisier@gmail.com)
  */
 public class EmulatorLaunchpad implements Launchpad {
@@ -43,163 +52,318 @@ public class EmulatorLaunchpad implements Launchpad {
     public static final String WEB_RESOURCES_PREFIX = "/web";
     /** URL of the Vertx eventbus bridge */
     public static final String EVENTBUS_ADDRESS = "/eventbus";
-    /** Eventbus ID of the emulator, on the server side */
+    /** Eventbus ID of the emulator, on the server side. The session ID is appended to it. */
     public static final String EVENTBUS_SERVER_HANDLER_ID = "lp4j:server";
+    /** Eventbus ID of the emulator, on the browser side. The session ID is appended to it. */
+    public static final String EVENTBUS_CLIENT_HANDLER_ID = "lp4j:client";
+    /** ID of the session displayed when the browser does not ask for a specific one. */
+    public static final String DEFAULT_SESSION_ID = "default";
+    /** URL of the websocket carrying the binary input frames. The session ID is appended to it. */
+    public static final String INPUT_WEBSOCKET_PREFIX = "/input/";
+    /** URL of the websocket carrying the display frames to read-only viewers. The session ID is appended to it. */
+    public static final String SPECTATOR_WEBSOCKET_PREFIX = "/view/";
+
+    /** Size of the header of a binary input frame. */
+    private static final int INPUT_FRAME_HEADER_SIZE = 4;
+    /** Size of an event in a binary input frame. */
+    private static final int INPUT_EVENT_SIZE = 4;
+    /** Kind of a "pressed" event in a binary input frame. */
+    private static final int INPUT_PRESSED = 0;
+    /** Kind of a "released" event in a binary input frame. */
+    private static final int INPUT_RELEASED = 1;
+
+    /** Types of input events sent by the emulator, on the browser side */
+    private static enum InputEventType {
+        /** Pad pressed */
+        PP,
+        /** Pad released */
+        PR,
+        /** Button pressed */
+        BP,
+        /** Button released */
+        BR,
+        /** Text scrolled */
+        TS
+    }
+
     /** Handler for Vertx eventbus messages. */
     private final EventBusHandler eventBusHandler = new EventBusHandler();
-    /** Vertx engine instance. */
-    private final Vertx vertx;
+    /** Mirrors the display, for the read-only viewers. */
+    private final SpectatorHub spectatorHub = new SpectatorHub();
+    /** Delivers the input events to the listener, in order, when not on the event loop. */
+    private final OrderedExecutor dispatcher;
+    /** The server hosting the emulator. */
+    private final EmulatorServer server;
+    /** Whether the server was started for this emulator only, and must be closed with it. */
+    private final boolean ownServer;
+    /** ID of the session. */
+    private final String sessionId;
+    /** Whether the session has been closed. */
+    private final AtomicBoolean closed = new AtomicBoolean();
+    /** The listener to notify of input events. */
+    private volatile LaunchpadListener listener;
+    /** Which thread notifies the listener. */
+    private volatile DispatchMode dispatchMode = DispatchMode.ORDERED;
 
     /**
-     * Constructor.
+     * Constructor. Starts a new emulator server, hosting this Launchpad as its default session.
      *
      * @param httpPort The HTTP port on which the emulator should run.
      */
     public EmulatorLaunchpad(int httpPort) {
+        this(new EmulatorServer(httpPort), DEFAULT_SESSION_ID, true);
+    }
 
-        vertx = VertxFactory.newVertx();
+    /**
+     * Constructor, for a session of an existing server.
+     *
+     * @param server The server hosting the emulator.
+     * @param sessionId The ID of the session.
+     * @param ownServer Whether the server must be closed with this emulator.
+     */
+    EmulatorLaunchpad(EmulatorServer server, String sessionId, boolean ownServer) {
+        this.server = server;
+        this.sessionId = sessionId;
+        this.ownServer = ownServer;
+        this.dispatcher = new OrderedExecutor(server.getListenerExecutor());
+        server.register(this);
+        server.getVertx().eventBus().registerLocalHandler(getServerAddress(sessionId), eventBusHandler);
+        server.getVertx().eventBus().registerLocalHandler(getClientAddress(sessionId), spectatorHub);
+    }
 
-        // Static files
-        HttpServer httpServer = vertx.createHttpServer();
-        httpServer.requestHandler(new WebResourceHandler());
+    /**
+     * Returns the eventbus address of the given session, on the server side.
+     *
+     * @param sessionId The ID of the session.
+     * @return The address.
+     */
+    public static String getServerAddress(String sessionId) {
+        return EVENTBUS_SERVER_HANDLER_ID + ":" + sessionId;
+    }
 
-        // Eventbus bridge
-        JsonObject bridgeConfig = new JsonObject().putString("prefix", EVENTBUS_ADDRESS);
-        JsonArray credentialsPermitAll = new JsonArray().add(new JsonObject());
-        vertx.createSockJSServer(httpServer).bridge(bridgeConfig, credentialsPermitAll, credentialsPermitAll);
-        vertx.eventBus().registerLocalHandler(EVENTBUS_SERVER_HANDLER_ID, eventBusHandler);
+    /**
+     * Returns the eventbus address of the given session, on the browser side.
+     *
+     * @param sessionId The ID of the session.
+     * @return The address.
+     */
+    public static String getClientAddress(String sessionId) {
+        return EVENTBUS_CLIENT_HANDLER_ID + ":" + sessionId;
+    }
 
-        System.out.println("Launchpad emulator is ready on http://localhost:" + httpPort + "/");
-        httpServer.listen(httpPort);
+    /**
+     * Returns the ID of the session of this emulator.
+     *
+     * @return The session ID.
+     */
+    public String getSessionId() {
+        return sessionId;
     }
 
     /** {@inheritDoc} */
     @Override
     public LaunchpadClient getClient() {
-        return new EmulatorLaunchpadClient(vertx);
+        return new EmulatorLaunchpadClient(server.getVertx(), sessionId);
     }
 
-    /** {@inheritDoc} */
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The emulator is never congested by LED commands, so the priority is ignored.
+     */
     @Override
-    public void setListener(LaunchpadListener listener) {
-        this.eventBusHandler.setListener(listener);
+    public LaunchpadClient getClient(Priority priority) {
+        if (priority == null) {
+            throw new IllegalArgumentException("Priority must not be null.");
+        }
+        return getClient();
     }
 
     /** {@inheritDoc} */
     @Override
-    public void close() throws IOException {
-        vertx.stop();
+    public void setListener(LaunchpadListener listener) {
+        this.listener = listener;
     }
 
     /**
-     * Handler for standart HTTP requests, used to serve static files.
+     * Sets which thread notifies the listener. Defaults to {@link DispatchMode#ORDERED}, so that a slow listener does
+     * not freeze the emulator server.
+     *
+     * @param dispatchMode The dispatch mode. Must not be null.
      */
-    private static class WebResourceHandler implements Handler<HttpServerRequest> {
-        @Override
-        public void handle(HttpServerRequest req) {
-            String resourcePath = req.path();
-            HttpServerResponse response = req.response();
+    public void setDispatchMode(DispatchMode dispatchMode) {
+        if (dispatchMode == null) {
+            throw new IllegalArgumentException("Dispatch mode must not be null.");
+        }
+        this.dispatchMode = dispatchMode;
+    }
 
-            if (shouldRedirectToIndexHtml(resourcePath)) {
-                redirectToIndexHtml(response);
-                return;
-            }
+    /**
+     * Returns which thread notifies the listener.
+     *
+     * @return The dispatch mode.
+     */
+    public DispatchMode getDispatchMode() {
+        return dispatchMode;
+    }
 
-            if (!isLegalResource(resourcePath)) {
-                sendResponseForbidden(response);
-                return;
-            }
+    /**
+     * Returns the number of input events waiting to be delivered to the listener, in {@link DispatchMode#ORDERED} mode.
+     *
+     * @return The number of pending events.
+     */
+    public int getPendingEvents() {
+        return dispatcher.getQueueDepth();
+    }
 
-            if (!writeResourceToResponse(response, resourcePath)) {
-                sendResponseNotFound(response);
-            }
+    /**
+     * Returns the highest number of input events that have been waiting to be delivered to the listener at the same time,
+     * in {@link DispatchMode#ORDERED} mode.
+     *
+     * @return The highest number of pending events.
+     */
+    public int getMaxPendingEvents() {
+        return dispatcher.getMaxQueueDepth();
+    }
 
-        }
+    /**
+     * Returns the number of input events delivered to the listener so far, in {@link DispatchMode#ORDERED} mode.
+     *
+     * @return The number of delivered events.
+     */
+    public long getDispatchedEvents() {
+        return dispatcher.getCompletedTasks();
+    }
 
-        private boolean shouldRedirectToIndexHtml(String resourcePath) {
-            return "/".equals(resourcePath);
-        }
+    /**
+     * Returns the number of read-only viewers following the display.
+     *
+     * @return The number of viewers.
+     */
+    public int getSpectatorCount() {
+        return spectatorHub.getSpectatorCount();
+    }
 
-        private void redirectToIndexHtml(HttpServerResponse response) {
-            response.headers().add("Location", WEB_RESOURCES_PREFIX + "/index.html");
-            response.setStatusCode(301).end();
-        }
+    /**
+     * Returns the number of times a read-only viewer could not keep up with the display, and had to be sent a snapshot
+     * of it.
+     *
+     * @return The number of resynchronizations.
+     */
+    public long getSpectatorResyncs() {
+        return spectatorHub.getResyncs();
+    }
 
-        private boolean isLegalResource(String resourcePath) {
-            return resourcePath.startsWith(WEB_RESOURCES_PREFIX);
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The session is closed, as well as the server if it was started by this emulator. Closing the session again
+     * has no effect.
+     */
+    @Override
+    public void close() throws IOException {
+        if (!closed.compareAndSet(false, true)) {
+            return;
         }
-
-        private void sendResponseForbidden(HttpServerResponse response) {
-            response.setStatusCode(403).end();
+        server.getVertx().eventBus().unregisterHandler(getServerAddress(sessionId), eventBusHandler);
+        server.getVertx().eventBus().unregisterHandler(getClientAddress(sessionId), spectatorHub);
+        spectatorHub.close();
+        server.release(this);
+        if (ownServer) {
+            server.close();
         }
+    }
 
-        private void setResponseContentType(HttpServerResponse response, String resourcePath) {
-            String contentType = findContentType(resourcePath);
-            response.headers().add("Content-Type", contentType);
-        }
+    /**
+     * Connects a read-only viewer, which will receive the display frames.
+     *
+     * @param webSocket The websocket of the viewer.
+     */
+    void addSpectator(ServerWebSocket webSocket) {
+        spectatorHub.addSpectator(webSocket);
+    }
 
-        private String findContentType(String resourcePath) {
-            if (resourcePath.endsWith(".js")) {
-                return "application/javascript";
-            } else {
-                return "text/html";
+    /**
+     * Decodes a binary input frame, and delivers its events to the listener.
+     *
+     * <p>Events are timestamped on the server clock : the last event of the frame is considered to have happened when
+     * the frame was received, and the delays between events measured by the browser are preserved. Malformed frames
+     * and unknown events are ignored.
+     *
+     * @param frame The binary input frame.
+     * @param receptionTime The time at which the frame was received, in milliseconds.
+     */
+    void handleInputFrame(org.vertx.java.core.buffer.Buffer frame, long receptionTime) {
+        int length = frame.length();
+        if (length < INPUT_FRAME_HEADER_SIZE + INPUT_EVENT_SIZE || (length - INPUT_FRAME_HEADER_SIZE) % INPUT_EVENT_SIZE != 0) {
+            return;
+        }
+        int lastDelay = frame.getShort(length - 2) & 0xFFFF;
+        for (int position = INPUT_FRAME_HEADER_SIZE; position < length; position += INPUT_EVENT_SIZE) {
+            int kind = frame.getByte(position);
+            int control = frame.getByte(position + 1) & 0xFF;
+            int delay = frame.getShort(position + 2) & 0xFFFF;
+            LaunchpadEvent event = toEvent(kind, control, receptionTime - (lastDelay - delay));
+            if (event != null) {
+                dispatch(event);
             }
         }
+    }
 
-        private boolean writeResourceToResponse(HttpServerResponse response, String resourcePath) {
-            setResponseContentType(response, resourcePath);
-            byte[] bytes = readResource(resourcePath);
-            if (bytes == null) {
-                return false;
-            }
-            Buffer buffer = new Buffer(bytes);
-            response.end(buffer);
-            return true;
+    /**
+     * Creates the event corresponding to a binary input event.
+     *
+     * @return The event, or {@code null} if the input event is unknown.
+     */
+    private static LaunchpadEvent toEvent(int kind, int control, long timestamp) {
+        if ((kind != INPUT_PRESSED && kind != INPUT_RELEASED) || control >= 80) {
+            return null;
+        }
+        boolean pressed = kind == INPUT_PRESSED;
+        if (control < 64) {
+            LaunchpadEvent.Type type = pressed ? LaunchpadEvent.Type.PAD_PRESSED : LaunchpadEvent.Type.PAD_RELEASED;
+            return LaunchpadEvent.ofPad(type, Pad.at(control & 7, control >> 3), timestamp);
         }
+        Button button = control < 72 ? Button.atTop(control - 64) : Button.atRight(control - 72);
+        LaunchpadEvent.Type type = pressed ? LaunchpadEvent.Type.BUTTON_PRESSED : LaunchpadEvent.Type.BUTTON_RELEASED;
+        return LaunchpadEvent.ofButton(type, button, timestamp);
+    }
 
-        private static byte[] readResource(String path) {
-            try {
-                InputStream is = EmulatorLaunchpad.class.getResourceAsStream(path);
-                if (is == null) {
-                    return null;
-                }
-                ByteArrayOutputStream baos = new ByteArrayOutputStream();
-                int reads = is.read();
-                while (reads != -1) {
-                    baos.write(reads);
-                    reads = is.read();
-                }
-                return baos.toByteArray();
-            } catch (IOException ex) {
-                ex.printStackTrace();
-                return null;
+    /**
+     * Delivers an input event to the listener, according to the dispatch mode.
+     *
+     * @param event The input event.
+     */
+    private void dispatch(final LaunchpadEvent event) {
+        if (listener == null) {
+            return;
+        }
+        if (dispatchMode == DispatchMode.EVENT_LOOP) {
+            LaunchpadListener l = listener;
+            if (l != null) {
+                event.dispatch(l);
             }
+            return;
         }
-
-        private void sendResponseNotFound(HttpServerResponse response) {
-            response.setStatusCode(404).end();
+        try {
+            dispatcher.execute(new Runnable() {
+                @Override
+                public void run() {
+                    LaunchpadListener l = listener;
+                    if (l != null) {
+                        event.dispatch(l);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // The server is shutting down : the event is dropped.
         }
     }
 
     /**
      * Handler for Vertx eventbus messages.
      */
-    private static class EventBusHandler implements Handler<Message> {
-
-        private static enum InputEventType {
-            /** Pad pressed */
-            PP,
-            /** Pad released */
-            PR,
-            /** Button pressed */
-            BP,
-            /** Button released */
-            BR,
-            /** Text scrolled */
-            TS
-        }
-
-        private LaunchpadListener listener;
+    private class EventBusHandler implements Handler<Message> {
 
         @Override
         public void handle(Message message) {
@@ -210,17 +374,18 @@ public class EmulatorLaunchpad implements Launchpad {
             long timestamp = System.currentTimeMillis();
             JsonObject body = (JsonObject) message.body();
             InputEventType inputEventType = InputEventType.valueOf(body.getString("evt"));
+            LaunchpadEvent event;
             switch (inputEventType) {
                 case PP: {
                     Integer x = body.getInteger("x");
                     Integer y = body.getInteger("y");
-                    listener.onPadPressed(Pad.at(x, y), timestamp);
+                    event = LaunchpadEvent.ofPad(LaunchpadEvent.Type.PAD_PRESSED, Pad.at(x, y), timestamp);
                     break;
                 }
                 case PR: {
                     Integer x = body.getInteger("x");
                     Integer y = body.getInteger("y");
-                    listener.onPadReleased(Pad.at(x, y), timestamp);
+                    event = LaunchpadEvent.ofPad(LaunchpadEvent.Type.PAD_RELEASED, Pad.at(x, y), timestamp);
                     break;
                 }
                 case BP: {
@@ -228,7 +393,7 @@ public class EmulatorLaunchpad implements Launchpad {
                     int y = body.getInteger("y");
                     int c = x == -1 ? y : x;
                     Button button = (x != -1) ? Button.atTop(c) : Button.atRight(c);
-                    listener.onButtonPressed(button, timestamp);
+                    event = LaunchpadEvent.ofButton(LaunchpadEvent.Type.BUTTON_PRESSED, button, timestamp);
                     break;
                 }
                 case BR: {
@@ -236,22 +401,18 @@ public class EmulatorLaunchpad implements Launchpad {
                     int y = body.getInteger("y");
                     int c = x == -1 ? y : x;
                     Button button = (x != -1) ? Button.atTop(c) : Button.atRight(c);
-                    listener.onButtonReleased(button, timestamp);
+                    event = LaunchpadEvent.ofButton(LaunchpadEvent.Type.BUTTON_RELEASED, button, timestamp);
                     break;
                 }
                 case TS: {
-                    listener.onTextScrolled(timestamp);
+                    event = LaunchpadEvent.ofTextScrolled(timestamp);
                     break;
                 }
                 default: {
                     throw new IllegalArgumentException("Unknown input event type " + inputEventType.name());
                 }
             }
-
-        }
-
-        public void setListener(LaunchpadListener listener) {
-            this.listener = listener;
+            dispatch(event);
         }
     }
 }
@@ -27,9 +27,6 @@ import org.vertx.java.core.json.JsonObject;
  */
 public class EmulatorLaunchpadClient implements LaunchpadClient {
 
-    /** Eventbus ID of the emulator, on the browser side */
-    private static final String EVENTBUS_CLIENT_HANDLER_ID = "lp4j:client";
-
     /** Types of events sent to the emulator, on the browser side */
     private static enum OutputEventType {
         /** Reset */
@@ -48,19 +45,35 @@ public class EmulatorLaunchpadClient implements LaunchpadClient {
 
     /** The Vertx engine that powers the emulator on the server side */
     private final Vertx vertx;
+    /** Eventbus address of the emulator session, on the browser side */
+    private final String address;
+    /** Indicates that this client has enabled flashing, so that buffer 1 has already been prepared */
+    private boolean blinking;
 
     /**
-     * Constructor
+     * Constructor, for the default session
      *
      * @param vertx The Vertx engine to use
      */
     public EmulatorLaunchpadClient(Vertx vertx) {
+        this(vertx, EmulatorLaunchpad.DEFAULT_SESSION_ID);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param vertx The Vertx engine to use
+     * @param sessionId The ID of the emulator session
+     */
+    public EmulatorLaunchpadClient(Vertx vertx, String sessionId) {
         this.vertx = vertx;
+        this.address = EmulatorLaunchpad.getClientAddress(sessionId);
     }
 
     @Override
     public void reset() {
         publishEvent(OutputEventType.RST);
+        blinking = false;
     }
 
     /**
@@ -91,7 +104,10 @@ public class EmulatorLaunchpadClient implements LaunchpadClient {
     /**
      * {@inheritDoc}
      *
-     * <p>NOT IMPLEMENTED YET ON THE EMULATOR
+     * <p>The emulator has no batch update : each light is sent as an individual event.
+     *
+     * @param colors {@inheritDoc} Must not be null.
+     * @param operation {@inheritDoc} Must not be null.
      */
     @Override
     public void setLights(Color[] colors, BackBufferOperation operation) {
@@ -101,6 +117,16 @@ public class EmulatorLaunchpadClient implements LaunchpadClient {
         if (operation == null) {
             throw new IllegalArgumentException("BackBuffer operation must not be null.");
         }
+        int nbColors = Math.min(colors.length, 80);
+        for (int i = 0; i < nbColors; i++) {
+            if (i < 64) {
+                setPadLight(Pad.at(i % 8, i / 8), colors[i], operation);
+            } else if (i < 72) {
+                setButtonLight(Button.atTop(i - 64), colors[i], operation);
+            } else {
+                setButtonLight(Button.atRight(i - 72), colors[i], operation);
+            }
+        }
     }
 
     /**
@@ -155,6 +181,30 @@ public class EmulatorLaunchpadClient implements LaunchpadClient {
         publishEvent(OutputEventType.BTNLGT, params);
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The first time a pad blinks (or after the flashing has been stopped), buffer 0 is copied into buffer 1, so
+     * that the other lights stay steady.
+     *
+     * @param pad The pad to blink. Must not be null.
+     * @param onColor The color displayed from buffer 0. Must not be null.
+     * @param offColor The color displayed from buffer 1. Must not be null.
+     */
+    @Override
+    public void setPadBlink(Pad pad, Color onColor, Color offColor) {
+        if (pad == null) {
+            throw new IllegalArgumentException("Pad must not be null");
+        }
+        if (onColor == null || offColor == null) {
+            throw new IllegalArgumentException("Color must not be null.");
+        }
+        setBuffers(Buffer.BUFFER_0, Buffer.BUFFER_1, !blinking, true);
+        setPadLight(pad, offColor, BackBufferOperation.NONE);
+        setBuffers(Buffer.BUFFER_0, Buffer.BUFFER_0, false, true);
+        setPadLight(pad, onColor, BackBufferOperation.NONE);
+    }
+
     /**
      * {@inheritDoc}
      *
@@ -190,6 +240,34 @@ public class EmulatorLaunchpadClient implements LaunchpadClient {
                 .putBoolean("c", copyVisibleBufferToWriteBuffer)
                 .putBoolean("a", autoSwap);
         publishEvent(OutputEventType.BUF, params);
+        blinking = autoSwap;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The emulator has no batch update : each changed light is sent as an individual event, between the buffer
+     * flips. While pads blink, the lights are written to both buffers instead, without any flip, so that the other pads
+     * keep blinking.
+     *
+     * @param batch {@inheritDoc}
+     */
+    @Override
+    public void batch(LaunchpadBatch batch) {
+        if (batch == null) {
+            throw new IllegalArgumentException("Batch must not be null.");
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        if (blinking) {
+            sendBatch(batch, BackBufferOperation.COPY);
+            return;
+        }
+        setBuffers(Buffer.BUFFER_0, Buffer.BUFFER_1, true, false);
+        sendBatch(batch, BackBufferOperation.NONE);
+        setBuffers(Buffer.BUFFER_1, Buffer.BUFFER_0, true, false);
+        setBuffers(Buffer.BUFFER_0, Buffer.BUFFER_0, false, false);
     }
 
     /**
@@ -204,6 +282,31 @@ public class EmulatorLaunchpadClient implements LaunchpadClient {
         }
     }
 
+    /**
+     * Sends the lights and the brightness of a batch to the current write buffer.
+     *
+     * @param batch The batch to send
+     * @param operation What to do on the backbuffer
+     */
+    private void sendBatch(LaunchpadBatch batch, BackBufferOperation operation) {
+        for (int i = 0; i < FrameSequence.NB_LIGHTS; i++) {
+            Color color = batch.getLight(i);
+            if (color == null) {
+                continue;
+            }
+            if (i < 64) {
+                setPadLight(Pad.at(i % 8, i / 8), color, operation);
+            } else if (i < 72) {
+                setButtonLight(Button.atTop(i - 64), color, operation);
+            } else {
+                setButtonLight(Button.atRight(i - 72), color, operation);
+            }
+        }
+        if (batch.getBrightness() != null) {
+            setBrightness(batch.getBrightness());
+        }
+    }
+
     /**
      * Sends the given event to the emulator, with no additional parameters
      *
@@ -225,7 +328,7 @@ public class EmulatorLaunchpadClient implements LaunchpadClient {
         if (params != null) {
             payload.mergeIn(params);
         }
-        vertx.eventBus().publish(EVENTBUS_CLIENT_HANDLER_ID, payload);
+        vertx.eventBus().publish(address, payload);
     }
 
 }
@@ -0,0 +1,344 @@
+/*
+ * Copyright 2015 Olivier Croisier (thecodersbreakfast.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.thecodersbreakfast.lp4j.emulator;
+
+import org.vertx.java.core.Handler;
+import org.vertx.java.core.Vertx;
+import org.vertx.java.core.VertxFactory;
+import org.vertx.java.core.buffer.Buffer;
+import org.vertx.java.core.http.HttpServer;
+import org.vertx.java.core.http.HttpServerRequest;
+import org.vertx.java.core.http.HttpServerResponse;
+import org.vertx.java.core.http.ServerWebSocket;
+import org.vertx.java.core.json.JsonArray;
+import org.vertx.java.core.json.JsonObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+
+/**
+ * A web server hosting any number of emulated Launchpads, each one in its own session.
+ *
+ * <p>All sessions share the same Vertx engine, HTTP port and eventbus bridge, but have their own eventbus addresses
+ * (see {@link EmulatorLaunchpad#getServerAddress(String)} and {@link EmulatorLaunchpad#getClientAddress(String)}), so
+ * that dozens of independent devices can be emulated in a single JVM :
+ * <pre>
+ * EmulatorServer server = new EmulatorServer(9000);
+ * for (int i = 0; i < 16; i++) {
+ *     Launchpad launchpad = server.getLaunchpad("unit" + i); // http://localhost:9000/?session=unit0 ...
+ * }
+ * </pre>
+ *
+ * @author Olivier Croisier (olivier.croisier@gmail.com)
+ */
+public class EmulatorServer implements Closeable {
+
+    /** Legal session IDs, that can be used safely in eventbus addresses and URLs. */
+    private static final Pattern SESSION_ID_PATTERN = Pattern.compile("[A-Za-z0-9_-]+");
+
+    /** Vertx engine instance. */
+    private final Vertx vertx;
+    /** Worker pool notifying the listeners, off the event loop. */
+    private final Executor listenerExecutor;
+    /** The worker pool, if it was created by this server and must be stopped with it. */
+    private final ExecutorService ownListenerExecutor;
+    /** The emulated Launchpads, by session ID. */
+    private final ConcurrentMap<String, EmulatorLaunchpad> launchpads = new ConcurrentHashMap<String, EmulatorLaunchpad>();
+    /** Whether the server has been closed. */
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    /**
+     * Constructor. Starts the server, with its own worker pool to notify the listeners.
+     *
+     * @param httpPort The HTTP port on which the emulator should run.
+     */
+    public EmulatorServer(int httpPort) {
+        this(httpPort, null);
+    }
+
+    /**
+     * Constructor. Starts the server.
+     *
+     * @param httpPort The HTTP port on which the emulator should run.
+     * @param listenerExecutor The worker pool notifying the listeners in {@link DispatchMode#ORDERED} mode, or
+     * {@code null} to use a pool of daemon threads owned by the server.
+     */
+    public EmulatorServer(int httpPort, Executor listenerExecutor) {
+
+        if (listenerExecutor == null) {
+            ownListenerExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "lp4j-emulator-listener");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            this.listenerExecutor = ownListenerExecutor;
+        } else {
+            ownListenerExecutor = null;
+            this.listenerExecutor = listenerExecutor;
+        }
+
+        vertx = VertxFactory.newVertx();
+
+        // Static files
+        HttpServer httpServer = vertx.createHttpServer();
+        httpServer.requestHandler(new WebResourceHandler());
+
+        // Binary input and display frames. Must be set before the bridge, which forwards the websockets it does not handle.
+        httpServer.websocketHandler(new WebSocketHandler());
+
+        // Eventbus bridge
+        JsonObject bridgeConfig = new JsonObject().putString("prefix", EmulatorLaunchpad.EVENTBUS_ADDRESS);
+        JsonArray credentialsPermitAll = new JsonArray().add(new JsonObject());
+        vertx.createSockJSServer(httpServer).bridge(bridgeConfig, credentialsPermitAll, credentialsPermitAll);
+
+        System.out.println("Launchpad emulator is ready on http://localhost:" + httpPort + "/");
+        httpServer.listen(httpPort);
+    }
+
+    /**
+     * Returns the emulated Launchpad of the given session, creating it if needed.
+     *
+     * @param sessionId The ID of the session. Must only contain letters, digits, '_' and '-'.
+     * @return The emulated Launchpad.
+     */
+    public EmulatorLaunchpad getLaunchpad(String sessionId) {
+        if (sessionId == null || !SESSION_ID_PATTERN.matcher(sessionId).matches()) {
+            throw new IllegalArgumentException("Invalid session ID : " + sessionId + ". Only letters, digits, '_' and '-' are allowed.");
+        }
+        EmulatorLaunchpad launchpad = launchpads.get(sessionId);
+        if (launchpad == null) {
+            synchronized (launchpads) {
+                launchpad = launchpads.get(sessionId);
+                if (launchpad == null) {
+                    launchpad = new EmulatorLaunchpad(this, sessionId, false);
+                }
+            }
+        }
+        return launchpad;
+    }
+
+    /**
+     * Returns the IDs of the open sessions.
+     *
+     * @return The session IDs (unmodifiable).
+     */
+    public Set<String> getSessionIds() {
+        return Collections.unmodifiableSet(launchpads.keySet());
+    }
+
+    /**
+     * Stops the server, and all the emulated Launchpads it hosts.
+     *
+     * <p>Each session is closed before the Vertx engine is stopped, so that its viewers are disconnected. Closing the
+     * server again has no effect.
+     */
+    @Override
+    public void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        for (EmulatorLaunchpad launchpad : new ArrayList<EmulatorLaunchpad>(launchpads.values())) {
+            try {
+                launchpad.close();
+            } catch (IOException e) {
+                // Keep closing the other sessions
+            }
+        }
+        launchpads.clear();
+        vertx.stop();
+        if (ownListenerExecutor != null) {
+            ownListenerExecutor.shutdown();
+        }
+    }
+
+    /**
+     * Returns the Vertx engine powering the server.
+     *
+     * @return The Vertx engine.
+     */
+    Vertx getVertx() {
+        return vertx;
+    }
+
+    /**
+     * Returns the worker pool notifying the listeners, off the event loop.
+     *
+     * @return The worker pool.
+     */
+    Executor getListenerExecutor() {
+        return listenerExecutor;
+    }
+
+    /**
+     * Registers a new session.
+     *
+     * @param launchpad The emulated Launchpad of the session.
+     */
+    void register(EmulatorLaunchpad launchpad) {
+        if (launchpads.putIfAbsent(launchpad.getSessionId(), launchpad) != null) {
+            throw new IllegalStateException("Session " + launchpad.getSessionId() + " is already open.");
+        }
+    }
+
+    /**
+     * Forgets a closed session.
+     *
+     * @param launchpad The emulated Launchpad of the session.
+     */
+    void release(EmulatorLaunchpad launchpad) {
+        launchpads.remove(launchpad.getSessionId(), launchpad);
+    }
+
+    /**
+     * Handler for the websockets carrying binary input frames, on {@link EmulatorLaunchpad#INPUT_WEBSOCKET_PREFIX}, and
+     * display frames, on {@link EmulatorLaunchpad#SPECTATOR_WEBSOCKET_PREFIX}.
+     */
+    private class WebSocketHandler implements Handler<ServerWebSocket> {
+        @Override
+        public void handle(ServerWebSocket webSocket) {
+            String path = webSocket.path();
+            if (path.startsWith(EmulatorLaunchpad.INPUT_WEBSOCKET_PREFIX)) {
+                final EmulatorLaunchpad launchpad = launchpads.get(path.substring(EmulatorLaunchpad.INPUT_WEBSOCKET_PREFIX.length()));
+                if (launchpad != null) {
+                    webSocket.dataHandler(new Handler<Buffer>() {
+                        @Override
+                        public void handle(Buffer frame) {
+                            launchpad.handleInputFrame(frame, System.currentTimeMillis());
+                        }
+                    });
+                    return;
+                }
+            } else if (path.startsWith(EmulatorLaunchpad.SPECTATOR_WEBSOCKET_PREFIX)) {
+                EmulatorLaunchpad launchpad = launchpads.get(path.substring(EmulatorLaunchpad.SPECTATOR_WEBSOCKET_PREFIX.length()));
+                if (launchpad != null) {
+                    launchpad.addSpectator(webSocket);
+                    return;
+                }
+            }
+            webSocket.reject();
+        }
+    }
+
+    /**
+     * Handler for standart HTTP requests, used to serve static files.
+     */
+    private static class WebResourceHandler implements Handler<HttpServerRequest> {
+        @Override
+        public void handle(HttpServerRequest req) {
+            String resourcePath = req.path();
+            HttpServerResponse response = req.response();
+
+            if (shouldRedirectToIndexHtml(resourcePath)) {
+                redirectToIndexHtml(response, req.query());
+                return;
+            }
+
+            if (!isLegalResource(resourcePath)) {
+                sendResponseForbidden(response);
+                return;
+            }
+
+            if (!writeResourceToResponse(response, resourcePath)) {
+                sendResponseNotFound(response);
+            }
+
+        }
+
+        private boolean shouldRedirectToIndexHtml(String resourcePath) {
+            return "/".equals(resourcePath);
+        }
+
+        private void redirectToIndexHtml(HttpServerResponse response, String query) {
+            // Keep the query string, which holds the session ID
+            String location = EmulatorLaunchpad.WEB_RESOURCES_PREFIX + "/index.html" + (query == null ? "" : "?" + query);
+            response.headers().add("Location", location);
+            response.setStatusCode(301).end();
+        }
+
+        private boolean isLegalResource(String resourcePath) {
+            return resourcePath.startsWith(EmulatorLaunchpad.WEB_RESOURCES_PREFIX);
+        }
+
+        private void sendResponseForbidden(HttpServerResponse response) {
+            response.setStatusCode(403).end();
+        }
+
+        private void setResponseContentType(HttpServerResponse response, String resourcePath) {
+            String contentType = findContentType(resourcePath);
+            response.headers().add("Content-Type", contentType);
+        }
+
+        private String findContentType(String resourcePath) {
+            if (resourcePath.endsWith(".js")) {
+                return "application/javascript";
+            } else {
+                return "text/html";
+            }
+        }
+
+        private boolean writeResourceToResponse(HttpServerResponse response, String resourcePath) {
+            setResponseContentType(response, resourcePath);
+            byte[] bytes = readResource(resourcePath);
+            if (bytes == null) {
+                return false;
+            }
+            Buffer buffer = new Buffer(bytes);
+            response.end(buffer);
+            return true;
+        }
+
+        private static byte[] readResource(String path) {
+            try {
+                InputStream is = EmulatorServer.class.getResourceAsStream(path);
+                if (is == null) {
+                    return null;
+                }
+                ByteArrayOutputStream baos = new ByteArrayOutputStream();
+                int reads = is.read();
+                while (reads != -1) {
+                    baos.write(reads);
+                    reads = is.read();
+                }
+                return baos.toByteArray();
+            } catch (IOException ex) {
+                ex.printStackTrace();
+                return null;
+            }
+        }
+
+        private void sendResponseNotFound(HttpServerResponse response) {
+            response.setStatusCode(404).end();
+        }
+    }
+
+}
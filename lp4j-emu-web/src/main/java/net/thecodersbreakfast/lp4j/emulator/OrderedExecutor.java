@@ -0,0 +1,165 @@
+/*
+ * Copyright 2015 Olivier Croisier (thecodersbreakfast.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.thecodersbreakfast.lp4j.emulator;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An Executor running its tasks one at a time and in submission order, on top of a shared (possibly multi-threaded)
+ * Executor.
+ *
+ * <p>Tasks are run in batches, so that a busy queue does not monopolize the threads of the shared Executor. If the
+ * shared Executor rejects a batch, the submitted task is withdrawn and the rejection is reported to the caller ; the
+ * next submission schedules the tasks still pending.
+ *
+ * @author Olivier Croisier (olivier.croisier@gmail.com)
+ */
+class OrderedExecutor implements Executor {
+
+    /** Maximum number of tasks run in a row before giving the thread back to the shared Executor. */
+    private static final int BATCH_SIZE = 64;
+
+    /** The shared Executor. */
+    private final Executor executor;
+    /** The pending tasks. */
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();
+    /** Number of pending tasks, including the running one. */
+    private final AtomicInteger pending = new AtomicInteger();
+    /** Indicates that a batch is scheduled on, or running in, the shared Executor. */
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    /** Highest number of pending tasks observed so far. */
+    private final AtomicInteger maxPending = new AtomicInteger();
+    /** Number of tasks run so far. */
+    private final AtomicLong completed = new AtomicLong();
+    /** Runs a batch of tasks. */
+    private final Runnable drain = new Runnable() {
+        @Override
+        public void run() {
+            drain();
+        }
+    };
+
+    /**
+     * Constructor.
+     *
+     * @param executor The shared Executor actually running the tasks.
+     */
+    OrderedExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws RejectedExecutionException If the shared Executor refuses to run the tasks. The task is then discarded.
+     */
+    @Override
+    public void execute(Runnable task) {
+        tasks.add(task);
+        int depth = pending.incrementAndGet();
+        int max = maxPending.get();
+        while (depth > max && !maxPending.compareAndSet(max, depth)) {
+            max = maxPending.get();
+        }
+        try {
+            schedule();
+        } catch (RejectedExecutionException e) {
+            if (tasks.remove(task)) {
+                pending.decrementAndGet();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the number of tasks waiting to be run, including the running one.
+     *
+     * @return The queue depth.
+     */
+    int getQueueDepth() {
+        return pending.get();
+    }
+
+    /**
+     * Returns the highest queue depth observed so far.
+     *
+     * @return The highest queue depth.
+     */
+    int getMaxQueueDepth() {
+        return maxPending.get();
+    }
+
+    /**
+     * Returns the number of tasks run so far.
+     *
+     * @return The number of completed tasks.
+     */
+    long getCompletedTasks() {
+        return completed.get();
+    }
+
+    /**
+     * Schedules a batch on the shared Executor, unless one is already scheduled or running.
+     *
+     * @throws RejectedExecutionException If the shared Executor refuses to run the batch.
+     */
+    private void schedule() {
+        if (!scheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.execute(drain);
+        } catch (RejectedExecutionException e) {
+            scheduled.set(false);
+            throw e;
+        }
+    }
+
+    /**
+     * Runs up to {@link #BATCH_SIZE} tasks, then reschedules itself if more tasks are pending.
+     */
+    private void drain() {
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            Runnable task = tasks.poll();
+            if (task == null) {
+                break;
+            }
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                Thread thread = Thread.currentThread();
+                thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+            }
+            completed.incrementAndGet();
+            pending.decrementAndGet();
+        }
+        scheduled.set(false);
+        if (!tasks.isEmpty()) {
+            try {
+                schedule();
+            } catch (RejectedExecutionException e) {
+                // The shared Executor is shutting down : the pending tasks will be scheduled by the next submission.
+            }
+        }
+    }
+
+}
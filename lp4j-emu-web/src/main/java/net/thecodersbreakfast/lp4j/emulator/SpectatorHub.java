@@ -0,0 +1,279 @@
+/*
+ * Copyright 2015 Olivier Croisier (thecodersbreakfast.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.thecodersbreakfast.lp4j.emulator;
+
+import io.netty.buffer.Unpooled;
+import org.vertx.java.core.Handler;
+import org.vertx.java.core.buffer.Buffer;
+import org.vertx.java.core.eventbus.Message;
+import org.vertx.java.core.http.ServerWebSocket;
+import org.vertx.java.core.json.JsonObject;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Mirrors the display of an emulated Launchpad, and broadcasts it to read-only viewers (spectators).
+ *
+ * <p>The hub observes the commands sent to the browser-side part of the emulator, and applies them to its own copy of
+ * both buffers. Each change is encoded only once into a binary display frame, whose bytes are shared by all the
+ * viewers, whatever their number.
+ *
+ * <p>Display frames start with a header made of the frame type (byte : 0 for a snapshot, 1 for a delta), the brightness
+ * level (byte, from 0 to 15) and the buffer flags (byte : the visible buffer in the lowest bit, then whether auto-swap
+ * is enabled). A snapshot then holds the 80 lights of buffer 0,
+ * followed by the 80 lights of buffer 1. A delta holds 2 bytes per changed light : the buffer (highest bit) and the
+ * index of the light (pads line by line from 0 to 63, then the top-row buttons from 64 to 71, then the right-side
+ * buttons from 72 to 79), then its color. Colors are encoded as {@code green << 2 | red}.
+ *
+ * <p>A viewer that cannot keep up (its write queue is full) stops receiving deltas, instead of buffering them. Once its
+ * queue has drained, it receives a snapshot of the display, and resumes from there.
+ *
+ * @author Olivier Croisier (olivier.croisier@gmail.com)
+ */
+class SpectatorHub implements Handler<Message> {
+
+    /** Maximum size of the write queue of a viewer, in bytes, before it is considered too slow. */
+    static final int MAX_WRITE_QUEUE_SIZE = 16 * 1024;
+
+    /** Number of lights of each buffer. */
+    private static final int NB_LIGHTS = 80;
+    /** Size of the header of a display frame. */
+    private static final int HEADER_SIZE = 3;
+    /** Type of a snapshot frame. */
+    private static final byte SNAPSHOT = 0;
+    /** Type of a delta frame. */
+    private static final byte DELTA = 1;
+    /** Color of the lights switched on by a LED test (full red and green). */
+    private static final int TEST_COLOR = 15;
+
+    /** The lights of both buffers. */
+    private final byte[][] buffers = {new byte[NB_LIGHTS], new byte[NB_LIGHTS]};
+    /** The connected viewers. */
+    private final List<Spectator> spectators = new ArrayList<Spectator>();
+    /** Lights changed by the command being applied, as (buffer, index) pairs. */
+    private final byte[] changes = new byte[4];
+    /** Number of bytes used in {@link #changes}. */
+    private int changesLength;
+    /** Brightness level, as known by the browser. */
+    private int brightness = 15;
+    /** Visible buffer. */
+    private int visibleBuffer = 0;
+    /** Buffer to which the commands are applied. */
+    private int writeBuffer = 0;
+    /** Whether the visible buffer keeps swapping, to make the lights blink. */
+    private boolean autoSwap = false;
+    /** Number of snapshots sent to viewers that could not keep up. */
+    private long resyncs;
+
+    /**
+     * Applies a command sent to the browser-side part of the emulator, and broadcasts the resulting changes.
+     *
+     * @param message The command, as published by {@link EmulatorLaunchpadClient}.
+     */
+    @Override
+    public synchronized void handle(Message message) {
+        JsonObject body = (JsonObject) message.body();
+        String eventType = body.getString("evt");
+        changesLength = 0;
+        if ("PADLGT".equals(eventType)) {
+            int index = body.getInteger("y") * 8 + body.getInteger("x");
+            setLight(index, body.getObject("c"), body.getString("o"));
+            broadcast(encodeDelta());
+        } else if ("BTNLGT".equals(eventType)) {
+            int index = (body.getBoolean("t") ? 64 : 72) + body.getInteger("i");
+            setLight(index, body.getObject("c"), body.getString("o"));
+            broadcast(encodeDelta());
+        } else if ("BRGHT".equals(eventType)) {
+            brightness = body.getInteger("b");
+            broadcast(encodeDelta());
+        } else if ("RST".equals(eventType)) {
+            Arrays.fill(buffers[0], (byte) 0);
+            Arrays.fill(buffers[1], (byte) 0);
+            broadcast(encodeSnapshot());
+        } else if ("TST".equals(eventType)) {
+            brightness = body.getInteger("i");
+            Arrays.fill(buffers[writeBuffer], (byte) TEST_COLOR);
+            broadcast(encodeSnapshot());
+        } else if ("BUF".equals(eventType)) {
+            visibleBuffer = "BUFFER_0".equals(body.getString("v")) ? 0 : 1;
+            writeBuffer = "BUFFER_0".equals(body.getString("w")) ? 0 : 1;
+            autoSwap = body.getBoolean("a");
+            if (body.getBoolean("c")) {
+                System.arraycopy(buffers[visibleBuffer], 0, buffers[writeBuffer], 0, NB_LIGHTS);
+            }
+            broadcast(encodeSnapshot());
+        }
+    }
+
+    /**
+     * Connects a new viewer, and sends it a snapshot of the display.
+     *
+     * @param webSocket The websocket of the viewer.
+     */
+    synchronized void addSpectator(ServerWebSocket webSocket) {
+        final Spectator spectator = new Spectator(webSocket);
+        webSocket.setWriteQueueMaxSize(MAX_WRITE_QUEUE_SIZE);
+        webSocket.closeHandler(new Handler<Void>() {
+            @Override
+            public void handle(Void event) {
+                removeSpectator(spectator);
+            }
+        });
+        spectators.add(spectator);
+        spectator.write(encodeSnapshot());
+    }
+
+    /**
+     * Returns the number of connected viewers.
+     *
+     * @return The number of viewers.
+     */
+    synchronized int getSpectatorCount() {
+        return spectators.size();
+    }
+
+    /**
+     * Returns the number of snapshots sent to viewers that could not keep up with the deltas.
+     *
+     * @return The number of resynchronizations.
+     */
+    synchronized long getResyncs() {
+        return resyncs;
+    }
+
+    /**
+     * Disconnects all the viewers.
+     */
+    synchronized void close() {
+        List<Spectator> closing = new ArrayList<Spectator>(spectators);
+        spectators.clear();
+        for (Spectator spectator : closing) {
+            spectator.webSocket.close();
+        }
+    }
+
+    /*
+    ================================================================================
+    Utils
+    ================================================================================
+    */
+
+    /**
+     * Sets a light of the write buffer, and applies the backbuffer operation, as the browser does.
+     */
+    private void setLight(int index, JsonObject color, String operation) {
+        byte code = (byte) (color.getInteger("g") << 2 | color.getInteger("r"));
+        buffers[writeBuffer][index] = code;
+        addChange(writeBuffer, index);
+        int backBuffer = 1 - writeBuffer;
+        if ("COPY".equals(operation)) {
+            buffers[backBuffer][index] = code;
+            addChange(backBuffer, index);
+        } else if ("CLEAR".equals(operation)) {
+            buffers[backBuffer][index] = 0;
+            addChange(backBuffer, index);
+        }
+    }
+
+    private void addChange(int buffer, int index) {
+        changes[changesLength++] = (byte) (buffer << 7 | index);
+        changes[changesLength++] = buffers[buffer][index];
+    }
+
+    private byte[] encodeDelta() {
+        byte[] frame = new byte[HEADER_SIZE + changesLength];
+        encodeHeader(frame, DELTA);
+        System.arraycopy(changes, 0, frame, HEADER_SIZE, changesLength);
+        return frame;
+    }
+
+    private byte[] encodeSnapshot() {
+        byte[] frame = new byte[HEADER_SIZE + 2 * NB_LIGHTS];
+        encodeHeader(frame, SNAPSHOT);
+        System.arraycopy(buffers[0], 0, frame, HEADER_SIZE, NB_LIGHTS);
+        System.arraycopy(buffers[1], 0, frame, HEADER_SIZE + NB_LIGHTS, NB_LIGHTS);
+        return frame;
+    }
+
+    private void encodeHeader(byte[] frame, byte type) {
+        frame[0] = type;
+        frame[1] = (byte) brightness;
+        frame[2] = (byte) (visibleBuffer | (autoSwap ? 2 : 0));
+    }
+
+    /**
+     * Sends a display frame to all the viewers that keep up. Those whose write queue is full are skipped until it
+     * drains.
+     */
+    private void broadcast(byte[] frame) {
+        for (Spectator spectator : spectators) {
+            if (spectator.stale) {
+                continue;
+            }
+            if (spectator.webSocket.writeQueueFull()) {
+                spectator.stale = true;
+                // Drain handlers are only called once
+                final Spectator staleSpectator = spectator;
+                spectator.webSocket.drainHandler(new Handler<Void>() {
+                    @Override
+                    public void handle(Void event) {
+                        resync(staleSpectator);
+                    }
+                });
+                continue;
+            }
+            spectator.write(frame);
+        }
+    }
+
+    private synchronized void resync(Spectator spectator) {
+        if (spectator.stale && spectators.contains(spectator)) {
+            spectator.stale = false;
+            resyncs++;
+            spectator.write(encodeSnapshot());
+        }
+    }
+
+    private synchronized void removeSpectator(Spectator spectator) {
+        spectators.remove(spectator);
+    }
+
+    /**
+     * A viewer, connected through a websocket.
+     */
+    private static class Spectator {
+
+        /** The websocket of the viewer. */
+        private final ServerWebSocket webSocket;
+        /** Whether the viewer missed some deltas, and is waiting for a snapshot. */
+        private boolean stale;
+
+        private Spectator(ServerWebSocket webSocket) {
+            this.webSocket = webSocket;
+        }
+
+        /**
+         * Sends a display frame. The bytes are wrapped, not copied, so that a frame is shared by all the viewers.
+         */
+        private void write(byte[] frame) {
+            webSocket.writeBinaryFrame(new Buffer(Unpooled.wrappedBuffer(frame)));
+        }
+    }
+
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2015 Olivier Croisier (thecodersbreakfast.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+// Canvas-based display of a Launchpad, repainting only the cells that changed since the last animation frame.
+// Uses the same layout as the SVG display : 110x110 units, 10 units per pad/button, 2 units gutter.
+function CanvasRenderer(container, launchpad, buttonNames) {
+    this.launchpad = launchpad;
+    this.buttonNames = buttonNames;
+    this.canvas = document.createElement("canvas");
+    this.canvas.style.display = "block";
+    this.context = this.canvas.getContext("2d");
+    this.scale = 1;
+    this.frameRequested = false;
+    container.appendChild(this.canvas);
+
+    var self = this;
+    window.addEventListener("resize", function () {
+        self.resize();
+    });
+    this.resize();
+}
+
+CanvasRenderer.prototype.SIZE = 110;
+CanvasRenderer.prototype.BACKGROUND = "#444";
+
+// Adapts the canvas to the window size, then repaints everything
+CanvasRenderer.prototype.resize = function () {
+    var ratio = window.devicePixelRatio || 1;
+    var size = Math.min(window.innerWidth, window.innerHeight);
+    this.canvas.style.width = size + "px";
+    this.canvas.style.height = size + "px";
+    this.canvas.width = Math.floor(size * ratio);
+    this.canvas.height = Math.floor(size * ratio);
+    this.scale = this.canvas.width / this.SIZE;
+
+    var ctx = this.context;
+    ctx.setTransform(this.scale, 0, 0, this.scale, 0, 0);
+    ctx.fillStyle = this.BACKGROUND;
+    ctx.fillRect(0, 0, this.SIZE, this.SIZE);
+    ctx.strokeStyle = "#000";
+    ctx.lineWidth = 2;
+    ctx.strokeRect(0, 0, this.SIZE, this.SIZE);
+    this.launchpad.markAllDirty();
+    this.render();
+};
+
+// Schedules a repaint on the next animation frame. Several calls within the same frame trigger a single repaint.
+CanvasRenderer.prototype.invalidate = function () {
+    if (this.frameRequested) return;
+    this.frameRequested = true;
+    var self = this;
+    window.requestAnimationFrame(function () {
+        self.frameRequested = false;
+        self.render();
+    });
+};
+
+// Repaints the dirty cells
+CanvasRenderer.prototype.render = function () {
+    var self = this;
+    this.launchpad.takeDirtyCells(function (x, y) {
+        self.paintCell(x, y);
+    });
+};
+
+CanvasRenderer.prototype.paintCell = function (x, y) {
+    var ctx = this.context;
+    var left = 2 + 12 * x;
+    var top = 2 + 12 * y;
+    var color = this.launchpad.getVisibleColor(x, y);
+    var unlit = this.launchpad.colors[0][0];
+
+    ctx.fillStyle = this.BACKGROUND;
+    ctx.fillRect(left - 1, top - 1, 12, 12);
+
+    // Do not apply brightness correction to non-lit pads and buttons
+    ctx.globalAlpha = (color == unlit) ? 1 : this.launchpad.brightness;
+    ctx.fillStyle = color;
+    if (x == 8 || y == 0) {
+        ctx.beginPath();
+        ctx.arc(left + 5, top + 5, 4, 0, 2 * Math.PI);
+        ctx.fill();
+        ctx.globalAlpha = 1;
+        ctx.fillStyle = "#000";
+        ctx.font = "bold 1.6px sans-serif";
+        ctx.textAlign = "center";
+        ctx.textBaseline = "middle";
+        ctx.fillText(this.buttonNames[y == 0 ? x : 7 + y], left + 5, top + 5);
+    } else {
+        ctx.fillRect(left, top, 10, 10);
+        ctx.globalAlpha = 1;
+    }
+};
+
+// Returns the cell {x, y} under the given client coordinates, or null if there is none
+CanvasRenderer.prototype.cellAt = function (clientX, clientY) {
+    var rect = this.canvas.getBoundingClientRect();
+    var unitX = (clientX - rect.left) * this.SIZE / rect.width - 2;
+    var unitY = (clientY - rect.top) * this.SIZE / rect.height - 2;
+    var x = Math.floor(unitX / 12);
+    var y = Math.floor(unitY / 12);
+    if (x < 0 || x > 8 || y < 0 || y > 8 || (x == 8 && y == 0)) return null;
+    if (unitX - 12 * x > 10 || unitY - 12 * y > 10) return null;
+    return {x: x, y: y};
+};
@@ -27,7 +27,12 @@ function Launchpad() {
     this.writeBuffer = 0;
     this.backBuffer = 1;
     this.brightness = 1;
+    // Whether the visible buffer keeps swapping, to make the lights blink
+    this.autoSwap = false;
     this.listener = null;
+    // Cells (index x * 9 + y) changed since the last call to takeDirtyCells
+    this.dirtyFlags = new Array(81);
+    this.dirtyCells = [];
     this.reset();
 }
 
@@ -46,6 +51,7 @@ Launchpad.prototype.reset = function () {
         this.buffers[0][i] = new Array(9);
         this.buffers[1][i] = new Array(9);
     }
+    this.markAllDirty();
 };
 
 Launchpad.prototype.testLights = function (intensity) {
@@ -54,6 +60,7 @@ Launchpad.prototype.testLights = function (intensity) {
     this.buffers[this.writeBuffer].map(function (a) {
         a.fill(self.colors[3][3]);
     });
+    this.markAllDirty();
 };
 
 Launchpad.prototype.setLights = function (colors, operation) {
@@ -72,6 +79,7 @@ Launchpad.prototype.setPadLight = function (x, y, color, operation) {
             this.buffers[this.backBuffer][x][y + 1] = this.colors[0][0];
             break;
     }
+    this.markDirty(x, y + 1);
 };
 
 Launchpad.prototype.setButtonLight = function (t, i, color, operation) {
@@ -89,14 +97,56 @@ Launchpad.prototype.setButtonLight = function (t, i, color, operation) {
 
 Launchpad.prototype.setBrightness = function (level) {
     this.brightness = 0.1 + 0.06 * level;
+    this.markAllDirty();
 };
 
 Launchpad.prototype.setBuffers = function (visibleBuffer, writeBuffer, copyVisibleBufferToWriteBuffer, autoSwap) {
     this.visibleBuffer = this.bufIdx(visibleBuffer);
     this.writeBuffer = this.bufIdx(writeBuffer);
     this.backBuffer = 1 - this.writeBuffer;
-    if (copyVisibleBufferToWriteBuffer === true) {
-        this.buffers[this.writeBuffer] = this.buffers[this.visibleBuffer].clone;
+    this.autoSwap = (autoSwap === true);
+    if (copyVisibleBufferToWriteBuffer === true && this.writeBuffer != this.visibleBuffer) {
+        this.buffers[this.writeBuffer] = this.buffers[this.visibleBuffer].map(function (column) {
+            return column.slice();
+        });
+    }
+    this.markAllDirty();
+};
+
+// Displays the other buffer, when auto-swap is enabled. Called periodically by the emulator.
+Launchpad.prototype.flash = function () {
+    if (this.autoSwap) {
+        this.visibleBuffer = 1 - this.visibleBuffer;
+        this.markAllDirty();
+    }
+};
+
+// Sets a light of a buffer, given its index (pads line by line, then top and right-side buttons) and its color code
+// (green << 2 | red), as found in the display frames sent to read-only viewers
+Launchpad.prototype.setLight = function (buffer, index, code) {
+    var x, y;
+    if (index < 64) {
+        x = index % 8;
+        y = Math.floor(index / 8) + 1;
+    } else if (index < 72) {
+        x = index - 64;
+        y = 0;
+    } else {
+        x = 8;
+        y = index - 71;
+    }
+    var color = this.colors[code & 3][code >> 2];
+    this.buffers[buffer][x][y] = color;
+    if (buffer == this.visibleBuffer) {
+        this.markDirty(x, y);
+    }
+};
+
+// Sets the displayed buffer (0 or 1), as found in the display frames sent to read-only viewers
+Launchpad.prototype.setVisibleBuffer = function (buffer) {
+    if (buffer != this.visibleBuffer) {
+        this.visibleBuffer = buffer;
+        this.markAllDirty();
     }
 };
 
@@ -108,6 +158,42 @@ Launchpad.prototype.scrollText = function (text, color, speed, loop, operation)
     // Not implemented yet
 };
 
+// ----------------------------------------
+// Dirty cells tracking
+// ----------------------------------------
+
+Launchpad.prototype.markDirty = function (x, y) {
+    var index = x * 9 + y;
+    if (!this.dirtyFlags[index]) {
+        this.dirtyFlags[index] = true;
+        this.dirtyCells.push(index);
+    }
+};
+
+Launchpad.prototype.markAllDirty = function () {
+    for (var x = 0; x < 9; x++) {
+        for (var y = 0; y < 9; y++) {
+            if (x == 8 && y == 0) continue;
+            this.markDirty(x, y);
+        }
+    }
+};
+
+// Calls the given function with the coordinates of each cell changed since the last call, then forgets them
+Launchpad.prototype.takeDirtyCells = function (callback) {
+    var cells = this.dirtyCells;
+    this.dirtyCells = [];
+    for (var i = 0; i < cells.length; i++) {
+        this.dirtyFlags[cells[i]] = false;
+        callback(Math.floor(cells[i] / 9), cells[i] % 9);
+    }
+};
+
+// Returns the displayed color of the given cell
+Launchpad.prototype.getVisibleColor = function (x, y) {
+    return this.buffers[this.visibleBuffer][x][y] || this.colors[0][0];
+};
+
 // ----------------------------------------
 // Listener Methods
 // ----------------------------------------
@@ -23,9 +23,47 @@ var launchpad;
 // The Vertx event bus
 var eventbus;
 
+// ID of the emulator session, given by the "session" query parameter
+var SESSION_ID = (function () {
+    var match = /[?&]session=([A-Za-z0-9_-]+)/.exec(window.location.search);
+    return match ? match[1] : 'default';
+})();
+
+// Display technology, given by the "renderer" query parameter : "svg" (default) or "canvas"
+var RENDERER = /[?&]renderer=canvas\b/.test(window.location.search) ? 'canvas' : 'svg';
+
+// Whether the page only follows the display, given by the "view" query parameter
+var VIEWER = /[?&]view\b/.test(window.location.search);
+
+// Labels of the top and right-side buttons
+var BUTTON_NAMES = ["^", "v", "<", ">", "SES", "USR1", "USR2", "MIX", "VOL", "PAN", "SNDA", "SNDB", "STOP", "TRCK", "SOLO", "ARM"];
+
+// The canvas display, if used
+var canvasRenderer;
+
+// Indicates that a repaint of the SVG display has been scheduled
+var svgFrameRequested = false;
+
+// Time between two swaps of the visible buffer, when auto-swap is enabled, in milliseconds
+var FLASH_INTERVAL = 250;
+
 // Eventbus IDs of the client (browser-side) and server (application-side) emulator parts
-var CLIENT_EVENTBUS_ID = 'lp4j:client';
-var SERVER_EVENTBUS_ID = 'lp4j:server';
+var CLIENT_EVENTBUS_ID = 'lp4j:client:' + SESSION_ID;
+var SERVER_EVENTBUS_ID = 'lp4j:server:' + SESSION_ID;
+
+
+// Binary input websocket, opened on the emulator session's input endpoint
+var inputSocket;
+
+// Input events waiting to be sent in the next binary frame
+var pendingInputs = [];
+
+// Kinds of events in binary input frames
+var INPUT_PRESSED = 0;
+var INPUT_RELEASED = 1;
+
+// Controls currently held down, indexed by pointer ID
+var activePointers = {};
 
 
 // Sends the given message on the event bus, to the server-side part of the emulator
@@ -36,21 +74,132 @@ function sendToServer(params) {
 }
 
 
+// Opens the binary input websocket, used in place of the event bus to send input events
+function openInputSocket() {
+    if (!window.WebSocket || !window.DataView) return;
+    var scheme = window.location.protocol == 'https:' ? 'wss://' : 'ws://';
+    var socket = new WebSocket(scheme + window.location.host + '/input/' + SESSION_ID);
+    socket.binaryType = 'arraybuffer';
+    socket.onopen = function () {
+        inputSocket = socket;
+    };
+    socket.onclose = function () {
+        if (inputSocket == socket) inputSocket = null;
+    };
+}
+
+
+// Brightness level of the display followed by a read-only viewer
+var viewerBrightness = 15;
+
+
+// Opens the websocket receiving the display frames, for read-only viewers. Reconnects if the server goes away.
+function openSpectatorSocket() {
+    var scheme = window.location.protocol == 'https:' ? 'wss://' : 'ws://';
+    var socket = new WebSocket(scheme + window.location.host + '/view/' + SESSION_ID);
+    socket.binaryType = 'arraybuffer';
+    socket.onmessage = function (e) {
+        applyDisplayFrame(new DataView(e.data));
+        scheduleDisplayUpdate();
+    };
+    socket.onclose = function () {
+        window.setTimeout(openSpectatorSocket, 1000);
+    };
+}
+
+
+// Applies a display frame, as sent by the server-side SpectatorHub : a 3-bytes header (type, brightness, buffer
+// flags : visible buffer and auto-swap), then either all the lights of both buffers (snapshot), or (buffer | index, color) pairs (delta)
+function applyDisplayFrame(frame) {
+    if (frame.byteLength < 3) return;
+    if (frame.getUint8(1) != viewerBrightness) {
+        viewerBrightness = frame.getUint8(1);
+        launchpad.setBrightness(viewerBrightness);
+    }
+    var flags = frame.getUint8(2);
+    // While blinking, the visible buffer is driven by the local flash timer
+    launchpad.autoSwap = (flags & 2) != 0;
+    if (!launchpad.autoSwap) {
+        launchpad.setVisibleBuffer(flags & 1);
+    }
+    if (frame.getUint8(0) == 0) {
+        for (var i = 0; i < 160 && 3 + i < frame.byteLength; i++) {
+            launchpad.setLight(i >= 80 ? 1 : 0, i % 80, frame.getUint8(3 + i));
+        }
+    } else {
+        for (var j = 3; j + 1 < frame.byteLength; j += 2) {
+            var light = frame.getUint8(j);
+            launchpad.setLight(light >> 7, light & 0x7F, frame.getUint8(j + 1));
+        }
+    }
+}
+
+
+// Returns the index of a control, as used in binary input frames : pads line by line (0-63), then top-row buttons
+// (64-71), then right-side buttons (72-79). Coordinates are those given to the Launchpad listener.
+function controlIndex(x, y) {
+    if (y == -1) return 64 + x;
+    if (x == -1) return 72 + y;
+    return y * 8 + x;
+}
+
+
+// Queues an input event. The events queued before the next animation frame (eg. several fingers landing together)
+// are sent in a single binary frame, or as individual event bus messages if the input websocket is not available.
+// Browsers dispatch pointer events once per frame, so batching does not delay them any further.
+function sendInput(kind, x, y) {
+    if (pendingInputs.length == 0) {
+        window.requestAnimationFrame(flushInputs);
+    }
+    pendingInputs.push([kind, x, y, window.performance.now()]);
+}
+
+
+// Sends the queued input events
+function flushInputs() {
+    var inputs = pendingInputs;
+    pendingInputs = [];
+    if (inputs.length == 0) return;
+
+    if (!inputSocket || inputSocket.readyState != WebSocket.OPEN) {
+        for (var i = 0; i < inputs.length; i++) {
+            var input = inputs[i];
+            var pad = input[1] != -1 && input[2] != -1;
+            var evt = (pad ? "P" : "B") + (input[0] == INPUT_PRESSED ? "P" : "R");
+            sendToServer({"evt": evt, "x": input[1], "y": input[2]});
+        }
+        return;
+    }
+
+    // Header : time of the first event (u32), then 4 bytes per event : kind (u8), control (u8), delay (u16)
+    var base = Math.floor(inputs[0][3]);
+    var frame = new DataView(new ArrayBuffer(4 + 4 * inputs.length));
+    frame.setUint32(0, base >>> 0);
+    for (var j = 0; j < inputs.length; j++) {
+        var offset = 4 + 4 * j;
+        frame.setUint8(offset, inputs[j][0]);
+        frame.setUint8(offset + 1, controlIndex(inputs[j][1], inputs[j][2]));
+        frame.setUint16(offset + 2, Math.min(0xFFFF, Math.floor(inputs[j][3]) - base));
+    }
+    inputSocket.send(frame.buffer);
+}
+
+
 // Initializes the launchpad instance and its listener
 function configureLaunchpad() {
 
     var listener = new LaunchpadListener();
     listener.onPadPressed = function (x, y) {
-        sendToServer({"evt": "PP", "x": x, "y": y});
+        sendInput(INPUT_PRESSED, x, y);
     };
     listener.onPadReleased = function (x, y) {
-        sendToServer({"evt": "PR", "x": x, "y": y});
+        sendInput(INPUT_RELEASED, x, y);
     };
     listener.onButtonPressed = function (x, y) {
-        sendToServer({"evt": "BP", "x": x, "y": y});
+        sendInput(INPUT_PRESSED, x, y);
     };
     listener.onButtonReleased = function (x, y) {
-        sendToServer({"evt": "BR", "x": x, "y": y});
+        sendInput(INPUT_RELEASED, x, y);
     };
 
     launchpad = new Launchpad();
@@ -87,20 +236,114 @@ function handleClientCommand(event) {
 
 $(document).ready(function () {
 
+    document.title += " - " + SESSION_ID + (VIEWER ? " (view)" : "");
     configureLaunchpad();
-    initDisplay(document.getElementById("launchpad"));
+    var container = document.getElementById("launchpad");
+    if (RENDERER == 'canvas') {
+        canvasRenderer = new CanvasRenderer(container, launchpad, BUTTON_NAMES);
+        initCanvasInput(canvasRenderer);
+    } else {
+        initDisplay(container);
+    }
+
+    // Blinking lights (auto-swap of the buffers)
+    window.setInterval(function () {
+        if (launchpad.autoSwap) {
+            launchpad.flash();
+            scheduleDisplayUpdate();
+        }
+    }, FLASH_INTERVAL);
+
+    // Viewers receive the display from the server, and never send input
+    if (VIEWER) {
+        openSpectatorSocket();
+        return;
+    }
+    openInputSocket();
 
     eventbus = new vertx.EventBus('/eventbus');
     eventbus.onopen = function () {
         eventbus.registerHandler(CLIENT_EVENTBUS_ID, function (event) {
             handleClientCommand(event);
-            updateDisplay(launchpad);
+            scheduleDisplayUpdate();
         });
     }
 
 });
 
 
+// Repaints the display on the next animation frame, whatever the number of commands received in the meantime
+function scheduleDisplayUpdate() {
+    if (canvasRenderer) {
+        canvasRenderer.invalidate();
+        return;
+    }
+    if (svgFrameRequested) return;
+    svgFrameRequested = true;
+    window.requestAnimationFrame(function () {
+        svgFrameRequested = false;
+        updateDisplay(launchpad);
+    });
+}
+
+
+// Forwards the pointer events on the canvas display to the launchpad listener
+function initCanvasInput(renderer) {
+    initPointerInput(renderer.canvas, function (e) {
+        return renderer.cellAt(e.clientX, e.clientY);
+    });
+}
+
+
+// Tracks the pointers (mouse, pen or fingers) pressing the display, so that several controls can be held down at the
+// same time. The given function returns the display cell under a pointer event, or null.
+function initPointerInput(element, cellAt) {
+    if (VIEWER) return;
+    var listener = launchpad.listener || new LaunchpadListener();
+
+    element.addEventListener("pointerdown", function (e) {
+        var cell = cellAt(e);
+        if (cell == null || activePointers[e.pointerId]) return;
+        e.preventDefault();
+        // Keep receiving the events of this pointer, even if it leaves the control
+        if (element.setPointerCapture) element.setPointerCapture(e.pointerId);
+        activePointers[e.pointerId] = cell;
+        notifyCell(listener, cell, true);
+    });
+
+    var release = function (e) {
+        var cell = activePointers[e.pointerId];
+        if (!cell) return;
+        e.preventDefault();
+        delete activePointers[e.pointerId];
+        // Ctrl-clicking skips the "button released" event
+        if (e.ctrlKey && e.type == "pointerup") return;
+        notifyCell(listener, cell, false);
+    };
+    element.addEventListener("pointerup", release);
+    element.addEventListener("pointercancel", release);
+}
+
+
+// Notifies the listener that a display cell was pressed or released. The top row of the display holds the top
+// buttons, and its rightmost column the right-side buttons.
+function notifyCell(listener, cell, pressed) {
+    if (cell.y == 0 || cell.x == 8) {
+        var bX = cell.y == 0 ? cell.x : -1;
+        var bY = cell.y == 0 ? -1 : cell.y - 1;
+        if (pressed) {
+            listener.onButtonPressed(bX, bY);
+        } else {
+            listener.onButtonReleased(bX, bY);
+        }
+    } else if (pressed) {
+        listener.onPadPressed(cell.x, cell.y - 1);
+    } else {
+        listener.onPadReleased(cell.x, cell.y - 1);
+    }
+}
+
+
 // Creates the emulator SVG display
 function initDisplay(container) {
 
@@ -120,9 +363,12 @@ function initDisplay(container) {
     bg.setAttribute("stroke-width", "2");
     svg.appendChild(bg);
 
-    var listener = launchpad.listener || new LaunchpadListener();
+    initPointerInput(svg, function (e) {
+        var match = /^key(\d)(\d)$/.exec(e.target.id || "");
+        return match ? {x: parseInt(match[1], 10), y: parseInt(match[2], 10)} : null;
+    });
 
-    var btnNames = ["^", "v", "<", ">", "SES", "USR1", "USR2", "MIX", "VOL", "PAN", "SNDA", "SNDB", "STOP","TRCK", "SOLO", "ARM"];
+    var btnNames = BUTTON_NAMES;
 
     for (var x = 0; x < 9; x++) {
         for (var y = 0; y < 9; y++) {
@@ -137,22 +383,6 @@ function initDisplay(container) {
                 pad.setAttribute("cx", centerX);
                 pad.setAttribute("cy", centerY);
                 pad.setAttribute("r", "4");
-                pad.onmousedown = (function (pX, pY) {
-                    return function (e) {
-                        e.preventDefault();
-                        if (pX == 8) pX = -1;
-                        listener.onButtonPressed(pX, pY - 1);
-                    }
-                })(x, y);
-                pad.onmouseup = (function (pX, pY) {
-                    return function (e) {
-                        e.preventDefault();
-                        // Ctrl-clicking skips the "button released" event
-                        if (e.ctrlKey) return;
-                        if (pX == 8) pX = -1;
-                        listener.onButtonReleased(pX, pY - 1);
-                    }
-                })(x, y);
                 pad.setAttribute("id", "key" + x + y);
                 pad.style.fill = launchpad.colors[0][0];
                 svg.appendChild(pad);
@@ -184,20 +414,6 @@ function initDisplay(container) {
                 pad.setAttribute("y", (2 + 12 * y).toString());
                 pad.setAttribute("width", "10");
                 pad.setAttribute("height", "10");
-                pad.onmousedown = (function (pX, pY) {
-                    return function (e) {
-                        e.preventDefault();
-                        listener.onPadPressed(pX, pY - 1);
-                    }
-                })(x, y);
-                pad.onmouseup = (function (pX, pY) {
-                    return function (e) {
-                        e.preventDefault();
-                        // Ctrl-clicking skips the "button released" event
-                        if (e.ctrlKey) return;
-                        listener.onPadReleased(pX, pY - 1);
-                    }
-                })(x, y);
                 pad.setAttribute("id", "key" + x + y);
                 pad.style.fill = launchpad.colors[0][0];
                 svg.appendChild(pad);
@@ -207,16 +423,13 @@ function initDisplay(container) {
 }
 
 
-// Updates the SVG display with the latest Launchpad state
+// Updates the SVG display with the latest Launchpad state, for the cells that changed only
 function updateDisplay(launchpad) {
-    for (var x = 0; x < 9; x++) {
-        for (var y = 0; y < 9; y++) {
-            if (x == 8 && y == 0) continue;
-            var color = launchpad.buffers[launchpad.visibleBuffer][x][y] || launchpad.colors[0][0];
-            var shape = document.getElementById("key" + x + y);
-            // Do not apply brightness correction to non-lit pads and buttons
-            shape.style.opacity = (color == launchpad.colors[0][0]) ? 1 : launchpad.brightness;
-            shape.style.fill = color;
-        }
-    }
+    launchpad.takeDirtyCells(function (x, y) {
+        var color = launchpad.getVisibleColor(x, y);
+        var shape = document.getElementById("key" + x + y);
+        // Do not apply brightness correction to non-lit pads and buttons
+        shape.style.opacity = (color == launchpad.colors[0][0]) ? 1 : launchpad.brightness;
+        shape.style.fill = color;
+    });
 }
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2015 Olivier Croisier (thecodersbreakfast.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.thecodersbreakfast.lp4j.emulator;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.vertx.java.core.http.ServerWebSocket;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class EmulatorServerTest {
+
+    private int port;
+
+    @Before
+    public void init() throws IOException {
+        ServerSocket socket = new ServerSocket(0);
+        port = socket.getLocalPort();
+        socket.close();
+    }
+
+    @Test
+    public void close_closesSessions() throws Exception {
+        EmulatorServer server = new EmulatorServer(port);
+        EmulatorLaunchpad first = server.getLaunchpad("first");
+        EmulatorLaunchpad second = server.getLaunchpad("second");
+        ServerWebSocket firstSpectator = mock(ServerWebSocket.class);
+        ServerWebSocket secondSpectator = mock(ServerWebSocket.class);
+        first.addSpectator(firstSpectator);
+        second.addSpectator(secondSpectator);
+
+        server.close();
+
+        verify(firstSpectator).close();
+        verify(secondSpectator).close();
+        assertEquals(0, first.getSpectatorCount());
+        assertEquals(0, second.getSpectatorCount());
+        assertTrue(server.getSessionIds().isEmpty());
+
+        // Closing again has no effect
+        server.close();
+        first.close();
+        verify(firstSpectator, times(1)).close();
+    }
+
+    @Test
+    public void close_ownServer() throws Exception {
+        EmulatorLaunchpad launchpad = new EmulatorLaunchpad(port);
+        ServerWebSocket spectator = mock(ServerWebSocket.class);
+        launchpad.addSpectator(spectator);
+
+        launchpad.close();
+
+        verify(spectator, times(1)).close();
+        assertEquals(0, launchpad.getSpectatorCount());
+    }
+
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2015 Olivier Croisier (thecodersbreakfast.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.thecodersbreakfast.lp4j.emulator;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class OrderedExecutorTest {
+
+    private ExecutorService shared;
+
+    @Before
+    public void init() {
+        shared = Executors.newFixedThreadPool(4);
+    }
+
+    @After
+    public void tearDown() {
+        shared.shutdownNow();
+    }
+
+    @Test
+    public void execute_inOrder() throws Exception {
+        OrderedExecutor executor = new OrderedExecutor(shared);
+        final List<Integer> order = Collections.synchronizedList(new ArrayList<Integer>());
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicBoolean overlap = new AtomicBoolean();
+        final CountDownLatch done = new CountDownLatch(1000);
+        for (int i = 0; i < 1000; i++) {
+            final int index = i;
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    if (running.incrementAndGet() > 1) {
+                        overlap.set(true);
+                    }
+                    order.add(index);
+                    running.decrementAndGet();
+                    done.countDown();
+                }
+            });
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertFalse(overlap.get());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, order.get(i).intValue());
+        }
+    }
+
+    @Test
+    public void execute_isolation() throws Exception {
+        OrderedExecutor blocked = new OrderedExecutor(shared);
+        OrderedExecutor other = new OrderedExecutor(shared);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch ran = new CountDownLatch(1);
+        blocked.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        other.execute(new Runnable() {
+            @Override
+            public void run() {
+                ran.countDown();
+            }
+        });
+
+        try {
+            assertTrue(ran.await(5, TimeUnit.SECONDS));
+            assertEquals(1, blocked.getQueueDepth());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void execute_failingTask() throws Exception {
+        ExecutorService quiet = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable);
+                thread.setUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
+                    @Override
+                    public void uncaughtException(Thread t, Throwable e) {
+                    }
+                });
+                return thread;
+            }
+        });
+        try {
+            OrderedExecutor executor = new OrderedExecutor(quiet);
+            final CountDownLatch ran = new CountDownLatch(1);
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    throw new IllegalStateException("Expected");
+                }
+            });
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    ran.countDown();
+                }
+            });
+            assertTrue(ran.await(5, TimeUnit.SECONDS));
+        } finally {
+            quiet.shutdownNow();
+        }
+    }
+
+    @Test
+    public void execute_rejected() throws Exception {
+        final AtomicBoolean rejecting = new AtomicBoolean(true);
+        OrderedExecutor executor = new OrderedExecutor(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                if (rejecting.get()) {
+                    throw new RejectedExecutionException();
+                }
+                command.run();
+            }
+        });
+        final AtomicInteger ran = new AtomicInteger();
+        Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                ran.incrementAndGet();
+            }
+        };
+
+        try {
+            executor.execute(task);
+            fail("The rejection should be reported.");
+        } catch (RejectedExecutionException e) {
+            // Expected
+        }
+        assertEquals(0, executor.getQueueDepth());
+
+        rejecting.set(false);
+        executor.execute(task);
+        assertEquals(1, ran.get());
+        assertEquals(0, executor.getQueueDepth());
+    }
+
+}
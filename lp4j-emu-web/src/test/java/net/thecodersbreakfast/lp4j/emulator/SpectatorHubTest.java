@@ -0,0 +1,301 @@
+/*
+ * Copyright 2015 Olivier Croisier (thecodersbreakfast.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.thecodersbreakfast.lp4j.emulator;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.vertx.java.core.Handler;
+import org.vertx.java.core.buffer.Buffer;
+import org.vertx.java.core.eventbus.Message;
+import org.vertx.java.core.http.ServerWebSocket;
+import org.vertx.java.core.json.JsonObject;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class SpectatorHubTest {
+
+    private static final int HEADER_SIZE = 3;
+    private static final int NB_LIGHTS = 80;
+
+    private SpectatorHub hub;
+    private ServerWebSocket webSocket;
+
+    @Before
+    public void init() {
+        hub = new SpectatorHub();
+        webSocket = mock(ServerWebSocket.class);
+    }
+
+    @Test
+    public void addSpectator_snapshot() {
+        hub.addSpectator(webSocket);
+
+        verify(webSocket).setWriteQueueMaxSize(SpectatorHub.MAX_WRITE_QUEUE_SIZE);
+        byte[] snapshot = lastFrame(webSocket);
+        assertEquals(HEADER_SIZE + 2 * NB_LIGHTS, snapshot.length);
+        assertEquals(0, snapshot[0]);
+        assertEquals(15, snapshot[1]);
+        assertEquals(0, snapshot[2]);
+        for (int i = HEADER_SIZE; i < snapshot.length; i++) {
+            assertEquals(0, snapshot[i]);
+        }
+        assertEquals(1, hub.getSpectatorCount());
+    }
+
+    @Test
+    public void padLight_delta() {
+        hub.addSpectator(webSocket);
+
+        hub.handle(padLight(1, 2, 3, 1, "NONE"));
+
+        assertArrayEquals(new byte[]{1, 15, 0, 17, 1 << 2 | 3}, lastFrame(webSocket));
+    }
+
+    @Test
+    public void padLight_copy() {
+        hub.addSpectator(webSocket);
+
+        hub.handle(padLight(1, 2, 3, 1, "COPY"));
+
+        assertArrayEquals(new byte[]{1, 15, 0, 17, 7, (byte) (0x80 | 17), 7}, lastFrame(webSocket));
+    }
+
+    @Test
+    public void padLight_clear() {
+        hub.handle(padLight(1, 2, 3, 1, "COPY"));
+        hub.addSpectator(webSocket);
+
+        hub.handle(padLight(1, 2, 0, 2, "CLEAR"));
+
+        assertArrayEquals(new byte[]{1, 15, 0, 17, 2 << 2, (byte) (0x80 | 17), 0}, lastFrame(webSocket));
+        byte[] snapshot = snapshot();
+        assertEquals(2 << 2, snapshot[HEADER_SIZE + 17]);
+        assertEquals(0, snapshot[HEADER_SIZE + NB_LIGHTS + 17]);
+    }
+
+    @Test
+    public void buttonLight_delta() {
+        hub.addSpectator(webSocket);
+
+        hub.handle(buttonLight(true, 3, 3, 0, "NONE"));
+        assertArrayEquals(new byte[]{1, 15, 0, 64 + 3, 3}, lastFrame(webSocket));
+
+        hub.handle(buttonLight(false, 2, 0, 3, "NONE"));
+        assertArrayEquals(new byte[]{1, 15, 0, 72 + 2, 3 << 2}, lastFrame(webSocket));
+    }
+
+    @Test
+    public void brightness_delta() {
+        hub.addSpectator(webSocket);
+
+        hub.handle(message(event("BRGHT").putNumber("b", 5)));
+
+        assertArrayEquals(new byte[]{1, 5, 0}, lastFrame(webSocket));
+    }
+
+    @Test
+    public void testLights_snapshot() {
+        hub.addSpectator(webSocket);
+
+        hub.handle(message(event("TST").putNumber("i", 4)));
+
+        byte[] snapshot = lastFrame(webSocket);
+        assertEquals(0, snapshot[0]);
+        assertEquals(4, snapshot[1]);
+        for (int i = 0; i < NB_LIGHTS; i++) {
+            assertEquals(15, snapshot[HEADER_SIZE + i]);
+            assertEquals(0, snapshot[HEADER_SIZE + NB_LIGHTS + i]);
+        }
+
+        hub.handle(message(event("RST")));
+
+        snapshot = lastFrame(webSocket);
+        for (int i = HEADER_SIZE; i < snapshot.length; i++) {
+            assertEquals(0, snapshot[i]);
+        }
+    }
+
+    @Test
+    public void buffers_copy() {
+        hub.handle(padLight(1, 2, 3, 1, "NONE"));
+        hub.addSpectator(webSocket);
+
+        hub.handle(buffers("BUFFER_0", "BUFFER_1", true, true));
+
+        byte[] snapshot = lastFrame(webSocket);
+        assertEquals(0, snapshot[0]);
+        assertEquals(2, snapshot[2]);
+        assertEquals(7, snapshot[HEADER_SIZE + 17]);
+        assertEquals(7, snapshot[HEADER_SIZE + NB_LIGHTS + 17]);
+
+        // Lights are now applied to buffer 1
+        hub.handle(padLight(0, 0, 1, 0, "NONE"));
+        assertArrayEquals(new byte[]{1, 15, 2, (byte) 0x80, 1}, lastFrame(webSocket));
+    }
+
+    @Test
+    public void buffers_noCopy() {
+        hub.handle(padLight(1, 2, 3, 1, "NONE"));
+        hub.addSpectator(webSocket);
+
+        hub.handle(buffers("BUFFER_1", "BUFFER_0", false, false));
+
+        byte[] snapshot = lastFrame(webSocket);
+        assertEquals(1, snapshot[2]);
+        assertEquals(7, snapshot[HEADER_SIZE + 17]);
+        assertEquals(0, snapshot[HEADER_SIZE + NB_LIGHTS + 17]);
+    }
+
+    @Test
+    public void broadcast_sharedFrame() {
+        ServerWebSocket other = mock(ServerWebSocket.class);
+        hub.addSpectator(webSocket);
+        hub.addSpectator(other);
+
+        hub.handle(padLight(1, 2, 3, 1, "NONE"));
+
+        assertArrayEquals(lastFrame(webSocket), lastFrame(other));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void broadcast_staleSpectatorResyncs() {
+        ServerWebSocket other = mock(ServerWebSocket.class);
+        hub.addSpectator(webSocket);
+        hub.addSpectator(other);
+        when(webSocket.writeQueueFull()).thenReturn(true);
+
+        hub.handle(padLight(1, 2, 3, 1, "NONE"));
+        hub.handle(padLight(2, 2, 1, 1, "NONE"));
+
+        // The slow viewer is skipped, and waits for a single drain notification
+        assertEquals(1, frames(webSocket).size());
+        assertEquals(3, frames(other).size());
+        ArgumentCaptor<Handler> drainHandler = ArgumentCaptor.forClass(Handler.class);
+        verify(webSocket, times(1)).drainHandler(drainHandler.capture());
+        assertEquals(0, hub.getResyncs());
+
+        when(webSocket.writeQueueFull()).thenReturn(false);
+        drainHandler.getValue().handle(null);
+
+        byte[] snapshot = lastFrame(webSocket);
+        assertEquals(0, snapshot[0]);
+        assertEquals(7, snapshot[HEADER_SIZE + 17]);
+        assertEquals(1 << 2 | 1, snapshot[HEADER_SIZE + 18]);
+        assertEquals(1, hub.getResyncs());
+
+        // Deltas resume after the snapshot
+        hub.handle(padLight(3, 2, 0, 1, "NONE"));
+        assertArrayEquals(new byte[]{1, 15, 0, 19, 1 << 2}, lastFrame(webSocket));
+        assertEquals(3, frames(webSocket).size());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void close_disconnectsSpectators() {
+        hub.addSpectator(webSocket);
+        when(webSocket.writeQueueFull()).thenReturn(true);
+        hub.handle(padLight(1, 2, 3, 1, "NONE"));
+        ArgumentCaptor<Handler> drainHandler = ArgumentCaptor.forClass(Handler.class);
+        verify(webSocket).drainHandler(drainHandler.capture());
+
+        hub.close();
+
+        verify(webSocket).close();
+        assertEquals(0, hub.getSpectatorCount());
+
+        // A closed viewer is not resynchronized
+        drainHandler.getValue().handle(null);
+        assertEquals(0, hub.getResyncs());
+    }
+
+    /*
+    ================================================================================
+    Utils
+    ================================================================================
+    */
+
+    private static JsonObject event(String type) {
+        return new JsonObject().putString("evt", type);
+    }
+
+    private static Message<JsonObject> padLight(int x, int y, int red, int green, String operation) {
+        return message(event("PADLGT")
+                .putNumber("x", x)
+                .putNumber("y", y)
+                .putObject("c", new JsonObject().putNumber("r", red).putNumber("g", green))
+                .putString("o", operation));
+    }
+
+    private static Message<JsonObject> buttonLight(boolean top, int coordinate, int red, int green, String operation) {
+        return message(event("BTNLGT")
+                .putBoolean("t", top)
+                .putNumber("i", coordinate)
+                .putObject("c", new JsonObject().putNumber("r", red).putNumber("g", green))
+                .putString("o", operation));
+    }
+
+    private static Message<JsonObject> buffers(String visible, String write, boolean copy, boolean autoSwap) {
+        return message(event("BUF")
+                .putString("v", visible)
+                .putString("w", write)
+                .putBoolean("c", copy)
+                .putBoolean("a", autoSwap));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Message<JsonObject> message(JsonObject body) {
+        Message<JsonObject> message = mock(Message.class);
+        when(message.body()).thenReturn(body);
+        return message;
+    }
+
+    private static List<byte[]> frames(ServerWebSocket webSocket) {
+        ArgumentCaptor<Buffer> captor = ArgumentCaptor.forClass(Buffer.class);
+        verify(webSocket, atLeast(0)).writeBinaryFrame(captor.capture());
+        List<byte[]> frames = new ArrayList<byte[]>();
+        for (Buffer buffer : captor.getAllValues()) {
+            frames.add(buffer.getBytes());
+        }
+        return frames;
+    }
+
+    private static byte[] lastFrame(ServerWebSocket webSocket) {
+        List<byte[]> frames = frames(webSocket);
+        return frames.get(frames.size() - 1);
+    }
+
+    /**
+     * Returns the display, as seen by a new viewer.
+     */
+    private byte[] snapshot() {
+        ServerWebSocket viewer = mock(ServerWebSocket.class);
+        hub.addSpectator(viewer);
+        return lastFrame(viewer);
+    }
+
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright 2015 Olivier Croisier (thecodersbreakfast.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.thecodersbreakfast.lp4j.midi;
+
+import net.thecodersbreakfast.lp4j.api.Brightness;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Describes the duty cycle of the Launchpad's LEDs : the fraction of time during which they are lit, which sets the
+ * overall brightness of the display.
+ *
+ * <p>The Launchpad accepts duty cycles expressed as a numerator in range [1..16] and a denominator in range [3..18].
+ * Those combinations form a ladder of distinct ratios, from 1/18 (the dimmest) to 1/1 (the brightest), much finer than
+ * the 16 levels of {@link Brightness}. Ratios above 1 are accepted by the device, but look the same as 1/1.
+ *
+ * <p>{@code DutyCycle} instances are immutable.
+ *
+ * @author Olivier Croisier (olivier.croisier@gmail.com)
+ */
+public final class DutyCycle {
+
+    /** Minimum numerator. */
+    public static final int MIN_NUMERATOR = 1;
+    /** Maximum numerator. */
+    public static final int MAX_NUMERATOR = 16;
+    /** Minimum denominator. */
+    public static final int MIN_DENOMINATOR = 3;
+    /** Maximum denominator. */
+    public static final int MAX_DENOMINATOR = 18;
+
+    /** Orders duty cycles by increasing ratio. */
+    private static final Comparator<DutyCycle> BY_RATIO = new Comparator<DutyCycle>() {
+        @Override
+        public int compare(DutyCycle a, DutyCycle b) {
+            return Integer.compare(a.numerator * b.denominator, b.numerator * a.denominator);
+        }
+    };
+
+    /** All the distinct ratios up to 1, by increasing ratio. */
+    private static final List<DutyCycle> LADDER = buildLadder();
+
+    /** Dimmest duty cycle. */
+    public static final DutyCycle MIN = LADDER.get(0);
+    /** Brightest duty cycle. */
+    public static final DutyCycle MAX = LADDER.get(LADDER.size() - 1);
+
+    /** Numerator of the ratio. */
+    private final int numerator;
+    /** Denominator of the ratio. */
+    private final int denominator;
+
+    /**
+     * Factory method.
+     *
+     * @param numerator The numerator. Must be in range [{@link #MIN_NUMERATOR}..{@link #MAX_NUMERATOR}].
+     * @param denominator The denominator. Must be in range [{@link #MIN_DENOMINATOR}..{@link #MAX_DENOMINATOR}].
+     * @return The DutyCycle instance.
+     * @throws java.lang.IllegalArgumentException If the numerator or denominator is out of acceptable range.
+     */
+    public static DutyCycle of(int numerator, int denominator) {
+        if (numerator < MIN_NUMERATOR || numerator > MAX_NUMERATOR) {
+            throw new IllegalArgumentException("Invalid numerator : " + numerator + ". Acceptable values are in range [1..16].");
+        }
+        if (denominator < MIN_DENOMINATOR || denominator > MAX_DENOMINATOR) {
+            throw new IllegalArgumentException("Invalid denominator : " + denominator + ". Acceptable values are in range [3..18].");
+        }
+        return new DutyCycle(numerator, denominator);
+    }
+
+    /**
+     * Returns the duty cycle used for the given level of brightness, by {@link MidiLaunchpadClient#setBrightness(Brightness)}.
+     *
+     * @param brightness The level of brightness. Must not be null.
+     * @return The corresponding duty cycle, from 1/18 to 1/3.
+     */
+    public static DutyCycle of(Brightness brightness) {
+        if (brightness == null) {
+            throw new IllegalArgumentException("Brightness must not be null.");
+        }
+        return of(1, 18 - brightness.getBrightness());
+    }
+
+    /**
+     * Returns all the distinct duty cycles up to 1/1, by increasing ratio. When several combinations give the same
+     * ratio, the one with the smallest numerator is used.
+     *
+     * @return The duty cycles (unmodifiable).
+     */
+    public static List<DutyCycle> ladder() {
+        return LADDER;
+    }
+
+    /**
+     * Returns the duty cycle of the ladder whose ratio is the closest to the given one.
+     *
+     * @param ratio The desired ratio.
+     * @return The closest duty cycle.
+     */
+    public static DutyCycle closest(double ratio) {
+        DutyCycle closest = MIN;
+        for (DutyCycle dutyCycle : LADDER) {
+            if (Math.abs(dutyCycle.getRatio() - ratio) < Math.abs(closest.getRatio() - ratio)) {
+                closest = dutyCycle;
+            }
+        }
+        return closest;
+    }
+
+    /**
+     * Constructor.
+     */
+    private DutyCycle(int numerator, int denominator) {
+        this.numerator = numerator;
+        this.denominator = denominator;
+    }
+
+    /**
+     * Returns the numerator of the ratio.
+     *
+     * @return The numerator.
+     */
+    public int getNumerator() {
+        return numerator;
+    }
+
+    /**
+     * Returns the denominator of the ratio.
+     *
+     * @return The denominator.
+     */
+    public int getDenominator() {
+        return denominator;
+    }
+
+    /**
+     * Returns the fraction of time during which the LEDs are lit.
+     *
+     * @return The ratio, capped to 1.
+     */
+    public double getRatio() {
+        return Math.min(1.0, (double) numerator / denominator);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        DutyCycle that = (DutyCycle) o;
+        return numerator == that.numerator && denominator == that.denominator;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * numerator + denominator;
+    }
+
+    @Override
+    public String toString() {
+        return "DutyCycle[" + numerator + "/" + denominator + "]";
+    }
+
+    /*
+    ================================================================================
+    Utils
+    ================================================================================
+    */
+
+    private static List<DutyCycle> buildLadder() {
+        List<DutyCycle> ladder = new ArrayList<DutyCycle>();
+        for (int numerator = MIN_NUMERATOR; numerator <= MAX_NUMERATOR; numerator++) {
+            for (int denominator = Math.max(numerator, MIN_DENOMINATOR); denominator <= MAX_DENOMINATOR; denominator++) {
+                DutyCycle candidate = new DutyCycle(numerator, denominator);
+                if (!containsRatio(ladder, candidate)) {
+                    ladder.add(candidate);
+                }
+            }
+        }
+        Collections.sort(ladder, BY_RATIO);
+        return Collections.unmodifiableList(ladder);
+    }
+
+    private static boolean containsRatio(List<DutyCycle> ladder, DutyCycle candidate) {
+        for (DutyCycle dutyCycle : ladder) {
+            if (BY_RATIO.compare(dutyCycle, candidate) == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
@@ -0,0 +1,247 @@
+/*
+ * Copyright 2015 Olivier Croisier (thecodersbreakfast.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.thecodersbreakfast.lp4j.midi;
+
+import net.thecodersbreakfast.lp4j.api.LaunchpadException;
+
+import javax.sound.midi.MidiUnavailableException;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Manages a set of physical MIDI Launchpads, typically all the devices connected to the system.
+ *
+ * <p>Devices are opened in parallel, and each of them gets its own output writer and input dispatcher threads (see
+ * {@link MidiLaunchpad#MidiLaunchpad(MidiDeviceConfiguration, boolean)}), so that a slow or busy device never delays
+ * the others.
+ *
+ * @author Olivier Croisier (olivier.croisier@gmail.com)
+ */
+public class LaunchpadManager implements Closeable {
+
+    /** The managed Launchpads, in discovery order. */
+    private final List<MidiLaunchpad> launchpads;
+
+    /**
+     * Discovers all the Launchpads connected to the system, and opens them.
+     *
+     * @return A manager for the discovered Launchpads.
+     * @throws MidiUnavailableException If an error occurs during device probing, or if a device cannot be opened.
+     */
+    public static LaunchpadManager autodetect() throws MidiUnavailableException {
+        return new LaunchpadManager(MidiDeviceConfiguration.autodetectAll());
+    }
+
+    /**
+     * Constructor. Opens all the given devices in parallel.
+     *
+     * <p>If any device fails to open, the ones already opened are closed again before the exception is thrown.
+     *
+     * @param configurations The MIDI configurations of the devices to manage. Must not be null.
+     * @throws MidiUnavailableException If a device cannot be opened.
+     */
+    public LaunchpadManager(List<MidiDeviceConfiguration> configurations) throws MidiUnavailableException {
+        if (configurations == null) {
+            throw new IllegalArgumentException("Configurations must not be null.");
+        }
+        this.launchpads = Collections.unmodifiableList(openAll(configurations, null));
+    }
+
+    /**
+     * Constructor. Opens all the given devices in parallel, with their dedicated threads created by the given factory
+     * (see {@link MidiLaunchpad#MidiLaunchpad(MidiDeviceConfiguration, ThreadFactory)}).
+     *
+     * <p>If any device fails to open, the ones already opened are closed again before the exception is thrown.
+     *
+     * @param configurations The MIDI configurations of the devices to manage. Must not be null.
+     * @param threadFactory The factory used to create the dedicated threads of each device. Must not be null.
+     * @throws MidiUnavailableException If a device cannot be opened.
+     */
+    public LaunchpadManager(List<MidiDeviceConfiguration> configurations, ThreadFactory threadFactory) throws MidiUnavailableException {
+        if (configurations == null) {
+            throw new IllegalArgumentException("Configurations must not be null.");
+        }
+        if (threadFactory == null) {
+            throw new IllegalArgumentException("Thread factory must not be null.");
+        }
+        this.launchpads = Collections.unmodifiableList(openAll(configurations, threadFactory));
+    }
+
+    /**
+     * Returns the managed Launchpads, in discovery order.
+     *
+     * @return The managed Launchpads (unmodifiable).
+     */
+    public List<MidiLaunchpad> getLaunchpads() {
+        return launchpads;
+    }
+
+    /**
+     * Returns the number of managed Launchpads.
+     *
+     * @return The number of managed Launchpads.
+     */
+    public int size() {
+        return launchpads.size();
+    }
+
+    /**
+     * Returns the total number of messages sent to all the devices so far.
+     *
+     * @return The number of sent messages.
+     */
+    public long getSentMessages() {
+        long total = 0;
+        for (MidiLaunchpad launchpad : launchpads) {
+            MidiOutputWriter outputWriter = launchpad.getOutputWriter();
+            if (outputWriter != null) {
+                total += outputWriter.getSentMessages();
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Returns the total number of messages waiting to be sent to the devices.
+     *
+     * @return The number of pending messages.
+     */
+    public long getPendingMessages() {
+        long total = 0;
+        for (MidiLaunchpad launchpad : launchpads) {
+            MidiOutputWriter outputWriter = launchpad.getOutputWriter();
+            if (outputWriter != null) {
+                total += outputWriter.getPendingMessages();
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Returns the total number of messages received from all the devices so far.
+     *
+     * @return The number of received messages.
+     */
+    public long getReceivedMessages() {
+        long total = 0;
+        for (MidiLaunchpad launchpad : launchpads) {
+            MidiInputDispatcher inputDispatcher = launchpad.getInputDispatcher();
+            if (inputDispatcher != null) {
+                total += inputDispatcher.getReceivedMessages();
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Closes all the managed Launchpads.
+     *
+     * @throws IOException If at least one Launchpad could not be closed properly.
+     */
+    @Override
+    public void close() throws IOException {
+        IOException failure = closeAll(launchpads);
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /*
+    ================================================================================
+    Utils
+    ================================================================================
+    */
+
+    /**
+     * Opens the given devices in parallel.
+     *
+     * @param configurations The MIDI configurations of the devices to open.
+     * @param threadFactory The factory used to create the dedicated threads, or {@code null} for the default ones.
+     * @return The opened Launchpads, in the same order as their configurations.
+     * @throws MidiUnavailableException If a device cannot be opened.
+     */
+    private static List<MidiLaunchpad> openAll(List<MidiDeviceConfiguration> configurations, final ThreadFactory threadFactory) throws MidiUnavailableException {
+        List<MidiLaunchpad> opened = new ArrayList<MidiLaunchpad>(configurations.size());
+        if (configurations.isEmpty()) {
+            return opened;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(configurations.size(), new NamedThreadFactory("lp4j-open"));
+        try {
+            List<Future<MidiLaunchpad>> futures = new ArrayList<Future<MidiLaunchpad>>(configurations.size());
+            for (final MidiDeviceConfiguration configuration : configurations) {
+                futures.add(executor.submit(new Callable<MidiLaunchpad>() {
+                    @Override
+                    public MidiLaunchpad call() throws MidiUnavailableException {
+                        return threadFactory == null ? new MidiLaunchpad(configuration, true) : new MidiLaunchpad(configuration, threadFactory);
+                    }
+                }));
+            }
+
+            Throwable failure = null;
+            for (Future<MidiLaunchpad> future : futures) {
+                try {
+                    opened.add(future.get());
+                } catch (ExecutionException e) {
+                    failure = e.getCause();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    failure = e;
+                }
+            }
+
+            if (failure != null) {
+                closeAll(opened);
+                if (failure instanceof MidiUnavailableException) {
+                    throw (MidiUnavailableException) failure;
+                }
+                throw new LaunchpadException("Unable to open all the Launchpads.", failure);
+            }
+            return opened;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Closes the given Launchpads, even if some of them fail to close.
+     *
+     * @param launchpads The Launchpads to close.
+     * @return The last failure encountered, or {@code null} if all Launchpads were successfully closed.
+     */
+    private static IOException closeAll(List<MidiLaunchpad> launchpads) {
+        IOException failure = null;
+        for (MidiLaunchpad launchpad : launchpads) {
+            try {
+                launchpad.close();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        return failure;
+    }
+
+}
@@ -17,8 +17,9 @@
 package net.thecodersbreakfast.lp4j.midi;
 
 import javax.sound.midi.MidiDevice;
-import javax.sound.midi.MidiSystem;
 import javax.sound.midi.MidiUnavailableException;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Configuration for MIDI I/O.
@@ -33,7 +34,7 @@ import javax.sound.midi.MidiUnavailableException;
  */
 public class MidiDeviceConfiguration {
 
-    /** Device signature of a Launchpad S, used for autodetection. */
+    /** Device signature of a Launchpad S, used for autodetection (see {@link MidiDeviceDiscovery}). */
     public static final String DEVICE_SIGNATURE = "Launchpad S";
 
     /** Inbound communication channel. */
@@ -44,13 +45,30 @@ public class MidiDeviceConfiguration {
     /**
      * Tries to auto-detect a MIDI Launchpad based on its device signature.
      *
+     * <p>Discovery results are cached (see {@link MidiDeviceDiscovery#getDefault()}).
+     *
      * @return The auto-detected configuration.
      * @throws MidiUnavailableException If an error occurs during device probing.
      */
     public static MidiDeviceConfiguration autodetect() throws MidiUnavailableException {
-        MidiDevice inputDevice = autodetectInputDevice();
-        MidiDevice outputDevice = autodetectOutputDevice();
-        return new MidiDeviceConfiguration(inputDevice, outputDevice);
+        List<MidiDeviceConfiguration> configurations = MidiDeviceDiscovery.getDefault().getConfigurations();
+        if (configurations.isEmpty()) {
+            return new MidiDeviceConfiguration(null, null);
+        }
+        return configurations.get(0);
+    }
+
+    /**
+     * Tries to auto-detect all the MIDI Launchpads connected to the system, based on their device signature.
+     *
+     * <p>Inbound and outbound channels of the same physical device are paired together. Discovery results are cached
+     * (see {@link MidiDeviceDiscovery#getDefault()}).
+     *
+     * @return The auto-detected configurations, one per device. May be empty, but never null.
+     * @throws MidiUnavailableException If an error occurs during device probing.
+     */
+    public static List<MidiDeviceConfiguration> autodetectAll() throws MidiUnavailableException {
+        return new ArrayList<MidiDeviceConfiguration>(MidiDeviceDiscovery.getDefault().getConfigurations());
     }
 
     /**
@@ -84,19 +102,15 @@ public class MidiDeviceConfiguration {
 
     /**
      * Tries to detect a valid outbound communication channel, based on a known device signature
-     * (see {@link net.thecodersbreakfast.lp4j.midi.MidiDeviceConfiguration#DEVICE_SIGNATURE}).
+     * (see {@link MidiDeviceDiscovery#DEFAULT_SIGNATURES}).
      *
      * @return A valid outbound communication channel, or {@code null} if non was found.
      * @throws MidiUnavailableException if the requested device is not available due to resource restrictions
      */
     public static MidiDevice autodetectOutputDevice() throws MidiUnavailableException {
-        MidiDevice.Info[] midiDeviceInfo = MidiSystem.getMidiDeviceInfo();
-        for (MidiDevice.Info info : midiDeviceInfo) {
-            if (info.getDescription().contains(DEVICE_SIGNATURE) || info.getName().contains(DEVICE_SIGNATURE)) {
-                MidiDevice device = MidiSystem.getMidiDevice(info);
-                if (device.getMaxReceivers() == -1) {
-                    return device;
-                }
+        for (MidiDeviceConfiguration configuration : MidiDeviceDiscovery.getDefault().getConfigurations()) {
+            if (configuration.getOutputDevice() != null) {
+                return configuration.getOutputDevice();
             }
         }
         return null;
@@ -104,20 +118,15 @@ public class MidiDeviceConfiguration {
 
     /**
      * Tries to detect a valid inbound communication channel, based on a known device signature
-     * (see {@link net.thecodersbreakfast.lp4j.midi.MidiDeviceConfiguration#DEVICE_SIGNATURE}).
+     * (see {@link MidiDeviceDiscovery#DEFAULT_SIGNATURES}).
      *
-     * @return A valid outbound communication channel, or {@code null} if non was found.
+     * @return A valid inbound communication channel, or {@code null} if non was found.
      * @throws MidiUnavailableException if the requested device is not available due to resource restrictions
      */
     public static MidiDevice autodetectInputDevice() throws MidiUnavailableException {
-        MidiDevice.Info[] midiDeviceInfo = MidiSystem.getMidiDeviceInfo();
-        for (MidiDevice.Info info : midiDeviceInfo) {
-            if (info.getDescription().contains(DEVICE_SIGNATURE) || info.getName().contains(DEVICE_SIGNATURE)) {
-                MidiDevice device = MidiSystem.getMidiDevice(info);
-                if (device.getMaxTransmitters() == -1) {
-                    return device;
-                }
-                device.close();
+        for (MidiDeviceConfiguration configuration : MidiDeviceDiscovery.getDefault().getConfigurations()) {
+            if (configuration.getInputDevice() != null) {
+                return configuration.getInputDevice();
             }
         }
         return null;
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2015 Olivier Croisier (thecodersbreakfast.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.thecodersbreakfast.lp4j.midi;
+
+import javax.sound.midi.MidiDevice;
+import javax.sound.midi.MidiSystem;
+import javax.sound.midi.MidiUnavailableException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Discovers the Launchpads connected to the system.
+ *
+ * <p>The MIDI devices are enumerated once, and only those matching one of the configured device signatures are
+ * probed. Inbound and outbound channels belonging to the same physical unit (ie. sharing the same device name) are
+ * paired together ; remaining channels are paired in the order they are listed by the MIDI system.
+ *
+ * <p>Results are cached until {@link #refresh()} is called, since enumerating MIDI ports can be slow on systems with
+ * many of them.
+ *
+ * @author Olivier Croisier (olivier.croisier@gmail.com)
+ */
+public class MidiDeviceDiscovery {
+
+    /** Signatures of the devices speaking the Launchpad S protocol, used by default. */
+    public static final String[] DEFAULT_SIGNATURES = {MidiDeviceConfiguration.DEVICE_SIGNATURE, "Launchpad Mini"};
+
+    /** Shared discovery instance, using the default signatures. */
+    private static final MidiDeviceDiscovery DEFAULT = new MidiDeviceDiscovery(DEFAULT_SIGNATURES);
+
+    /** Device signatures to look for. */
+    private final String[] signatures;
+    /** Cached discovery results, or {@code null} if no discovery has been performed yet. */
+    private volatile List<MidiDeviceConfiguration> configurations;
+
+    /**
+     * Returns the shared discovery instance, using the default signatures.
+     *
+     * @return The shared discovery instance.
+     */
+    public static MidiDeviceDiscovery getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param signatures The device signatures to look for, in device names or descriptions. Must not be empty.
+     */
+    public MidiDeviceDiscovery(String... signatures) {
+        if (signatures == null || signatures.length == 0) {
+            throw new IllegalArgumentException("At least one device signature is required.");
+        }
+        this.signatures = signatures.clone();
+    }
+
+    /**
+     * Returns the discovered Launchpads, performing the discovery only if it has not been done yet.
+     *
+     * @return The MIDI configurations of the discovered Launchpads (unmodifiable, may be empty).
+     * @throws MidiUnavailableException If an error occurs during device probing.
+     */
+    public List<MidiDeviceConfiguration> getConfigurations() throws MidiUnavailableException {
+        List<MidiDeviceConfiguration> cached = configurations;
+        if (cached == null) {
+            cached = refresh();
+        }
+        return cached;
+    }
+
+    /**
+     * Enumerates the MIDI devices again, and updates the cache.
+     *
+     * @return The MIDI configurations of the discovered Launchpads (unmodifiable, may be empty).
+     * @throws MidiUnavailableException If an error occurs during device probing.
+     */
+    public synchronized List<MidiDeviceConfiguration> refresh() throws MidiUnavailableException {
+        List<MidiDeviceConfiguration> discovered = Collections.unmodifiableList(discover(listDeviceInfo()));
+        configurations = discovered;
+        return discovered;
+    }
+
+    /**
+     * Tells if the given device matches one of the configured signatures.
+     *
+     * @param info The device description.
+     * @return {@code true} if the device looks like a Launchpad.
+     */
+    public boolean matches(MidiDevice.Info info) {
+        for (String signature : signatures) {
+            if (info.getDescription().contains(signature) || info.getName().contains(signature)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the devices known to the MIDI system.
+     *
+     * @return The devices known to the MIDI system.
+     */
+    protected MidiDevice.Info[] listDeviceInfo() {
+        return MidiSystem.getMidiDeviceInfo();
+    }
+
+    /**
+     * Obtains the device corresponding to the given description. The device is not opened.
+     *
+     * @param info The device description.
+     * @return The device.
+     * @throws MidiUnavailableException If the device is not available.
+     */
+    protected MidiDevice getDevice(MidiDevice.Info info) throws MidiUnavailableException {
+        return MidiSystem.getMidiDevice(info);
+    }
+
+    /*
+    ================================================================================
+    Utils
+    ================================================================================
+    */
+
+    /**
+     * Probes the matching devices, and pairs their inbound and outbound channels.
+     */
+    private List<MidiDeviceConfiguration> discover(MidiDevice.Info[] midiDeviceInfo) throws MidiUnavailableException {
+        Map<String, List<MidiDevice>> inputsByName = new LinkedHashMap<String, List<MidiDevice>>();
+        Map<String, List<MidiDevice>> outputsByName = new LinkedHashMap<String, List<MidiDevice>>();
+        for (MidiDevice.Info info : midiDeviceInfo) {
+            if (!matches(info)) {
+                continue;
+            }
+            MidiDevice device = getDevice(info);
+            if (device.getMaxReceivers() == -1) {
+                add(outputsByName, info.getName(), device);
+            } else if (device.getMaxTransmitters() == -1) {
+                add(inputsByName, info.getName(), device);
+            }
+        }
+
+        List<MidiDeviceConfiguration> discovered = new ArrayList<MidiDeviceConfiguration>();
+        List<MidiDevice> unpairedInputs = new ArrayList<MidiDevice>();
+        List<MidiDevice> unpairedOutputs = new ArrayList<MidiDevice>();
+
+        // Channels sharing the same name belong to the same physical unit
+        for (Map.Entry<String, List<MidiDevice>> entry : outputsByName.entrySet()) {
+            Iterator<MidiDevice> outputs = entry.getValue().iterator();
+            List<MidiDevice> inputs = inputsByName.remove(entry.getKey());
+            Iterator<MidiDevice> inputsIterator = inputs == null ? Collections.<MidiDevice>emptyList().iterator() : inputs.iterator();
+            while (outputs.hasNext() && inputsIterator.hasNext()) {
+                discovered.add(new MidiDeviceConfiguration(inputsIterator.next(), outputs.next()));
+            }
+            while (outputs.hasNext()) {
+                unpairedOutputs.add(outputs.next());
+            }
+            while (inputsIterator.hasNext()) {
+                unpairedInputs.add(inputsIterator.next());
+            }
+        }
+        for (List<MidiDevice> inputs : inputsByName.values()) {
+            unpairedInputs.addAll(inputs);
+        }
+
+        // Remaining channels are paired in enumeration order
+        int nbUnpaired = Math.max(unpairedInputs.size(), unpairedOutputs.size());
+        for (int i = 0; i < nbUnpaired; i++) {
+            MidiDevice inputDevice = i < unpairedInputs.size() ? unpairedInputs.get(i) : null;
+            MidiDevice outputDevice = i < unpairedOutputs.size() ? unpairedOutputs.get(i) : null;
+            discovered.add(new MidiDeviceConfiguration(inputDevice, outputDevice));
+        }
+        return discovered;
+    }
+
+    private static void add(Map<String, List<MidiDevice>> devicesByName, String name, MidiDevice device) {
+        List<MidiDevice> devices = devicesByName.get(name);
+        if (devices == null) {
+            devices = new ArrayList<MidiDevice>();
+            devicesByName.put(name, devices);
+        }
+        devices.add(device);
+    }
+
+}
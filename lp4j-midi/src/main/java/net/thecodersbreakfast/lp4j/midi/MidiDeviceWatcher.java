@@ -0,0 +1,207 @@
+/*
+ * Copyright 2015 Olivier Croisier (thecodersbreakfast.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.thecodersbreakfast.lp4j.midi;
+
+import javax.sound.midi.MidiDevice;
+import javax.sound.midi.MidiSystem;
+import javax.sound.midi.MidiUnavailableException;
+import java.io.Closeable;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches the MIDI devices of a {@link MidiLaunchpad} from a background thread, to detect when they are unplugged and
+ * to reconnect them automatically when they come back.
+ *
+ * <p>Each poll only compares the list of MIDI devices known to the system with the devices in use, or with the list
+ * seen by the previous poll, which is cheap. Devices are only probed when that list has changed and lists a device
+ * with the same name and description (which include the port on the usual MIDI providers) as the original unit. Units
+ * already driven by another {@link MidiLaunchpad} (or any other application) are skipped, so that several watched
+ * Launchpads each get back their own unit. The display is then restored from its last known state, so it recovers
+ * within one polling interval (plus the time needed to reopen the devices).
+ *
+ * <p>Hot-plug detection depends on the platform's MIDI provider refreshing its device list while the JVM is running.
+ *
+ * @author Olivier Croisier (olivier.croisier@gmail.com)
+ */
+public class MidiDeviceWatcher implements Closeable {
+
+    /** Default polling interval, in milliseconds. */
+    public static final long DEFAULT_POLL_INTERVAL = 1000;
+
+    /** The watched Launchpad. */
+    private final MidiLaunchpad launchpad;
+    /** Polling interval, in milliseconds. */
+    private final long pollInterval;
+    /** The polling thread. */
+    private final ScheduledExecutorService scheduler;
+    /** Identity of the original output device, or {@code null} if none. */
+    private final String outputIdentity;
+    /** Identity of the original input device, or {@code null} if none. */
+    private final String inputIdentity;
+    /** Identities of the devices listed by the last successful poll. */
+    private String[] lastIdentities = new String[0];
+
+    /**
+     * Constructor, with the default polling interval.
+     *
+     * @param launchpad The Launchpad to watch. Must not be null.
+     */
+    public MidiDeviceWatcher(MidiLaunchpad launchpad) {
+        this(launchpad, DEFAULT_POLL_INTERVAL);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param launchpad The Launchpad to watch. Must not be null.
+     * @param pollInterval Polling interval, in milliseconds. Must be positive.
+     */
+    public MidiDeviceWatcher(MidiLaunchpad launchpad, long pollInterval) {
+        if (launchpad == null) {
+            throw new IllegalArgumentException("Launchpad must not be null.");
+        }
+        if (pollInterval <= 0) {
+            throw new IllegalArgumentException("Invalid polling interval : " + pollInterval + ". Value must be positive.");
+        }
+        this.launchpad = launchpad;
+        this.pollInterval = pollInterval;
+        MidiDeviceConfiguration configuration = launchpad.getConfiguration();
+        this.outputIdentity = identity(configuration.getOutputDevice());
+        this.inputIdentity = identity(configuration.getInputDevice());
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("lp4j-watcher"));
+    }
+
+    /**
+     * Starts watching the devices.
+     */
+    public void start() {
+        scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    poll(MidiSystem.getMidiDeviceInfo());
+                } catch (Exception e) {
+                    // Keep polling : the device may still be settling down after being plugged in.
+                }
+            }
+        }, pollInterval, pollInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops watching the devices.
+     */
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Compares the devices currently known to the system with the Launchpad's state, and disconnects or reconnects it
+     * accordingly.
+     *
+     * @param midiDeviceInfo The devices currently known to the system.
+     * @throws MidiUnavailableException If the Launchpad cannot be reconnected.
+     */
+    void poll(MidiDevice.Info[] midiDeviceInfo) throws MidiUnavailableException {
+        String[] identities = new String[midiDeviceInfo.length];
+        for (int i = 0; i < midiDeviceInfo.length; i++) {
+            identities[i] = identity(midiDeviceInfo[i]);
+        }
+        if (launchpad.isConnected()) {
+            MidiDeviceConfiguration configuration = launchpad.getConfiguration();
+            if (!isListed(configuration.getOutputDevice(), midiDeviceInfo) || !isListed(configuration.getInputDevice(), midiDeviceInfo)) {
+                launchpad.disconnect();
+            }
+        } else if (!Arrays.equals(identities, lastIdentities) && hasOriginalIdentity(identities)) {
+            MidiDeviceConfiguration configuration = rediscover();
+            if (configuration != null) {
+                launchpad.reconnect(configuration);
+            }
+        }
+        lastIdentities = identities;
+    }
+
+    /**
+     * Probes the system for Launchpads, once a device looking like the original unit has been listed.
+     *
+     * @return The MIDI configurations of the discovered Launchpads.
+     * @throws MidiUnavailableException If an error occurs during device probing.
+     */
+    protected List<MidiDeviceConfiguration> discover() throws MidiUnavailableException {
+        return MidiDeviceDiscovery.getDefault().refresh();
+    }
+
+    /**
+     * Finds the original unit among the discovered Launchpads.
+     *
+     * @return The MIDI configuration to reconnect to, or {@code null} if the original unit is not available.
+     */
+    private MidiDeviceConfiguration rediscover() throws MidiUnavailableException {
+        for (MidiDeviceConfiguration configuration : discover()) {
+            if (isOriginalUnit(configuration.getOutputDevice(), outputIdentity)
+                    && isOriginalUnit(configuration.getInputDevice(), inputIdentity)) {
+                return configuration;
+            }
+        }
+        return null;
+    }
+
+    private boolean isListed(MidiDevice device, MidiDevice.Info[] midiDeviceInfo) {
+        if (device == null) {
+            return true;
+        }
+        MidiDevice.Info deviceInfo = device.getDeviceInfo();
+        for (MidiDevice.Info info : midiDeviceInfo) {
+            if (info.equals(deviceInfo)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean hasOriginalIdentity(String[] identities) {
+        for (String identity : identities) {
+            if (identity.equals(outputIdentity) || identity.equals(inputIdentity)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Tells if the given device is a free channel of the original unit.
+     */
+    private static boolean isOriginalUnit(MidiDevice device, String originalIdentity) {
+        if (originalIdentity == null) {
+            return true;
+        }
+        return device != null && !device.isOpen() && originalIdentity.equals(identity(device.getDeviceInfo()));
+    }
+
+    private static String identity(MidiDevice device) {
+        return device == null ? null : identity(device.getDeviceInfo());
+    }
+
+    private static String identity(MidiDevice.Info info) {
+        return info.getName() + "\n" + info.getDescription();
+    }
+
+}
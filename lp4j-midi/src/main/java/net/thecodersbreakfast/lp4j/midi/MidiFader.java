@@ -0,0 +1,197 @@
+/*
+ * Copyright 2015 Olivier Croisier (thecodersbreakfast.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.thecodersbreakfast.lp4j.midi;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Fades the whole display of a Launchpad in or out, by animating the duty cycle of its LEDs.
+ *
+ * <p>Each step of a fade is a single control change, instead of a repaint of the 80 lights. Steps follow a geometric
+ * progression of the duty cycle, which the eye perceives as a steady fade, and are spread evenly over the requested
+ * duration : at most one step every {@link #MIN_STEP_INTERVAL} milliseconds, and never more than the number of distinct
+ * duty cycles between both ends.
+ *
+ * <p>Fades run on a background thread, one at a time : starting a fade cancels the previous one. Since every step,
+ * including the initial one, is sent from that thread, a new fade never interleaves with the last steps of the previous
+ * one.
+ *
+ * @author Olivier Croisier (olivier.croisier@gmail.com)
+ */
+public class MidiFader implements Closeable {
+
+    /** Minimum time between two steps of a fade, in milliseconds. */
+    public static final long MIN_STEP_INTERVAL = 10;
+
+    /** The faded Launchpad. */
+    private final MidiLaunchpadClient client;
+    /** The fading thread. */
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(new NamedThreadFactory("lp4j-fader"));
+    /** The running fade, if any. */
+    private Future<?> currentFade;
+
+    /**
+     * Constructor.
+     *
+     * @param client The client of the Launchpad to fade. Must not be null.
+     */
+    public MidiFader(MidiLaunchpadClient client) {
+        if (client == null) {
+            throw new IllegalArgumentException("Client must not be null.");
+        }
+        this.client = client;
+    }
+
+    /**
+     * Fades the display in, from the dimmest duty cycle to the given one.
+     *
+     * @param to The final duty cycle. Must not be null.
+     * @param duration The duration of the fade.
+     * @param unit The unit of the duration. Must not be null.
+     * @return A Future completing when the fade is over.
+     */
+    public Future<?> fadeIn(DutyCycle to, long duration, TimeUnit unit) {
+        return fade(DutyCycle.MIN, to, duration, unit);
+    }
+
+    /**
+     * Fades the display out, from the given duty cycle to the dimmest one.
+     *
+     * @param from The initial duty cycle. Must not be null.
+     * @param duration The duration of the fade.
+     * @param unit The unit of the duration. Must not be null.
+     * @return A Future completing when the fade is over.
+     */
+    public Future<?> fadeOut(DutyCycle from, long duration, TimeUnit unit) {
+        return fade(from, DutyCycle.MIN, duration, unit);
+    }
+
+    /**
+     * Fades the display from a duty cycle to another. The initial duty cycle is applied as soon as the previous fade, if
+     * any, has stopped.
+     *
+     * @param from The initial duty cycle. Must not be null.
+     * @param to The final duty cycle. Must not be null.
+     * @param duration The duration of the fade. Must not be negative.
+     * @param unit The unit of the duration. Must not be null.
+     * @return A Future completing when the fade is over.
+     */
+    public synchronized Future<?> fade(final DutyCycle from, final DutyCycle to, long duration, TimeUnit unit) {
+        if (from == null || to == null) {
+            throw new IllegalArgumentException("Duty cycle must not be null.");
+        }
+        if (unit == null) {
+            throw new IllegalArgumentException("Time unit must not be null.");
+        }
+        if (duration < 0) {
+            throw new IllegalArgumentException("Invalid duration : " + duration + ". Value must not be negative.");
+        }
+        cancel();
+
+        long durationMillis = unit.toMillis(duration);
+        final List<DutyCycle> steps = steps(from, to, (int) Math.min(Integer.MAX_VALUE, durationMillis / MIN_STEP_INTERVAL));
+        final long stepInterval = steps.isEmpty() ? 0 : TimeUnit.MILLISECONDS.toNanos(durationMillis) / steps.size();
+        currentFade = executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+                client.setDutyCycle(from);
+                long deadline = System.nanoTime();
+                for (DutyCycle step : steps) {
+                    deadline += stepInterval;
+                    long delay;
+                    while ((delay = deadline - System.nanoTime()) > 0) {
+                        LockSupport.parkNanos(delay);
+                    }
+                    if (Thread.currentThread().isInterrupted()) {
+                        return;
+                    }
+                    client.setDutyCycle(step);
+                }
+            }
+        });
+        return currentFade;
+    }
+
+    /**
+     * Stops the running fade, if any. The display keeps the duty cycle of the last completed step.
+     */
+    public synchronized void cancel() {
+        if (currentFade != null) {
+            currentFade.cancel(true);
+            currentFade = null;
+        }
+    }
+
+    /**
+     * Stops the running fade, and the fading thread.
+     */
+    @Override
+    public void close() {
+        cancel();
+        executor.shutdownNow();
+    }
+
+    /*
+    ================================================================================
+    Utils
+    ================================================================================
+    */
+
+    /**
+     * Computes the duty cycles of a fade, following a geometric progression of the ratio. The initial duty cycle is not
+     * included, the final one always is (unless both are the same). Consecutive steps always differ.
+     *
+     * @param from The initial duty cycle.
+     * @param to The final duty cycle.
+     * @param maxSteps The maximum number of steps.
+     * @return The successive duty cycles.
+     */
+    static List<DutyCycle> steps(DutyCycle from, DutyCycle to, int maxSteps) {
+        List<DutyCycle> steps = new ArrayList<DutyCycle>();
+        List<DutyCycle> ladder = DutyCycle.ladder();
+        int distance = Math.abs(ladder.indexOf(DutyCycle.closest(to.getRatio())) - ladder.indexOf(DutyCycle.closest(from.getRatio())));
+        int nbSteps = Math.min(maxSteps, distance);
+        DutyCycle previous = from;
+        for (int i = 1; i < nbSteps; i++) {
+            double ratio = from.getRatio() * Math.pow(to.getRatio() / from.getRatio(), (double) i / nbSteps);
+            DutyCycle step = DutyCycle.closest(ratio);
+            if (!sameRatio(step, previous)) {
+                steps.add(step);
+                previous = step;
+            }
+        }
+        if (!to.equals(previous)) {
+            steps.add(to);
+        }
+        return steps;
+    }
+
+    private static boolean sameRatio(DutyCycle a, DutyCycle b) {
+        return a.getNumerator() * b.getDenominator() == b.getNumerator() * a.getDenominator();
+    }
+
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2015 Olivier Croisier (thecodersbreakfast.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.thecodersbreakfast.lp4j.midi;
+
+import javax.sound.midi.MidiMessage;
+import javax.sound.midi.Receiver;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A MIDI Receiver that hands the messages sent by the Launchpad over to a dedicated dispatcher thread, which then
+ * forwards them to the actual (listener-side) Receiver.
+ *
+ * <p>This way, a slow listener never blocks the MIDI transmitter thread, while events are still delivered one at a time
+ * and in order.
+ *
+ * @author Olivier Croisier (olivier.croisier@gmail.com)
+ */
+public class MidiInputDispatcher implements Receiver {
+
+    /** The single-threaded executor delivering the messages. */
+    private final ScheduledExecutorService executor;
+    /** Number of messages received from the device. */
+    private final AtomicLong receivedMessages = new AtomicLong();
+    /** The Receiver to which messages are forwarded. */
+    private volatile Receiver receiver;
+
+    /**
+     * Constructor.
+     *
+     * @param threadFactory The factory used to create the dispatcher thread. Must not be null.
+     */
+    public MidiInputDispatcher(ThreadFactory threadFactory) {
+        if (threadFactory == null) {
+            throw new IllegalArgumentException("Thread factory must not be null.");
+        }
+        this.executor = Executors.newSingleThreadScheduledExecutor(threadFactory);
+    }
+
+    /**
+     * Sets the Receiver to which messages are forwarded.
+     *
+     * @param receiver The Receiver, or {@code null} to discard incoming messages.
+     */
+    public void setReceiver(Receiver receiver) {
+        this.receiver = receiver;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * THIS METHOD SHOULD ONLY BE CALLED BY THE LAUNCHPAD DEVICE.
+     */
+    @Override
+    public void send(final MidiMessage message, final long timestamp) {
+        receivedMessages.incrementAndGet();
+        final Receiver target = this.receiver;
+        if (target == null) {
+            return;
+        }
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    target.send(message, timestamp);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // The dispatcher has been closed : the message is dropped.
+        }
+    }
+
+    /**
+     * Stops the dispatcher thread.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    /**
+     * Returns the executor of the dispatcher thread, so that delayed events (see
+     * {@link net.thecodersbreakfast.lp4j.midi.protocol.DebouncingMidiProtocolListener}) are delivered on that same
+     * thread.
+     *
+     * @return The executor.
+     */
+    ScheduledExecutorService getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Returns the number of messages received from the device so far.
+     *
+     * @return The number of received messages.
+     */
+    public long getReceivedMessages() {
+        return receivedMessages.get();
+    }
+
+}
@@ -16,39 +16,89 @@
 
 package net.thecodersbreakfast.lp4j.midi;
 
+import net.thecodersbreakfast.lp4j.api.Button;
+import net.thecodersbreakfast.lp4j.api.InputState;
 import net.thecodersbreakfast.lp4j.api.Launchpad;
 import net.thecodersbreakfast.lp4j.api.LaunchpadClient;
 import net.thecodersbreakfast.lp4j.api.LaunchpadException;
 import net.thecodersbreakfast.lp4j.api.LaunchpadListener;
+import net.thecodersbreakfast.lp4j.api.LedCommand;
+import net.thecodersbreakfast.lp4j.api.LedCommandSubscriber;
+import net.thecodersbreakfast.lp4j.api.Pad;
+import net.thecodersbreakfast.lp4j.api.Priority;
+import net.thecodersbreakfast.lp4j.midi.protocol.DebouncingMidiProtocolListener;
 import net.thecodersbreakfast.lp4j.midi.protocol.DefaultMidiProtocolClient;
 import net.thecodersbreakfast.lp4j.midi.protocol.DefaultMidiProtocolListener;
 import net.thecodersbreakfast.lp4j.midi.protocol.DefaultMidiProtocolReceiver;
 import net.thecodersbreakfast.lp4j.midi.protocol.MidiProtocolListener;
+import net.thecodersbreakfast.lp4j.midi.protocol.MidiUnitReceiver;
 
+import javax.sound.midi.InvalidMidiDataException;
 import javax.sound.midi.MidiDevice;
+import javax.sound.midi.MidiMessage;
 import javax.sound.midi.MidiUnavailableException;
 import javax.sound.midi.Receiver;
 import javax.sound.midi.Transmitter;
 import java.io.IOException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
 
 /**
  * Represents a physical MIDI Launchpad device.
  *
+ * <p>The state of the display is tracked (see {@link MidiShadowState}), so that if the device is unplugged and then
+ * reconnected (see {@link #reconnect(MidiDeviceConfiguration)} and {@link MidiDeviceWatcher}), its display is restored
+ * and existing clients and listeners keep working.
+ *
  * @author Olivier Croisier (olivier.croisier@gmail.com)
  */
 public class MidiLaunchpad implements Launchpad {
 
+    /**
+     * Guards the connection and the listener configuration. A {@link ReentrantLock} is used rather than
+     * {@code synchronized}, so that virtual threads replaying the display state upon reconnection do not pin their
+     * carrier thread.
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+    /** The Launchpad's output channel (LP4J -> Device), shared by all the clients. */
+    private final OutputReceiver receiver = new OutputReceiver();
     /** The Launchpad's input channel (Device -> LP4J). */
-    private final Receiver receiver;
-    /** The Launchpad's output channel (LP4J -> Device). */
-    private final Transmitter transmitter;
+    private Transmitter transmitter;
     /** The MIDI configuration holder. */
-    private MidiDeviceConfiguration configuration;
+    private volatile MidiDeviceConfiguration configuration;
 
+    /** Indicates that an output channel was initially configured. */
+    private final boolean outputConfigured;
+    /** Indicates that an input channel was initially configured. */
+    private final boolean inputConfigured;
     /** Indicates that the output channel has been successfully opened. */
     private boolean openedOutputDevice = false;
     /** Indicates that the input channel has been successfully opened. */
     private boolean openedInputDevice = false;
+    /** Indicates that the devices are currently connected. */
+    private volatile boolean connected = false;
+
+    /** Factory of the dedicated output writer threads, or {@code null} to send messages synchronously. */
+    private final ThreadFactory outputThreadFactory;
+    /** Dedicated output writer, if any. */
+    private volatile MidiOutputWriter outputWriter;
+    /** Paces the dedicated output writer, if any. Kept across reconnections. */
+    private MidiRateController rateController;
+    /** Dedicated input dispatcher, if any. */
+    private final MidiInputDispatcher inputDispatcher;
+    /** The Receiver the transmitter delivers events to. */
+    private Receiver inputReceiver;
+    /** The high-level listener to notify, if any. */
+    private LaunchpadListener listener;
+    /** The pads and buttons currently held down. */
+    private final InputState inputState = new InputState();
+    /** Minimal delay between two state changes of the same pad or button, in microseconds (0 to disable). */
+    private long debounceTime = 0;
+    /** The debouncing filter of the current listener, if any. */
+    private DebouncingMidiProtocolListener debouncer;
 
     /**
      * Constructor.
@@ -57,72 +107,625 @@ public class MidiLaunchpad implements Launchpad {
      * @throws MidiUnavailableException If the input or output channels cannot be opened.
      */
     public MidiLaunchpad(MidiDeviceConfiguration configuration) throws MidiUnavailableException {
+        this(configuration, false);
+    }
+
+    /**
+     * Constructor.
+     *
+     * <p>With dedicated threads, commands are queued and sent to the device by an {@link MidiOutputWriter}, and events
+     * are delivered to the listener by an {@link MidiInputDispatcher}, so that neither the application nor the MIDI
+     * transmitter thread is ever blocked by the other side.
+     *
+     * @param configuration The MIDI configuration to use. Must not be null.
+     * @param dedicatedThreads Whether this Launchpad should get its own output writer and input dispatcher threads.
+     * @throws MidiUnavailableException If the input or output channels cannot be opened.
+     */
+    public MidiLaunchpad(MidiDeviceConfiguration configuration, boolean dedicatedThreads) throws MidiUnavailableException {
+        this(configuration,
+                dedicatedThreads ? ThreadFactories.platform("lp4j-input") : null,
+                dedicatedThreads ? ThreadFactories.platform("lp4j-output") : null);
+    }
+
+    /**
+     * Constructor, with dedicated output writer and input dispatcher threads created by the given factory (see
+     * {@link #MidiLaunchpad(MidiDeviceConfiguration, boolean)}).
+     *
+     * <p>Use {@link ThreadFactories#virtualOrPlatform(String)} to run them on virtual threads when available, so that
+     * applications driving many devices do not tie up platform threads.
+     *
+     * @param configuration The MIDI configuration to use. Must not be null.
+     * @param threadFactory The factory used to create the dedicated threads. Must not be null.
+     * @throws MidiUnavailableException If the input or output channels cannot be opened.
+     */
+    public MidiLaunchpad(MidiDeviceConfiguration configuration, ThreadFactory threadFactory) throws MidiUnavailableException {
+        this(configuration, checkThreadFactory(threadFactory), threadFactory);
+    }
+
+    private MidiLaunchpad(MidiDeviceConfiguration configuration, ThreadFactory inputThreadFactory, ThreadFactory outputThreadFactory) throws MidiUnavailableException {
         if (configuration == null) {
             throw new IllegalArgumentException("Configuration must not be null");
         }
-        this.configuration = configuration;
-
-        MidiDevice outputDevice = configuration.getOutputDevice();
-        if (outputDevice != null) {
-            if (!outputDevice.isOpen()) {
-                outputDevice.open();
-            }
-            openedOutputDevice = true;
-            this.receiver = outputDevice.getReceiver();
+        this.outputThreadFactory = outputThreadFactory;
+        this.outputConfigured = configuration.getOutputDevice() != null;
+        this.inputConfigured = configuration.getInputDevice() != null;
+        if (inputThreadFactory != null && inputConfigured) {
+            this.inputDispatcher = new MidiInputDispatcher(inputThreadFactory);
+            this.inputReceiver = inputDispatcher;
         } else {
-            this.receiver = null;
+            this.inputDispatcher = null;
         }
-
-        MidiDevice inputDevice = configuration.getInputDevice();
-        if (inputDevice != null) {
-            if (!inputDevice.isOpen()) {
-                inputDevice.open();
+        if (inputConfigured) {
+            installListener();
+        }
+        boolean opened = false;
+        try {
+            connect(configuration, false);
+            opened = true;
+        } finally {
+            if (!opened && inputDispatcher != null) {
+                inputDispatcher.close();
             }
-            openedInputDevice = true;
-            this.transmitter = inputDevice.getTransmitter();
-        } else {
-            this.transmitter = null;
-
         }
     }
 
-    /** {@inheritDoc} */
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Each call returns a new client, sending its commands to the same Receiver as the others. The clients are not
+     * thread-safe (see {@link net.thecodersbreakfast.lp4j.api.ConcurrentLaunchpadClient}).
+     */
     @Override
     public LaunchpadClient getClient() {
-        if (this.receiver == null) {
+        if (!outputConfigured) {
             throw new LaunchpadException("Unable to provide a client, because no Receiver or Output Device have been configured.");
         }
         return new MidiLaunchpadClient(new DefaultMidiProtocolClient(this.receiver));
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Priorities are only honored with dedicated threads (see {@link MidiOutputWriter}) ; otherwise, commands are
+     * sent synchronously, in the order they are issued. Each command is sent as a single unit, so that its messages are
+     * never interleaved with those of another priority. Commands of different priorities may however reach the device
+     * in a different order than they were issued, so a pad should not be driven by clients of different priorities at
+     * the same time, and double-buffering should be controlled through a single priority.
+     */
+    @Override
+    public LaunchpadClient getClient(Priority priority) {
+        if (priority == null) {
+            throw new IllegalArgumentException("Priority must not be null.");
+        }
+        if (!outputConfigured) {
+            throw new LaunchpadException("Unable to provide a client, because no Receiver or Output Device have been configured.");
+        }
+        return new MidiLaunchpadClient(new DefaultMidiProtocolClient(this.receiver.lane(priority)));
+    }
+
     /** {@inheritDoc} */
     @Override
     public void setListener(LaunchpadListener listener) {
-        if (transmitter == null) {
-            throw new LaunchpadException("Unable to set the listener, because no Transmitter or Input Device have been configured.");
+        lock.lock();
+        try {
+            if (!inputConfigured) {
+                throw new LaunchpadException("Unable to set the listener, because no Transmitter or Input Device have been configured.");
+            }
+            this.listener = listener;
+            installListener();
+        } finally {
+            lock.unlock();
         }
-        MidiProtocolListener midiProtocolListener = new DefaultMidiProtocolListener(listener);
-        Receiver midiReceiver = new DefaultMidiProtocolReceiver(midiProtocolListener);
-        transmitter.setReceiver(midiReceiver);
+    }
+
+    /**
+     * Sets the debounce time used to filter out the press/release chatter of worn pads and buttons (see
+     * {@link DebouncingMidiProtocolListener}). Applies to the current listener, if any.
+     *
+     * @param debounceTime Minimal delay between two state changes of the same pad or button, in milliseconds. Use
+     * {@code 0} (the default) to disable filtering. Must not be negative.
+     */
+    public void setDebounceTime(long debounceTime) {
+        if (debounceTime < 0) {
+            throw new IllegalArgumentException("Invalid debounce time : " + debounceTime + ". Value must not be negative.");
+        }
+        lock.lock();
+        try {
+            this.debounceTime = TimeUnit.MILLISECONDS.toMicros(debounceTime);
+            if (listener != null) {
+                installListener();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Creates a subscriber applying {@link LedCommand}s to this Launchpad. With dedicated threads, it only requests more
+     * commands when the output writer has drained its queue enough ; otherwise, commands are sent synchronously and
+     * naturally throttled by the device.
+     *
+     * @return A new LED command subscriber.
+     */
+    public LedCommandSubscriber newLedCommandSubscriber() {
+        return new LedCommandSubscriber(getClient(), LedCommandSubscriber.DEFAULT_BATCH_SIZE, new LongSupplier() {
+            @Override
+            public long getAsLong() {
+                MidiOutputWriter currentWriter = outputWriter;
+                return currentWriter == null ? 0 : currentWriter.getPendingMessages();
+            }
+        }, LedCommandSubscriber.DEFAULT_MAX_BACKLOG);
+    }
+
+    /**
+     * Returns the pads and buttons currently held down, continuously updated from the device's events. It can be read
+     * from any thread without locking, whether or not a listener has been set.
+     *
+     * @return The input state.
+     */
+    public InputState getInputState() {
+        return inputState;
+    }
+
+    /**
+     * Returns the MIDI configuration currently in use.
+     *
+     * @return The MIDI configuration.
+     */
+    public MidiDeviceConfiguration getConfiguration() {
+        return configuration;
+    }
+
+    /**
+     * Tells if the devices are currently connected.
+     *
+     * @return {@code true} if the devices are connected, {@code false} if they have been reported as unplugged.
+     */
+    public boolean isConnected() {
+        return connected;
+    }
+
+    /**
+     * Releases the current devices, typically because they have been unplugged.
+     *
+     * <p>Until the Launchpad is reconnected, commands sent by the clients are not delivered, but are still tracked so
+     * that they can be replayed upon reconnection.
+     */
+    public void disconnect() {
+        lock.lock();
+        try {
+            if (!connected) {
+                return;
+            }
+            connected = false;
+            receiver.detach();
+            releaseDevices();
+            resetInputState();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Reopens the Launchpad with a new MIDI configuration (typically, the same physical device after it has been
+     * plugged in again), and restores the last known state of its display.
+     *
+     * @param newConfiguration The MIDI configuration to use. Must not be null.
+     * @throws MidiUnavailableException If the input or output channels cannot be opened.
+     */
+    public void reconnect(MidiDeviceConfiguration newConfiguration) throws MidiUnavailableException {
+        if (newConfiguration == null) {
+            throw new IllegalArgumentException("Configuration must not be null");
+        }
+        lock.lock();
+        try {
+            disconnect();
+            connect(newConfiguration, true);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the dedicated output writer of this Launchpad.
+     *
+     * @return The output writer, or {@code null} if this Launchpad was not created with dedicated threads.
+     */
+    public MidiOutputWriter getOutputWriter() {
+        return outputWriter;
+    }
+
+    /**
+     * Sets the rate controller pacing the dedicated output writer. It remains in effect after a reconnection.
+     *
+     * @param rateController The rate controller, or {@code null} to send messages as fast as possible.
+     * @throws IllegalStateException If this Launchpad was not created with dedicated threads.
+     */
+    public void setRateController(MidiRateController rateController) {
+        lock.lock();
+        try {
+            if (outputThreadFactory == null) {
+                throw new IllegalStateException("Output pacing requires a dedicated output writer thread.");
+            }
+            this.rateController = rateController;
+            MidiOutputWriter currentWriter = outputWriter;
+            if (currentWriter != null) {
+                currentWriter.setRateController(rateController);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Measures the message rate the output device sustains, and paces the dedicated output writer accordingly.
+     *
+     * <p>The probes are sent directly to the device, so this should be done before the application starts drawing.
+     *
+     * @param nbProbes The number of probe messages to send. Must be at least 10.
+     * @return The calibrated rate controller, now in use.
+     * @throws IllegalStateException If this Launchpad was not created with dedicated threads, or is not connected to
+     * an output device.
+     * @throws MidiUnavailableException If the device's Receiver cannot be obtained.
+     */
+    public MidiRateController calibrateOutput(int nbProbes) throws MidiUnavailableException {
+        lock.lock();
+        try {
+            MidiDevice outputDevice = configuration.getOutputDevice();
+            if (!connected || outputDevice == null) {
+                throw new IllegalStateException("The Launchpad is not connected to an output device.");
+            }
+            MidiRateController calibrated;
+            Receiver deviceReceiver = outputDevice.getReceiver();
+            try {
+                calibrated = MidiRateController.calibrate(deviceReceiver, nbProbes);
+            } catch (InvalidMidiDataException e) {
+                throw new LaunchpadException("Unable to calibrate the output device.", e);
+            } finally {
+                deviceReceiver.close();
+            }
+            setRateController(calibrated);
+            return calibrated;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the dedicated input dispatcher of this Launchpad.
+     *
+     * @return The input dispatcher, or {@code null} if this Launchpad was not created with dedicated threads.
+     */
+    public MidiInputDispatcher getInputDispatcher() {
+        return inputDispatcher;
     }
 
     /** {@inheritDoc} */
     @Override
     public void close() throws IOException {
-        if (configuration == null) {
-            return;
+        lock.lock();
+        try {
+            if (configuration == null) {
+                return;
+            }
+            connected = false;
+            receiver.detach();
+            if (inputDispatcher != null) {
+                inputDispatcher.close();
+            }
+            releaseDevices();
+        } finally {
+            lock.unlock();
         }
-        if (openedOutputDevice) {
-            MidiDevice outputDevice = configuration.getOutputDevice();
-            if (outputDevice != null && outputDevice.isOpen()) {
-                outputDevice.close();
+    }
+
+    /*
+    ================================================================================
+    Utils
+    ================================================================================
+    */
+
+    /**
+     * Builds the input processing chain for the current listener, and plugs it into the input channel.
+     */
+    private void installListener() {
+        MidiProtocolListener midiProtocolListener = new DefaultMidiProtocolListener(new InputStateListener(inputState, listener));
+        if (debounceTime > 0) {
+            debouncer = inputDispatcher != null
+                    ? new DebouncingMidiProtocolListener(midiProtocolListener, debounceTime, inputDispatcher.getExecutor())
+                    : new DebouncingMidiProtocolListener(midiProtocolListener, debounceTime);
+            midiProtocolListener = debouncer;
+        } else {
+            debouncer = null;
+        }
+        Receiver midiReceiver = new DefaultMidiProtocolReceiver(midiProtocolListener);
+        if (inputDispatcher != null) {
+            inputDispatcher.setReceiver(midiReceiver);
+        } else {
+            inputReceiver = midiReceiver;
+            if (transmitter != null) {
+                transmitter.setReceiver(midiReceiver);
+            }
+        }
+    }
+
+    /**
+     * Opens the devices of the given configuration, and plugs them into the existing clients and listeners.
+     *
+     * <p>If a channel cannot be opened, the devices and threads opened so far are released before the exception is
+     * rethrown, so that failed attempts (typically, by a {@link MidiDeviceWatcher} retrying on each poll) leak nothing.
+     *
+     * @param newConfiguration The MIDI configuration to use.
+     * @param replay Whether the last known display state should be sent to the device.
+     * @throws MidiUnavailableException If the input or output channels cannot be opened.
+     */
+    private void connect(MidiDeviceConfiguration newConfiguration, boolean replay) throws MidiUnavailableException {
+        lock.lock();
+        boolean opened = false;
+        try {
+            this.configuration = newConfiguration;
+
+            MidiDevice outputDevice = newConfiguration.getOutputDevice();
+            if (outputDevice != null) {
+                if (!outputDevice.isOpen()) {
+                    outputDevice.open();
+                }
+                openedOutputDevice = true;
+                Receiver deviceReceiver = outputDevice.getReceiver();
+                if (outputThreadFactory != null) {
+                    outputWriter = new MidiOutputWriter(deviceReceiver, outputThreadFactory);
+                    outputWriter.setRateController(rateController);
+                    deviceReceiver = outputWriter;
+                }
+                try {
+                    receiver.attach(deviceReceiver, replay);
+                } catch (InvalidMidiDataException e) {
+                    throw new LaunchpadException("Unable to restore the state of the Launchpad.", e);
+                }
+            }
+
+            MidiDevice inputDevice = newConfiguration.getInputDevice();
+            if (inputDevice != null) {
+                if (!inputDevice.isOpen()) {
+                    inputDevice.open();
+                }
+                openedInputDevice = true;
+                this.transmitter = inputDevice.getTransmitter();
+                if (inputReceiver != null) {
+                    transmitter.setReceiver(inputReceiver);
+                }
             }
+
+            connected = true;
+            opened = true;
+        } finally {
+            if (!opened) {
+                receiver.detach();
+                releaseDevices();
+            }
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Closes the devices opened by this Launchpad, ignoring errors caused by devices that have already vanished.
+     */
+    private void releaseDevices() {
+        MidiOutputWriter currentWriter = outputWriter;
+        if (currentWriter != null) {
+            currentWriter.close();
+        }
+        transmitter = null;
+        if (openedOutputDevice) {
+            closeQuietly(configuration.getOutputDevice());
+            openedOutputDevice = false;
         }
         if (openedInputDevice) {
-            MidiDevice inputDevice = configuration.getInputDevice();
-            if (inputDevice != null && inputDevice.isOpen()) {
-                inputDevice.close();
+            closeQuietly(configuration.getInputDevice());
+            openedInputDevice = false;
+        }
+    }
+
+    /**
+     * Releases all the pads and buttons of the input state. The input state must only be written by one thread at a
+     * time : the reset is queued behind the pending events on the input dispatcher thread, if any. Otherwise, the
+     * devices have just been closed, so the transmitter thread does not deliver events anymore, and the debouncing
+     * filter, whose held-back events are delivered by another thread, is reset first : once it returns, it does not
+     * write to the input state anymore.
+     */
+    private void resetInputState() {
+        final DebouncingMidiProtocolListener currentDebouncer = debouncer;
+        Runnable reset = new Runnable() {
+            @Override
+            public void run() {
+                if (currentDebouncer != null) {
+                    currentDebouncer.reset();
+                }
+                inputState.reset();
             }
+        };
+        if (inputDispatcher == null) {
+            reset.run();
+            return;
+        }
+        try {
+            inputDispatcher.getExecutor().execute(reset);
+        } catch (RejectedExecutionException e) {
+            // The dispatcher has been closed along with the Launchpad : the input state is not updated anymore.
+        }
+    }
+
+    private static ThreadFactory checkThreadFactory(ThreadFactory threadFactory) {
+        if (threadFactory == null) {
+            throw new IllegalArgumentException("Thread factory must not be null.");
+        }
+        return threadFactory;
+    }
+
+    private void closeQuietly(MidiDevice device) {
+        try {
+            if (device != null && device.isOpen()) {
+                device.close();
+            }
+        } catch (RuntimeException e) {
+            // The device has been unplugged : there is nothing left to close.
+        }
+    }
+
+    /**
+     * Updates the input state, then notifies the application's listener, if any.
+     */
+    private static class InputStateListener implements LaunchpadListener {
+
+        /** The input state to update. */
+        private final InputState inputState;
+        /** The application's listener, or {@code null}. */
+        private final LaunchpadListener listener;
+
+        private InputStateListener(InputState inputState, LaunchpadListener listener) {
+            this.inputState = inputState;
+            this.listener = listener;
+        }
+
+        @Override
+        public void onPadPressed(Pad pad, long timestamp) {
+            inputState.onPadPressed(pad, timestamp);
+            if (listener != null) {
+                listener.onPadPressed(pad, timestamp);
+            }
+        }
+
+        @Override
+        public void onPadReleased(Pad pad, long timestamp) {
+            inputState.onPadReleased(pad, timestamp);
+            if (listener != null) {
+                listener.onPadReleased(pad, timestamp);
+            }
+        }
+
+        @Override
+        public void onButtonPressed(Button button, long timestamp) {
+            inputState.onButtonPressed(button, timestamp);
+            if (listener != null) {
+                listener.onButtonPressed(button, timestamp);
+            }
+        }
+
+        @Override
+        public void onButtonReleased(Button button, long timestamp) {
+            inputState.onButtonReleased(button, timestamp);
+            if (listener != null) {
+                listener.onButtonReleased(button, timestamp);
+            }
+        }
+
+        @Override
+        public void onTextScrolled(long timestamp) {
+            if (listener != null) {
+                listener.onTextScrolled(timestamp);
+            }
+        }
+    }
+
+    /**
+     * The Receiver shared by all the clients of this Launchpad. It tracks the state of the display, and forwards the
+     * messages to the device currently connected, if any.
+     *
+     * <p>A {@link ReentrantLock} is used rather than {@code synchronized}, so that virtual threads blocked while
+     * replaying the state to the device do not pin their carrier thread.
+     */
+    private static class OutputReceiver implements MidiUnitReceiver {
+
+        /** Guards {@link #shadowState} and {@link #target}. */
+        private final ReentrantLock lock = new ReentrantLock();
+        /** Last known state of the display. */
+        private final MidiShadowState shadowState = new MidiShadowState();
+        /** The device's Receiver, or {@code null} when disconnected. */
+        private Receiver target;
+
+        @Override
+        public void send(MidiMessage message, long timestamp) {
+            send(new MidiMessage[]{message}, timestamp, Priority.ANIMATION);
+        }
+
+        @Override
+        public void send(MidiMessage[] messages, long timestamp) {
+            send(messages, timestamp, Priority.ANIMATION);
+        }
+
+        /**
+         * Records the messages and forwards them to the device while holding the lock, so that a concurrent
+         * reconnection cannot replay the shadow state in between and then lose or reorder them.
+         */
+        private void send(MidiMessage[] messages, long timestamp, Priority priority) {
+            lock.lock();
+            try {
+                for (MidiMessage message : messages) {
+                    shadowState.record(message);
+                }
+                if (target == null) {
+                    return;
+                }
+                if (target instanceof MidiOutputWriter) {
+                    ((MidiOutputWriter) target).send(messages, timestamp, priority);
+                } else {
+                    for (MidiMessage message : messages) {
+                        target.send(message, timestamp);
+                    }
+                }
+            } catch (IllegalStateException e) {
+                // The device has vanished : the messages will be replayed from the shadow state upon reconnection.
+            } catch (LaunchpadException e) {
+                // The output writer has been closed by a disconnection : same as above.
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Returns a view of this Receiver, sending its messages with the given priority.
+         */
+        private MidiUnitReceiver lane(final Priority priority) {
+            return new MidiUnitReceiver() {
+                @Override
+                public void send(MidiMessage message, long timestamp) {
+                    OutputReceiver.this.send(new MidiMessage[]{message}, timestamp, priority);
+                }
+
+                @Override
+                public void send(MidiMessage[] messages, long timestamp) {
+                    OutputReceiver.this.send(messages, timestamp, priority);
+                }
+
+                @Override
+                public void close() {
+                }
+            };
+        }
+
+        private void attach(Receiver newTarget, boolean replay) throws InvalidMidiDataException {
+            lock.lock();
+            try {
+                if (replay) {
+                    shadowState.replay(newTarget);
+                }
+                target = newTarget;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void detach() {
+            lock.lock();
+            try {
+                target = null;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void close() {
         }
     }
 
@@ -26,12 +26,20 @@ import javax.sound.midi.InvalidMidiDataException;
  *
  * <p>This class serves as an adapter between the high-level LP4J API and the low-level MIDI communication layer
  *
+ * <p>This class is not thread-safe : commands made of several MIDI messages may be interleaved with those of other
+ * threads. Wrap it in a {@link ConcurrentLaunchpadClient} to share it between threads.
+ *
  * @author Olivier Croisier (olivier.croisier@gmail.com)
  */
 public class MidiLaunchpadClient implements LaunchpadClient {
 
+    /** Layout mode used by this client, with pads addressed by their X-Y coordinates. */
+    private static final int LAYOUT_XY = 1;
+
     /** Low-level MIDI client to communicate with the Launchpad. */
     private final MidiProtocolClient midiProtocolClient;
+    /** Indicates that this client has enabled flashing, so that buffer 1 has already been prepared. */
+    private boolean blinking;
 
     /**
      * Constructor.
@@ -56,6 +64,7 @@ public class MidiLaunchpadClient implements LaunchpadClient {
     public void reset() {
         try {
             midiProtocolClient.reset();
+            blinking = false;
         } catch (InvalidMidiDataException e) {
             throw new LaunchpadException(e);
         }
@@ -97,6 +106,10 @@ public class MidiLaunchpadClient implements LaunchpadClient {
     /**
      * {@inheritDoc}
      *
+     * <p>The layout mode is set again first : any message other than a rapid update resets the device's position in the
+     * sequence, so that the lights always start from the upper-left pad, even if the previous rapid update was shorter
+     * than a full frame. Both are sent as a single unit (see {@link MidiProtocolClient#beginUnit()}).
+     *
      * @param colors {@inheritDoc} Must be of even size.
      * @param operation {@inheritDoc} Must not be null.
      */
@@ -117,10 +130,14 @@ public class MidiLaunchpadClient implements LaunchpadClient {
             rawColors[i] = toRawColor(colors[i], operation);
         }
 
+        midiProtocolClient.beginUnit();
         try {
+            midiProtocolClient.layout(LAYOUT_XY);
             midiProtocolClient.notesOn(rawColors);
         } catch (InvalidMidiDataException e) {
             throw new LaunchpadException(e);
+        } finally {
+            midiProtocolClient.endUnit();
         }
     }
 
@@ -186,6 +203,52 @@ public class MidiLaunchpadClient implements LaunchpadClient {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The first time a pad blinks (or after the flashing has been stopped), buffer 0 is copied into buffer 1, so
+     * that the other lights stay steady. When the pad blinks to black, the Launchpad clears buffer 1 by itself, so
+     * that only 2 messages are sent. Otherwise, buffer 1 is selected as the write buffer for a moment, and 4 messages
+     * are sent. The messages are sent as a single unit (see {@link MidiProtocolClient#beginUnit()}).
+     *
+     * <p>Flashing is tracked by this client only : a pad blinking through another client does not prevent the copy.
+     *
+     * @param pad {@inheritDoc} Must not be null.
+     * @param onColor {@inheritDoc} Must not be null.
+     * @param offColor {@inheritDoc} Must not be null.
+     */
+    @Override
+    public void setPadBlink(Pad pad, Color onColor, Color offColor) {
+        if (pad == null) {
+            throw new IllegalArgumentException("Pad must not be null.");
+        }
+        if (onColor == null || offColor == null) {
+            throw new IllegalArgumentException("Color must not be null.");
+        }
+
+        int rawCoords = toRawCoords(pad.getX(), pad.getY());
+        midiProtocolClient.beginUnit();
+        try {
+            if (offColor.equals(Color.BLACK)) {
+                if (!blinking) {
+                    midiProtocolClient.doubleBufferMode(0, 1, true, true);
+                }
+                midiProtocolClient.doubleBufferMode(0, 0, false, true);
+                midiProtocolClient.noteOn(rawCoords, toRawColor(onColor, BackBufferOperation.CLEAR));
+            } else {
+                midiProtocolClient.doubleBufferMode(0, 1, !blinking, true);
+                midiProtocolClient.noteOn(rawCoords, toRawColor(offColor, BackBufferOperation.NONE));
+                midiProtocolClient.doubleBufferMode(0, 0, false, true);
+                midiProtocolClient.noteOn(rawCoords, toRawColor(onColor, BackBufferOperation.NONE));
+            }
+            blinking = true;
+        } catch (InvalidMidiDataException e) {
+            throw new LaunchpadException(e);
+        } finally {
+            midiProtocolClient.endUnit();
+        }
+    }
+
     /**
      * {@inheritDoc}
      *
@@ -197,9 +260,23 @@ public class MidiLaunchpadClient implements LaunchpadClient {
             throw new IllegalArgumentException("Brightness must not be null");
         }
 
-        int level = brightness.getBrightness();
+        setDutyCycle(DutyCycle.of(brightness));
+    }
+
+    /**
+     * Sets the duty cycle of the LEDs, which controls the overall brightness of the display more finely than
+     * {@link #setBrightness(Brightness)}. Only one message is sent, whatever the number of lit LEDs.
+     *
+     * @param dutyCycle The duty cycle. Must not be null.
+     * @see MidiFader
+     */
+    public void setDutyCycle(DutyCycle dutyCycle) {
+        if (dutyCycle == null) {
+            throw new IllegalArgumentException("Duty cycle must not be null.");
+        }
+
         try {
-            midiProtocolClient.brightness(1, 18 - level);
+            midiProtocolClient.brightness(dutyCycle.getNumerator(), dutyCycle.getDenominator());
         } catch (InvalidMidiDataException e) {
             throw new LaunchpadException(e);
         }
@@ -222,11 +299,53 @@ public class MidiLaunchpadClient implements LaunchpadClient {
 
         try {
             midiProtocolClient.doubleBufferMode(getBufferValue(visibleBuffer), getBufferValue(writeBuffer), copyVisibleBufferToWriteBuffer, autoSwap);
+            blinking = autoSwap;
         } catch (InvalidMidiDataException e) {
             throw new LaunchpadException(e);
         }
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The leading lights of the batch (see {@link LaunchpadBatch#getNbLeadingLights()}) are sent as a rapid update,
+     * two lights per message ; the other changed lights are sent individually. The brightness, if changed, is sent just
+     * before the flip. The whole batch is sent as a single unit (see {@link MidiProtocolClient#beginUnit()}).
+     *
+     * <p>While pads blink (see {@link #setPadBlink(Pad, Color, Color)}), buffer 1 holds their off colors and cannot be
+     * used to prepare the batch : the lights are then written to both buffers at once, without any flip, so that the
+     * other pads keep blinking. The pads of the batch become steady.
+     *
+     * @param batch {@inheritDoc}
+     */
+    @Override
+    public void batch(LaunchpadBatch batch) {
+        if (batch == null) {
+            throw new IllegalArgumentException("Batch must not be null.");
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        midiProtocolClient.beginUnit();
+        try {
+            if (blinking) {
+                // No buffer mode message precedes the rapid update : start it from the upper-left pad
+                midiProtocolClient.layout(LAYOUT_XY);
+                sendBatch(batch, BackBufferOperation.COPY);
+            } else {
+                midiProtocolClient.doubleBufferMode(0, 1, true, false);
+                sendBatch(batch, BackBufferOperation.NONE);
+                midiProtocolClient.doubleBufferMode(1, 0, true, false);
+                midiProtocolClient.doubleBufferMode(0, 0, false, false);
+            }
+        } catch (InvalidMidiDataException e) {
+            throw new LaunchpadException(e);
+        } finally {
+            midiProtocolClient.endUnit();
+        }
+    }
+
     /**
      * Converts an abstract Buffer into its Launchpad-specific low-level representation.
      *
@@ -294,6 +413,53 @@ public class MidiLaunchpadClient implements LaunchpadClient {
         return (byte) (flags + color.getRed() + (16 * color.getGreen()));
     }
 
+    /**
+     * Sends the lights and the brightness of a batch to the current write buffer.
+     *
+     * @param batch The batch to send.
+     * @param operation What to do on the backbuffer.
+     * @throws InvalidMidiDataException If a MIDI communication error occurs.
+     */
+    private void sendBatch(LaunchpadBatch batch, BackBufferOperation operation) throws InvalidMidiDataException {
+        int nbLeadingLights = batch.getNbLeadingLights() & ~1;
+        if (nbLeadingLights > 0) {
+            int[] rawColors = new int[nbLeadingLights];
+            for (int i = 0; i < nbLeadingLights; i++) {
+                rawColors[i] = toRawColor(batch.getLight(i), operation);
+            }
+            midiProtocolClient.notesOn(rawColors);
+        }
+        for (int i = nbLeadingLights; i < FrameSequence.NB_LIGHTS; i++) {
+            Color color = batch.getLight(i);
+            if (color != null) {
+                sendLight(i, toRawColor(color, operation));
+            }
+        }
+
+        Brightness brightness = batch.getBrightness();
+        if (brightness != null) {
+            DutyCycle dutyCycle = DutyCycle.of(brightness);
+            midiProtocolClient.brightness(dutyCycle.getNumerator(), dutyCycle.getDenominator());
+        }
+    }
+
+    /**
+     * Sends the color of a light, identified by its index (see {@link LaunchpadBatch}).
+     *
+     * @param light The index of the light.
+     * @param rawColor The low-level representation of the color.
+     * @throws InvalidMidiDataException If a MIDI communication error occurs.
+     */
+    private void sendLight(int light, int rawColor) throws InvalidMidiDataException {
+        if (light < 64) {
+            midiProtocolClient.noteOn(toRawCoords(light % 8, light / 8), rawColor);
+        } else if (light < 72) {
+            midiProtocolClient.buttonOn(104 + light - 64, rawColor);
+        } else {
+            midiProtocolClient.noteOn(toRawCoords(8, light - 72), rawColor);
+        }
+    }
+
     /**
      * Converts an X-Y coordinates into its Launchpad-specific low-level representation.
      *
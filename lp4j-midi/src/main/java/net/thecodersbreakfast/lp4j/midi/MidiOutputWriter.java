@@ -0,0 +1,390 @@
+/*
+ * Copyright 2015 Olivier Croisier (thecodersbreakfast.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.thecodersbreakfast.lp4j.midi;
+
+import net.thecodersbreakfast.lp4j.api.LaunchpadException;
+import net.thecodersbreakfast.lp4j.api.Priority;
+import net.thecodersbreakfast.lp4j.midi.protocol.MidiUnitReceiver;
+
+import javax.sound.midi.MidiMessage;
+import javax.sound.midi.Receiver;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A MIDI Receiver that queues outgoing messages and sends them to the Launchpad's own Receiver from a dedicated writer
+ * thread.
+ *
+ * <p>Callers are never blocked by the device. Messages are queued in one lane per {@link Priority}, as units (see
+ * {@link MidiUnitReceiver}) : a single message is a unit of its own. Lanes are served in strict priority order : a unit
+ * is only sent when no unit of a higher priority is pending. Within a lane, units are sent in the order they were
+ * queued. The writer only switches lanes between units, so that a command depending on the device's state (such as a
+ * rapid update, or lights written to a given buffer) is never interleaved with the messages of another lane.
+ *
+ * <p>Messages sent through the {@link Receiver} interface itself go to the {@link Priority#ANIMATION} lane ; use
+ * {@link #lane(Priority)} to send them with another priority. The writer thread can be paced by a
+ * {@link MidiRateController}, so that the device is not sent more messages than it can sustain.
+ *
+ * @author Olivier Croisier (olivier.croisier@gmail.com)
+ */
+public class MidiOutputWriter implements MidiUnitReceiver {
+
+    /** How long the writer thread waits for new messages before checking if it should stop, in milliseconds. */
+    private static final long POLL_TIMEOUT = 100;
+    /** How long {@link #close()} waits for the pending messages to be sent, in milliseconds. */
+    private static final long CLOSE_TIMEOUT = 1000;
+    /** Bit of {@link #state} set once the writer has been closed. */
+    private static final int CLOSED = Integer.MIN_VALUE;
+
+    /** The Launchpad's Receiver, to which messages are actually sent. */
+    private final Receiver receiver;
+    /** Units waiting to be sent, indexed by priority. */
+    private final Queue<MidiMessage[]>[] lanes;
+    /** Number of messages waiting to be sent, indexed by priority. */
+    private final AtomicInteger[] laneMessages;
+    /** Receiver views of the lanes, indexed by priority. */
+    private final MidiUnitReceiver[] laneReceivers;
+    /** Number of units waiting to be sent, in all lanes. */
+    private final Semaphore pending = new Semaphore(0);
+    /** Number of messages waiting to be sent, in all lanes. */
+    private final AtomicInteger pendingMessages = new AtomicInteger();
+    /** The writer thread. */
+    private final Thread writerThread;
+    /** Number of messages sent to the device. */
+    private final AtomicLong sentMessages = new AtomicLong();
+    /** Number of messages the device failed to accept. */
+    private final AtomicLong failedMessages = new AtomicLong();
+    /** Paces the messages sent to the device, or {@code null} to send them as fast as possible. */
+    private volatile MidiRateController rateController;
+    /**
+     * Number of callers currently queuing messages, plus {@link #CLOSED} once the writer has been closed. Both are
+     * updated atomically, so that the writer thread only stops once no caller can queue a message anymore.
+     */
+    private final AtomicInteger state = new AtomicInteger();
+
+    /**
+     * Constructor. The writer thread is started immediately.
+     *
+     * @param receiver The Launchpad's Receiver. Must not be null.
+     * @param threadFactory The factory used to create the writer thread. Must not be null.
+     */
+    public MidiOutputWriter(Receiver receiver, ThreadFactory threadFactory) {
+        if (receiver == null) {
+            throw new IllegalArgumentException("Receiver must not be null.");
+        }
+        if (threadFactory == null) {
+            throw new IllegalArgumentException("Thread factory must not be null.");
+        }
+        this.receiver = receiver;
+        Priority[] priorities = Priority.values();
+        this.lanes = newLanes(priorities.length);
+        this.laneMessages = new AtomicInteger[priorities.length];
+        this.laneReceivers = new MidiUnitReceiver[priorities.length];
+        for (final Priority priority : priorities) {
+            laneMessages[priority.ordinal()] = new AtomicInteger();
+            laneReceivers[priority.ordinal()] = new MidiUnitReceiver() {
+                @Override
+                public void send(MidiMessage message, long timestamp) {
+                    MidiOutputWriter.this.send(message, timestamp, priority);
+                }
+
+                @Override
+                public void send(MidiMessage[] messages, long timestamp) {
+                    MidiOutputWriter.this.send(messages, timestamp, priority);
+                }
+
+                @Override
+                public void close() {
+                }
+            };
+        }
+        this.writerThread = threadFactory.newThread(new Runnable() {
+            @Override
+            public void run() {
+                writeLoop();
+            }
+        });
+        this.writerThread.start();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The message is only queued, with the {@link Priority#ANIMATION} priority ; it will be sent later by the writer
+     * thread.
+     */
+    @Override
+    public void send(MidiMessage message, long timestamp) {
+        send(message, timestamp, Priority.ANIMATION);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The unit is only queued, with the {@link Priority#ANIMATION} priority ; it will be sent later by the writer
+     * thread.
+     */
+    @Override
+    public void send(MidiMessage[] messages, long timestamp) {
+        send(messages, timestamp, Priority.ANIMATION);
+    }
+
+    /**
+     * Queues a message with the given priority. It will be sent later by the writer thread.
+     *
+     * @param message The message to send.
+     * @param timestamp The timestamp of the message (ignored).
+     * @param priority The priority of the message. Must not be null.
+     */
+    public void send(MidiMessage message, long timestamp, Priority priority) {
+        send(new MidiMessage[]{message}, timestamp, priority);
+    }
+
+    /**
+     * Queues a unit of messages with the given priority. They will be sent later by the writer thread, without any
+     * message of another unit in between.
+     *
+     * @param messages The messages of the unit. Must not be null.
+     * @param timestamp The timestamp of the messages (ignored).
+     * @param priority The priority of the messages. Must not be null.
+     */
+    public void send(MidiMessage[] messages, long timestamp, Priority priority) {
+        if (messages == null) {
+            throw new IllegalArgumentException("Messages must not be null.");
+        }
+        if (priority == null) {
+            throw new IllegalArgumentException("Priority must not be null.");
+        }
+        if (messages.length == 0) {
+            return;
+        }
+        if (!enter()) {
+            throw new LaunchpadException("Unable to send the message, because the output writer has been closed.");
+        }
+        try {
+            laneMessages[priority.ordinal()].addAndGet(messages.length);
+            pendingMessages.addAndGet(messages.length);
+            lanes[priority.ordinal()].offer(messages);
+            pending.release();
+        } finally {
+            state.decrementAndGet();
+        }
+    }
+
+    /**
+     * Returns a Receiver queuing its messages and units with the given priority.
+     *
+     * @param priority The priority of the messages. Must not be null.
+     * @return The Receiver view of the lane.
+     */
+    public MidiUnitReceiver lane(Priority priority) {
+        if (priority == null) {
+            throw new IllegalArgumentException("Priority must not be null.");
+        }
+        return laneReceivers[priority.ordinal()];
+    }
+
+    /**
+     * Stops the writer thread, after giving it a chance to send the pending messages. Messages still pending when the
+     * writer thread stops are counted as failed.
+     */
+    @Override
+    public void close() {
+        int current = state.get();
+        while ((current & CLOSED) == 0 && !state.compareAndSet(current, current | CLOSED)) {
+            current = state.get();
+        }
+        try {
+            writerThread.join(CLOSE_TIMEOUT);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Sets the rate controller pacing the messages sent to the device.
+     *
+     * @param rateController The rate controller, or {@code null} to send messages as fast as possible.
+     */
+    public void setRateController(MidiRateController rateController) {
+        this.rateController = rateController;
+    }
+
+    /**
+     * Returns the rate controller pacing the messages sent to the device.
+     *
+     * @return The rate controller, or {@code null} if messages are sent as fast as possible.
+     */
+    public MidiRateController getRateController() {
+        return rateController;
+    }
+
+    /**
+     * Returns the number of messages sent to the device so far.
+     *
+     * @return The number of sent messages.
+     */
+    public long getSentMessages() {
+        return sentMessages.get();
+    }
+
+    /**
+     * Returns the number of messages the device failed to accept so far.
+     *
+     * @return The number of failed messages.
+     */
+    public long getFailedMessages() {
+        return failedMessages.get();
+    }
+
+    /**
+     * Returns the number of messages waiting to be sent.
+     *
+     * @return The number of pending messages.
+     */
+    public int getPendingMessages() {
+        return pendingMessages.get();
+    }
+
+    /**
+     * Returns the number of messages of the given priority waiting to be sent.
+     *
+     * @param priority The priority. Must not be null.
+     * @return The number of pending messages.
+     */
+    public int getPendingMessages(Priority priority) {
+        if (priority == null) {
+            throw new IllegalArgumentException("Priority must not be null.");
+        }
+        return laneMessages[priority.ordinal()].get();
+    }
+
+    /**
+     * Main loop of the writer thread : sends the queued units until the writer is closed and the queue is empty.
+     */
+    private void writeLoop() {
+        while (state.get() != CLOSED || pending.availablePermits() > 0) {
+            try {
+                if (!pending.tryAcquire(POLL_TIMEOUT, TimeUnit.MILLISECONDS)) {
+                    continue;
+                }
+            } catch (InterruptedException e) {
+                break;
+            }
+            int lane = nextLane();
+            for (MidiMessage message : lanes[lane].poll()) {
+                laneMessages[lane].decrementAndGet();
+                pendingMessages.decrementAndGet();
+                write(message);
+            }
+        }
+        discardPending();
+    }
+
+    /**
+     * Registers a caller about to queue messages.
+     *
+     * @return {@code false} if the writer has been closed.
+     */
+    private boolean enter() {
+        int current = state.get();
+        while ((current & CLOSED) == 0) {
+            if (state.compareAndSet(current, current + 1)) {
+                return true;
+            }
+            current = state.get();
+        }
+        return false;
+    }
+
+    /**
+     * Counts the messages left in the lanes as failed, when the writer thread stops before sending them (because it
+     * has been interrupted).
+     */
+    private void discardPending() {
+        pending.drainPermits();
+        for (int lane = 0; lane < lanes.length; lane++) {
+            MidiMessage[] unit;
+            while ((unit = lanes[lane].poll()) != null) {
+                laneMessages[lane].addAndGet(-unit.length);
+                pendingMessages.addAndGet(-unit.length);
+                failedMessages.addAndGet(unit.length);
+            }
+        }
+    }
+
+    /**
+     * Sends a message to the device, paced by the rate controller, if any.
+     */
+    private void write(MidiMessage message) {
+        MidiRateController controller = rateController;
+        if (controller != null) {
+            pace(controller.reserve());
+        }
+        long start = System.nanoTime();
+        try {
+            receiver.send(message, -1);
+            sentMessages.incrementAndGet();
+        } catch (RuntimeException e) {
+            failedMessages.incrementAndGet();
+        }
+        if (controller != null) {
+            controller.onSent(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Returns the highest priority lane holding a unit. Must only be called after a permit has been acquired : since
+     * units are queued before their permit is released, at least one lane is then guaranteed to hold a unit.
+     */
+    private int nextLane() {
+        for (int lane = 0; lane < lanes.length; lane++) {
+            if (!lanes[lane].isEmpty()) {
+                return lane;
+            }
+        }
+        throw new IllegalStateException("No pending message.");
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Queue<MidiMessage[]>[] newLanes(int count) {
+        Queue<MidiMessage[]>[] lanes = new Queue[count];
+        for (int i = 0; i < count; i++) {
+            lanes[i] = new ConcurrentLinkedQueue<MidiMessage[]>();
+        }
+        return lanes;
+    }
+
+    /**
+     * Waits until the reserved send slot, unless the writer is being closed : pending messages are then flushed without
+     * delay.
+     */
+    private void pace(long delay) {
+        long deadline = System.nanoTime() + delay;
+        while ((state.get() & CLOSED) == 0 && delay > 0) {
+            LockSupport.parkNanos(delay);
+            delay = deadline - System.nanoTime();
+        }
+    }
+
+}
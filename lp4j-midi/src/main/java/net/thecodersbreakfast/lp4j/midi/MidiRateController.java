@@ -0,0 +1,225 @@
+/*
+ * Copyright 2015 Olivier Croisier (thecodersbreakfast.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.thecodersbreakfast.lp4j.midi;
+
+import javax.sound.midi.InvalidMidiDataException;
+import javax.sound.midi.Receiver;
+import javax.sound.midi.ShortMessage;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Paces the messages sent to a Launchpad, so that the device is never driven faster than it can sustain. USB MIDI
+ * devices tend to silently drop or delay messages when overdriven.
+ *
+ * <p>The send rate is adjusted from the observed latency of {@link Receiver#send(javax.sound.midi.MidiMessage, long)},
+ * following an AIMD (additive increase, multiplicative decrease) scheme : the rate grows by a fixed amount for each
+ * period during which messages were sent without congestion, and is halved as soon as a send takes longer than the
+ * latency threshold. Decreases are spaced by one period, so that a single burst of slow sends does not collapse the
+ * rate.
+ *
+ * <p>The initial settings can be measured on the actual device with {@link #calibrate(Receiver, int)}.
+ *
+ * <p>This class is thread-safe.
+ *
+ * @author Olivier Croisier (olivier.croisier@gmail.com)
+ */
+public class MidiRateController {
+
+    /** Period of the rate adjustments, in nanoseconds. */
+    static final long ADJUSTMENT_PERIOD = TimeUnit.MILLISECONDS.toNanos(100);
+    /** Factor applied to the rate on congestion. */
+    private static final double DECREASE_FACTOR = 0.5;
+    /** Part of the calibrated rate the calibrated controller starts at, to leave some headroom. */
+    private static final double CALIBRATION_HEADROOM = 0.9;
+    /** Minimum latency threshold of a calibrated controller, in nanoseconds. */
+    private static final long MIN_CALIBRATED_THRESHOLD = TimeUnit.MILLISECONDS.toNanos(1);
+    /** Minimum rate of a calibrated controller, in messages per second. */
+    private static final double MIN_CALIBRATED_RATE = 50;
+    /** Note not mapped to any pad or button, used to probe the device without changing its display. */
+    private static final int PROBE_NOTE = 15;
+
+    /** Lowest allowed rate, in messages per second. */
+    private final double minRate;
+    /** Highest allowed rate, in messages per second. */
+    private final double maxRate;
+    /** Increase of the rate for each period without congestion, in messages per second. */
+    private final double additiveIncrease;
+    /** Send latency above which the device is considered congested, in nanoseconds. */
+    private final long latencyThreshold;
+    /** Provides the current time, in nanoseconds. */
+    private final LongSupplier clock;
+
+    /** Current rate, in messages per second. */
+    private double rate;
+    /** Time at which the next message may be sent, in nanoseconds. */
+    private long nextSendTime;
+    /** Time of the last rate adjustment, in nanoseconds. */
+    private long lastAdjustment;
+    /** Indicates that congestion was observed during the current period. */
+    private boolean congested;
+    /** Number of times the rate was decreased. */
+    private long decreases;
+
+    /**
+     * Constructor.
+     *
+     * @param initialRate Initial rate, in messages per second. Must be in range [minRate..maxRate].
+     * @param minRate Lowest allowed rate, in messages per second. Must be positive.
+     * @param maxRate Highest allowed rate, in messages per second. Must not be lower than minRate.
+     * @param additiveIncrease Increase of the rate for each period without congestion, in messages per second. Must be
+     * positive.
+     * @param latencyThreshold Send latency above which the device is considered congested. Must be positive.
+     * @param unit The unit of the latency threshold. Must not be null.
+     */
+    public MidiRateController(double initialRate, double minRate, double maxRate, double additiveIncrease, long latencyThreshold, TimeUnit unit) {
+        this(initialRate, minRate, maxRate, additiveIncrease, latencyThreshold, unit, new LongSupplier() {
+            @Override
+            public long getAsLong() {
+                return System.nanoTime();
+            }
+        });
+    }
+
+    /**
+     * Constructor, with a custom clock.
+     */
+    MidiRateController(double initialRate, double minRate, double maxRate, double additiveIncrease, long latencyThreshold, TimeUnit unit, LongSupplier clock) {
+        if (minRate <= 0 || maxRate < minRate) {
+            throw new IllegalArgumentException("Invalid rate range : [" + minRate + ".." + maxRate + "]. Rates must be positive.");
+        }
+        if (initialRate < minRate || initialRate > maxRate) {
+            throw new IllegalArgumentException("Invalid initial rate : " + initialRate + ". Acceptable values are in range [" + minRate + ".." + maxRate + "].");
+        }
+        if (additiveIncrease <= 0) {
+            throw new IllegalArgumentException("Invalid additive increase : " + additiveIncrease + ". Value must be positive.");
+        }
+        if (latencyThreshold <= 0) {
+            throw new IllegalArgumentException("Invalid latency threshold : " + latencyThreshold + ". Value must be positive.");
+        }
+        if (unit == null) {
+            throw new IllegalArgumentException("Time unit must not be null.");
+        }
+        this.rate = initialRate;
+        this.minRate = minRate;
+        this.maxRate = maxRate;
+        this.additiveIncrease = additiveIncrease;
+        this.latencyThreshold = unit.toNanos(latencyThreshold);
+        this.clock = clock;
+        this.nextSendTime = clock.getAsLong();
+        this.lastAdjustment = nextSendTime;
+    }
+
+    /**
+     * Measures the rate the device sustains, by sending it a burst of messages that do not change its display, and
+     * returns a controller starting slightly below that rate.
+     *
+     * <p>The rate is measured on the second half of the burst only, once the buffers of the MIDI stack are full. The
+     * latency threshold is set to 4 times the median latency observed during the burst, or 1 ms if higher.
+     *
+     * @param receiver The Launchpad's own Receiver (not an {@link MidiOutputWriter}). Must not be null.
+     * @param nbProbes The number of messages to send. Must be at least 10.
+     * @return A rate controller suited to the device.
+     * @throws InvalidMidiDataException If the probe message cannot be built.
+     */
+    public static MidiRateController calibrate(Receiver receiver, int nbProbes) throws InvalidMidiDataException {
+        if (receiver == null) {
+            throw new IllegalArgumentException("Receiver must not be null.");
+        }
+        if (nbProbes < 10) {
+            throw new IllegalArgumentException("Invalid number of probes : " + nbProbes + ". At least 10 are required.");
+        }
+        ShortMessage probe = new ShortMessage();
+        probe.setMessage(ShortMessage.NOTE_ON, PROBE_NOTE, 0);
+
+        long[] latencies = new long[nbProbes];
+        long halfTime = 0;
+        long end = 0;
+        for (int i = 0; i < nbProbes; i++) {
+            long start = System.nanoTime();
+            if (i == nbProbes / 2) {
+                halfTime = start;
+            }
+            receiver.send(probe, -1);
+            end = System.nanoTime();
+            latencies[i] = end - start;
+        }
+
+        double measuredRate = (nbProbes - nbProbes / 2) * 1e9 / Math.max(1, end - halfTime);
+        Arrays.sort(latencies);
+        long threshold = Math.max(MIN_CALIBRATED_THRESHOLD, 4 * latencies[nbProbes / 2]);
+        double maxRate = Math.max(MIN_CALIBRATED_RATE, measuredRate);
+        double initialRate = Math.max(MIN_CALIBRATED_RATE, measuredRate * CALIBRATION_HEADROOM);
+        return new MidiRateController(initialRate, MIN_CALIBRATED_RATE, maxRate, maxRate / 100, threshold, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Reserves the next send slot.
+     *
+     * @return How long the caller must wait before sending its message, in nanoseconds.
+     */
+    public synchronized long reserve() {
+        long now = clock.getAsLong();
+        long sendTime = Math.max(now, nextSendTime);
+        nextSendTime = sendTime + (long) (1e9 / rate);
+        return sendTime - now;
+    }
+
+    /**
+     * Adjusts the rate after a message has been sent.
+     *
+     * @param latency How long the send took, in nanoseconds.
+     */
+    public synchronized void onSent(long latency) {
+        long now = clock.getAsLong();
+        boolean periodElapsed = now - lastAdjustment >= ADJUSTMENT_PERIOD;
+        if (latency > latencyThreshold) {
+            if (!congested || periodElapsed) {
+                rate = Math.max(minRate, rate * DECREASE_FACTOR);
+                decreases++;
+                congested = true;
+                lastAdjustment = now;
+            }
+        } else if (periodElapsed) {
+            if (!congested) {
+                rate = Math.min(maxRate, rate + additiveIncrease);
+            }
+            congested = false;
+            lastAdjustment = now;
+        }
+    }
+
+    /**
+     * Returns the current rate.
+     *
+     * @return The rate, in messages per second.
+     */
+    public synchronized double getRate() {
+        return rate;
+    }
+
+    /**
+     * Returns the number of times the rate was decreased because of congestion.
+     *
+     * @return The number of decreases.
+     */
+    public synchronized long getDecreases() {
+        return decreases;
+    }
+
+}
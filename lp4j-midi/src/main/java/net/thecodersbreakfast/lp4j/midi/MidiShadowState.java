@@ -0,0 +1,307 @@
+/*
+ * Copyright 2015 Olivier Croisier (thecodersbreakfast.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.thecodersbreakfast.lp4j.midi;
+
+import javax.sound.midi.InvalidMidiDataException;
+import javax.sound.midi.MidiMessage;
+import javax.sound.midi.Receiver;
+import javax.sound.midi.ShortMessage;
+import java.util.Arrays;
+
+/**
+ * Keeps track of the last known state of a Launchpad's display, by observing the low-level MIDI messages sent to it.
+ *
+ * <p>This state can later be replayed to the device (for example after it has been unplugged and reconnected), so that
+ * the display recovers without any help from the application.
+ *
+ * <p>Lights are tracked in both buffers, following the current write buffer and the copy and clear flags of each
+ * light, along with the overall brightness and the double-buffering mode (including flashing). Scrolling text and LED
+ * tests are not tracked.
+ *
+ * <p>This class is not thread-safe.
+ *
+ * @author Olivier Croisier (olivier.croisier@gmail.com)
+ */
+public class MidiShadowState {
+
+    /** Value of an untracked or unknown light or setting. */
+    private static final int UNKNOWN = -1;
+    /** Channel used for rapid (batch) updates, as sent by the protocol client. */
+    private static final int RAPID_UPDATE_CHANNEL = 3;
+    /** Number of lights updated by a full rapid update sequence. */
+    private static final int RAPID_UPDATE_LENGTH = 80;
+    /** Controller of the first top-row button. */
+    private static final int FIRST_TOP_BUTTON = 104;
+    /** Controller of the last top-row button. */
+    private static final int LAST_TOP_BUTTON = 111;
+    /** Lowest value of a double-buffering command. */
+    private static final int FIRST_BUFFER_MODE = 32;
+    /** Highest value of a double-buffering command. */
+    private static final int LAST_BUFFER_MODE = 63;
+    /** Bit of a double-buffering command selecting the displayed buffer. */
+    private static final int DISPLAY_BIT = 1;
+    /** Bit of a double-buffering command selecting the write buffer. */
+    private static final int WRITE_BIT = 4;
+    /** Bit of a double-buffering command copying the displayed buffer into the write buffer. */
+    private static final int COPY_BIT = 16;
+    /** Flag of a light's color, writing it to both buffers. */
+    private static final int COPY_FLAG = 4;
+    /** Flag of a light's color, clearing it in the other buffer. */
+    private static final int CLEAR_FLAG = 8;
+    /** Bits of a light's color holding the actual color. */
+    private static final int COLOR_MASK = 0x33;
+
+    /** Last color sent to each note (pads and right-side buttons), per buffer. */
+    private final int[][] notes = new int[2][128];
+    /** Last color sent to each top-row button, indexed by controller, per buffer. */
+    private final int[][] buttons = new int[2][128];
+    /** Controller used by the last brightness command. */
+    private int brightnessController = UNKNOWN;
+    /** Value of the last brightness command. */
+    private int brightnessValue = UNKNOWN;
+    /** Last double-buffering mode, without the copy bit. */
+    private int bufferMode = UNKNOWN;
+    /** Index of the buffer the lights are currently written to. */
+    private int writeBuffer = 0;
+    /** Position of the next light in the current rapid update sequence. */
+    private int rapidUpdatePosition = 0;
+
+    /**
+     * Constructor.
+     */
+    public MidiShadowState() {
+        clear();
+    }
+
+    /**
+     * Updates the state with a message sent to the Launchpad.
+     *
+     * @param message The message sent to the Launchpad.
+     */
+    public void record(MidiMessage message) {
+        if (!(message instanceof ShortMessage)) {
+            rapidUpdatePosition = 0;
+            return;
+        }
+        ShortMessage shortMessage = (ShortMessage) message;
+        int command = shortMessage.getCommand();
+        int data1 = shortMessage.getData1();
+        int data2 = shortMessage.getData2();
+
+        if (command == ShortMessage.NOTE_ON && shortMessage.getChannel() == RAPID_UPDATE_CHANNEL) {
+            recordRapidUpdate(data1);
+            recordRapidUpdate(data2);
+            return;
+        }
+
+        rapidUpdatePosition = 0;
+        if (command == ShortMessage.NOTE_ON) {
+            write(notes, data1, data2);
+        } else if (command == ShortMessage.NOTE_OFF) {
+            write(notes, data1, 0);
+        } else if (command == ShortMessage.CONTROL_CHANGE) {
+            recordControlChange(data1, data2);
+        }
+    }
+
+    /**
+     * Sends the known state to the given Receiver : the Launchpad is reset, then its brightness, the lights of both
+     * buffers and the double-buffering mode are restored.
+     *
+     * @param receiver The Launchpad's Receiver. Must not be null.
+     * @throws InvalidMidiDataException If a MIDI message cannot be built.
+     */
+    public void replay(Receiver receiver) throws InvalidMidiDataException {
+        if (receiver == null) {
+            throw new IllegalArgumentException("Receiver must not be null.");
+        }
+        send(receiver, ShortMessage.CONTROL_CHANGE, 0, 0);
+        if (brightnessController != UNKNOWN) {
+            send(receiver, ShortMessage.CONTROL_CHANGE, brightnessController, brightnessValue);
+        }
+
+        // Lights differing in buffer 1 first, then buffer 0 (copied to buffer 1 when both are the same)
+        if (hasDistinctLights(notes) || hasDistinctLights(buttons)) {
+            send(receiver, ShortMessage.CONTROL_CHANGE, 0, FIRST_BUFFER_MODE + WRITE_BIT);
+            replayDistinctLights(receiver, ShortMessage.NOTE_ON, notes, 0, notes[0].length - 1);
+            replayDistinctLights(receiver, ShortMessage.CONTROL_CHANGE, buttons, FIRST_TOP_BUTTON, LAST_TOP_BUTTON);
+            send(receiver, ShortMessage.CONTROL_CHANGE, 0, FIRST_BUFFER_MODE);
+        }
+        replayLights(receiver, ShortMessage.NOTE_ON, notes, 0, notes[0].length - 1);
+        replayLights(receiver, ShortMessage.CONTROL_CHANGE, buttons, FIRST_TOP_BUTTON, LAST_TOP_BUTTON);
+
+        if (bufferMode != UNKNOWN) {
+            send(receiver, ShortMessage.CONTROL_CHANGE, 0, bufferMode);
+        }
+    }
+
+    /**
+     * Forgets everything, as after a reset of the Launchpad.
+     */
+    public void clear() {
+        for (int buffer = 0; buffer < 2; buffer++) {
+            Arrays.fill(notes[buffer], UNKNOWN);
+            Arrays.fill(buttons[buffer], UNKNOWN);
+        }
+        brightnessController = UNKNOWN;
+        brightnessValue = UNKNOWN;
+        bufferMode = UNKNOWN;
+        writeBuffer = 0;
+        rapidUpdatePosition = 0;
+    }
+
+    /**
+     * Returns the last color sent to the given note, in buffer 0.
+     *
+     * @param note The note identifying a pad or a right-side button.
+     * @return The raw color, or {@code -1} if unknown.
+     */
+    public int getNote(int note) {
+        return getNote(0, note);
+    }
+
+    /**
+     * Returns the last color sent to the given note, in the given buffer.
+     *
+     * @param buffer The buffer (0 or 1).
+     * @param note The note identifying a pad or a right-side button.
+     * @return The raw color, or {@code -1} if unknown.
+     */
+    public int getNote(int buffer, int note) {
+        return notes[buffer][note];
+    }
+
+    /**
+     * Returns the last color sent to the given top-row button, in buffer 0.
+     *
+     * @param controller The controller identifying the button.
+     * @return The raw color, or {@code -1} if unknown.
+     */
+    public int getButton(int controller) {
+        return getButton(0, controller);
+    }
+
+    /**
+     * Returns the last color sent to the given top-row button, in the given buffer.
+     *
+     * @param buffer The buffer (0 or 1).
+     * @param controller The controller identifying the button.
+     * @return The raw color, or {@code -1} if unknown.
+     */
+    public int getButton(int buffer, int controller) {
+        return buttons[buffer][controller];
+    }
+
+    /*
+    ================================================================================
+    Utils
+    ================================================================================
+    */
+
+    private void recordControlChange(int controller, int value) {
+        if (controller == 0) {
+            if (value == 0) {
+                clear();
+            } else if (value >= FIRST_BUFFER_MODE && value <= LAST_BUFFER_MODE) {
+                recordBufferMode(value);
+            }
+        } else if (controller == 30 || controller == 31) {
+            brightnessController = controller;
+            brightnessValue = value;
+        } else if (controller >= FIRST_TOP_BUTTON && controller <= LAST_TOP_BUTTON) {
+            write(buttons, controller, value);
+        }
+    }
+
+    private void recordBufferMode(int value) {
+        int displayBuffer = (value & DISPLAY_BIT) != 0 ? 1 : 0;
+        writeBuffer = (value & WRITE_BIT) != 0 ? 1 : 0;
+        if ((value & COPY_BIT) != 0 && displayBuffer != writeBuffer) {
+            System.arraycopy(notes[displayBuffer], 0, notes[writeBuffer], 0, notes[0].length);
+            System.arraycopy(buttons[displayBuffer], 0, buttons[writeBuffer], 0, buttons[0].length);
+        }
+        bufferMode = value & ~COPY_BIT;
+    }
+
+    /**
+     * Records the next light of a rapid update sequence : pads first (line by line), then the top-row buttons, then
+     * the right-side buttons.
+     */
+    private void recordRapidUpdate(int color) {
+        int position = rapidUpdatePosition;
+        if (position < 64) {
+            write(notes, (position % 8) + 16 * (position / 8), color);
+        } else if (position < 72) {
+            write(buttons, FIRST_TOP_BUTTON + position - 64, color);
+        } else {
+            write(notes, 8 + 16 * (position - 72), color);
+        }
+        rapidUpdatePosition = (position + 1) % RAPID_UPDATE_LENGTH;
+    }
+
+    /**
+     * Writes a light to the current write buffer, applying the copy and clear flags to the other buffer.
+     */
+    private void write(int[][] lights, int index, int rawColor) {
+        int color = rawColor & COLOR_MASK;
+        lights[writeBuffer][index] = color;
+        if ((rawColor & COPY_FLAG) != 0) {
+            lights[1 - writeBuffer][index] = color;
+        } else if ((rawColor & CLEAR_FLAG) != 0) {
+            lights[1 - writeBuffer][index] = 0;
+        }
+    }
+
+    private static boolean hasDistinctLights(int[][] lights) {
+        for (int i = 0; i < lights[1].length; i++) {
+            if (lights[1][i] > 0 && lights[1][i] != lights[0][i]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Sends the lights of buffer 1 that differ from buffer 0.
+     */
+    private void replayDistinctLights(Receiver receiver, int command, int[][] lights, int first, int last) throws InvalidMidiDataException {
+        for (int i = first; i <= last; i++) {
+            if (lights[1][i] > 0 && lights[1][i] != lights[0][i]) {
+                send(receiver, command, i, lights[1][i]);
+            }
+        }
+    }
+
+    /**
+     * Sends the lights of buffer 0, also writing them to buffer 1 when both buffers hold the same color.
+     */
+    private void replayLights(Receiver receiver, int command, int[][] lights, int first, int last) throws InvalidMidiDataException {
+        for (int i = first; i <= last; i++) {
+            if (lights[0][i] > 0) {
+                int flags = lights[1][i] == lights[0][i] ? COPY_FLAG | CLEAR_FLAG : 0;
+                send(receiver, command, i, lights[0][i] | flags);
+            }
+        }
+    }
+
+    private void send(Receiver receiver, int command, int data1, int data2) throws InvalidMidiDataException {
+        ShortMessage message = new ShortMessage();
+        message.setMessage(command, data1, data2);
+        receiver.send(message, -1);
+    }
+
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2015 Olivier Croisier (thecodersbreakfast.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.thecodersbreakfast.lp4j.midi;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Factories for the threads used by LP4J, able to use virtual threads when the runtime supports them.
+ *
+ * <p>Virtual threads are only available from Java 21 on, while LP4J targets older runtimes : they are therefore
+ * looked up reflectively, and platform daemon threads are used as a fallback. With virtual threads, applications can
+ * dedicate a thread to each device, session or subscriber, and write straightforward blocking code, without exhausting
+ * platform threads.
+ *
+ * @author Olivier Croisier (olivier.croisier@gmail.com)
+ */
+public final class ThreadFactories {
+
+    /** Indicates that the runtime supports virtual threads. */
+    private static final boolean VIRTUAL_THREAD_SUPPORTED = probeVirtualThreads();
+
+    private ThreadFactories() {
+    }
+
+    /**
+     * Tells if the runtime supports virtual threads.
+     *
+     * @return {@code true} if virtual threads are available.
+     */
+    public static boolean isVirtualThreadSupported() {
+        return VIRTUAL_THREAD_SUPPORTED;
+    }
+
+    /**
+     * Returns a factory of daemon platform threads.
+     *
+     * @param prefix Prefix of the thread names. Must not be null.
+     * @return The thread factory.
+     */
+    public static ThreadFactory platform(String prefix) {
+        if (prefix == null) {
+            throw new IllegalArgumentException("Prefix must not be null.");
+        }
+        return new NamedThreadFactory(prefix);
+    }
+
+    /**
+     * Returns a factory of virtual threads if the runtime supports them, or of daemon platform threads otherwise.
+     *
+     * @param prefix Prefix of the thread names. Must not be null.
+     * @return The thread factory.
+     */
+    public static ThreadFactory virtualOrPlatform(String prefix) {
+        if (prefix == null) {
+            throw new IllegalArgumentException("Prefix must not be null.");
+        }
+        if (VIRTUAL_THREAD_SUPPORTED) {
+            try {
+                return virtualThreadFactory(prefix + "-");
+            } catch (Exception e) {
+                // Fall back to platform threads.
+            }
+        }
+        return new NamedThreadFactory(prefix);
+    }
+
+    /*
+    ================================================================================
+    Utils
+    ================================================================================
+    */
+
+    /**
+     * Reflectively builds a virtual thread factory : {@code Thread.ofVirtual().name(prefix, 1).factory()}.
+     *
+     * @param prefix Prefix of the thread names.
+     * @return The factory.
+     * @throws Exception If virtual threads are not supported.
+     */
+    private static ThreadFactory virtualThreadFactory(String prefix) throws Exception {
+        Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+        Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+        builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, prefix, 1L);
+        return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+    }
+
+    /**
+     * Tells if virtual threads can be created. Preview builds may expose the API but refuse to create them.
+     */
+    private static boolean probeVirtualThreads() {
+        try {
+            virtualThreadFactory("lp4j-probe-").newThread(new Runnable() {
+                @Override
+                public void run() {
+                }
+            });
+            return true;
+        } catch (Exception e) {
+            return false;
+        } catch (LinkageError e) {
+            return false;
+        }
+    }
+
+}
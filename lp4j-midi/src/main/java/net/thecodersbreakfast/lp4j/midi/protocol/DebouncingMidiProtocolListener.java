@@ -0,0 +1,325 @@
+/*
+ * Copyright 2015 Olivier Croisier (thecodersbreakfast.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.thecodersbreakfast.lp4j.midi.protocol;
+
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Filters out the press/release chatter produced by worn pads and buttons, before forwarding the events to another
+ * {@link MidiProtocolListener}.
+ *
+ * <p>For each note and button, an event is dropped if it does not change its state. A state change happening less
+ * than the debounce time after the last forwarded event is held back : when the window closes, the latest state of the
+ * control is forwarded if it still differs from the forwarded one. The forwarded state therefore always ends up
+ * matching the device's, and a quick tap is delayed rather than lost.
+ *
+ * <p>A control is forwarded as is the first time it is seen, so that a pad already held down when the filter is
+ * installed is properly released.
+ *
+ * <p>Events are compared using their MIDI timestamps (in microseconds) ; when the device does not provide timestamps,
+ * the reception time is used instead. State is kept in primitive arrays, so filtering only allocates when an event is
+ * held back.
+ *
+ * <p>Held-back events are delivered by the given scheduler. Events are forwarded one at a time, but a shared daemon
+ * thread is used by default : pass the scheduler of the thread delivering the device's events to keep all
+ * notifications on that single thread.
+ *
+ * @author Olivier Croisier (olivier.croisier@gmail.com)
+ */
+public class DebouncingMidiProtocolListener implements MidiProtocolListener {
+
+    /** Number of distinct notes or controllers. */
+    private static final int RANGE = 128;
+    /** Timestamp of a control that never changed state. */
+    private static final long NEVER = Long.MIN_VALUE;
+    /** Forwarded state of a control never seen so far. */
+    private static final byte UNKNOWN = 0;
+    /** Forwarded state of a released control. */
+    private static final byte RELEASED = 1;
+    /** Forwarded state of a pressed control. */
+    private static final byte PRESSED = 2;
+
+    /** The listener to notify of filtered events. */
+    private final MidiProtocolListener listener;
+    /** Minimal delay between two state changes of the same control, in microseconds. */
+    private final long debounceTime;
+    /** The scheduler delivering held-back events. */
+    private final ScheduledExecutorService scheduler;
+
+    /** Serializes the events and the delivery of held-back ones, without pinning virtual threads. */
+    private final ReentrantLock lock = new ReentrantLock();
+    /** Note events state. */
+    private final Controls notes = new Controls();
+    /** Button events state. */
+    private final Controls buttons = new Controls();
+    /** Incremented by {@link #reset()}, so that the deliveries scheduled before are dropped. */
+    private int generation = 0;
+
+    /**
+     * Constructor, delivering held-back events on a shared daemon thread.
+     *
+     * @param listener The listener to notify of filtered events. Must not be null.
+     * @param debounceTime Minimal delay between two state changes of the same pad or button, in microseconds. Must not
+     * be negative.
+     */
+    public DebouncingMidiProtocolListener(MidiProtocolListener listener, long debounceTime) {
+        this(listener, debounceTime, DefaultScheduler.INSTANCE);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param listener The listener to notify of filtered events. Must not be null.
+     * @param debounceTime Minimal delay between two state changes of the same pad or button, in microseconds. Must not
+     * be negative.
+     * @param scheduler The scheduler delivering held-back events. Must not be null.
+     */
+    public DebouncingMidiProtocolListener(MidiProtocolListener listener, long debounceTime, ScheduledExecutorService scheduler) {
+        if (listener == null) {
+            throw new IllegalArgumentException("Listener must not be null.");
+        }
+        if (debounceTime < 0) {
+            throw new IllegalArgumentException("Invalid debounce time : " + debounceTime + ". Value must not be negative.");
+        }
+        if (scheduler == null) {
+            throw new IllegalArgumentException("Scheduler must not be null.");
+        }
+        this.listener = listener;
+        this.debounceTime = debounceTime;
+        this.scheduler = scheduler;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void onNoteOn(int note, long timestamp) {
+        lock.lock();
+        try {
+            if (accept(notes, note, true, timestamp)) {
+                listener.onNoteOn(note, timestamp);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void onNoteOff(int note, long timestamp) {
+        lock.lock();
+        try {
+            if (accept(notes, note, false, timestamp)) {
+                listener.onNoteOff(note, timestamp);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void onButtonOn(int button, long timestamp) {
+        lock.lock();
+        try {
+            if (accept(buttons, button, true, timestamp)) {
+                listener.onButtonOn(button, timestamp);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void onButtonOff(int button, long timestamp) {
+        lock.lock();
+        try {
+            if (accept(buttons, button, false, timestamp)) {
+                listener.onButtonOff(button, timestamp);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void onTextScrolled(long timestamp) {
+        lock.lock();
+        try {
+            listener.onTextScrolled(timestamp);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Forgets the state of all the controls, typically because the device has been disconnected. The held-back events
+     * not delivered yet are dropped : once this method returns, the listener is not notified anymore until a new event
+     * is received.
+     */
+    public void reset() {
+        lock.lock();
+        try {
+            generation++;
+            notes.clear();
+            buttons.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /*
+    ================================================================================
+    Utils
+    ================================================================================
+    */
+
+    /**
+     * Tells if a state change should be forwarded right away, and records it if so. Otherwise, the delivery of the
+     * control's latest state is scheduled for the end of the debounce window.
+     *
+     * @param controls The state of the notes or buttons.
+     * @param index The note or controller.
+     * @param pressed The new state.
+     * @param timestamp The MIDI timestamp of the event, or {@code -1} if unavailable.
+     * @return {@code true} if the event should be forwarded.
+     */
+    private boolean accept(Controls controls, int index, boolean pressed, long timestamp) {
+        if (index < 0 || index >= RANGE) {
+            return true;
+        }
+        long now = timestamp < 0 ? System.nanoTime() / 1000 : timestamp;
+        controls.devicePressed[index] = pressed;
+        controls.deviceTimestamps[index] = timestamp;
+
+        byte state = pressed ? PRESSED : RELEASED;
+        byte forwarded = controls.forwarded[index];
+        if (forwarded == state) {
+            return false;
+        }
+        long last = controls.timestamps[index];
+        if (forwarded != UNKNOWN && last != NEVER && now - last < debounceTime) {
+            if (!controls.scheduled[index]) {
+                schedule(controls, index, debounceTime - (now - last));
+            }
+            return false;
+        }
+        controls.timestamps[index] = now;
+        controls.forwarded[index] = state;
+        return true;
+    }
+
+    private void schedule(final Controls controls, final int index, long delay) {
+        final int scheduledGeneration = generation;
+        try {
+            scheduler.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    flush(controls, index, scheduledGeneration);
+                }
+            }, delay, TimeUnit.MICROSECONDS);
+            controls.scheduled[index] = true;
+        } catch (RejectedExecutionException e) {
+            // The scheduler has been shut down along with the device : nothing more will be delivered.
+        }
+    }
+
+    /**
+     * Forwards the latest state of a control at the end of its debounce window, if it differs from the forwarded one,
+     * unless the filter has been reset since the delivery was scheduled.
+     */
+    private void flush(Controls controls, int index, int scheduledGeneration) {
+        lock.lock();
+        try {
+            if (scheduledGeneration != generation) {
+                return;
+            }
+            controls.scheduled[index] = false;
+            boolean pressed = controls.devicePressed[index];
+            if (controls.forwarded[index] == (pressed ? PRESSED : RELEASED)) {
+                return;
+            }
+            long timestamp = controls.deviceTimestamps[index];
+            controls.timestamps[index] = timestamp < 0 ? System.nanoTime() / 1000 : timestamp;
+            controls.forwarded[index] = pressed ? PRESSED : RELEASED;
+            if (controls == notes) {
+                if (pressed) {
+                    listener.onNoteOn(index, timestamp);
+                } else {
+                    listener.onNoteOff(index, timestamp);
+                }
+            } else {
+                if (pressed) {
+                    listener.onButtonOn(index, timestamp);
+                } else {
+                    listener.onButtonOff(index, timestamp);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The filtering state of a family of controls (notes or buttons).
+     */
+    private static final class Controls {
+        /** Timestamp of the last forwarded event, per control. */
+        private final long[] timestamps = new long[RANGE];
+        /** Last forwarded state, per control. */
+        private final byte[] forwarded = new byte[RANGE];
+        /** Latest state received from the device, per control. */
+        private final boolean[] devicePressed = new boolean[RANGE];
+        /** Timestamp of the latest event received from the device, per control. */
+        private final long[] deviceTimestamps = new long[RANGE];
+        /** Tells if the delivery of the latest state is scheduled, per control. */
+        private final boolean[] scheduled = new boolean[RANGE];
+
+        private Controls() {
+            clear();
+        }
+
+        private void clear() {
+            Arrays.fill(timestamps, NEVER);
+            Arrays.fill(forwarded, UNKNOWN);
+            Arrays.fill(devicePressed, false);
+            Arrays.fill(deviceTimestamps, 0);
+            Arrays.fill(scheduled, false);
+        }
+    }
+
+    /**
+     * Lazily creates the shared scheduler used when none is given.
+     */
+    private static final class DefaultScheduler {
+        private static final ScheduledExecutorService INSTANCE = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "lp4j-debounce");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+}
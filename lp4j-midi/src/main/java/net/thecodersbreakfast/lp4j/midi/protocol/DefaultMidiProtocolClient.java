@@ -20,16 +20,30 @@ import net.thecodersbreakfast.lp4j.api.LaunchpadException;
 
 import javax.sound.midi.*;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Default implementation of a  {@link net.thecodersbreakfast.lp4j.midi.protocol.MidiProtocolClient}.
  *
+ * <p>Each message is sent to the Receiver as soon as it is built, unless a unit has been started (see
+ * {@link #beginUnit()}) : the messages are then kept until the unit ends, and sent together to a
+ * {@link MidiUnitReceiver}, or one by one to any other Receiver. A rapid update ({@link #notesOn(int...)}) is always
+ * sent as a unit.
+ *
+ * <p>Outside of units, this class is as thread-safe as the Receiver. A unit, however, belongs to the client : a client
+ * must not be shared between threads while one of them has a unit open.
+ *
  * @author Olivier Croisier (olivier.croisier@gmail.com)
  */
 public class DefaultMidiProtocolClient implements MidiProtocolClient {
 
     /** The Launchpad's Receiver, to which commands are sent. */
     private final Receiver receiver;
+    /** Messages of the current unit. */
+    private final List<MidiMessage> unit = new ArrayList<MidiMessage>();
+    /** Nesting depth of the current unit, or {@code 0} if no unit has been started. */
+    private int unitDepth = 0;
 
     /**
      * Constructor.
@@ -82,8 +96,13 @@ public class DefaultMidiProtocolClient implements MidiProtocolClient {
             throw new IllegalArgumentException("Colors should not be null.");
         }
         int nbMessages = colors.length / 2;
-        for (int i = 0; i < nbMessages; i++) {
-            sendShortMessage(ShortMessage.NOTE_ON, 3, colors[i * 2], colors[i * 2 + 1]);
+        beginUnit();
+        try {
+            for (int i = 0; i < nbMessages; i++) {
+                sendShortMessage(ShortMessage.NOTE_ON, 3, colors[i * 2], colors[i * 2 + 1]);
+            }
+        } finally {
+            endUnit();
         }
     }
 
@@ -138,6 +157,37 @@ public class DefaultMidiProtocolClient implements MidiProtocolClient {
         sendShortMessage(ShortMessage.CONTROL_CHANGE, 0, mode);
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public void beginUnit() {
+        unitDepth++;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IllegalStateException If no unit has been started.
+     */
+    @Override
+    public void endUnit() {
+        if (unitDepth == 0) {
+            throw new IllegalStateException("No unit has been started.");
+        }
+        unitDepth--;
+        if (unitDepth > 0 || unit.isEmpty()) {
+            return;
+        }
+        MidiMessage[] messages = unit.toArray(new MidiMessage[unit.size()]);
+        unit.clear();
+        if (receiver instanceof MidiUnitReceiver) {
+            ((MidiUnitReceiver) receiver).send(messages, -1);
+        } else {
+            for (MidiMessage message : messages) {
+                this.receiver.send(message, -1);
+            }
+        }
+    }
+
 
     // ================================================================================
     // Utils
@@ -162,7 +212,11 @@ public class DefaultMidiProtocolClient implements MidiProtocolClient {
     }
 
     private void send(MidiMessage message) {
-        this.receiver.send(message, -1);
+        if (unitDepth > 0) {
+            unit.add(message);
+        } else {
+            this.receiver.send(message, -1);
+        }
     }
 
 }
@@ -121,4 +121,23 @@ public interface MidiProtocolClient {
      * @throws InvalidMidiDataException If a MIDI communication error occurs.
      */
     void doubleBufferMode(int visibleBuffer, int writeBuffer, boolean copyVisibleBufferToWriteBuffer, boolean autoSwap) throws InvalidMidiDataException;
+
+    /**
+     * Starts a unit : the messages of the following commands, up to the matching {@link #endUnit()}, are delivered to
+     * the device together, without any message from another client in between. Units may be nested, only the
+     * outermost one is delivered.
+     *
+     * <p>Commands depending on the device's state (such as a rapid update, or lights written to a given buffer) should
+     * be sent within a unit. The default implementation does nothing, for clients sending each message right away.
+     */
+    default void beginUnit() {
+    }
+
+    /**
+     * Ends the unit started by the matching {@link #beginUnit()}, delivering its messages if it is the outermost one.
+     * The default implementation does nothing.
+     */
+    default void endUnit() {
+    }
+
 }
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2015 Olivier Croisier (thecodersbreakfast.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.thecodersbreakfast.lp4j.midi.protocol;
+
+import javax.sound.midi.MidiMessage;
+import javax.sound.midi.Receiver;
+
+/**
+ * A MIDI Receiver able to take a unit of messages at once (see {@link MidiProtocolClient#beginUnit()}), and to deliver
+ * them to the device without any other message in between.
+ *
+ * @author Olivier Croisier (olivier.croisier@gmail.com)
+ */
+public interface MidiUnitReceiver extends Receiver {
+
+    /**
+     * Sends a unit of messages, in order.
+     *
+     * @param messages The messages of the unit. Must not be null.
+     * @param timestamp The timestamp of the messages, or {@code -1} if none.
+     */
+    void send(MidiMessage[] messages, long timestamp);
+
+}
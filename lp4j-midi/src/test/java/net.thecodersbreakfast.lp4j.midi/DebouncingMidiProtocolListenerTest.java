@@ -0,0 +1,174 @@
+/*
+ * Copyright 2015 Olivier Croisier (thecodersbreakfast.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.thecodersbreakfast.lp4j.midi;
+
+import net.thecodersbreakfast.lp4j.midi.protocol.DebouncingMidiProtocolListener;
+import net.thecodersbreakfast.lp4j.midi.protocol.MidiProtocolListener;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+
+public class DebouncingMidiProtocolListenerTest {
+
+    private static final long DEBOUNCE_TIME = 10000;
+    private static final int NOTE_PAD00 = 0;
+    private static final int NOTE_PAD10 = 1;
+    private static final int BUTTON_UP = 104;
+
+    private MidiProtocolListener delegate;
+    private ScheduledExecutorService scheduler;
+    private MidiProtocolListener midiProtocolListener;
+
+    @Before
+    public void init() {
+        this.delegate = Mockito.mock(MidiProtocolListener.class);
+        this.scheduler = Mockito.mock(ScheduledExecutorService.class);
+        this.midiProtocolListener = new DebouncingMidiProtocolListener(delegate, DEBOUNCE_TIME, scheduler);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void create_nullListener() {
+        new DebouncingMidiProtocolListener(null, DEBOUNCE_TIME);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void create_negativeDebounceTime() {
+        new DebouncingMidiProtocolListener(delegate, -1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void create_nullScheduler() {
+        new DebouncingMidiProtocolListener(delegate, DEBOUNCE_TIME, null);
+    }
+
+    @Test
+    public void onNote_chatterFiltered() {
+        midiProtocolListener.onNoteOn(NOTE_PAD00, 1000);
+        midiProtocolListener.onNoteOff(NOTE_PAD00, 2000);
+        midiProtocolListener.onNoteOn(NOTE_PAD00, 3000);
+        midiProtocolListener.onNoteOff(NOTE_PAD00, 50000);
+
+        Mockito.verify(delegate).onNoteOn(NOTE_PAD00, 1000);
+        Mockito.verify(delegate).onNoteOff(NOTE_PAD00, 50000);
+        Mockito.verifyNoMoreInteractions(delegate);
+    }
+
+    @Test
+    public void onNote_duplicateFiltered() {
+        midiProtocolListener.onNoteOn(NOTE_PAD00, 1000);
+        midiProtocolListener.onNoteOn(NOTE_PAD00, 100000);
+        Mockito.verify(delegate, times(1)).onNoteOn(Mockito.eq(NOTE_PAD00), Mockito.anyLong());
+    }
+
+    @Test
+    public void onNote_independentNotes() {
+        midiProtocolListener.onNoteOn(NOTE_PAD00, 1000);
+        midiProtocolListener.onNoteOn(NOTE_PAD10, 1001);
+        Mockito.verify(delegate).onNoteOn(NOTE_PAD00, 1000);
+        Mockito.verify(delegate).onNoteOn(NOTE_PAD10, 1001);
+    }
+
+    @Test
+    public void onButton_chatterFiltered() {
+        midiProtocolListener.onButtonOn(BUTTON_UP, 1000);
+        midiProtocolListener.onButtonOff(BUTTON_UP, 1500);
+        midiProtocolListener.onButtonOff(BUTTON_UP, 20000);
+
+        Mockito.verify(delegate).onButtonOn(BUTTON_UP, 1000);
+        Mockito.verify(delegate).onButtonOff(BUTTON_UP, 20000);
+        Mockito.verifyNoMoreInteractions(delegate);
+    }
+
+    @Test
+    public void onNote_trailingReleaseDelivered() {
+        midiProtocolListener.onNoteOn(NOTE_PAD00, 1000);
+        midiProtocolListener.onNoteOff(NOTE_PAD00, 2000);
+        Mockito.verify(delegate, never()).onNoteOff(Mockito.anyInt(), Mockito.anyLong());
+
+        runScheduled(9000);
+        Mockito.verify(delegate).onNoteOn(NOTE_PAD00, 1000);
+        Mockito.verify(delegate).onNoteOff(NOTE_PAD00, 2000);
+        Mockito.verifyNoMoreInteractions(delegate);
+    }
+
+    @Test
+    public void onNote_chatterEndingInInitialState() {
+        midiProtocolListener.onNoteOn(NOTE_PAD00, 1000);
+        midiProtocolListener.onNoteOff(NOTE_PAD00, 2000);
+        midiProtocolListener.onNoteOn(NOTE_PAD00, 3000);
+
+        runScheduled(9000);
+        Mockito.verify(delegate).onNoteOn(NOTE_PAD00, 1000);
+        Mockito.verifyNoMoreInteractions(delegate);
+    }
+
+    @Test
+    public void onNote_heldBeforeInstallation() {
+        midiProtocolListener.onNoteOff(NOTE_PAD00, 1000);
+        Mockito.verify(delegate).onNoteOff(NOTE_PAD00, 1000);
+    }
+
+    @Test
+    public void onButton_trailingPressDelivered() {
+        midiProtocolListener.onButtonOn(BUTTON_UP, 1000);
+        midiProtocolListener.onButtonOff(BUTTON_UP, 20000);
+        midiProtocolListener.onButtonOn(BUTTON_UP, 25000);
+
+        runScheduled(5000);
+        Mockito.verify(delegate).onButtonOn(BUTTON_UP, 1000);
+        Mockito.verify(delegate).onButtonOff(BUTTON_UP, 20000);
+        Mockito.verify(delegate).onButtonOn(BUTTON_UP, 25000);
+        Mockito.verifyNoMoreInteractions(delegate);
+    }
+
+    @Test
+    public void reset_dropsHeldBackEvents() {
+        midiProtocolListener.onButtonOn(BUTTON_UP, 1000);
+        midiProtocolListener.onButtonOff(BUTTON_UP, 20000);
+        midiProtocolListener.onButtonOn(BUTTON_UP, 25000);
+        ((DebouncingMidiProtocolListener) midiProtocolListener).reset();
+
+        runScheduled(5000);
+        Mockito.verify(delegate).onButtonOn(BUTTON_UP, 1000);
+        Mockito.verify(delegate).onButtonOff(BUTTON_UP, 20000);
+        Mockito.verifyNoMoreInteractions(delegate);
+
+        // The state has been forgotten : the next event is forwarded as is
+        midiProtocolListener.onButtonOff(BUTTON_UP, 26000);
+        Mockito.verify(delegate).onButtonOff(BUTTON_UP, 26000);
+    }
+
+    @Test
+    public void onTextScrolled() {
+        midiProtocolListener.onTextScrolled(1000);
+        Mockito.verify(delegate).onTextScrolled(1000);
+    }
+
+    private void runScheduled(long expectedDelay) {
+        ArgumentCaptor<Runnable> task = ArgumentCaptor.forClass(Runnable.class);
+        Mockito.verify(scheduler).schedule(task.capture(), Mockito.eq(expectedDelay), Mockito.eq(TimeUnit.MICROSECONDS));
+        task.getValue().run();
+    }
+
+}
@@ -18,6 +18,7 @@ package net.thecodersbreakfast.lp4j.midi;
 
 import net.thecodersbreakfast.lp4j.midi.protocol.DefaultMidiProtocolClient;
 import net.thecodersbreakfast.lp4j.midi.protocol.MidiProtocolClient;
+import net.thecodersbreakfast.lp4j.midi.protocol.MidiUnitReceiver;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -26,13 +27,17 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
+import javax.sound.midi.MidiMessage;
 import javax.sound.midi.Receiver;
 import javax.sound.midi.ShortMessage;
 import javax.sound.midi.SysexMessage;
 
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.verifyZeroInteractions;
 
 @RunWith(MockitoJUnitRunner.class)
 public class DefaultMidiProtocolClientTest {
@@ -234,6 +239,61 @@ public class DefaultMidiProtocolClientTest {
         checkShortMessage(shortMessage.getValue(), ShortMessage.CONTROL_CHANGE, 0, 32 + 8);
     }
 
+    /*
+    ================================================================================
+    units
+    ================================================================================
+    */
+
+    @Test
+    public void testUnit_sentWhenEnded() throws Exception {
+        midiProtocolClient.beginUnit();
+        midiProtocolClient.reset();
+        midiProtocolClient.layout(LAYOUT_XY);
+        verifyZeroInteractions(receiver);
+
+        midiProtocolClient.endUnit();
+        verify(receiver, times(2)).send(shortMessage.capture(), eq(-1L));
+        checkShortMessage(shortMessage.getAllValues().get(0), ShortMessage.CONTROL_CHANGE, 0, 0);
+        checkShortMessage(shortMessage.getAllValues().get(1), ShortMessage.CONTROL_CHANGE, 0, LAYOUT_XY);
+    }
+
+    @Test
+    public void testUnit_unitReceiver() throws Exception {
+        MidiUnitReceiver unitReceiver = mock(MidiUnitReceiver.class);
+        midiProtocolClient = new DefaultMidiProtocolClient(unitReceiver);
+
+        midiProtocolClient.beginUnit();
+        midiProtocolClient.reset();
+        midiProtocolClient.notesOn(COLOR_RED, COLOR_BLACK);
+        midiProtocolClient.endUnit();
+
+        ArgumentCaptor<MidiMessage[]> unit = ArgumentCaptor.forClass(MidiMessage[].class);
+        verify(unitReceiver).send(unit.capture(), eq(-1L));
+        verifyNoMoreInteractions(unitReceiver);
+        Assert.assertEquals(2, unit.getValue().length);
+        checkShortMessage((ShortMessage) unit.getValue()[0], ShortMessage.CONTROL_CHANGE, 0, 0);
+        checkShortMessage((ShortMessage) unit.getValue()[1], ShortMessage.NOTE_ON, COLOR_RED, COLOR_BLACK);
+    }
+
+    @Test
+    public void testUnit_nested() throws Exception {
+        midiProtocolClient.beginUnit();
+        midiProtocolClient.beginUnit();
+        midiProtocolClient.reset();
+        midiProtocolClient.endUnit();
+        verifyZeroInteractions(receiver);
+
+        midiProtocolClient.endUnit();
+        verify(receiver).send(shortMessage.capture(), eq(-1L));
+        checkShortMessage(shortMessage.getValue(), ShortMessage.CONTROL_CHANGE, 0, 0);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testUnit_notStarted() {
+        midiProtocolClient.endUnit();
+    }
+
     /*
     ================================================================================
     UTILS
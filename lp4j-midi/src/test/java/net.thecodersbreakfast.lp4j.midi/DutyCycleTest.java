@@ -0,0 +1,73 @@
+/*
+ * Copyright 2015 Olivier Croisier (thecodersbreakfast.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.thecodersbreakfast.lp4j.midi;
+
+import net.thecodersbreakfast.lp4j.api.Brightness;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DutyCycleTest {
+
+    @Test
+    public void of() {
+        DutyCycle dutyCycle = DutyCycle.of(3, 7);
+        assertEquals(3, dutyCycle.getNumerator());
+        assertEquals(7, dutyCycle.getDenominator());
+        assertEquals(3.0 / 7, dutyCycle.getRatio(), 1e-9);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void of_numeratorTooHigh() {
+        DutyCycle.of(17, 18);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void of_denominatorTooLow() {
+        DutyCycle.of(1, 2);
+    }
+
+    @Test
+    public void of_brightness() {
+        assertEquals(DutyCycle.of(1, 18), DutyCycle.of(Brightness.BRIGHTNESS_MIN));
+        assertEquals(DutyCycle.of(1, 3), DutyCycle.of(Brightness.BRIGHTNESS_MAX));
+    }
+
+    @Test
+    public void ladder() {
+        List<DutyCycle> ladder = DutyCycle.ladder();
+        assertEquals(DutyCycle.of(1, 18), DutyCycle.MIN);
+        assertEquals(DutyCycle.of(1, 16), ladder.get(2));
+        assertEquals(1.0, DutyCycle.MAX.getRatio(), 1e-9);
+        for (int i = 1; i < ladder.size(); i++) {
+            assertTrue(ladder.get(i - 1).getRatio() < ladder.get(i).getRatio());
+        }
+        // Much finer than the 16 levels of brightness
+        assertTrue(ladder.size() > 100);
+    }
+
+    @Test
+    public void closest() {
+        assertEquals(DutyCycle.of(2, 4), DutyCycle.closest(0.5));
+        assertEquals(DutyCycle.MIN, DutyCycle.closest(0));
+        assertEquals(DutyCycle.MAX, DutyCycle.closest(2));
+    }
+
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2015 Olivier Croisier (thecodersbreakfast.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.thecodersbreakfast.lp4j.midi;
+
+import net.thecodersbreakfast.lp4j.api.Color;
+import net.thecodersbreakfast.lp4j.api.BackBufferOperation;
+import net.thecodersbreakfast.lp4j.api.Pad;
+import org.junit.Test;
+
+import javax.sound.midi.MidiDevice;
+import javax.sound.midi.MidiUnavailableException;
+import javax.sound.midi.Receiver;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.mockito.Mockito.*;
+
+public class LaunchpadManagerTest {
+
+    @Test
+    public void open_empty() throws Exception {
+        LaunchpadManager manager = new LaunchpadManager(Collections.<MidiDeviceConfiguration>emptyList());
+        assertEquals(0, manager.size());
+        manager.close();
+    }
+
+    @Test
+    public void open_multipleDevices() throws Exception {
+        List<MidiDeviceConfiguration> configurations = new ArrayList<MidiDeviceConfiguration>();
+        List<MidiDevice> outputDevices = new ArrayList<MidiDevice>();
+        for (int i = 0; i < 3; i++) {
+            MidiDevice outputDevice = mock(MidiDevice.class);
+            when(outputDevice.getReceiver()).thenReturn(mock(Receiver.class));
+            outputDevices.add(outputDevice);
+            configurations.add(new MidiDeviceConfiguration(null, outputDevice));
+        }
+
+        LaunchpadManager manager = new LaunchpadManager(configurations);
+        assertEquals(3, manager.size());
+        for (MidiLaunchpad launchpad : manager.getLaunchpads()) {
+            assertNotNull(launchpad.getOutputWriter());
+            launchpad.getClient().setPadLight(Pad.at(0, 0), Color.RED, BackBufferOperation.NONE);
+        }
+        for (MidiDevice outputDevice : outputDevices) {
+            verify(outputDevice).open();
+        }
+
+        manager.close();
+        assertEquals(3, manager.getSentMessages());
+        assertEquals(0, manager.getPendingMessages());
+    }
+
+    @Test
+    public void open_customThreadFactory() throws Exception {
+        final AtomicInteger createdThreads = new AtomicInteger();
+        final ThreadFactory delegate = ThreadFactories.virtualOrPlatform("lp4j-test");
+        ThreadFactory threadFactory = new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                createdThreads.incrementAndGet();
+                return delegate.newThread(runnable);
+            }
+        };
+        MidiDevice outputDevice = mock(MidiDevice.class);
+        when(outputDevice.getReceiver()).thenReturn(mock(Receiver.class));
+
+        LaunchpadManager manager = new LaunchpadManager(Collections.singletonList(new MidiDeviceConfiguration(null, outputDevice)), threadFactory);
+        manager.getLaunchpads().get(0).getClient().setPadLight(Pad.at(0, 0), Color.RED, BackBufferOperation.NONE);
+        manager.close();
+        assertEquals(1, createdThreads.get());
+        assertEquals(1, manager.getSentMessages());
+    }
+
+    @Test
+    public void open_failure_closesOpenedDevices() throws Exception {
+        MidiDevice goodDevice = mock(MidiDevice.class);
+        when(goodDevice.getReceiver()).thenReturn(mock(Receiver.class));
+        when(goodDevice.isOpen()).thenReturn(false, true);
+        MidiDevice badDevice = mock(MidiDevice.class);
+        doThrow(new MidiUnavailableException()).when(badDevice).open();
+
+        List<MidiDeviceConfiguration> configurations = new ArrayList<MidiDeviceConfiguration>();
+        configurations.add(new MidiDeviceConfiguration(null, goodDevice));
+        configurations.add(new MidiDeviceConfiguration(null, badDevice));
+
+        try {
+            new LaunchpadManager(configurations);
+        } catch (MidiUnavailableException e) {
+            verify(goodDevice).close();
+            return;
+        }
+        throw new AssertionError("MidiUnavailableException expected");
+    }
+
+}
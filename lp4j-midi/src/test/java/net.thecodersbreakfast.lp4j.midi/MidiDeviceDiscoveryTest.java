@@ -0,0 +1,154 @@
+/*
+ * Copyright 2015 Olivier Croisier (thecodersbreakfast.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.thecodersbreakfast.lp4j.midi;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.sound.midi.MidiDevice;
+import javax.sound.midi.MidiUnavailableException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class MidiDeviceDiscoveryTest {
+
+    private final Map<MidiDevice.Info, MidiDevice> devices = new HashMap<MidiDevice.Info, MidiDevice>();
+    private MidiDevice.Info[] deviceInfo;
+    private int enumerations;
+    private MidiDeviceDiscovery discovery;
+
+    @Before
+    public void init() {
+        deviceInfo = new MidiDevice.Info[0];
+        enumerations = 0;
+        discovery = new MidiDeviceDiscovery(MidiDeviceDiscovery.DEFAULT_SIGNATURES) {
+            @Override
+            protected MidiDevice.Info[] listDeviceInfo() {
+                enumerations++;
+                return deviceInfo;
+            }
+
+            @Override
+            protected MidiDevice getDevice(MidiDevice.Info info) {
+                return devices.get(info);
+            }
+        };
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void create_noSignature() {
+        new MidiDeviceDiscovery();
+    }
+
+    @Test
+    public void matches() {
+        assertTrue(discovery.matches(new TestInfo("Launchpad S")));
+        assertTrue(discovery.matches(new TestInfo("2- Launchpad Mini")));
+        assertFalse(discovery.matches(new TestInfo("Some synthesizer")));
+    }
+
+    @Test
+    public void getConfigurations_pairsSamePhysicalUnit() throws Exception {
+        MidiDevice.Info synth = new TestInfo("Some synthesizer");
+        MidiDevice.Info firstIn = new TestInfo("Launchpad S");
+        MidiDevice.Info secondIn = new TestInfo("2- Launchpad S");
+        MidiDevice.Info secondOut = new TestInfo("2- Launchpad S");
+        MidiDevice.Info firstOut = new TestInfo("Launchpad S");
+        MidiDevice synthDevice = mockDevice(synth, true);
+        mockDevice(firstIn, false);
+        mockDevice(secondIn, false);
+        mockDevice(secondOut, true);
+        mockDevice(firstOut, true);
+        deviceInfo = new MidiDevice.Info[]{synth, firstIn, secondIn, secondOut, firstOut};
+
+        List<MidiDeviceConfiguration> configurations = discovery.getConfigurations();
+        assertEquals(2, configurations.size());
+        assertSame(devices.get(secondIn), configurations.get(0).getInputDevice());
+        assertSame(devices.get(secondOut), configurations.get(0).getOutputDevice());
+        assertSame(devices.get(firstIn), configurations.get(1).getInputDevice());
+        assertSame(devices.get(firstOut), configurations.get(1).getOutputDevice());
+        verify(synthDevice, never()).getMaxReceivers();
+    }
+
+    @Test
+    public void getConfigurations_unpairedChannels() throws Exception {
+        MidiDevice.Info input = new TestInfo("Launchpad S MIDI In");
+        MidiDevice.Info output = new TestInfo("Launchpad S MIDI Out");
+        MidiDevice.Info extraOutput = new TestInfo("Launchpad Mini");
+        mockDevice(input, false);
+        mockDevice(output, true);
+        mockDevice(extraOutput, true);
+        deviceInfo = new MidiDevice.Info[]{output, input, extraOutput};
+
+        List<MidiDeviceConfiguration> configurations = discovery.getConfigurations();
+        assertEquals(2, configurations.size());
+        assertSame(devices.get(input), configurations.get(0).getInputDevice());
+        assertSame(devices.get(output), configurations.get(0).getOutputDevice());
+        assertNull(configurations.get(1).getInputDevice());
+        assertSame(devices.get(extraOutput), configurations.get(1).getOutputDevice());
+    }
+
+    @Test
+    public void getConfigurations_cached() throws Exception {
+        discovery.getConfigurations();
+        MidiDevice.Info output = new TestInfo("Launchpad S");
+        mockDevice(output, true);
+        deviceInfo = new MidiDevice.Info[]{output};
+
+        assertTrue(discovery.getConfigurations().isEmpty());
+        assertEquals(1, enumerations);
+    }
+
+    @Test
+    public void refresh() throws Exception {
+        discovery.getConfigurations();
+        MidiDevice.Info output = new TestInfo("Launchpad S");
+        mockDevice(output, true);
+        deviceInfo = new MidiDevice.Info[]{output};
+
+        assertEquals(1, discovery.refresh().size());
+        assertEquals(1, discovery.getConfigurations().size());
+        assertEquals(2, enumerations);
+    }
+
+    private MidiDevice mockDevice(MidiDevice.Info info, boolean output) throws MidiUnavailableException {
+        MidiDevice midiDevice = mock(MidiDevice.class);
+        when(midiDevice.getDeviceInfo()).thenReturn(info);
+        when(midiDevice.getMaxReceivers()).thenReturn(output ? -1 : 0);
+        when(midiDevice.getMaxTransmitters()).thenReturn(output ? 0 : -1);
+        devices.put(info, midiDevice);
+        return midiDevice;
+    }
+
+    private static class TestInfo extends MidiDevice.Info {
+        private TestInfo(String name) {
+            super(name, "Test", name, "1.0");
+        }
+    }
+
+}
@@ -0,0 +1,251 @@
+/*
+ * Copyright 2015 Olivier Croisier (thecodersbreakfast.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.thecodersbreakfast.lp4j.midi;
+
+import net.thecodersbreakfast.lp4j.api.BackBufferOperation;
+import net.thecodersbreakfast.lp4j.api.Color;
+import net.thecodersbreakfast.lp4j.api.LaunchpadClient;
+import net.thecodersbreakfast.lp4j.api.LaunchpadException;
+import net.thecodersbreakfast.lp4j.api.Pad;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import javax.sound.midi.MidiDevice;
+import javax.sound.midi.MidiMessage;
+import javax.sound.midi.MidiUnavailableException;
+import javax.sound.midi.Receiver;
+import javax.sound.midi.ShortMessage;
+import javax.sound.midi.Transmitter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.*;
+
+public class MidiDeviceWatcherTest {
+
+    private static final MidiDevice.Info OTHER_INFO = new TestInfo("Some synthesizer");
+
+    private MidiDevice.Info launchpadInfo;
+    private MidiDevice device;
+    private Receiver deviceReceiver;
+    private MidiLaunchpad launchpad;
+    private List<MidiDeviceConfiguration> discovered;
+    private int discoveries;
+    private MidiDeviceWatcher watcher;
+
+    @Before
+    public void init() throws Exception {
+        launchpadInfo = new TestInfo(MidiDeviceConfiguration.DEVICE_SIGNATURE);
+        deviceReceiver = mock(Receiver.class);
+        device = mockDevice(launchpadInfo, deviceReceiver);
+        when(device.isOpen()).thenReturn(true);
+        launchpad = new MidiLaunchpad(new MidiDeviceConfiguration(null, device));
+        discovered = new ArrayList<MidiDeviceConfiguration>();
+        discoveries = 0;
+        watcher = new MidiDeviceWatcher(launchpad) {
+            @Override
+            protected List<MidiDeviceConfiguration> discover() throws MidiUnavailableException {
+                discoveries++;
+                return discovered;
+            }
+        };
+    }
+
+    @Test
+    public void poll_connected() throws Exception {
+        watcher.poll(new MidiDevice.Info[]{OTHER_INFO, launchpadInfo});
+        assertTrue(launchpad.isConnected());
+    }
+
+    @Test
+    public void poll_unplugged() throws Exception {
+        watcher.poll(new MidiDevice.Info[]{OTHER_INFO});
+        assertFalse(launchpad.isConnected());
+        verify(device).close();
+    }
+
+    @Test
+    public void poll_pluggedBack() throws Exception {
+        LaunchpadClient client = launchpad.getClient();
+        client.setPadLight(Pad.at(0, 0), Color.RED, BackBufferOperation.NONE);
+        watcher.poll(new MidiDevice.Info[]{OTHER_INFO});
+
+        // Commands sent while unplugged are not lost
+        client.setPadLight(Pad.at(1, 0), Color.GREEN, BackBufferOperation.NONE);
+        verify(deviceReceiver, times(1)).send(any(MidiMessage.class), anyLong());
+
+        MidiDevice.Info newInfo = new TestInfo(MidiDeviceConfiguration.DEVICE_SIGNATURE);
+        Receiver newReceiver = mock(Receiver.class);
+        discovered.add(new MidiDeviceConfiguration(null, mockDevice(newInfo, newReceiver)));
+        watcher.poll(new MidiDevice.Info[]{OTHER_INFO, newInfo});
+        assertTrue(launchpad.isConnected());
+
+        ArgumentCaptor<ShortMessage> messages = ArgumentCaptor.forClass(ShortMessage.class);
+        verify(newReceiver, times(3)).send(messages.capture(), eq(-1L));
+        assertEquals(ShortMessage.CONTROL_CHANGE, messages.getAllValues().get(0).getCommand());
+        assertEquals(0, messages.getAllValues().get(1).getData1());
+        assertEquals(1, messages.getAllValues().get(2).getData1());
+
+        client.setPadLight(Pad.at(2, 0), Color.RED, BackBufferOperation.NONE);
+        verify(newReceiver, times(4)).send(any(MidiMessage.class), anyLong());
+    }
+
+    @Test
+    public void poll_unpluggedAndNotBack() throws Exception {
+        watcher.poll(new MidiDevice.Info[]{OTHER_INFO});
+        watcher.poll(new MidiDevice.Info[]{OTHER_INFO});
+        assertFalse(launchpad.isConnected());
+        assertEquals(0, discoveries);
+    }
+
+    @Test
+    public void poll_otherUnitPlugged() throws Exception {
+        watcher.poll(new MidiDevice.Info[]{OTHER_INFO});
+        MidiDevice.Info otherUnitInfo = new TestInfo(MidiDeviceConfiguration.DEVICE_SIGNATURE + " [hw:2,0,0]");
+        discovered.add(new MidiDeviceConfiguration(null, mockDevice(otherUnitInfo, mock(Receiver.class))));
+        watcher.poll(new MidiDevice.Info[]{OTHER_INFO, otherUnitInfo});
+        assertFalse(launchpad.isConnected());
+        assertEquals(0, discoveries);
+    }
+
+    @Test
+    public void poll_skipsUnitsInUse() throws Exception {
+        watcher.poll(new MidiDevice.Info[]{OTHER_INFO});
+
+        MidiDevice.Info usedInfo = new TestInfo(MidiDeviceConfiguration.DEVICE_SIGNATURE);
+        MidiDevice usedDevice = mockDevice(usedInfo, mock(Receiver.class));
+        when(usedDevice.isOpen()).thenReturn(true);
+        MidiDevice.Info newInfo = new TestInfo(MidiDeviceConfiguration.DEVICE_SIGNATURE);
+        MidiDevice newDevice = mockDevice(newInfo, mock(Receiver.class));
+        discovered.add(new MidiDeviceConfiguration(null, usedDevice));
+        discovered.add(new MidiDeviceConfiguration(null, newDevice));
+        watcher.poll(new MidiDevice.Info[]{OTHER_INFO, usedInfo, newInfo});
+
+        assertTrue(launchpad.isConnected());
+        assertSame(newDevice, launchpad.getConfiguration().getOutputDevice());
+    }
+
+    @Test
+    public void poll_probesOnlyWhenDevicesChange() throws Exception {
+        watcher.poll(new MidiDevice.Info[]{OTHER_INFO});
+        MidiDevice.Info usedInfo = new TestInfo(MidiDeviceConfiguration.DEVICE_SIGNATURE);
+        MidiDevice usedDevice = mockDevice(usedInfo, mock(Receiver.class));
+        when(usedDevice.isOpen()).thenReturn(true);
+        discovered.add(new MidiDeviceConfiguration(null, usedDevice));
+
+        MidiDevice.Info[] devices = {OTHER_INFO, usedInfo};
+        watcher.poll(devices);
+        watcher.poll(devices);
+        watcher.poll(devices);
+        assertFalse(launchpad.isConnected());
+        assertEquals(1, discoveries);
+    }
+
+    @Test
+    public void poll_failedReconnectReleasesDevices() throws Exception {
+        MidiDevice.Info inputInfo = new TestInfo(MidiDeviceConfiguration.DEVICE_SIGNATURE + " input");
+        MidiDevice input = mockDevice(inputInfo, null);
+        when(input.isOpen()).thenReturn(true);
+        when(input.getTransmitter()).thenReturn(mock(Transmitter.class));
+        launchpad = new MidiLaunchpad(new MidiDeviceConfiguration(input, device), true);
+        watcher = new MidiDeviceWatcher(launchpad) {
+            @Override
+            protected List<MidiDeviceConfiguration> discover() throws MidiUnavailableException {
+                return discovered;
+            }
+        };
+        try {
+            watcher.poll(new MidiDevice.Info[]{OTHER_INFO});
+
+            MidiDevice.Info newInputInfo = new TestInfo(MidiDeviceConfiguration.DEVICE_SIGNATURE + " input");
+            MidiDevice newInput = mockDevice(newInputInfo, null);
+            doThrow(new MidiUnavailableException()).when(newInput).open();
+            MidiDevice.Info newOutputInfo = new TestInfo(MidiDeviceConfiguration.DEVICE_SIGNATURE);
+            final MidiDevice newOutput = mockDevice(newOutputInfo, mock(Receiver.class));
+            final AtomicBoolean open = new AtomicBoolean();
+            doAnswer(new Answer<Void>() {
+                @Override
+                public Void answer(InvocationOnMock invocation) {
+                    open.set(true);
+                    return null;
+                }
+            }).when(newOutput).open();
+            doAnswer(new Answer<Void>() {
+                @Override
+                public Void answer(InvocationOnMock invocation) {
+                    open.set(false);
+                    return null;
+                }
+            }).when(newOutput).close();
+            when(newOutput.isOpen()).thenAnswer(new Answer<Boolean>() {
+                @Override
+                public Boolean answer(InvocationOnMock invocation) {
+                    return open.get();
+                }
+            });
+            discovered.add(new MidiDeviceConfiguration(newInput, newOutput));
+
+            MidiDevice.Info[] devices = {OTHER_INFO, newInputInfo, newOutputInfo};
+            for (int i = 0; i < 2; i++) {
+                try {
+                    watcher.poll(devices);
+                    fail("The input device should not have been opened.");
+                } catch (MidiUnavailableException e) {
+                    // Expected : retried on the next poll
+                }
+            }
+
+            assertFalse(launchpad.isConnected());
+            verify(newOutput, times(2)).open();
+            verify(newOutput, times(2)).close();
+            try {
+                launchpad.getOutputWriter().send(new ShortMessage(), -1);
+                fail("The output writer should have been closed.");
+            } catch (LaunchpadException e) {
+                // Expected
+            }
+        } finally {
+            launchpad.close();
+        }
+    }
+
+    private MidiDevice mockDevice(MidiDevice.Info info, Receiver receiver) throws MidiUnavailableException {
+        MidiDevice midiDevice = mock(MidiDevice.class);
+        when(midiDevice.getDeviceInfo()).thenReturn(info);
+        when(midiDevice.getReceiver()).thenReturn(receiver);
+        return midiDevice;
+    }
+
+    private static class TestInfo extends MidiDevice.Info {
+        private TestInfo(String name) {
+            super(name, "Test", name, "1.0");
+        }
+    }
+
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2015 Olivier Croisier (thecodersbreakfast.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.thecodersbreakfast.lp4j.midi;
+
+import net.thecodersbreakfast.lp4j.midi.protocol.MidiProtocolClient;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.*;
+
+public class MidiFaderTest {
+
+    private MidiProtocolClient midiProtocolClient;
+    private MidiFader fader;
+
+    @Before
+    public void init() {
+        midiProtocolClient = mock(MidiProtocolClient.class);
+        fader = new MidiFader(new MidiLaunchpadClient(midiProtocolClient));
+    }
+
+    @After
+    public void close() {
+        fader.close();
+    }
+
+    @Test
+    public void steps() {
+        List<DutyCycle> steps = MidiFader.steps(DutyCycle.MIN, DutyCycle.MAX, 1000);
+        assertEquals(DutyCycle.MAX, steps.get(steps.size() - 1));
+        assertTrue(steps.size() <= DutyCycle.ladder().size() - 1);
+        for (int i = 1; i < steps.size(); i++) {
+            assertTrue(steps.get(i - 1).getRatio() < steps.get(i).getRatio());
+        }
+    }
+
+    @Test
+    public void steps_limited() {
+        List<DutyCycle> steps = MidiFader.steps(DutyCycle.MAX, DutyCycle.MIN, 10);
+        assertTrue(steps.size() <= 10);
+        assertEquals(DutyCycle.MIN, steps.get(steps.size() - 1));
+    }
+
+    @Test
+    public void steps_same() {
+        assertTrue(MidiFader.steps(DutyCycle.MAX, DutyCycle.MAX, 10).isEmpty());
+    }
+
+    @Test
+    public void fade() throws Exception {
+        fader.fadeOut(DutyCycle.of(1, 3), 100, TimeUnit.MILLISECONDS).get(1, TimeUnit.SECONDS);
+
+        InOrder inOrder = inOrder(midiProtocolClient);
+        inOrder.verify(midiProtocolClient).brightness(1, 3);
+        inOrder.verify(midiProtocolClient).brightness(1, 18);
+        // One control change per step, at most one step every 10 ms
+        verify(midiProtocolClient, atLeast(3)).brightness(anyInt(), anyInt());
+        verify(midiProtocolClient, atMost(11)).brightness(anyInt(), anyInt());
+    }
+
+    @Test
+    public void fade_cancelledByNextFade() throws Exception {
+        fader.fadeIn(DutyCycle.MAX, 10, TimeUnit.SECONDS);
+        fader.fade(DutyCycle.of(1, 5), DutyCycle.of(1, 5), 0, TimeUnit.MILLISECONDS).get(1, TimeUnit.SECONDS);
+        Thread.sleep(50);
+
+        verify(midiProtocolClient).brightness(1, 5);
+        verify(midiProtocolClient, never()).brightness(16, 16);
+    }
+
+    @Test
+    public void fade_waitsForRunningStep() throws Exception {
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch blocked = new CountDownLatch(1);
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                entered.countDown();
+                boolean interrupted = false;
+                while (true) {
+                    try {
+                        blocked.await();
+                        break;
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+                return null;
+            }
+        }).when(midiProtocolClient).brightness(1, 18);
+
+        fader.fadeIn(DutyCycle.MAX, 10, TimeUnit.SECONDS);
+        assertTrue(entered.await(1, TimeUnit.SECONDS));
+        Future<?> next = fader.fade(DutyCycle.of(1, 5), DutyCycle.of(1, 5), 0, TimeUnit.MILLISECONDS);
+        verify(midiProtocolClient, never()).brightness(1, 5);
+
+        blocked.countDown();
+        next.get(1, TimeUnit.SECONDS);
+        InOrder inOrder = inOrder(midiProtocolClient);
+        inOrder.verify(midiProtocolClient).brightness(1, 18);
+        inOrder.verify(midiProtocolClient).brightness(1, 5);
+        verifyNoMoreInteractions(midiProtocolClient);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void fade_negativeDuration() {
+        fader.fadeIn(DutyCycle.MAX, -1, TimeUnit.MILLISECONDS);
+    }
+
+}
@@ -21,7 +21,9 @@ import net.thecodersbreakfast.lp4j.midi.protocol.MidiProtocolClient;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.InOrder;
 import org.mockito.Mock;
+import org.mockito.Mockito;
 import org.mockito.runners.MockitoJUnitRunner;
 
 import javax.sound.midi.InvalidMidiDataException;
@@ -67,12 +69,108 @@ public class MidiLaunchpadClientTest {
         launchpadClient.setBrightness(Brightness.of(Brightness.MAX_VALUE + 1));
     }
 
+    @Test
+    public void setBrightness_dutyCycle() throws InvalidMidiDataException {
+        launchpadClient.setBrightness(Brightness.of(10));
+        verify(midiProtocolClient).brightness(1, 8);
+    }
+
+    @Test
+    public void setDutyCycle() throws InvalidMidiDataException {
+        ((MidiLaunchpadClient) launchpadClient).setDutyCycle(DutyCycle.of(16, 16));
+        verify(midiProtocolClient).brightness(16, 16);
+    }
+
     @Test(expected = LaunchpadException.class)
     public void setBrightness_exception() throws InvalidMidiDataException {
         doThrow(new InvalidMidiDataException()).when(midiProtocolClient).brightness(anyInt(), anyInt());
         launchpadClient.setBrightness(Brightness.BRIGHTNESS_MIN);
     }
 
+    /*
+    ================================================================================
+    setPadBlink
+    ================================================================================
+    */
+
+    @Test
+    public void setPadBlink_toBlack() throws InvalidMidiDataException {
+        launchpadClient.setPadBlink(Pad.at(1, 2), Color.RED, Color.BLACK);
+        InOrder inOrder = inOrder(midiProtocolClient);
+        inOrder.verify(midiProtocolClient).beginUnit();
+        inOrder.verify(midiProtocolClient).doubleBufferMode(0, 1, true, true);
+        inOrder.verify(midiProtocolClient).doubleBufferMode(0, 0, false, true);
+        inOrder.verify(midiProtocolClient).noteOn(33, 8 + 3);
+        inOrder.verify(midiProtocolClient).endUnit();
+        verifyNoMoreInteractions(midiProtocolClient);
+    }
+
+    @Test
+    public void setPadBlink_toColor() throws InvalidMidiDataException {
+        launchpadClient.setPadBlink(Pad.at(1, 2), Color.RED, Color.GREEN);
+        InOrder inOrder = inOrder(midiProtocolClient);
+        inOrder.verify(midiProtocolClient).beginUnit();
+        inOrder.verify(midiProtocolClient).doubleBufferMode(0, 1, true, true);
+        inOrder.verify(midiProtocolClient).noteOn(33, 48);
+        inOrder.verify(midiProtocolClient).doubleBufferMode(0, 0, false, true);
+        inOrder.verify(midiProtocolClient).noteOn(33, 3);
+        inOrder.verify(midiProtocolClient).endUnit();
+        verifyNoMoreInteractions(midiProtocolClient);
+    }
+
+    @Test
+    public void setPadBlink_alreadyBlinking() throws InvalidMidiDataException {
+        launchpadClient.setPadBlink(Pad.at(1, 2), Color.RED, Color.GREEN);
+        Mockito.reset(midiProtocolClient);
+
+        launchpadClient.setPadBlink(Pad.at(2, 2), Color.RED, Color.GREEN);
+        launchpadClient.setPadBlink(Pad.at(3, 2), Color.RED, Color.BLACK);
+        InOrder inOrder = inOrder(midiProtocolClient);
+        inOrder.verify(midiProtocolClient).beginUnit();
+        inOrder.verify(midiProtocolClient).doubleBufferMode(0, 1, false, true);
+        inOrder.verify(midiProtocolClient).noteOn(34, 48);
+        inOrder.verify(midiProtocolClient).doubleBufferMode(0, 0, false, true);
+        inOrder.verify(midiProtocolClient).noteOn(34, 3);
+        inOrder.verify(midiProtocolClient).endUnit();
+        inOrder.verify(midiProtocolClient).beginUnit();
+        inOrder.verify(midiProtocolClient).doubleBufferMode(0, 0, false, true);
+        inOrder.verify(midiProtocolClient).noteOn(35, 8 + 3);
+        inOrder.verify(midiProtocolClient).endUnit();
+        verifyNoMoreInteractions(midiProtocolClient);
+    }
+
+    @Test
+    public void setPadBlink_afterStop() throws InvalidMidiDataException {
+        launchpadClient.setPadBlink(Pad.at(1, 2), Color.RED, Color.GREEN);
+        launchpadClient.setBuffers(Buffer.BUFFER_0, Buffer.BUFFER_0, false, false);
+        Mockito.reset(midiProtocolClient);
+
+        launchpadClient.setPadBlink(Pad.at(1, 2), Color.RED, Color.GREEN);
+        verify(midiProtocolClient).doubleBufferMode(0, 1, true, true);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setPadBlink_nullColor() {
+        launchpadClient.setPadBlink(Pad.at(1, 2), Color.RED, null);
+    }
+
+    @Test(expected = LaunchpadException.class)
+    public void setPadBlink_exception() throws InvalidMidiDataException {
+        doThrow(new InvalidMidiDataException()).when(midiProtocolClient).doubleBufferMode(anyInt(), anyInt(), anyBoolean(), anyBoolean());
+        launchpadClient.setPadBlink(Pad.at(1, 2), Color.RED, Color.BLACK);
+    }
+
+    @Test
+    public void setPadBlink_exceptionEndsUnit() throws InvalidMidiDataException {
+        doThrow(new InvalidMidiDataException()).when(midiProtocolClient).doubleBufferMode(anyInt(), anyInt(), anyBoolean(), anyBoolean());
+        try {
+            launchpadClient.setPadBlink(Pad.at(1, 2), Color.RED, Color.BLACK);
+        } catch (LaunchpadException e) {
+            // Expected
+        }
+        verify(midiProtocolClient).endUnit();
+    }
+
     /*
     ================================================================================
     setBuffers
@@ -242,6 +340,23 @@ public class MidiLaunchpadClientTest {
         verify(midiProtocolClient).notesOn(12, 12);
     }
 
+    @Test
+    public void setLights_resetsSequence() throws InvalidMidiDataException {
+        Color[] colors = {Color.RED, Color.GREEN};
+        launchpadClient.setLights(colors, BackBufferOperation.NONE);
+        launchpadClient.setLights(colors, BackBufferOperation.NONE);
+
+        InOrder inOrder = inOrder(midiProtocolClient);
+        inOrder.verify(midiProtocolClient).beginUnit();
+        inOrder.verify(midiProtocolClient).layout(1);
+        inOrder.verify(midiProtocolClient).notesOn(3, 48);
+        inOrder.verify(midiProtocolClient).endUnit();
+        inOrder.verify(midiProtocolClient).beginUnit();
+        inOrder.verify(midiProtocolClient).layout(1);
+        inOrder.verify(midiProtocolClient).notesOn(3, 48);
+        inOrder.verify(midiProtocolClient).endUnit();
+    }
+
     /*
     ================================================================================
     scrollText
@@ -275,5 +390,82 @@ public class MidiLaunchpadClientTest {
         launchpadClient.scrollText("Hello", Color.BLACK, ScrollSpeed.SPEED_MIN, false, BackBufferOperation.COPY);
     }
 
+    /*
+    ================================================================================
+    batch
+    ================================================================================
+    */
+
+    @Test
+    public void batch_sparse() throws InvalidMidiDataException {
+        LaunchpadBatch batch = new LaunchpadBatch()
+                .setPadLight(Pad.at(1, 2), Color.RED)
+                .setButtonLight(Button.UP, Color.GREEN)
+                .setButtonLight(Button.VOL, Color.RED)
+                .setBrightness(Brightness.of(10));
+        launchpadClient.batch(batch);
+
+        InOrder inOrder = inOrder(midiProtocolClient);
+        inOrder.verify(midiProtocolClient).beginUnit();
+        inOrder.verify(midiProtocolClient).doubleBufferMode(0, 1, true, false);
+        inOrder.verify(midiProtocolClient).noteOn(33, 3);
+        inOrder.verify(midiProtocolClient).buttonOn(104, 48);
+        inOrder.verify(midiProtocolClient).noteOn(8, 3);
+        inOrder.verify(midiProtocolClient).brightness(1, 8);
+        inOrder.verify(midiProtocolClient).doubleBufferMode(1, 0, true, false);
+        inOrder.verify(midiProtocolClient).doubleBufferMode(0, 0, false, false);
+        inOrder.verify(midiProtocolClient).endUnit();
+        verifyNoMoreInteractions(midiProtocolClient);
+    }
+
+    @Test
+    public void batch_dense() throws InvalidMidiDataException {
+        LaunchpadBatch batch = new LaunchpadBatch()
+                .setLights(new Color[]{Color.RED, Color.RED, Color.GREEN, Color.GREEN, Color.RED});
+        launchpadClient.batch(batch);
+
+        InOrder inOrder = inOrder(midiProtocolClient);
+        inOrder.verify(midiProtocolClient).beginUnit();
+        inOrder.verify(midiProtocolClient).doubleBufferMode(0, 1, true, false);
+        inOrder.verify(midiProtocolClient).notesOn(3, 3, 48, 48);
+        inOrder.verify(midiProtocolClient).noteOn(4, 3);
+        inOrder.verify(midiProtocolClient).doubleBufferMode(1, 0, true, false);
+        inOrder.verify(midiProtocolClient).doubleBufferMode(0, 0, false, false);
+        inOrder.verify(midiProtocolClient).endUnit();
+        verifyNoMoreInteractions(midiProtocolClient);
+    }
+
+    @Test
+    public void batch_whileBlinking() throws InvalidMidiDataException {
+        launchpadClient.setPadBlink(Pad.at(1, 2), Color.RED, Color.GREEN);
+        Mockito.reset(midiProtocolClient);
+
+        LaunchpadBatch batch = new LaunchpadBatch()
+                .setLights(new Color[]{Color.RED, Color.RED, Color.GREEN, Color.GREEN, Color.RED});
+        launchpadClient.batch(batch);
+
+        InOrder inOrder = inOrder(midiProtocolClient);
+        inOrder.verify(midiProtocolClient).beginUnit();
+        inOrder.verify(midiProtocolClient).layout(1);
+        inOrder.verify(midiProtocolClient).notesOn(12 + 3, 12 + 3, 12 + 48, 12 + 48);
+        inOrder.verify(midiProtocolClient).noteOn(4, 12 + 3);
+        inOrder.verify(midiProtocolClient).endUnit();
+        verifyNoMoreInteractions(midiProtocolClient);
+
+        // Blinking is still active
+        launchpadClient.setPadBlink(Pad.at(2, 2), Color.RED, Color.GREEN);
+        verify(midiProtocolClient).doubleBufferMode(0, 1, false, true);
+    }
+
+    @Test
+    public void batch_empty() {
+        launchpadClient.batch(new LaunchpadBatch());
+        verifyZeroInteractions(midiProtocolClient);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void batch_null() {
+        launchpadClient.batch(null);
+    }
 
 }
@@ -16,7 +16,146 @@
 
 package net.thecodersbreakfast.lp4j.midi;
 
+import net.thecodersbreakfast.lp4j.api.Button;
+import net.thecodersbreakfast.lp4j.api.LaunchpadListener;
+import net.thecodersbreakfast.lp4j.api.Pad;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import javax.sound.midi.MidiDevice;
+import javax.sound.midi.Receiver;
+import javax.sound.midi.ShortMessage;
+import javax.sound.midi.Transmitter;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.*;
+
 public class MidiLaunchpadTest {
 
+    private Transmitter transmitter;
+    private MidiLaunchpad launchpad;
+
+    @Before
+    public void init() throws Exception {
+        transmitter = mock(Transmitter.class);
+        MidiDevice inputDevice = mock(MidiDevice.class);
+        when(inputDevice.getTransmitter()).thenReturn(transmitter);
+        launchpad = new MidiLaunchpad(new MidiDeviceConfiguration(inputDevice, null));
+    }
+
+    @Test
+    public void inputState_withoutListener() throws Exception {
+        send(ShortMessage.NOTE_ON, 0x12, 127);
+        send(ShortMessage.CONTROL_CHANGE, 104, 127);
+        assertTrue(launchpad.getInputState().isPressed(Pad.at(2, 1)));
+        assertTrue(launchpad.getInputState().isPressed(Button.UP));
+
+        send(ShortMessage.NOTE_ON, 0x12, 0);
+        assertFalse(launchpad.getInputState().isPressed(Pad.at(2, 1)));
+    }
+
+    @Test
+    public void inputState_withListener() throws Exception {
+        LaunchpadListener listener = mock(LaunchpadListener.class);
+        launchpad.setListener(listener);
+        send(ShortMessage.NOTE_ON, 0x12, 127);
+        assertTrue(launchpad.getInputState().isPressed(Pad.at(2, 1)));
+        verify(listener).onPadPressed(Pad.at(2, 1), -1);
+    }
+
+    @Test
+    public void inputState_resetOnDisconnect() throws Exception {
+        send(ShortMessage.NOTE_ON, 0x12, 127);
+        launchpad.disconnect();
+        assertEquals(0, launchpad.getInputState().getPadMask());
+    }
+
+    @Test
+    public void inputState_resetOnInputThread() throws Exception {
+        transmitter = mock(Transmitter.class);
+        MidiDevice inputDevice = mock(MidiDevice.class);
+        when(inputDevice.getTransmitter()).thenReturn(transmitter);
+        launchpad = new MidiLaunchpad(new MidiDeviceConfiguration(inputDevice, null), true);
+        try {
+            send(ShortMessage.NOTE_ON, 0x12, 127);
+            awaitInputThread();
+            assertTrue(launchpad.getInputState().isPressed(Pad.at(2, 1)));
+            final CountDownLatch blocked = new CountDownLatch(1);
+            launchpad.getInputDispatcher().getExecutor().execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        blocked.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+
+            launchpad.disconnect();
+            assertTrue(launchpad.getInputState().isPressed(Pad.at(2, 1)));
+
+            blocked.countDown();
+            awaitInputThread();
+            assertEquals(0, launchpad.getInputState().getPadMask());
+        } finally {
+            launchpad.close();
+        }
+    }
+
+    @Test
+    public void inputState_resetDropsHeldBackEvents() throws Exception {
+        LaunchpadListener listener = mock(LaunchpadListener.class);
+        launchpad.setListener(listener);
+        launchpad.setDebounceTime(200);
+        send(ShortMessage.NOTE_ON, 0x12, 127, 1000);
+        send(ShortMessage.NOTE_ON, 0x12, 0, 300000);
+        // Held back until the end of the window, on the shared debounce thread
+        send(ShortMessage.NOTE_ON, 0x12, 127, 301000);
+
+        launchpad.disconnect();
+        Thread.sleep(400);
+        assertEquals(0, launchpad.getInputState().getPadMask());
+        verify(listener, times(1)).onPadPressed(Pad.at(2, 1), 1000);
+        verify(listener).onPadReleased(Pad.at(2, 1), 300000);
+        verifyNoMoreInteractions(listener);
+    }
+
+    @Test
+    public void debounce() throws Exception {
+        LaunchpadListener listener = mock(LaunchpadListener.class);
+        launchpad.setListener(listener);
+        launchpad.setDebounceTime(10);
+        send(ShortMessage.NOTE_ON, 0x12, 127, 1000);
+        send(ShortMessage.NOTE_ON, 0x12, 0, 2000);
+        send(ShortMessage.NOTE_ON, 0x12, 127, 3000);
+        verify(listener, times(1)).onPadPressed(Pad.at(2, 1), 1000);
+        verifyNoMoreInteractions(listener);
+    }
+
+    private void awaitInputThread() throws Exception {
+        launchpad.getInputDispatcher().getExecutor().submit(new Runnable() {
+            @Override
+            public void run() {
+            }
+        }).get(1, TimeUnit.SECONDS);
+    }
+
+    private void send(int command, int data1, int data2) throws Exception {
+        send(command, data1, data2, -1);
+    }
+
+    private void send(int command, int data1, int data2, long timestamp) throws Exception {
+        ArgumentCaptor<Receiver> receiver = ArgumentCaptor.forClass(Receiver.class);
+        verify(transmitter, atLeastOnce()).setReceiver(receiver.capture());
+        ShortMessage message = new ShortMessage();
+        message.setMessage(command, data1, data2);
+        receiver.getValue().send(message, timestamp);
+    }
 
 }
@@ -0,0 +1,246 @@
+/*
+ * Copyright 2015 Olivier Croisier (thecodersbreakfast.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.thecodersbreakfast.lp4j.midi;
+
+import net.thecodersbreakfast.lp4j.api.LaunchpadException;
+import net.thecodersbreakfast.lp4j.api.Priority;
+import net.thecodersbreakfast.lp4j.midi.protocol.DefaultMidiProtocolClient;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+
+import javax.sound.midi.MidiMessage;
+import javax.sound.midi.Receiver;
+import javax.sound.midi.ShortMessage;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class MidiOutputWriterTest {
+
+    @Mock
+    private Receiver receiver;
+
+    private MidiOutputWriter writer;
+    private CountDownLatch entered;
+
+    @Before
+    public void init() {
+        entered = new CountDownLatch(1);
+        writer = new MidiOutputWriter(receiver, new NamedThreadFactory("test-output"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void create_nullReceiver() {
+        new MidiOutputWriter(null, new NamedThreadFactory("test-output"));
+    }
+
+    @Test
+    public void send_inOrder() throws Exception {
+        ShortMessage first = new ShortMessage();
+        first.setMessage(ShortMessage.NOTE_ON, 1, 3);
+        ShortMessage second = new ShortMessage();
+        second.setMessage(ShortMessage.NOTE_ON, 2, 3);
+
+        writer.send(first, -1);
+        writer.send(second, -1);
+        writer.close();
+
+        InOrder inOrder = inOrder(receiver);
+        inOrder.verify(receiver).send(first, -1);
+        inOrder.verify(receiver).send(second, -1);
+        assertEquals(2, writer.getSentMessages());
+        assertEquals(0, writer.getPendingMessages());
+    }
+
+    @Test
+    public void send_failure() throws Exception {
+        doThrow(new IllegalStateException()).when(receiver).send(any(MidiMessage.class), anyLong());
+        writer.send(new ShortMessage(), -1);
+        writer.close();
+        assertEquals(0, writer.getSentMessages());
+        assertEquals(1, writer.getFailedMessages());
+    }
+
+    @Test
+    public void send_paced() throws Exception {
+        MidiRateController controller = new MidiRateController(100, 10, 100, 10, 1, TimeUnit.SECONDS);
+        writer.setRateController(controller);
+        long start = System.nanoTime();
+        for (int i = 0; i < 3; i++) {
+            writer.send(new ShortMessage(), -1);
+        }
+        while (writer.getSentMessages() < 3 && System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1)) {
+            Thread.sleep(1);
+        }
+        assertEquals(3, writer.getSentMessages());
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(20));
+    }
+
+    @Test
+    public void send_strictPriority() throws Exception {
+        CountDownLatch blocked = blockOnFirstSend();
+        ShortMessage background1 = message(ShortMessage.NOTE_ON, 0, 1);
+        ShortMessage background2 = message(ShortMessage.NOTE_ON, 0, 2);
+        ShortMessage animation = message(ShortMessage.NOTE_ON, 0, 3);
+        ShortMessage interactive = message(ShortMessage.NOTE_ON, 0, 4);
+
+        writer.send(background1, -1, Priority.BACKGROUND);
+        entered.await(1, TimeUnit.SECONDS);
+        writer.send(background2, -1, Priority.BACKGROUND);
+        writer.send(animation, -1);
+        writer.lane(Priority.INTERACTIVE).send(interactive, -1);
+        blocked.countDown();
+        writer.close();
+
+        InOrder inOrder = inOrder(receiver);
+        inOrder.verify(receiver).send(background1, -1);
+        inOrder.verify(receiver).send(interactive, -1);
+        inOrder.verify(receiver).send(animation, -1);
+        inOrder.verify(receiver).send(background2, -1);
+    }
+
+    @Test
+    public void send_unitNotInterrupted() throws Exception {
+        CountDownLatch blocked = blockOnFirstSend();
+        ShortMessage rapid1 = message(ShortMessage.NOTE_ON, 3, 1);
+        ShortMessage rapid2 = message(ShortMessage.NOTE_ON, 3, 2);
+        ShortMessage rapid3 = message(ShortMessage.NOTE_ON, 3, 3);
+        ShortMessage interactive = message(ShortMessage.NOTE_ON, 0, 4);
+
+        writer.send(new MidiMessage[]{rapid1, rapid2, rapid3}, -1, Priority.BACKGROUND);
+        entered.await(1, TimeUnit.SECONDS);
+        writer.send(interactive, -1, Priority.INTERACTIVE);
+        assertEquals(3, writer.getPendingMessages());
+        assertEquals(2, writer.getPendingMessages(Priority.BACKGROUND));
+        blocked.countDown();
+        writer.close();
+
+        InOrder inOrder = inOrder(receiver);
+        inOrder.verify(receiver).send(rapid1, -1);
+        inOrder.verify(receiver).send(rapid2, -1);
+        inOrder.verify(receiver).send(rapid3, -1);
+        inOrder.verify(receiver).send(interactive, -1);
+        assertEquals(0, writer.getPendingMessages());
+    }
+
+    @Test
+    public void send_unitFromSlowProducer() throws Exception {
+        DefaultMidiProtocolClient background = new DefaultMidiProtocolClient(writer.lane(Priority.BACKGROUND));
+        ShortMessage interactive = message(ShortMessage.NOTE_ON, 0, 4);
+
+        background.beginUnit();
+        background.doubleBufferMode(0, 1, true, true);
+        // The writer is idle, and serves another lane while the unit is being built
+        writer.send(interactive, -1, Priority.INTERACTIVE);
+        long start = System.nanoTime();
+        while (writer.getSentMessages() < 1 && System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1)) {
+            Thread.sleep(1);
+        }
+        background.noteOn(33, 48);
+        background.endUnit();
+        writer.close();
+
+        ArgumentCaptor<MidiMessage> captor = ArgumentCaptor.forClass(MidiMessage.class);
+        verify(receiver, times(3)).send(captor.capture(), eq(-1L));
+        List<MidiMessage> sent = captor.getAllValues();
+        assertSame(interactive, sent.get(0));
+        assertArrayEquals(new byte[]{(byte) ShortMessage.CONTROL_CHANGE, 0, 32 + 4 + 8 + 16}, sent.get(1).getMessage());
+        assertArrayEquals(new byte[]{(byte) ShortMessage.NOTE_ON, 33, 48}, sent.get(2).getMessage());
+    }
+
+    @Test
+    public void close_racingSenders() throws Exception {
+        final AtomicLong accepted = new AtomicLong();
+        final CountDownLatch started = new CountDownLatch(4);
+        Thread[] senders = new Thread[4];
+        for (int i = 0; i < senders.length; i++) {
+            senders[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    started.countDown();
+                    try {
+                        while (true) {
+                            writer.send(new MidiMessage[]{new ShortMessage(), new ShortMessage()}, -1, Priority.BACKGROUND);
+                            accepted.addAndGet(2);
+                        }
+                    } catch (LaunchpadException e) {
+                        // The writer has been closed
+                    }
+                }
+            });
+            senders[i].start();
+        }
+        started.await(1, TimeUnit.SECONDS);
+        writer.close();
+        for (Thread sender : senders) {
+            sender.join(1000);
+        }
+
+        // Every accepted message has been either sent, or reported as failed
+        assertEquals(accepted.get(), writer.getSentMessages() + writer.getFailedMessages());
+        assertEquals(0, writer.getPendingMessages());
+        assertEquals(0, writer.getPendingMessages(Priority.BACKGROUND));
+    }
+
+    @Test(expected = LaunchpadException.class)
+    public void send_closed() {
+        writer.close();
+        writer.send(new ShortMessage(), -1);
+    }
+
+    /**
+     * Blocks the writer thread on the first message it sends, until the returned latch is released, so that the
+     * following messages pile up in the lanes.
+     */
+    private CountDownLatch blockOnFirstSend() {
+        final CountDownLatch blocked = new CountDownLatch(1);
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                entered.countDown();
+                blocked.await(1, TimeUnit.SECONDS);
+                return null;
+            }
+        }).doNothing().when(receiver).send(any(MidiMessage.class), anyLong());
+        return blocked;
+    }
+
+    private static ShortMessage message(int command, int channel, int data1) throws Exception {
+        ShortMessage message = new ShortMessage();
+        message.setMessage(command, channel, data1, 0);
+        return message;
+    }
+
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2015 Olivier Croisier (thecodersbreakfast.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.thecodersbreakfast.lp4j.midi;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.sound.midi.MidiMessage;
+import javax.sound.midi.Receiver;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
+
+public class MidiRateControllerTest {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private long now;
+    private MidiRateController controller;
+
+    @Before
+    public void init() {
+        now = 0;
+        controller = newController(100, 10, 200);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void create_invalidRange() {
+        new MidiRateController(100, 200, 100, 10, 1, TimeUnit.MILLISECONDS);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void create_initialRateOutOfRange() {
+        new MidiRateController(300, 10, 200, 10, 1, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    public void reserve_pacing() {
+        assertEquals(0, controller.reserve());
+        assertEquals(10 * MS, controller.reserve());
+        assertEquals(20 * MS, controller.reserve());
+
+        // Idle time is not accumulated as credit
+        now = 100 * MS;
+        assertEquals(0, controller.reserve());
+        assertEquals(10 * MS, controller.reserve());
+    }
+
+    @Test
+    public void onSent_congestion() {
+        controller.onSent(2 * MS);
+        assertEquals(50, controller.getRate(), 0.001);
+
+        // Only one decrease per period
+        controller.onSent(2 * MS);
+        assertEquals(50, controller.getRate(), 0.001);
+
+        now = 100 * MS;
+        controller.onSent(2 * MS);
+        assertEquals(25, controller.getRate(), 0.001);
+        assertEquals(2, controller.getDecreases());
+    }
+
+    @Test
+    public void onSent_increase() {
+        controller.onSent(MS / 2);
+        assertEquals(100, controller.getRate(), 0.001);
+
+        now = 100 * MS;
+        controller.onSent(MS / 2);
+        assertEquals(110, controller.getRate(), 0.001);
+    }
+
+    @Test
+    public void onSent_noIncreaseAfterCongestion() {
+        controller.onSent(2 * MS);
+        now = 100 * MS;
+        controller.onSent(MS / 2);
+        assertEquals(50, controller.getRate(), 0.001);
+        now = 200 * MS;
+        controller.onSent(MS / 2);
+        assertEquals(60, controller.getRate(), 0.001);
+    }
+
+    @Test
+    public void onSent_bounds() {
+        controller = newController(195, 10, 200);
+        now = 100 * MS;
+        controller.onSent(0);
+        assertEquals(200, controller.getRate(), 0.001);
+
+        controller = newController(15, 10, 200);
+        controller.onSent(2 * MS);
+        assertEquals(10, controller.getRate(), 0.001);
+    }
+
+    @Test
+    public void calibrate() throws Exception {
+        Receiver receiver = mock(Receiver.class);
+        MidiRateController calibrated = MidiRateController.calibrate(receiver, 100);
+        verify(receiver, times(100)).send(any(MidiMessage.class), eq(-1L));
+        assertTrue(calibrated.getRate() >= 50);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void calibrate_tooFewProbes() throws Exception {
+        MidiRateController.calibrate(mock(Receiver.class), 5);
+    }
+
+    private MidiRateController newController(double initialRate, double minRate, double maxRate) {
+        return new MidiRateController(initialRate, minRate, maxRate, 10, 1, TimeUnit.MILLISECONDS, new LongSupplier() {
+            @Override
+            public long getAsLong() {
+                return now;
+            }
+        });
+    }
+
+}
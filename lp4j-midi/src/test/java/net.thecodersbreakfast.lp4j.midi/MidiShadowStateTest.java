@@ -0,0 +1,181 @@
+/*
+ * Copyright 2015 Olivier Croisier (thecodersbreakfast.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.thecodersbreakfast.lp4j.midi;
+
+import net.thecodersbreakfast.lp4j.api.BackBufferOperation;
+import net.thecodersbreakfast.lp4j.api.Brightness;
+import net.thecodersbreakfast.lp4j.api.Buffer;
+import net.thecodersbreakfast.lp4j.api.Button;
+import net.thecodersbreakfast.lp4j.api.Color;
+import net.thecodersbreakfast.lp4j.api.LaunchpadClient;
+import net.thecodersbreakfast.lp4j.api.LightIntensity;
+import net.thecodersbreakfast.lp4j.api.Pad;
+import net.thecodersbreakfast.lp4j.midi.protocol.DefaultMidiProtocolClient;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import javax.sound.midi.MidiMessage;
+import javax.sound.midi.Receiver;
+import javax.sound.midi.ShortMessage;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.*;
+
+public class MidiShadowStateTest {
+
+    private MidiShadowState shadowState;
+    private LaunchpadClient client;
+
+    @Before
+    public void init() {
+        shadowState = new MidiShadowState();
+        client = new MidiLaunchpadClient(new DefaultMidiProtocolClient(new Receiver() {
+            @Override
+            public void send(MidiMessage message, long timeStamp) {
+                shadowState.record(message);
+            }
+
+            @Override
+            public void close() {
+            }
+        }));
+    }
+
+    @Test
+    public void record_lights() {
+        client.setPadLight(Pad.at(1, 2), Color.RED, BackBufferOperation.NONE);
+        client.setButtonLight(Button.UP, Color.GREEN, BackBufferOperation.NONE);
+        client.setButtonLight(Button.VOL, Color.AMBER, BackBufferOperation.NONE);
+        assertEquals(3, shadowState.getNote(33));
+        assertEquals(48, shadowState.getButton(104));
+        assertEquals(51, shadowState.getNote(8));
+    }
+
+    @Test
+    public void record_rapidUpdate() {
+        Color[] colors = new Color[80];
+        Arrays.fill(colors, Color.BLACK);
+        colors[9] = Color.RED;
+        colors[64] = Color.GREEN;
+        colors[79] = Color.AMBER;
+        client.setLights(colors, BackBufferOperation.NONE);
+        assertEquals(3, shadowState.getNote(17));
+        assertEquals(48, shadowState.getButton(104));
+        assertEquals(51, shadowState.getNote(8 + 16 * 7));
+        assertEquals(0, shadowState.getNote(0));
+    }
+
+    @Test
+    public void record_reset() {
+        client.setPadLight(Pad.at(1, 2), Color.RED, BackBufferOperation.NONE);
+        client.reset();
+        assertEquals(-1, shadowState.getNote(33));
+    }
+
+    @Test
+    public void record_buffers() {
+        client.setBuffers(Buffer.BUFFER_0, Buffer.BUFFER_1, false, false);
+        client.setPadLight(Pad.at(1, 2), Color.RED, BackBufferOperation.NONE);
+        client.setPadLight(Pad.at(2, 2), Color.GREEN, BackBufferOperation.COPY);
+        client.setButtonLight(Button.UP, Color.AMBER, BackBufferOperation.CLEAR);
+        assertEquals(-1, shadowState.getNote(0, 33));
+        assertEquals(3, shadowState.getNote(1, 33));
+        assertEquals(48, shadowState.getNote(0, 34));
+        assertEquals(48, shadowState.getNote(1, 34));
+        assertEquals(0, shadowState.getButton(0, 104));
+        assertEquals(51, shadowState.getButton(1, 104));
+    }
+
+    @Test
+    public void record_copyBuffer() {
+        client.setPadLight(Pad.at(1, 2), Color.RED, BackBufferOperation.NONE);
+        client.setBuffers(Buffer.BUFFER_0, Buffer.BUFFER_1, true, false);
+        assertEquals(3, shadowState.getNote(1, 33));
+    }
+
+    @Test
+    public void replay_ledTestNotRecorded() throws Exception {
+        client.testLights(LightIntensity.HIGH);
+
+        Receiver receiver = mock(Receiver.class);
+        shadowState.replay(receiver);
+
+        ArgumentCaptor<ShortMessage> messages = ArgumentCaptor.forClass(ShortMessage.class);
+        verify(receiver, times(1)).send(messages.capture(), eq(-1L));
+        checkShortMessage(messages.getValue(), ShortMessage.CONTROL_CHANGE, 0, 0);
+    }
+
+    @Test
+    public void replay_blink() throws Exception {
+        client.setPadBlink(Pad.at(1, 2), Color.RED, Color.GREEN);
+
+        Receiver receiver = mock(Receiver.class);
+        shadowState.replay(receiver);
+
+        ArgumentCaptor<ShortMessage> messages = ArgumentCaptor.forClass(ShortMessage.class);
+        verify(receiver, times(6)).send(messages.capture(), eq(-1L));
+        List<ShortMessage> replayed = messages.getAllValues();
+        checkShortMessage(replayed.get(0), ShortMessage.CONTROL_CHANGE, 0, 0);
+        checkShortMessage(replayed.get(1), ShortMessage.CONTROL_CHANGE, 0, 36);
+        checkShortMessage(replayed.get(2), ShortMessage.NOTE_ON, 33, 48);
+        checkShortMessage(replayed.get(3), ShortMessage.CONTROL_CHANGE, 0, 32);
+        checkShortMessage(replayed.get(4), ShortMessage.NOTE_ON, 33, 3);
+        checkShortMessage(replayed.get(5), ShortMessage.CONTROL_CHANGE, 0, 40);
+    }
+
+    @Test
+    public void replay_sameColorInBothBuffers() throws Exception {
+        client.setPadLight(Pad.at(1, 2), Color.RED, BackBufferOperation.COPY);
+
+        Receiver receiver = mock(Receiver.class);
+        shadowState.replay(receiver);
+
+        ArgumentCaptor<ShortMessage> messages = ArgumentCaptor.forClass(ShortMessage.class);
+        verify(receiver, times(2)).send(messages.capture(), eq(-1L));
+        checkShortMessage(messages.getAllValues().get(1), ShortMessage.NOTE_ON, 33, 15);
+    }
+
+    @Test
+    public void replay() throws Exception {
+        client.setBrightness(Brightness.BRIGHTNESS_MAX);
+        client.setPadLight(Pad.at(1, 2), Color.RED, BackBufferOperation.NONE);
+        client.setPadLight(Pad.at(3, 3), Color.BLACK, BackBufferOperation.NONE);
+        client.setButtonLight(Button.MIXER, Color.GREEN, BackBufferOperation.NONE);
+
+        Receiver receiver = mock(Receiver.class);
+        shadowState.replay(receiver);
+
+        ArgumentCaptor<ShortMessage> messages = ArgumentCaptor.forClass(ShortMessage.class);
+        verify(receiver, times(4)).send(messages.capture(), eq(-1L));
+        List<ShortMessage> replayed = messages.getAllValues();
+        checkShortMessage(replayed.get(0), ShortMessage.CONTROL_CHANGE, 0, 0);
+        checkShortMessage(replayed.get(1), ShortMessage.CONTROL_CHANGE, 30, 0);
+        checkShortMessage(replayed.get(2), ShortMessage.NOTE_ON, 33, 3);
+        checkShortMessage(replayed.get(3), ShortMessage.CONTROL_CHANGE, 111, 48);
+    }
+
+    private void checkShortMessage(ShortMessage message, int command, int data1, int data2) {
+        assertEquals(command, message.getCommand());
+        assertEquals(data1, message.getData1());
+        assertEquals(data2, message.getData2());
+    }
+
+}